@@ -0,0 +1,130 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application under test, started from its jar in a separate JVM or as a native image.
+ */
+public class ApplicationProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Process process;
+    private final int port;
+    private final Duration startupTime;
+
+    public ApplicationProcess(LoadTestConfig config, String jdbcUrl, String username, String password,
+                              String nbpUrl, Path log) throws IOException, InterruptedException {
+        this.port = freePort();
+        List<String> command = new ArrayList<>();
+        // native images accept the memory options of the JVM, e.g. -Xmx
+        command.add(config.appExecutable() != null
+                ? config.appExecutable().toAbsolutePath().toString()
+                : Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Arrays.stream(config.jvmArgs().trim().split("\\s+")).filter(arg -> !arg.isEmpty()).forEach(command::add);
+        if (config.appExecutable() == null) {
+            command.addAll(List.of("-jar", config.appJar().toAbsolutePath().toString()));
+        }
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--currency.grpc.port=" + freePort(),
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.show-sql=false",
+                "--nbp.api.url=" + nbpUrl));
+        Arrays.stream(config.appArgs().trim().split("\\s+")).filter(arg -> !arg.isEmpty()).forEach(command::add);
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        long start = System.nanoTime();
+        this.process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        awaitHealthy(log);
+        this.startupTime = Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    public URI baseUri() {
+        return URI.create("http://127.0.0.1:" + port);
+    }
+
+    /**
+     * @return time from launching the process until the health endpoint answered, which is what a load balancer
+     * waits for before sending traffic
+     */
+    public Duration startupTime() {
+        return startupTime;
+    }
+
+    /**
+     * Reads the resident set size of the application with {@code ps}, which works on Linux and macOS.
+     *
+     * @return the resident memory in bytes
+     */
+    public long residentBytes() throws IOException, InterruptedException {
+        Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", Long.toString(process.pid()))
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(ps.getInputStream().readAllBytes()).trim();
+        if (ps.waitFor() != 0 || output.isEmpty()) {
+            throw new IllegalStateException("Could not read the resident set size of process " + process.pid() + ": " + output);
+        }
+        return Long.parseLong(output) * 1024;
+    }
+
+    /**
+     * @return the CPU time the application used so far, or zero where the platform does not report it
+     */
+    public Duration cpuTime() {
+        return process.info().totalCpuDuration().orElse(Duration.ZERO);
+    }
+
+    private void awaitHealthy(Path log) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest health = HttpRequest.newBuilder(baseUri().resolve("/actuator/health"))
+                .timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // not listening yet
+            }
+            // short enough not to distort the startup time of a native image
+            Thread.sleep(50);
+        }
+        close();
+        throw new IllegalStateException("Application did not become healthy within " + STARTUP_TIMEOUT + ", see " + log);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
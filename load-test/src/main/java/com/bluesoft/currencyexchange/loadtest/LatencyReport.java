@@ -0,0 +1,108 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and error counts.
+ * <p>
+ * The report is printed as a fixed-width table and written as a tab separated file with one row per endpoint,
+ * sorted by endpoint, so that runs can be compared line by line.
+ */
+public class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String HEADER = "endpoint\tops\terrors\tthroughput_per_s\tp50_ms\tp99_ms\tp999_ms\tmax_ms";
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    /**
+     * Records one request.
+     *
+     * @param endpoint the endpoint template, e.g. {@code GET /api/accounts/{id}}
+     * @param latencyNanos time from the intended send time to the response
+     * @param success whether the response status was 2xx or 304
+     */
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+        stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * @return the number of requests recorded over all endpoints
+     */
+    public long requests() {
+        long requests = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            requests += endpoint.latency.getTotalCount();
+        }
+        return requests;
+    }
+
+    public void print(Duration elapsed, PrintStream out) {
+        out.printf(Locale.ROOT, "%-50s %10s %8s %12s %10s %10s %10s %10s%n",
+                "endpoint", "ops", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (String row : rows(elapsed)) {
+            String[] cells = row.split("\t");
+            out.printf(Locale.ROOT, "%-50s %10s %8s %12s %10s %10s %10s %10s%n", (Object[]) cells);
+        }
+    }
+
+    public void write(Duration elapsed, Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.addAll(rows(elapsed));
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.write(file, lines);
+    }
+
+    private List<String> rows(Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        List<String> rows = new ArrayList<>();
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Histogram latency = entry.getValue().latency.copy();
+            long errors = entry.getValue().errors.sum();
+            total.add(latency);
+            totalErrors += errors;
+            rows.add(row(entry.getKey(), latency, errors, seconds));
+        }
+        rows.add(row("TOTAL", total, totalErrors, seconds));
+        return rows;
+    }
+
+    private static String row(String name, Histogram latency, long errors, double seconds) {
+        return String.format(Locale.ROOT, "%s\t%d\t%d\t%.1f\t%.3f\t%.3f\t%.3f\t%.3f",
+                name, latency.getTotalCount(), errors, latency.getTotalCount() / seconds,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Endpoint {
+
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,84 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Starts the application against PostgreSQL and a stub NBP API, drives the mixed workload and reports
+ * per-endpoint throughput and latency percentiles.
+ * <p>
+ * Settings are passed as {@code -Dload.*} system properties, see {@link LoadTestConfig}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        checkApplication(config);
+        PostgreSQLContainer<?> postgres = null;
+        String jdbcUrl = config.jdbcUrl();
+        String username = System.getProperty("load.jdbcUsername", "user");
+        String password = System.getProperty("load.jdbcPassword", "password");
+        if (jdbcUrl == null) {
+            postgres = startPostgres(username, password);
+            jdbcUrl = postgres.getJdbcUrl();
+        }
+        try (NbpStub nbp = new NbpStub(config);
+             ApplicationProcess app = new ApplicationProcess(config, jdbcUrl, username, password, nbp.baseUrl(),
+                     Path.of("target", "app.log"))) {
+            System.out.printf("Application healthy after %d ms, resident memory %d MB%n",
+                    app.startupTime().toMillis(), app.residentBytes() >> 20);
+            Workload workload = new Workload(config, app.baseUri());
+            System.out.printf("Creating %d accounts%n", config.accounts());
+            workload.setUp();
+
+            System.out.printf("Warming up for %s%n", config.warmup());
+            workload.run(config.warmup(), new LatencyReport(), config.seed());
+
+            System.out.printf("Measuring for %s with %d clients%s%n", config.duration(), config.threads(),
+                    config.targetRate() > 0 ? " at " + config.targetRate() + " req/s" : "");
+            LatencyReport report = new LatencyReport();
+            Duration cpuBefore = app.cpuTime();
+            long start = System.nanoTime();
+            workload.run(config.duration(), report, config.seed() + 1);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            Duration cpu = app.cpuTime().minus(cpuBefore);
+
+            report.print(elapsed, System.out);
+            report.write(elapsed, config.report());
+            long requests = report.requests();
+            System.out.printf(Locale.ROOT, "Application CPU: %.1f s, %.1f us per request%n",
+                    cpu.toNanos() / 1e9, requests > 0 ? cpu.toNanos() / 1e3 / requests : 0.0);
+            System.out.printf(Locale.ROOT, "Response bodies: %d KB, %.0f bytes per request, %d answered with 304%n",
+                    workload.responseBytes() >> 10, requests > 0 ? (double) workload.responseBytes() / requests : 0.0,
+                    workload.notModified());
+            System.out.printf("NBP stub: %d requests, %d injected errors%n", nbp.requests(), nbp.errors());
+            System.out.printf("Resident memory after the run: %d MB%n", app.residentBytes() >> 20);
+            System.out.printf("Report written to %s%n", config.report().toAbsolutePath());
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    static PostgreSQLContainer<?> startPostgres(String username, String password) {
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15.2")
+                .withDatabaseName("accountsdb")
+                .withUsername(username)
+                .withPassword(password)
+                .withCommand("postgres", "-c", "max_connections=200");
+        postgres.start();
+        return postgres;
+    }
+
+    static void checkApplication(LoadTestConfig config) {
+        if (!Files.isRegularFile(config.application())) {
+            throw new IllegalStateException("Application " + config.application().toAbsolutePath()
+                    + " not found, run 'mvn package -DskipTests' in the application directory first");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load test settings, read from {@code -Dload.*} system properties.
+ *
+ * @param appJar the application jar to start
+ * @param appExecutable a native image of the application to start instead of the jar, or null
+ * @param variant a name for the build of the application, written to the startup report
+ * @param jvmArgs extra JVM arguments of the application, space separated
+ * @param appArgs extra application arguments, space separated, e.g. {@code --currency.rate-limit.enabled=false}
+ * @param jdbcUrl an existing database to use instead of a PostgreSQL container, or null
+ * @param warmup how long to run before latencies are recorded
+ * @param duration how long latencies are recorded
+ * @param threads number of concurrent clients
+ * @param targetRate total requests per second, or 0 to send as fast as the application answers
+ * @param accounts number of accounts created before the run
+ * @param hotAccounts number of accounts that receive the hot share of the traffic
+ * @param hotShare share of exchange and balance requests that target the hot accounts
+ * @param createWeight relative weight of account creations
+ * @param exchangeWeight relative weight of exchanges
+ * @param balanceWeight relative weight of balance reads
+ * @param pollWeight relative weight of account detail reads, which a polling client sends again and again
+ * @param conditional whether clients send the last {@code ETag} of an account detail or balance as
+ *                    {@code If-None-Match}, so an unchanged one is answered with 304 and no body
+ * @param nbpLatency latency added to every NBP response
+ * @param nbpJitter random latency added on top of {@code nbpLatency}
+ * @param nbpErrorRate share of NBP requests answered with HTTP 503
+ * @param report the file the report is written to
+ * @param startupRuns number of measured starts of {@link StartupTest}
+ * @param startupReport the file {@link StartupTest} appends its results to
+ * @param seed seed of the workload random generator
+ */
+public record LoadTestConfig(Path appJar,
+                             Path appExecutable,
+                             String variant,
+                             String jvmArgs,
+                             String appArgs,
+                             String jdbcUrl,
+                             Duration warmup,
+                             Duration duration,
+                             int threads,
+                             int targetRate,
+                             int accounts,
+                             int hotAccounts,
+                             double hotShare,
+                             int createWeight,
+                             int exchangeWeight,
+                             int balanceWeight,
+                             int pollWeight,
+                             boolean conditional,
+                             Duration nbpLatency,
+                             Duration nbpJitter,
+                             double nbpErrorRate,
+                             Path report,
+                             int startupRuns,
+                             Path startupReport,
+                             long seed
+) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Path.of(property("appJar", "../target/currencyApp-0.0.1-SNAPSHOT.jar")),
+                System.getProperty("load.appExecutable") == null ? null : Path.of(System.getProperty("load.appExecutable")),
+                property("variant", "jvm"),
+                property("jvmArgs", "-Xmx512m"),
+                property("appArgs", ""),
+                System.getProperty("load.jdbcUrl"),
+                Duration.parse(property("warmup", "PT15S")),
+                Duration.parse(property("duration", "PT60S")),
+                Integer.parseInt(property("threads", "32")),
+                Integer.parseInt(property("targetRate", "0")),
+                Integer.parseInt(property("accounts", "1000")),
+                Integer.parseInt(property("hotAccounts", "10")),
+                Double.parseDouble(property("hotShare", "0.8")),
+                Integer.parseInt(property("createWeight", "5")),
+                Integer.parseInt(property("exchangeWeight", "45")),
+                Integer.parseInt(property("balanceWeight", "50")),
+                Integer.parseInt(property("pollWeight", "0")),
+                Boolean.parseBoolean(property("conditional", "true")),
+                Duration.parse(property("nbpLatency", "PT0.05S")),
+                Duration.parse(property("nbpJitter", "PT0.02S")),
+                Double.parseDouble(property("nbpErrorRate", "0.0")),
+                Path.of(property("report", "target/load-report.tsv")),
+                Integer.parseInt(property("startupRuns", "5")),
+                Path.of(property("startupReport", "target/startup-report.tsv")),
+                Long.parseLong(property("seed", "42")));
+    }
+
+    /**
+     * @return the file that is started, the native image if there is one, otherwise the jar
+     */
+    public Path application() {
+        return appExecutable != null ? appExecutable : appJar;
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("load." + name, defaultValue);
+    }
+}
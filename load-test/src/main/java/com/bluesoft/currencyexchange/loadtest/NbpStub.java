@@ -0,0 +1,97 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the NBP exchange rates API with configurable latency and error injection.
+ */
+public class NbpStub implements AutoCloseable {
+
+    private static final String RATE_TEMPLATE = """
+            {"table":"A","currency":"dolar amerykański","code":"%s","rates":[{"no":"001/A/NBP/%d","effectiveDate":"%s","mid":%s}]}""";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double errorRate;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile String mid = "4.0000";
+
+    public NbpStub(LoadTestConfig config) throws IOException {
+        this.latencyNanos = config.nbpLatency().toNanos();
+        this.jitterNanos = config.nbpJitter().toNanos();
+        this.errorRate = config.nbpErrorRate();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/exchangerates/rates/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return the base URL to pass to the application as {@code nbp.api.url}
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/exchangerates";
+    }
+
+    public void setMid(String mid) {
+        this.mid = mid;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyNanos + (jitterNanos > 0 ? random.nextLong(jitterNanos) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try (exchange) {
+            if (random.nextDouble() < errorRate) {
+                errors.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String code = path[path.length - 1].toUpperCase();
+            LocalDate today = LocalDate.now();
+            byte[] body = RATE_TEMPLATE.formatted(code, today.getYear(), today, mid).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
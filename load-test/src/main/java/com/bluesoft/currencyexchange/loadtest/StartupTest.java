@@ -0,0 +1,86 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Starts the application repeatedly and reports how long it takes until it is healthy and how much memory it holds
+ * at that point. Run it once per build of the application, e.g. the plain jar, the AOT jar with a CDS archive and the
+ * native image, each with its own {@code -Dload.variant}. Every run appends one row to the startup report, so the
+ * variants end up in one table.
+ * <p>
+ * The first start creates the schema and is not measured. Settings are the {@code -Dload.*} system properties of
+ * {@link LoadTestConfig}.
+ */
+public class StartupTest {
+
+    private static final String HEADER = "variant\truns\tstartup_min_ms\tstartup_median_ms\tstartup_max_ms\trss_min_mb\trss_median_mb\trss_max_mb";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        LoadTest.checkApplication(config);
+        PostgreSQLContainer<?> postgres = null;
+        String jdbcUrl = config.jdbcUrl();
+        String username = System.getProperty("load.jdbcUsername", "user");
+        String password = System.getProperty("load.jdbcPassword", "password");
+        if (jdbcUrl == null) {
+            postgres = LoadTest.startPostgres(username, password);
+            jdbcUrl = postgres.getJdbcUrl();
+        }
+        Path log = Path.of("target", "startup-app.log");
+        try (NbpStub nbp = new NbpStub(config)) {
+            new ApplicationProcess(config, jdbcUrl, username, password, nbp.baseUrl(), log).close();
+
+            long[] startupMillis = new long[config.startupRuns()];
+            long[] residentMegabytes = new long[config.startupRuns()];
+            for (int run = 0; run < config.startupRuns(); run++) {
+                try (ApplicationProcess app = new ApplicationProcess(config, jdbcUrl, username, password, nbp.baseUrl(), log)) {
+                    startupMillis[run] = app.startupTime().toMillis();
+                    residentMegabytes[run] = app.residentBytes() >> 20;
+                }
+                System.out.printf("%s run %d: healthy after %d ms, resident memory %d MB%n",
+                        config.variant(), run + 1, startupMillis[run], residentMegabytes[run]);
+            }
+
+            String row = row(config.variant(), startupMillis, residentMegabytes);
+            System.out.println(HEADER);
+            System.out.println(row);
+            append(config.startupReport(), row);
+            System.out.printf("Report appended to %s%n", config.startupReport().toAbsolutePath());
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static String row(String variant, long[] startupMillis, long[] residentMegabytes) {
+        Arrays.sort(startupMillis);
+        Arrays.sort(residentMegabytes);
+        return String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%d\t%d\t%d\t%d", variant, startupMillis.length,
+                startupMillis[0], median(startupMillis), startupMillis[startupMillis.length - 1],
+                residentMegabytes[0], median(residentMegabytes), residentMegabytes[residentMegabytes.length - 1]);
+    }
+
+    private static long median(long[] sorted) {
+        return sorted[sorted.length / 2];
+    }
+
+    private static void append(Path file, String row) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(file)) {
+            lines.add(HEADER);
+        }
+        lines.add(row);
+        Files.write(file, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
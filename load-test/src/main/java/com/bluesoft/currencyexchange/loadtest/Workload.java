@@ -0,0 +1,227 @@
+package com.bluesoft.currencyexchange.loadtest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mixed workload of account creations, exchanges, balance reads and account detail polling.
+ * <p>
+ * A share of the exchange and balance requests goes to a few hot accounts to reproduce lock contention on
+ * popular accounts. With a target rate every client sends on a fixed schedule and latency is measured from the
+ * scheduled send time, so a stalled application is not hidden by clients that wait for it (coordinated omission).
+ * <p>
+ * With conditional requests every client remembers the {@code ETag} of each account detail and balance it read,
+ * like a browser cache, and a 304 counts as success.
+ */
+public class Workload {
+
+    static final String CREATE = "POST /api/accounts";
+    static final String EXCHANGE = "POST /api/currency-exchange/{id}/exchange";
+    static final String BALANCE = "GET /api/currency-exchange/{id}/balance/{symbol}";
+    static final String POLL = "GET /api/accounts/{id}";
+
+    private static final String ACCOUNT_BODY = """
+            {"firstName":"Load","lastName":"Test","currencyAccounts":[{"symbol":"PLN","balance":1000000.00},{"symbol":"USD","balance":1000000.00}]}""";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final URI baseUri;
+    private final HttpClient client;
+    private final List<UUID> accounts = new ArrayList<>();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    public Workload(LoadTestConfig config, URI baseUri) {
+        this.config = config;
+        this.baseUri = baseUri;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Creates the accounts the exchange and balance requests are spread over.
+     */
+    public void setUp() throws IOException, InterruptedException {
+        for (int i = 0; i < config.accounts(); i++) {
+            HttpResponse<String> response = client.send(createRequest(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Account creation failed with " + response.statusCode() + ": " + response.body());
+            }
+            accounts.add(UUID.fromString(response.body().replace("\"", "").trim()));
+        }
+    }
+
+    /**
+     * Runs the workload with all clients for the given time.
+     *
+     * @param duration how long to run
+     * @param report where latencies are recorded
+     * @throws IllegalStateException if the weights leave nothing to send, or requests for existing accounts are
+     * weighted in but {@link #setUp} created no accounts
+     */
+    public void run(Duration duration, LatencyReport report, long seed) throws InterruptedException {
+        if (config.createWeight() + config.exchangeWeight() + config.balanceWeight() + config.pollWeight() <= 0) {
+            throw new IllegalStateException("At least one of load.createWeight, load.exchangeWeight, load.balanceWeight "
+                    + "and load.pollWeight must be positive.");
+        }
+        if (accounts.isEmpty() && config.exchangeWeight() + config.balanceWeight() + config.pollWeight() > 0) {
+            throw new IllegalStateException("Exchanges, balance reads and account polls need existing accounts: set "
+                    + "load.accounts above 0, or load.exchangeWeight, load.balanceWeight and load.pollWeight to 0.");
+        }
+        responseBytes.reset();
+        notModified.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(config.threads());
+        long end = System.nanoTime() + duration.toNanos();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Future<?>> clients = new ArrayList<>();
+        for (int i = 0; i < config.threads(); i++) {
+            SplittableRandom random = seeds.split();
+            clients.add(executor.submit(() -> runClient(random, end, report)));
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        for (Future<?> future : clients) {
+            try {
+                future.get();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Load client failed", ex);
+            }
+        }
+    }
+
+    /**
+     * @return response body bytes received during the last {@link #run}
+     */
+    public long responseBytes() {
+        return responseBytes.sum();
+    }
+
+    /**
+     * @return requests of the last {@link #run} answered with 304
+     */
+    public long notModified() {
+        return notModified.sum();
+    }
+
+    private void runClient(SplittableRandom random, long end, LatencyReport report) {
+        long interval = config.targetRate() > 0 ? TimeUnit.SECONDS.toNanos(config.threads()) / config.targetRate() : 0;
+        long intended = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0);
+        int totalWeight = config.createWeight() + config.exchangeWeight() + config.balanceWeight() + config.pollWeight();
+        Map<URI, String> etags = new HashMap<>();
+        while (intended < end) {
+            if (interval > 0) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            int pick = random.nextInt(totalWeight);
+            String endpoint;
+            HttpRequest request;
+            if (pick < config.createWeight()) {
+                endpoint = CREATE;
+                request = createRequest();
+            } else if (pick < config.createWeight() + config.exchangeWeight()) {
+                endpoint = EXCHANGE;
+                request = exchangeRequest(random);
+            } else if (pick < config.createWeight() + config.exchangeWeight() + config.balanceWeight()) {
+                endpoint = BALANCE;
+                request = conditional(balanceRequest(random), etags);
+            } else {
+                endpoint = POLL;
+                request = conditional(pollRequest(random), etags);
+            }
+            boolean success;
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                int status = response.statusCode();
+                responseBytes.add(response.body().length);
+                if (status == 304) {
+                    notModified.increment();
+                } else if (config.conditional() && request.method().equals("GET")) {
+                    response.headers().firstValue("ETag").ifPresent(etag -> etags.put(request.uri(), etag));
+                }
+                success = status >= 200 && status < 300 || status == 304;
+            } catch (IOException ex) {
+                success = false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            report.record(endpoint, System.nanoTime() - intended, success);
+            intended += interval;
+        }
+    }
+
+    private HttpRequest createRequest() {
+        return HttpRequest.newBuilder(baseUri.resolve("/api/accounts"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(ACCOUNT_BODY))
+                .build();
+    }
+
+    private HttpRequest exchangeRequest(SplittableRandom random) {
+        boolean toUsd = random.nextBoolean();
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(100, 10_000), 2);
+        String query = "?amount=" + amount + "&fromCurrency=" + (toUsd ? "PLN" : "USD") + "&toCurrency=" + (toUsd ? "USD" : "PLN");
+        return HttpRequest.newBuilder(baseUri.resolve("/api/currency-exchange/" + pickAccount(random) + "/exchange" + query))
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private HttpRequest balanceRequest(SplittableRandom random) {
+        String symbol = random.nextBoolean() ? "PLN" : "USD";
+        return HttpRequest.newBuilder(baseUri.resolve("/api/currency-exchange/" + pickAccount(random) + "/balance/" + symbol))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest pollRequest(SplittableRandom random) {
+        return HttpRequest.newBuilder(baseUri.resolve("/api/accounts/" + pickAccount(random)))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest conditional(HttpRequest request, Map<URI, String> etags) {
+        String etag = etags.get(request.uri());
+        if (etag == null) {
+            return request;
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true).header("If-None-Match", etag).build();
+    }
+
+    private UUID pickAccount(SplittableRandom random) {
+        int hot = Math.min(config.hotAccounts(), accounts.size());
+        if (hot > 0 && (hot == accounts.size() || random.nextDouble() < config.hotShare())) {
+            return accounts.get(random.nextInt(hot));
+        }
+        return accounts.get(hot + random.nextInt(accounts.size() - hot));
+    }
+}
@@ -1,13 +1,20 @@
 package com.bluesoft.currencyexchange;
 
+import com.bluesoft.currencyexchange.config.NativeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
 @EnableFeignClients
+@EnableScheduling
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(NativeHints.class)
 public class CurrencyAppApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,11 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the admin endpoints.
+ *
+ * @param token the value expected in the {@code X-Admin-Token} header; admin endpoints are disabled when empty
+ */
+@ConfigurationProperties(prefix = "currency.admin")
+public record AdminProperties(String token) {}
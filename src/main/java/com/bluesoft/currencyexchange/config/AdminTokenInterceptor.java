@@ -0,0 +1,39 @@
+package com.bluesoft.currencyexchange.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Rejects admin requests without the configured {@code X-Admin-Token} header.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdminTokenInterceptor implements HandlerInterceptor {
+
+    static final String HEADER = "X-Admin-Token";
+
+    private final AdminProperties adminProperties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        String expected = adminProperties.token();
+        if (expected == null || expected.isBlank()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return false;
+        }
+        String actual = request.getHeader(HEADER);
+        if (actual == null || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8))) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the coordination between several instances sharing one database.
+ *
+ * @param enabled whether instances share rate snapshots and balance changes through PostgreSQL
+ * @param rateRefreshInterval how often an instance tries to become the one refreshing the rate from NBP
+ * @param maxRateAge age after which a shared rate is ignored and the rate is fetched from NBP directly
+ * @param listenTimeout how long the listener waits for notifications before checking whether it should stop
+ * @param reconnectDelay pause before reopening a lost notification connection
+ */
+@ConfigurationProperties(prefix = "currency.cluster")
+public record ClusterProperties(@DefaultValue("false") boolean enabled,
+                               @DefaultValue("1m") Duration rateRefreshInterval,
+                               @DefaultValue("5m") Duration maxRateAge,
+                               @DefaultValue("500ms") Duration listenTimeout,
+                               @DefaultValue("5s") Duration reconnectDelay
+) {}
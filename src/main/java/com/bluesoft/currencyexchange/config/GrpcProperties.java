@@ -0,0 +1,25 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the gRPC server.
+ *
+ * @param enabled whether the gRPC server is started
+ * @param port the port the server listens on
+ * @param streamWindow how many commands of one exchange stream are read ahead of their results
+ * @param workerThreads threads executing streamed commands, or 0 for half of the admission limit
+ * @param maxConcurrentCallsPerConnection calls one HTTP/2 connection may have open at once
+ * @param shutdownGrace how long running calls may take to finish on shutdown
+ */
+@ConfigurationProperties(prefix = "currency.grpc")
+public record GrpcProperties(@DefaultValue("true") boolean enabled,
+                             @DefaultValue("9090") int port,
+                             @DefaultValue("64") int streamWindow,
+                             @DefaultValue("0") int workerThreads,
+                             @DefaultValue("100") int maxConcurrentCallsPerConnection,
+                             @DefaultValue("10s") Duration shutdownGrace
+) {}
@@ -0,0 +1,82 @@
+package com.bluesoft.currencyexchange.config;
+
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.protobuf.services.HealthStatusManager;
+import io.grpc.protobuf.services.ProtoReflectionServiceV1;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gRPC services on their own HTTP/2 port next to the servlet container. Besides the application services
+ * it serves the standard health and reflection services, so that tools like grpcurl work without the proto files.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class GrpcServer implements SmartLifecycle {
+
+    private final GrpcProperties properties;
+    private final List<BindableService> services;
+    private final HealthStatusManager health = new HealthStatusManager();
+    private volatile Server server;
+
+    public GrpcServer(GrpcProperties properties, List<BindableService> services) {
+        this.properties = properties;
+        this.services = services;
+    }
+
+    @Override
+    public void start() {
+        NettyServerBuilder builder = NettyServerBuilder.forPort(properties.port())
+                .maxConcurrentCallsPerConnection(properties.maxConcurrentCallsPerConnection())
+                .addService(health.getHealthService())
+                .addService(ProtoReflectionServiceV1.newInstance());
+        services.forEach(builder::addService);
+        try {
+            server = builder.build().start();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not start the gRPC server on port " + properties.port(), ex);
+        }
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server running = server;
+        if (running == null) {
+            return;
+        }
+        health.enterTerminalState();
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(properties.shutdownGrace().toMillis(), TimeUnit.MILLISECONDS)) {
+                running.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            running.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Returns the port the server listens on, which differs from the configured one when that is 0.
+     */
+    public int getPort() {
+        return server.getPort();
+    }
+}
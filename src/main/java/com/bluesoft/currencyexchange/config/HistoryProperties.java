@@ -0,0 +1,25 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the monthly partitions of {@code ledger_entry} and {@code rate_snapshot}.
+ *
+ * @param partitioned whether the history tables are converted to monthly partitions and maintained
+ * @param premadeMonths how many months ahead of the current one get a partition
+ * @param retentionMonths how many full months before the current one stay in the database
+ * @param archiveDirectory where expired partitions are written as gzipped CSV before they are dropped
+ * @param lockTimeout how long attaching or detaching a partition waits for the table lock before the next
+ *                    maintenance tries again
+ */
+@ConfigurationProperties(prefix = "currency.history")
+public record HistoryProperties(@DefaultValue("false") boolean partitioned,
+                                @DefaultValue("3") int premadeMonths,
+                                @DefaultValue("12") int retentionMonths,
+                                @DefaultValue("history-archive") Path archiveDirectory,
+                                @DefaultValue("5s") Duration lockTimeout
+) {}
@@ -0,0 +1,34 @@
+package com.bluesoft.currencyexchange.config;
+
+import com.bluesoft.currencyexchange.service.ClusterRateRefresher;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.CurrencyRateProvider;
+import com.bluesoft.currencyexchange.service.OutboxRelay;
+import com.bluesoft.currencyexchange.service.PricingEngine;
+import com.bluesoft.currencyexchange.service.RateSnapshotPoller;
+import com.bluesoft.currencyexchange.service.ReconciliationService;
+import com.bluesoft.currencyexchange.service.RecurringExchangeScheduler;
+import com.bluesoft.currencyexchange.service.StatementService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans that are created at startup even with {@code spring.main.lazy-initialization=true}, which the {@code prod}
+ * profile sets.
+ * <p>
+ * Background jobs have to be excluded because nothing else creates them: {@code @Scheduled} methods are only
+ * registered once their bean exists, and {@link ClusterRateRefresher} schedules itself in its constructor. The
+ * exchange path is excluded so that it is ready before the first request; everything else, like the quote, order and
+ * profiling services, is created on first use.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                RateSnapshotPoller.class, ClusterRateRefresher.class, OutboxRelay.class, RecurringExchangeScheduler.class,
+                ReconciliationService.class, StatementService.class, PricingEngine.class, CurrencyExchangeService.class, CurrencyRateProvider.class);
+    }
+}
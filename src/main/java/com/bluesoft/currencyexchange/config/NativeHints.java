@@ -0,0 +1,62 @@
+package com.bluesoft.currencyexchange.config;
+
+import com.bluesoft.currencyexchange.dto.BalanceChangeEvent;
+import com.bluesoft.currencyexchange.dto.CurrencyRateResponse;
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.ErrorMessage;
+import com.bluesoft.currencyexchange.grpc.CurrencyExchangeProto;
+import com.bluesoft.currencyexchange.mapper.AccountMapper;
+import com.bluesoft.currencyexchange.mapper.LimitOrderMapper;
+import com.bluesoft.currencyexchange.mapper.RecurringExchangeMapper;
+import com.bluesoft.currencyexchange.service.NbpClient;
+import com.google.protobuf.Descriptors;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Reflection and proxy hints for the parts of the application that Spring AOT cannot discover on its own. Used when
+ * the application is built as a GraalVM native image; on the JVM they have no effect.
+ * <p>
+ * Controller payloads, JPA entities and configuration properties are registered by Spring itself. What is left:
+ * <ul>
+ *     <li>the Feign client, which is a JDK proxy whose annotations Feign reads at runtime, and its response type;</li>
+ *     <li>types serialized with the {@code ObjectMapper} outside of controllers: outbox payloads, cluster
+ *     notifications, cached error bodies and the pricing file;</li>
+ *     <li>the MapStruct implementations, which are generated classes found by component scanning;</li>
+ *     <li>the generated protobuf messages, whose field accessors look up getters and builder methods by name.</li>
+ * </ul>
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final String GRPC_PACKAGE = CurrencyExchangeProto.class.getPackageName() + ".";
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.proxies().registerJdkProxy(NbpClient.class);
+        hints.reflection().registerType(NbpClient.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        bindingHints.registerReflectionHints(hints.reflection(),
+                CurrencyRateResponse.class, BalanceChangeEvent.class, OutboxMessage.class, RateSnapshot.class, ErrorMessage.class,
+                PricingConfig.class);
+
+        for (Class<?> mapper : new Class<?>[]{AccountMapper.class, LimitOrderMapper.class, RecurringExchangeMapper.class}) {
+            hints.reflection().registerType(TypeReference.of(mapper.getName() + "Impl"),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        Descriptors.FileDescriptor proto = CurrencyExchangeProto.getDescriptor();
+        for (Descriptors.Descriptor message : proto.getMessageTypes()) {
+            hints.reflection().registerType(TypeReference.of(GRPC_PACKAGE + message.getName()), MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.reflection().registerType(TypeReference.of(GRPC_PACKAGE + message.getName() + "$Builder"), MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        for (Descriptors.EnumDescriptor protoEnum : proto.getEnumTypes()) {
+            hints.reflection().registerType(TypeReference.of(GRPC_PACKAGE + protoEnum.getName()), MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Settings of the netting stage in front of REST exchanges.
+ *
+ * @param enabled whether REST exchanges are collected into netting windows instead of being booked one by one
+ * @param houseAccountId the account holding the house position, which takes the other side of every netted exchange
+ * @param window how long a window stays open after its first exchange arrived
+ * @param maxWindowSize number of exchanges that closes a window early
+ * @param queueCapacity exchanges waiting for a window before further exchanges are turned away
+ * @param settleTimeout how long an exchange waits for its window to be booked before its request gives up
+ */
+@ConfigurationProperties(prefix = "currency.netting")
+public record NettingProperties(@DefaultValue("false") boolean enabled,
+                                UUID houseAccountId,
+                                @DefaultValue("20ms") Duration window,
+                                @DefaultValue("500") int maxWindowSize,
+                                @DefaultValue("10000") int queueCapacity,
+                                @DefaultValue("10s") Duration settleTimeout
+) {}
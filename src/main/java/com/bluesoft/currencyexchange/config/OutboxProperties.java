@@ -0,0 +1,12 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the outbox relay.
+ *
+ * @param batchSize maximum number of events handed to the sinks at once
+ */
+@ConfigurationProperties(prefix = "currency.outbox.relay")
+public record OutboxProperties(@DefaultValue("500") int batchSize) {}
@@ -0,0 +1,14 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of exchange pricing.
+ *
+ * @param file JSON pricing tables, checked for changes every {@code currency.pricing.reload-interval}; exchanges are
+ *             priced at the mid rate without fees when unset
+ */
+@ConfigurationProperties(prefix = "currency.pricing")
+public record PricingProperties(Path file) {}
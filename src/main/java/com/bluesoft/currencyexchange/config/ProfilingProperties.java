@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the exchange path profiler.
+ *
+ * @param allocationTracking whether per-phase allocated bytes are measured
+ * @param maxRecording the longest a JFR recording may run before it stops by itself
+ */
+@ConfigurationProperties(prefix = "currency.profiling")
+public record ProfilingProperties(@DefaultValue("true") boolean allocationTracking,
+                                 @DefaultValue("5m") Duration maxRecording
+) {}
@@ -0,0 +1,19 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-memory quote store.
+ *
+ * @param ttl how long a quote can be executed after it was issued
+ * @param maxSize maximum number of live quotes held at once
+ * @param tick resolution of the expiry timer wheel
+ */
+@ConfigurationProperties(prefix = "currency.quotes")
+public record QuoteProperties(@DefaultValue("30s") Duration ttl,
+                              @DefaultValue("100000") int maxSize,
+                              @DefaultValue("100ms") Duration tick
+) {}
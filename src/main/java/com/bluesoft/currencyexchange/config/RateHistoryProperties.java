@@ -0,0 +1,21 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the local rate history files.
+ *
+ * @param directory where the memory-mapped rate series of each currency is kept
+ * @param scale decimal places the rates are stored with
+ * @param blockSize points per block summary; changing it or the scale requires a rebuild
+ * @param initialCapacity points a new series file has room for before it is copied into a larger one
+ */
+@ConfigurationProperties(prefix = "currency.rate-history")
+public record RateHistoryProperties(@DefaultValue("rate-history") Path directory,
+                                    @DefaultValue("6") int scale,
+                                    @DefaultValue("64") int blockSize,
+                                    @DefaultValue("4096") int initialCapacity
+) {}
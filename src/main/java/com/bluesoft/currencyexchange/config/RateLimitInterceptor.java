@@ -0,0 +1,103 @@
+package com.bluesoft.currencyexchange.config;
+
+import com.bluesoft.currencyexchange.exception.ErrorResponses;
+import com.bluesoft.currencyexchange.service.RateLimiter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests over the client or account rate, or beyond the concurrency limit, with 429 before the
+ * controller touches the database. Requests that continue asynchronously, such as netted exchanges waiting for
+ * their window, give their slot back once the handler returns, and are not admitted again when their result is
+ * dispatched.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    static final String API_KEY_HEADER = "X-Api-Key";
+    private static final String SLOT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".slot";
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+    private final ErrorResponses errorResponses;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!rateLimitProperties.enabled() || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        long wait = rateLimiter.admitClient(apiKey != null ? apiKey : request.getRemoteAddr());
+        if (wait > 0) {
+            return reject(response, "Too many requests from this client. Retry later.", wait);
+        }
+        UUID accountId = accountId(request);
+        if (accountId != null) {
+            wait = rateLimiter.admitAccount(accountId);
+            if (wait > 0) {
+                return reject(response, "Too many requests for this account. Retry later.", wait);
+            }
+        }
+        if (!rateLimiter.acquire()) {
+            return reject(response, "The service is busy. Retry later.", TimeUnit.SECONDS.toNanos(1));
+        }
+        request.setAttribute(SLOT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        releaseSlot(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        releaseSlot(request);
+    }
+
+    private void releaseSlot(HttpServletRequest request) {
+        if (request.getAttribute(SLOT_ATTRIBUTE) != null) {
+            request.removeAttribute(SLOT_ATTRIBUTE);
+            rateLimiter.release();
+        }
+    }
+
+    private static UUID accountId(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String accountId = variables == null ? null : variables.get("accountId");
+        if (accountId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(accountId);
+        } catch (IllegalArgumentException ex) {
+            // malformed ids are rejected by the controller
+            return null;
+        }
+    }
+
+    private boolean reject(HttpServletResponse response, String message, long waitNanos) throws IOException {
+        byte[] body = errorResponses.cached(HttpStatus.TOO_MANY_REQUESTS, message).getBody();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return false;
+    }
+}
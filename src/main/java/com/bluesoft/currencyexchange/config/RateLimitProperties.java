@@ -0,0 +1,31 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of request rate limiting and admission control.
+ *
+ * @param enabled whether requests are limited at all
+ * @param accountRate sustained requests per second allowed per account
+ * @param accountBurst requests an idle account may send at once
+ * @param clientRate sustained requests per second allowed per API key, or per remote address without a key
+ * @param clientBurst requests an idle client may send at once
+ * @param maxBuckets the most rate limit buckets kept per scope
+ * @param idleExpiry how long an unused bucket is kept
+ * @param maxConcurrentRequests requests processed at once, or 0 to use the database connection pool size
+ * @param admissionTimeout how long a request waits for a free slot before it is rejected
+ */
+@ConfigurationProperties(prefix = "currency.rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("20") double accountRate,
+                                  @DefaultValue("40") int accountBurst,
+                                  @DefaultValue("200") double clientRate,
+                                  @DefaultValue("400") int clientBurst,
+                                  @DefaultValue("100000") int maxBuckets,
+                                  @DefaultValue("5m") Duration idleExpiry,
+                                  @DefaultValue("0") int maxConcurrentRequests,
+                                  @DefaultValue("50ms") Duration admissionTimeout
+) {}
@@ -0,0 +1,24 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the balance reconciliation job.
+ *
+ * @param directory where the discrepancy report and the checkpoint are written
+ * @param partitions number of account id ranges the accounts are split into; a run resumes at partition granularity
+ * @param parallelism the most partitions read at the same time
+ * @param fetchSize rows fetched per round trip of a partition cursor
+ * @param maxInFlightRows the most fetched rows held by all partitions together; lowers the parallelism when
+ *                        {@code parallelism * fetchSize} exceeds it
+ */
+@ConfigurationProperties(prefix = "currency.reconciliation")
+public record ReconciliationProperties(@DefaultValue("reconciliation") Path directory,
+                                       @DefaultValue("1024") int partitions,
+                                       @DefaultValue("8") int parallelism,
+                                       @DefaultValue("5000") int fetchSize,
+                                       @DefaultValue("40000") int maxInFlightRows
+) {}
@@ -0,0 +1,20 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * Settings of the recurring exchange scheduler.
+ *
+ * @param batchSize how many due schedules one instance claims at a time
+ * @param lease how long a claimed schedule is reserved for the claiming instance
+ * @param zone the time zone cron expressions are evaluated in
+ */
+@ConfigurationProperties(prefix = "currency.recurring")
+public record RecurringExchangeProperties(@DefaultValue("100") int batchSize,
+                                          @DefaultValue("5m") Duration lease,
+                                          @DefaultValue("Europe/Warsaw") ZoneId zone
+) {}
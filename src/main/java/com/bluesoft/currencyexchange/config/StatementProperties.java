@@ -0,0 +1,25 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the end-of-day statement job.
+ *
+ * @param directory where a directory per day holds the statement files and the checkpoint of its run
+ * @param shards number of statement files per day, each written by its own worker thread
+ * @param partitions number of account id ranges the accounts are split into; a run resumes at partition granularity
+ * @param fetchSize rows fetched per round trip of a partition cursor
+ * @param bufferSize characters rendered before they are encoded and written to a statement file
+ * @param gzip whether statement files are gzip compressed
+ */
+@ConfigurationProperties(prefix = "currency.statements")
+public record StatementProperties(@DefaultValue("statements") Path directory,
+                                  @DefaultValue("4") int shards,
+                                  @DefaultValue("1024") int partitions,
+                                  @DefaultValue("5000") int fetchSize,
+                                  @DefaultValue("65536") int bufferSize,
+                                  @DefaultValue("true") boolean gzip
+) {}
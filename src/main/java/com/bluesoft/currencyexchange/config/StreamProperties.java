@@ -0,0 +1,29 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the server-sent events stream.
+ *
+ * @param ringSize number of recent events kept for subscribers, rounded up to a power of two
+ * @param dispatchThreads number of threads moving subscribers through the ring
+ * @param writeThreads number of threads writing events to subscribers
+ * @param maxDrops how many times a subscriber may fall behind the ring before it is disconnected
+ * @param heartbeat interval of keep-alive comments on idle streams
+ * @param writeTimeout how long a write to one subscriber may block before the subscriber is disconnected
+ * @param maxStalledWrites how many timed-out writes, which still block their thread, get a replacement writer thread
+ * @param timeout lifetime of a stream before the client has to reconnect
+ */
+@ConfigurationProperties(prefix = "currency.stream")
+public record StreamProperties(@DefaultValue("4096") int ringSize,
+                               @DefaultValue("4") int dispatchThreads,
+                               @DefaultValue("8") int writeThreads,
+                               @DefaultValue("3") int maxDrops,
+                               @DefaultValue("15s") Duration heartbeat,
+                               @DefaultValue("10s") Duration writeTimeout,
+                               @DefaultValue("64") int maxStalledWrites,
+                               @DefaultValue("30m") Duration timeout
+) {}
@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of account-to-account transfers.
+ *
+ * @param maxAttempts how often a transfer is tried when PostgreSQL aborts it because of a lock conflict
+ * @param backoff the pause before the first retry; it doubles with every further retry and is randomized
+ */
+@ConfigurationProperties(prefix = "currency.transfers")
+public record TransferProperties(@DefaultValue("5") int maxAttempts,
+                                 @DefaultValue("10ms") Duration backoff
+) {}
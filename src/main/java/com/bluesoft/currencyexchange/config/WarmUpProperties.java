@@ -0,0 +1,15 @@
+package com.bluesoft.currencyexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the exchange path warm-up that runs before the application reports itself ready.
+ *
+ * @param iterations number of in-memory exchanges run to get the balance arithmetic compiled by the JIT
+ * @param queries number of times the exchange queries are run against the database
+ */
+@ConfigurationProperties(prefix = "currency.warm-up")
+public record WarmUpProperties(@DefaultValue("20000") int iterations,
+                               @DefaultValue("20") int queries
+) {}
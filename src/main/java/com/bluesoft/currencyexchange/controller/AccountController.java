@@ -2,17 +2,23 @@ package com.bluesoft.currencyexchange.controller;
 
 import com.bluesoft.currencyexchange.dto.AccountDto;
 import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CreateAccountResultDto;
+import com.bluesoft.currencyexchange.dto.Versioned;
 import com.bluesoft.currencyexchange.service.AccountService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -32,20 +38,41 @@ public class AccountController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public UUID createAccount(
-            @Valid @RequestBody CreateAccountRequest request) {
+            @RequestBody CreateAccountRequest request) {
         return accountService.createAccount(request);
     }
 
-    @Operation(summary = "Get account details", description = "Fetches account details including PLN and USD balances by account ID")
+    @Operation(summary = "Create accounts in bulk", description = "Creates every valid account of the batch and reports the validation errors of the others")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, one result per request", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = CreateAccountResultDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Batch is too large", content = @Content),
+    })
+    @PostMapping("/batch")
+    public List<CreateAccountResultDto> createAccounts(
+            @RequestBody List<CreateAccountRequest> requests) {
+        return accountService.createAccounts(requests);
+    }
+
+    @Operation(summary = "Get account details", description = "Fetches account details including PLN and USD balances by account ID. The ETag is the account version, which changes with every balance change; a request whose If-None-Match matches it is answered with 304 without loading the account")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Account details retrieved successfully", content = {
                     @Content(mediaType = "application/json", schema = @Schema(implementation = AccountDto.class))
             }),
+            @ApiResponse(responseCode = "304", description = "Account not modified", content = @Content),
             @ApiResponse(responseCode = "404", description = "Account not found", content = @Content),
     })
     @GetMapping("/{accountId}")
-    public AccountDto getAccountDetails(
-            @PathVariable UUID accountId) {
-        return accountService.getAccountDetails(accountId);
+    public ResponseEntity<AccountDto> getAccountDetails(
+            @PathVariable UUID accountId, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = accountService.findAccountVersion(accountId);
+            if (version.isPresent() && request.checkNotModified(Long.toString(version.get()))) {
+                return null;
+            }
+        }
+        Versioned<AccountDto> account = accountService.getVersionedAccountDetails(accountId);
+        return ResponseEntity.ok().eTag(account.etag()).body(account.value());
     }
 }
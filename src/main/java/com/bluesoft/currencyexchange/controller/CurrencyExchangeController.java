@@ -1,7 +1,12 @@
 package com.bluesoft.currencyexchange.controller;
 
+import com.bluesoft.currencyexchange.dto.BatchExchangeRequest;
+import com.bluesoft.currencyexchange.dto.ExchangeRequest;
+import com.bluesoft.currencyexchange.dto.ExchangeResultDto;
+import com.bluesoft.currencyexchange.dto.Versioned;
 import com.bluesoft.currencyexchange.entity.Symbol;
 import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.NettingEngine;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,11 +16,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/currency-exchange")
@@ -23,6 +33,7 @@ import java.util.UUID;
 public class CurrencyExchangeController {
 
     private final CurrencyExchangeService currencyExchangeService;
+    private final ObjectProvider<NettingEngine> nettingEngine;
 
     @Operation(summary = "Exchange currency between PLN and USD", description = "Perform a currency exchange between PLN and USD for a given account")
     @ApiResponses(value = {
@@ -32,23 +43,72 @@ public class CurrencyExchangeController {
     })
     @PostMapping("/{accountId}/exchange")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void exchangeCurrency(
+    public CompletableFuture<Void> exchangeCurrency(
             @PathVariable @Parameter(description = "ID of the account to perform the exchange on") UUID accountId,
             @RequestParam @Positive @Parameter(description = "Amount to exchange", example = "100") BigDecimal amount,
             @RequestParam @NotNull @Parameter(description = "Currency to exchange from (PLN or USD)") Symbol fromCurrency,
             @RequestParam @NotNull @Parameter(description = "Currency to exchange to (PLN or USD)") Symbol toCurrency) {
-        currencyExchangeService.exchangeCurrency(accountId, amount, fromCurrency, toCurrency);
+        return exchange(accountId, amount, fromCurrency, toCurrency);
+    }
+
+    @Operation(summary = "Exchange currency with a CBOR body", description = "Same as the query parameter variant, for binary clients")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Currency exchange successful", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Account not found", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid request or validation errors", content = @Content)
+    })
+    @PostMapping(value = "/{accountId}/exchange", consumes = MediaType.APPLICATION_CBOR_VALUE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public CompletableFuture<Void> exchangeCurrency(
+            @PathVariable @Parameter(description = "ID of the account to perform the exchange on") UUID accountId,
+            @RequestBody ExchangeRequest request) {
+        if (request.amount() == null || request.amount().signum() <= 0 || request.fromCurrency() == null || request.toCurrency() == null) {
+            throw new IllegalArgumentException("Amount must be positive and both currencies are required.");
+        }
+        return exchange(accountId, request.amount(), request.fromCurrency(), request.toCurrency());
+    }
+
+    @Operation(summary = "Exchange currency in bulk", description = "Performs every exchange of the batch and reports the rejected ones")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, one result per exchange", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ExchangeResultDto.class)),
+                    @Content(mediaType = "application/cbor", schema = @Schema(implementation = ExchangeResultDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Batch is too large", content = @Content)
+    })
+    @PostMapping("/batch")
+    public CompletableFuture<List<ExchangeResultDto>> exchangeCurrencies(
+            @RequestBody List<BatchExchangeRequest> requests) {
+        NettingEngine netting = nettingEngine.getIfAvailable();
+        return netting != null ? netting.exchangeCurrencies(requests)
+                : CompletableFuture.completedFuture(currencyExchangeService.exchangeCurrencies(requests));
     }
 
-    @Operation(summary = "Get balance", description = "Get current balance of a given currency account")
+    @Operation(summary = "Get balance", description = "Get current balance of a given currency account. The ETag is the currency account version; a request whose If-None-Match matches it is answered with 304")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BigDecimal.class))),
+            @ApiResponse(responseCode = "304", description = "Balance not modified", content = @Content),
             @ApiResponse(responseCode = "404", description = "Account not found", content = @Content)
     })
     @GetMapping("/{accountId}/balance/{symbol}")
-    public BigDecimal getPlnBalance(
+    public ResponseEntity<BigDecimal> getPlnBalance(
             @PathVariable @Parameter(description = "ID of the account") UUID accountId, @PathVariable @Parameter(description = "Currency symbol") Symbol symbol) {
-        return currencyExchangeService.getBalance(accountId, symbol);
+        // the balance comes from the cache, Spring answers a matching If-None-Match with 304 itself
+        Versioned<BigDecimal> balance = currencyExchangeService.getVersionedBalance(accountId, symbol);
+        return ResponseEntity.ok().eTag(balance.etag()).body(balance.value());
+    }
+
+    /**
+     * Netted exchanges are answered asynchronously once their window is booked. Direct exchanges return null,
+     * which Spring answers right away without an async dispatch.
+     */
+    private CompletableFuture<Void> exchange(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {
+        NettingEngine netting = nettingEngine.getIfAvailable();
+        if (netting != null) {
+            return netting.exchangeCurrency(accountId, amount, fromCurrency, toCurrency);
+        }
+        currencyExchangeService.exchangeCurrency(accountId, amount, fromCurrency, toCurrency);
+        return null;
     }
 
 }
@@ -0,0 +1,306 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.config.GrpcProperties;
+import com.bluesoft.currencyexchange.dto.AccountDto;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.grpc.*;
+import com.bluesoft.currencyexchange.service.AccountService;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.RateLimiter;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * gRPC front end of the exchange and account services.
+ * <p>
+ * Unary calls are admitted like REST requests and fail with {@code RESOURCE_EXHAUSTED} when no processing slot frees
+ * up in time. Streamed commands are executed by a fixed set of worker threads that wait for a processing slot
+ * instead, while each stream reads at most {@code streamWindow} commands ahead of their results. A stream whose
+ * client does not read its results stops being read as well, so HTTP/2 flow control pushes back on the client.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class CurrencyExchangeGrpcService extends CurrencyExchangeGrpc.CurrencyExchangeImplBase implements DisposableBean {
+
+    static final String OVERLOADED_MESSAGE = "Server is busy, retry later.";
+
+    private final CurrencyExchangeService currencyExchangeService;
+    private final AccountService accountService;
+    private final RateLimiter rateLimiter;
+    private final ExecutorService workers;
+    private final int streamWindow;
+
+    @Autowired
+    public CurrencyExchangeGrpcService(CurrencyExchangeService currencyExchangeService,
+                                       AccountService accountService,
+                                       RateLimiter rateLimiter,
+                                       GrpcProperties properties) {
+        this(currencyExchangeService, accountService, rateLimiter,
+                Executors.newFixedThreadPool(workerThreads(properties, rateLimiter), new CustomizableThreadFactory("grpc-exchange-")),
+                properties.streamWindow());
+    }
+
+    CurrencyExchangeGrpcService(CurrencyExchangeService currencyExchangeService,
+                                AccountService accountService,
+                                RateLimiter rateLimiter,
+                                ExecutorService workers,
+                                int streamWindow) {
+        this.currencyExchangeService = currencyExchangeService;
+        this.accountService = accountService;
+        this.rateLimiter = rateLimiter;
+        this.workers = workers;
+        this.streamWindow = streamWindow;
+    }
+
+    @Override
+    public void exchange(ExchangeCommand command, StreamObserver<ExchangeResult> responseObserver) {
+        admitted(responseObserver, () -> {
+            ExchangeResult result = execute(command);
+            if (result.getCode() != ResultCode.OK) {
+                throw toStatus(result).asRuntimeException();
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void getBalance(BalanceRequest request, StreamObserver<BalanceReply> responseObserver) {
+        admitted(responseObserver, () -> {
+            BigDecimal balance = currencyExchangeService.getVersionedBalance(toAccountId(request.getAccountId()), toSymbol(request.getCurrency())).value();
+            return BalanceReply.newBuilder().setBalance(toDecimal(balance)).build();
+        });
+    }
+
+    @Override
+    public void getAccount(AccountRequest request, StreamObserver<AccountReply> responseObserver) {
+        admitted(responseObserver, () -> {
+            AccountDto account = accountService.getAccountDetails(toAccountId(request.getAccountId()));
+            AccountReply.Builder reply = AccountReply.newBuilder()
+                    .setFirstName(account.firstName())
+                    .setLastName(account.lastName());
+            account.currencyAccounts().forEach(currencyAccount -> reply.addBalances(CurrencyBalance.newBuilder()
+                    .setCurrency(toCurrency(currencyAccount.symbol()))
+                    .setBalance(toDecimal(currencyAccount.balance()))));
+            return reply.build();
+        });
+    }
+
+    @Override
+    public StreamObserver<ExchangeCommand> exchangeStream(StreamObserver<ExchangeResult> responseObserver) {
+        return new ExchangeStream((ServerCallStreamObserver<ExchangeResult>) responseObserver);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private <T> void admitted(StreamObserver<T> responseObserver, Supplier<T> call) {
+        if (!rateLimiter.acquire()) {
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED.withDescription(OVERLOADED_MESSAGE).asRuntimeException());
+            return;
+        }
+        T reply;
+        try {
+            reply = call.get();
+        } catch (AccountNotFoundException ex) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription(ex.getReason()).asRuntimeException());
+            return;
+        } catch (IllegalArgumentException ex) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException());
+            return;
+        } catch (RuntimeException ex) {
+            responseObserver.onError(ex);
+            return;
+        } finally {
+            rateLimiter.release();
+        }
+        responseObserver.onNext(reply);
+        responseObserver.onCompleted();
+    }
+
+    private ExchangeResult execute(ExchangeCommand command) {
+        ExchangeResult.Builder result = ExchangeResult.newBuilder().setCorrelationId(command.getCorrelationId());
+        try {
+            BigDecimal amount = toBigDecimal(command.getAmount());
+            if (amount.signum() <= 0) {
+                return result.setCode(ResultCode.INVALID_ARGUMENT).setMessage("Amount must be positive.").build();
+            }
+            currencyExchangeService.exchangeCurrency(toAccountId(command.getAccountId()), amount,
+                    toSymbol(command.getFromCurrency()), toSymbol(command.getToCurrency()));
+            return result.setCode(ResultCode.OK).build();
+        } catch (AccountNotFoundException ex) {
+            return result.setCode(ResultCode.NOT_FOUND).setMessage(ex.getReason()).build();
+        } catch (InsufficientFundsException ex) {
+            return result.setCode(ResultCode.INSUFFICIENT_FUNDS).setMessage(ex.getMessage()).build();
+        } catch (IllegalArgumentException | InvalidCurrencyExchangeException ex) {
+            return result.setCode(ResultCode.INVALID_ARGUMENT).setMessage(ex.getMessage()).build();
+        } catch (RuntimeException ex) {
+            log.error("Exchange command {} failed", command.getCorrelationId(), ex);
+            return result.setCode(ResultCode.INTERNAL).setMessage("Internal error.").build();
+        }
+    }
+
+    private static Status toStatus(ExchangeResult result) {
+        Status status = switch (result.getCode()) {
+            case NOT_FOUND -> Status.NOT_FOUND;
+            case INVALID_ARGUMENT -> Status.INVALID_ARGUMENT;
+            case INSUFFICIENT_FUNDS -> Status.FAILED_PRECONDITION;
+            default -> Status.INTERNAL;
+        };
+        return status.withDescription(result.getMessage());
+    }
+
+    private static UUID toAccountId(String accountId) {
+        try {
+            return UUID.fromString(accountId);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid account id: '" + accountId + "'.");
+        }
+    }
+
+    static Symbol toSymbol(Currency currency) {
+        return switch (currency) {
+            case PLN -> Symbol.PLN;
+            case USD -> Symbol.USD;
+            default -> throw new IllegalArgumentException("Currency is required.");
+        };
+    }
+
+    static Currency toCurrency(Symbol symbol) {
+        return switch (symbol) {
+            case PLN -> Currency.PLN;
+            case USD -> Currency.USD;
+        };
+    }
+
+    static BigDecimal toBigDecimal(Decimal decimal) {
+        return BigDecimal.valueOf(decimal.getUnscaled(), decimal.getScale());
+    }
+
+    static Decimal toDecimal(BigDecimal value) {
+        return Decimal.newBuilder().setUnscaled(value.unscaledValue().longValueExact()).setScale(value.scale()).build();
+    }
+
+    private static int workerThreads(GrpcProperties properties, RateLimiter rateLimiter) {
+        // leave half of the processing slots to REST and unary calls
+        return properties.workerThreads() > 0 ? properties.workerThreads() : Math.max(1, rateLimiter.maxConcurrentRequests() / 2);
+    }
+
+    /**
+     * One exchange stream. Commands are requested one by one as results are sent, starting with a window of
+     * {@code streamWindow}; while the client is not ready to receive, the requests are held back.
+     */
+    private final class ExchangeStream implements StreamObserver<ExchangeCommand> {
+
+        private final ServerCallStreamObserver<ExchangeResult> responses;
+        private int inFlight;
+        private int heldRequests;
+        private boolean halfClosed;
+        private boolean closed;
+
+        private ExchangeStream(ServerCallStreamObserver<ExchangeResult> responses) {
+            this.responses = responses;
+            responses.disableAutoRequest();
+            responses.setOnReadyHandler(this::onReady);
+            responses.setOnCancelHandler(this::onCancel);
+            responses.request(streamWindow);
+        }
+
+        @Override
+        public void onNext(ExchangeCommand command) {
+            synchronized (this) {
+                inFlight++;
+            }
+            workers.execute(() -> process(command));
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            closed = true;
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            halfClosed = true;
+            completeIfDone();
+        }
+
+        private void process(ExchangeCommand command) {
+            if (isClosed()) {
+                deliver(null);
+                return;
+            }
+            try {
+                rateLimiter.awaitSlot();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                deliver(ExchangeResult.newBuilder().setCorrelationId(command.getCorrelationId())
+                        .setCode(ResultCode.INTERNAL).setMessage("Server is shutting down.").build());
+                return;
+            }
+            ExchangeResult result;
+            try {
+                result = execute(command);
+            } finally {
+                rateLimiter.release();
+            }
+            deliver(result);
+        }
+
+        private synchronized void deliver(ExchangeResult result) {
+            inFlight--;
+            if (closed) {
+                return;
+            }
+            responses.onNext(result);
+            if (responses.isReady()) {
+                responses.request(1);
+            } else {
+                heldRequests++;
+            }
+            completeIfDone();
+        }
+
+        private synchronized void onReady() {
+            if (!closed && heldRequests > 0) {
+                responses.request(heldRequests);
+                heldRequests = 0;
+            }
+        }
+
+        private synchronized void onCancel() {
+            closed = true;
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        private void completeIfDone() {
+            if (halfClosed && inFlight == 0 && !closed) {
+                closed = true;
+                responses.onCompleted();
+            }
+        }
+    }
+}
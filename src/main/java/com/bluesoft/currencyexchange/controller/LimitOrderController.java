@@ -0,0 +1,60 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.CreateLimitOrderRequest;
+import com.bluesoft.currencyexchange.dto.LimitOrderDto;
+import com.bluesoft.currencyexchange.service.LimitOrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/limit-orders")
+@RequiredArgsConstructor
+public class LimitOrderController {
+
+    private final LimitOrderService limitOrderService;
+
+    @Operation(summary = "Place a limit order", description = "Registers an exchange that executes when the NBP mid rate crosses the trigger rate")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Limit order registered", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = LimitOrderDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Invalid request or validation errors", content = @Content)
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public LimitOrderDto placeOrder(@Valid @RequestBody CreateLimitOrderRequest request) {
+        return limitOrderService.placeOrder(request);
+    }
+
+    @Operation(summary = "Get limit order", description = "Fetches a limit order and its execution state")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Limit order retrieved successfully", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = LimitOrderDto.class))
+            }),
+            @ApiResponse(responseCode = "404", description = "Limit order not found", content = @Content)
+    })
+    @GetMapping("/{orderId}")
+    public LimitOrderDto getOrder(@PathVariable @Parameter(description = "ID of the limit order") Long orderId) {
+        return limitOrderService.getOrder(orderId);
+    }
+
+    @Operation(summary = "Cancel limit order", description = "Cancels an open limit order")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Limit order cancelled", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Limit order is no longer open", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Limit order not found", content = @Content)
+    })
+    @DeleteMapping("/{orderId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void cancelOrder(@PathVariable @Parameter(description = "ID of the limit order") Long orderId) {
+        limitOrderService.cancelOrder(orderId);
+    }
+}
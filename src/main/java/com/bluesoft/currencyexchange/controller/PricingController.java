@@ -0,0 +1,44 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.service.PricingEngine;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/pricing")
+@RequiredArgsConstructor
+public class PricingController {
+
+    private final PricingEngine pricingEngine;
+
+    @Operation(summary = "Get pricing tables", description = "Returns the spreads, fee bands and account overrides in use. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pricing tables in use", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = PricingConfig.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @GetMapping
+    public PricingConfig getPricing() {
+        return pricingEngine.current().config();
+    }
+
+    @Operation(summary = "Reload pricing tables", description = "Reads the pricing file now instead of waiting for the next check. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pricing tables installed", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = PricingConfig.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "The file cannot be read or holds inconsistent tables; the previous tables stay in use", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @PostMapping("/reload")
+    public PricingConfig reload() {
+        return pricingEngine.reload();
+    }
+}
@@ -0,0 +1,84 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.ProfilingSummaryDto;
+import com.bluesoft.currencyexchange.service.ProfilingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/admin/profiling")
+@RequiredArgsConstructor
+public class ProfilingController {
+
+    private final ProfilingService profilingService;
+
+    @Operation(summary = "Start a JFR recording", description = "Starts a JFR recording of the exchange path. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Recording started", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A recording is already running", content = @Content)
+    })
+    @PostMapping("/recording")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void startRecording(@RequestParam(required = false) @Parameter(description = "Maximum recording duration", example = "PT1M") Duration maxDuration) {
+        profilingService.startRecording(maxDuration);
+    }
+
+    @Operation(summary = "Stop the JFR recording", description = "Stops the recording and returns the JFR file. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recording file", content = @Content(mediaType = "application/octet-stream")),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content),
+            @ApiResponse(responseCode = "409", description = "No recording was started", content = @Content)
+    })
+    @PostMapping("/recording/stop")
+    public ResponseEntity<Resource> stopRecording() throws IOException {
+        Path file = profilingService.stopRecording();
+        long size = Files.size(file);
+        Resource body = new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(size)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                .body(body);
+    }
+
+    @Operation(summary = "Get the exchange profile", description = "Per-phase latency percentiles and allocation rates of the exchange path. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProfilingSummaryDto.class))),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @GetMapping("/summary")
+    public ProfilingSummaryDto getSummary() {
+        return profilingService.getSummary();
+    }
+
+    @Operation(summary = "Reset the exchange profile", description = "Starts a new measurement window. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Profile reset", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @DeleteMapping("/summary")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void resetSummary() {
+        profilingService.resetSummary();
+    }
+}
@@ -0,0 +1,51 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.CreateQuoteRequest;
+import com.bluesoft.currencyexchange.dto.QuoteDto;
+import com.bluesoft.currencyexchange.service.QuoteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/quotes")
+@RequiredArgsConstructor
+public class QuoteController {
+
+    private final QuoteService quoteService;
+
+    @Operation(summary = "Create a quote", description = "Prices an exchange at the current rate and locks the rate for a limited time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Quote created successfully", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = QuoteDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Invalid request or validation errors", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many open quotes", content = @Content)
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public QuoteDto createQuote(@Valid @RequestBody CreateQuoteRequest request) {
+        return quoteService.createQuote(request);
+    }
+
+    @Operation(summary = "Execute a quote", description = "Performs the quoted exchange at the locked rate")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Currency exchange successful", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Quote or account not found", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Insufficient funds", content = @Content)
+    })
+    @PostMapping("/{quoteId}/execute")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void executeQuote(@PathVariable @Parameter(description = "ID of the quote to execute") UUID quoteId) {
+        quoteService.executeQuote(quoteId);
+    }
+}
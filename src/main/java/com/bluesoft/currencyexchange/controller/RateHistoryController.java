@@ -0,0 +1,51 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.RateAggregateDto;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.service.RateHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class RateHistoryController {
+
+    private final RateHistoryService rateHistoryService;
+
+    @Operation(summary = "Aggregate rates", description = "Min, max, average and last NBP mid rate of a currency over a window of table dates, both inclusive, read from the local rate history")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK, with null rates if there is no rate in the window", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = RateAggregateDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "The window ends before it starts", content = @Content)
+    })
+    @GetMapping("/api/rates/{symbol}/aggregate")
+    public RateAggregateDto aggregate(
+            @PathVariable @Parameter(description = "Currency symbol") Symbol symbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return rateHistoryService.aggregate(symbol, from, to);
+    }
+
+    @Operation(summary = "Rebuild the rate history", description = "Rewrites the local rate history files from the rates stored in the database. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rate history rebuilt, one aggregate over all dates per currency", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = RateAggregateDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @PostMapping("/admin/rate-history/rebuild")
+    public List<RateAggregateDto> rebuild() {
+        return rateHistoryService.rebuild();
+    }
+}
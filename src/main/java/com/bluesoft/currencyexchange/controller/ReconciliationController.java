@@ -0,0 +1,60 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.ReconciliationStatusDto;
+import com.bluesoft.currencyexchange.service.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    @Operation(summary = "Start a reconciliation", description = "Compares every balance with its ledger in the background, resuming an unfinished run. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Reconciliation started", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ReconciliationStatusDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content),
+            @ApiResponse(responseCode = "409", description = "A reconciliation is already running", content = @Content)
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReconciliationStatusDto start() {
+        return reconciliationService.start();
+    }
+
+    @Operation(summary = "Stop the reconciliation", description = "Lets the running partitions finish; the next run resumes from the checkpoint. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Reconciliation stopping", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ReconciliationStatusDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @PostMapping("/stop")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReconciliationStatusDto stop() {
+        reconciliationService.stop();
+        return reconciliationService.status();
+    }
+
+    @Operation(summary = "Get reconciliation progress", description = "Progress, throughput and report of the running or last reconciliation. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ReconciliationStatusDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @GetMapping
+    public ReconciliationStatusDto getStatus() {
+        return reconciliationService.status();
+    }
+}
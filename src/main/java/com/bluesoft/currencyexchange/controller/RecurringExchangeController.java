@@ -0,0 +1,59 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.CreateRecurringExchangeRequest;
+import com.bluesoft.currencyexchange.dto.RecurringExchangeDto;
+import com.bluesoft.currencyexchange.service.RecurringExchangeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/recurring-exchanges")
+@RequiredArgsConstructor
+public class RecurringExchangeController {
+
+    private final RecurringExchangeService recurringExchangeService;
+
+    @Operation(summary = "Create a recurring exchange", description = "Exchanges the given amount at every occurrence of a cron expression, e.g. '0 0 9 1 * *' for 9:00 on the 1st of every month")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Recurring exchange created", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = RecurringExchangeDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Invalid request, cron expression or validation errors", content = @Content)
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public RecurringExchangeDto createSchedule(@Valid @RequestBody CreateRecurringExchangeRequest request) {
+        return recurringExchangeService.createSchedule(request);
+    }
+
+    @Operation(summary = "Get recurring exchange", description = "Fetches a recurring exchange and the outcome of its last run")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recurring exchange retrieved successfully", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = RecurringExchangeDto.class))
+            }),
+            @ApiResponse(responseCode = "404", description = "Recurring exchange not found", content = @Content)
+    })
+    @GetMapping("/{scheduleId}")
+    public RecurringExchangeDto getSchedule(@PathVariable @Parameter(description = "ID of the recurring exchange") Long scheduleId) {
+        return recurringExchangeService.getSchedule(scheduleId);
+    }
+
+    @Operation(summary = "Stop recurring exchange", description = "Deactivates a recurring exchange")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Recurring exchange stopped", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Recurring exchange not found", content = @Content)
+    })
+    @DeleteMapping("/{scheduleId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deactivateSchedule(@PathVariable @Parameter(description = "ID of the recurring exchange") Long scheduleId) {
+        recurringExchangeService.deactivateSchedule(scheduleId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.StatementRunDto;
+import com.bluesoft.currencyexchange.service.StatementService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@RestController
+@RequestMapping("/admin/statements")
+@RequiredArgsConstructor
+public class StatementController {
+
+    private final StatementService statementService;
+
+    @Operation(summary = "Write end-of-day statements", description = "Writes the statements of every account for a day (UTC, yesterday by default) in the background, resuming an unfinished run of that day. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Statement run started", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = StatementRunDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Statements are already being written", content = @Content)
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public StatementRunDto start(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        return statementService.start(day != null ? day : LocalDate.now(ZoneOffset.UTC).minusDays(1));
+    }
+
+    @Operation(summary = "Stop the statement run", description = "Lets the running partitions finish; the next run of the same day resumes from the checkpoint. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Statement run stopping", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = StatementRunDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @PostMapping("/stop")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public StatementRunDto stop() {
+        statementService.stop();
+        return statementService.status();
+    }
+
+    @Operation(summary = "Get statement run progress", description = "Progress, throughput and output directory of the running or last statement run. Requires the X-Admin-Token header")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "OK", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = StatementRunDto.class))
+            }),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid admin token", content = @Content)
+    })
+    @GetMapping
+    public StatementRunDto getStatus() {
+        return statementService.status();
+    }
+}
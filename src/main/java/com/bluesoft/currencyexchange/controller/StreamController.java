@@ -0,0 +1,34 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.service.StreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final StreamService streamService;
+
+    @Operation(summary = "Stream live events", description = "Server-sent events with rate changes and the balance changes of one account")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened")
+    })
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) @Parameter(description = "Account whose balance changes are streamed") UUID accountId,
+                             @RequestParam(defaultValue = "true") @Parameter(description = "Whether rate changes are streamed") boolean rates) {
+        return streamService.subscribe(accountId, rates);
+    }
+}
@@ -0,0 +1,37 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.TransferDto;
+import com.bluesoft.currencyexchange.dto.TransferRequest;
+import com.bluesoft.currencyexchange.service.TransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/transfers")
+@RequiredArgsConstructor
+public class TransferController {
+
+    private final TransferService transferService;
+
+    @Operation(summary = "Transfer money", description = "Moves money between currency accounts, converting it at the NBP mid rate when the currencies differ")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Transfer completed", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = TransferDto.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Invalid request, insufficient funds or validation errors", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Currency account not found", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Transfer kept conflicting with concurrent changes", content = @Content)
+    })
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public TransferDto transfer(@Valid @RequestBody TransferRequest request) {
+        return transferService.transfer(request);
+    }
+}
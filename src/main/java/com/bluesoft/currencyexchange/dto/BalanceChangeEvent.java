@@ -0,0 +1,16 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Payload of an outbox event: the balances of an account right after a committed change.
+ */
+public record BalanceChangeEvent(UUID accountId,
+                                 OutboxEventType type,
+                                 List<CurrencyAccountDto> balances,
+                                 Instant occurredAt
+) {}
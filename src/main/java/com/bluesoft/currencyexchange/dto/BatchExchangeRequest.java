@@ -0,0 +1,16 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * One exchange of a batch.
+ *
+ * @param accountId the account to perform the exchange on
+ * @param amount the amount to exchange
+ * @param fromCurrency the currency to exchange from
+ * @param toCurrency the currency to exchange to
+ */
+public record BatchExchangeRequest(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {}
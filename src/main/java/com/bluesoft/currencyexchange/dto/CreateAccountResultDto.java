@@ -0,0 +1,13 @@
+package com.bluesoft.currencyexchange.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of one request of a batch account creation.
+ *
+ * @param index position of the request in the batch
+ * @param accountId the id of the created account, or null if the request was rejected
+ * @param errors the validation errors of a rejected request
+ */
+public record CreateAccountResultDto(int index, UUID accountId, List<String> errors) {}
@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record CreateLimitOrderRequest(@NotNull UUID accountId,
+                                      @NotNull @Positive BigDecimal amount,
+                                      @NotNull Symbol fromCurrency,
+                                      @NotNull Symbol toCurrency,
+                                      @NotNull TriggerCondition triggerCondition,
+                                      @NotNull @Positive BigDecimal triggerRate
+) {}
@@ -0,0 +1,16 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record CreateRecurringExchangeRequest(@NotNull UUID accountId,
+                                             @NotNull @Positive BigDecimal amount,
+                                             @NotNull Symbol fromCurrency,
+                                             @NotNull Symbol toCurrency,
+                                             @NotBlank String cron
+) {}
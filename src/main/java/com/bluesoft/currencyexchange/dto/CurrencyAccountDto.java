@@ -2,11 +2,11 @@ package com.bluesoft.currencyexchange.dto;
 
 import com.bluesoft.currencyexchange.entity.Symbol;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Positive;
 
 import java.math.BigDecimal;
 
 public record CurrencyAccountDto (
                                   @NotNull Symbol symbol,
-                                  @PositiveOrZero BigDecimal balance
+                                  @Positive BigDecimal balance
 ) {}
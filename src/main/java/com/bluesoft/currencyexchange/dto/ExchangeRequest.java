@@ -0,0 +1,14 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+
+/**
+ * Body of a binary exchange request for the account in the path.
+ *
+ * @param amount the amount to exchange
+ * @param fromCurrency the currency to exchange from
+ * @param toCurrency the currency to exchange to
+ */
+public record ExchangeRequest(BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {}
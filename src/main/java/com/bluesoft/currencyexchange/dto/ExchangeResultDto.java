@@ -0,0 +1,9 @@
+package com.bluesoft.currencyexchange.dto;
+
+/**
+ * Outcome of one exchange of a batch.
+ *
+ * @param index position of the exchange in the batch
+ * @param error why the exchange was rejected, or null if it was performed
+ */
+public record ExchangeResultDto(int index, String error) {}
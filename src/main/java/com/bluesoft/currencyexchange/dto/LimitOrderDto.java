@@ -0,0 +1,23 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.LimitOrderStatus;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record LimitOrderDto(Long id,
+                            UUID accountId,
+                            BigDecimal amount,
+                            Symbol fromCurrency,
+                            Symbol toCurrency,
+                            TriggerCondition triggerCondition,
+                            BigDecimal triggerRate,
+                            LimitOrderStatus status,
+                            Instant createdAt,
+                            Instant executedAt,
+                            BigDecimal executionRate,
+                            String failureReason
+) {}
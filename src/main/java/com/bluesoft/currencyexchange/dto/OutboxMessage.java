@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An outbox event handed to an {@link com.bluesoft.currencyexchange.service.OutboxSink}.
+ *
+ * @param id the outbox event id, increasing in commit order per account
+ * @param accountId the account the event belongs to
+ * @param type the kind of change
+ * @param payload the JSON encoded {@link BalanceChangeEvent}
+ * @param createdAt when the change was committed
+ */
+public record OutboxMessage(long id, UUID accountId, OutboxEventType type, String payload, Instant createdAt) {}
@@ -0,0 +1,19 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.service.ExchangePhase;
+
+/**
+ * Latency and allocation profile of one exchange phase. Percentiles are upper bounds of histogram buckets,
+ * accurate to within 25%.
+ */
+public record PhaseProfileDto(ExchangePhase phase,
+                              long count,
+                              double meanMicros,
+                              double p50Micros,
+                              double p90Micros,
+                              double p99Micros,
+                              double p999Micros,
+                              double maxMicros,
+                              long allocatedBytesPerOperation,
+                              double allocationRateMegabytesPerSecond
+) {}
@@ -0,0 +1,48 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Pricing tables as they are configured. {@link com.bluesoft.currencyexchange.service.PricingTable} compiles them
+ * for the exchange path.
+ *
+ * @param pairs the default pricing of each currency pair; pairs not listed are exchanged at the mid rate without fee
+ * @param clients accounts priced differently from the default
+ */
+public record PricingConfig(List<PairPricing> pairs, List<ClientPricing> clients) {
+
+    public static final PricingConfig EMPTY = new PricingConfig(List.of(), List.of());
+
+    /**
+     * Pricing of one direction of a currency pair.
+     *
+     * @param fromCurrency the currency the client sells
+     * @param toCurrency the currency the client buys
+     * @param spreadBps markup on the mid rate in basis points, charged in the client's disfavour
+     * @param feeTiers fee bands by amount in the source currency, in ascending order of their minimum amount
+     */
+    public record PairPricing(Symbol fromCurrency, Symbol toCurrency, int spreadBps, List<FeeTier> feeTiers) {
+    }
+
+    /**
+     * A fee band.
+     *
+     * @param minAmount the smallest amount, in the source currency, the band applies to
+     * @param feeBps fee in basis points of the exchanged amount
+     */
+    public record FeeTier(BigDecimal minAmount, int feeBps) {
+    }
+
+    /**
+     * Overrides for one account. Pairs not listed keep the default pricing.
+     *
+     * @param accountId the account
+     * @param pairs the overridden pairs
+     */
+    public record ClientPricing(UUID accountId, List<PairPricing> pairs) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.bluesoft.currencyexchange.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Per-phase profile of the exchange path since {@code since}.
+ */
+public record ProfilingSummaryDto(Instant since, boolean allocationTracking, boolean recording, List<PhaseProfileDto> phases) {}
@@ -0,0 +1,21 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A priced exchange. {@code rate} is the quoted USD/PLN rate in PLN per USD, including the spread of the account, for
+ * both directions; the amount is converted after the fee is deducted.
+ */
+public record QuoteDto(UUID quoteId,
+                       UUID accountId,
+                       BigDecimal amount,
+                       Symbol fromCurrency,
+                       Symbol toCurrency,
+                       BigDecimal rate,
+                       BigDecimal convertedAmount,
+                       Instant expiresAt
+) {}
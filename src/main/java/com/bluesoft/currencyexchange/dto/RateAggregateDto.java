@@ -0,0 +1,30 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Aggregate of the daily mid rates of a currency over a window of NBP table dates. The rates are null when there is
+ * no rate in the window.
+ *
+ * @param symbol the quoted currency
+ * @param from the first date of the window
+ * @param to the last date of the window
+ * @param points the number of table dates with a rate in the window
+ * @param min the lowest rate
+ * @param max the highest rate
+ * @param average the average rate of the table dates
+ * @param last the rate of the last table date in the window
+ * @param lastDate the last table date in the window
+ */
+public record RateAggregateDto(Symbol symbol,
+                               LocalDate from,
+                               LocalDate to,
+                               int points,
+                               BigDecimal min,
+                               BigDecimal max,
+                               BigDecimal average,
+                               BigDecimal last,
+                               LocalDate lastDate) {}
@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Mid rate of a currency against PLN as published by NBP.
+ *
+ * @param symbol the quoted currency
+ * @param mid the mid rate in PLN
+ * @param effectiveDate the NBP table date the rate belongs to
+ * @param fetchedAt when the rate was fetched
+ */
+public record RateSnapshot(Symbol symbol, BigDecimal mid, LocalDate effectiveDate, Instant fetchedAt) {}
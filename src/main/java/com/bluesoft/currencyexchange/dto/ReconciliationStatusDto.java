@@ -0,0 +1,22 @@
+package com.bluesoft.currencyexchange.dto;
+
+import java.time.Instant;
+
+/**
+ * Progress of the last reconciliation run. Rows and discrepancies include the partitions completed before a resume,
+ * the throughput only counts this run.
+ */
+public record ReconciliationStatusDto(State state,
+                                      Instant startedAt,
+                                      Instant finishedAt,
+                                      int partitions,
+                                      int completedPartitions,
+                                      long rows,
+                                      long discrepancies,
+                                      double rowsPerSecond,
+                                      String report) {
+
+    public enum State { IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED }
+
+    public static final ReconciliationStatusDto IDLE = new ReconciliationStatusDto(State.IDLE, null, null, 0, 0, 0, 0, 0, null);
+}
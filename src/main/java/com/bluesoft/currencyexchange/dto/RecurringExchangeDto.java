@@ -0,0 +1,21 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.RecurringExchangeOutcome;
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record RecurringExchangeDto(Long id,
+                                   UUID accountId,
+                                   BigDecimal amount,
+                                   Symbol fromCurrency,
+                                   Symbol toCurrency,
+                                   String cron,
+                                   boolean active,
+                                   Instant nextRunAt,
+                                   Instant lastRunAt,
+                                   RecurringExchangeOutcome lastOutcome,
+                                   String lastError
+) {}
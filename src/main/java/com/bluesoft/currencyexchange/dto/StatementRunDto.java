@@ -0,0 +1,23 @@
+package com.bluesoft.currencyexchange.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Progress of the last statement run. Statements include the partitions completed before a resume, the throughput
+ * only counts this run.
+ */
+public record StatementRunDto(State state,
+                              LocalDate day,
+                              Instant startedAt,
+                              Instant finishedAt,
+                              int partitions,
+                              int completedPartitions,
+                              long statements,
+                              double statementsPerSecond,
+                              String directory) {
+
+    public enum State { IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED }
+
+    public static final StatementRunDto IDLE = new StatementRunDto(State.IDLE, null, null, null, 0, 0, 0, 0, null);
+}
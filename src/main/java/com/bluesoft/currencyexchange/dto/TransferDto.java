@@ -0,0 +1,24 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A completed transfer.
+ *
+ * @param debitedAmount the amount taken from the source, in its currency
+ * @param creditedAmount the amount added to the target, in its currency
+ * @param fee the part of the debited amount kept as fee, zero for a same-currency transfer
+ * @param rate the USD/PLN mid rate applied, or null when both sides hold the same currency
+ */
+public record TransferDto(UUID fromAccountId,
+                          Symbol fromCurrency,
+                          UUID toAccountId,
+                          Symbol toCurrency,
+                          BigDecimal debitedAmount,
+                          BigDecimal creditedAmount,
+                          BigDecimal fee,
+                          BigDecimal rate
+) {}
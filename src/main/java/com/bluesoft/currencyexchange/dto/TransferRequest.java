@@ -0,0 +1,15 @@
+package com.bluesoft.currencyexchange.dto;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record TransferRequest(@NotNull UUID fromAccountId,
+                              @NotNull Symbol fromCurrency,
+                              @NotNull UUID toAccountId,
+                              @NotNull Symbol toCurrency,
+                              @NotNull @Positive BigDecimal amount
+) {}
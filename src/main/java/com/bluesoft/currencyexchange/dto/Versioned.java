@@ -0,0 +1,14 @@
+package com.bluesoft.currencyexchange.dto;
+
+/**
+ * A response body together with the version it was read at, which is sent as its {@code ETag}.
+ */
+public record Versioned<T>(T value, long version) {
+
+    /**
+     * @return the version as an entity tag value
+     */
+    public String etag() {
+        return Long.toString(version);
+    }
+}
@@ -3,49 +3,93 @@ package com.bluesoft.currencyexchange.dto.validator;
 import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
 import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
 import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.AccountValidationException;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * Validates account creation requests in a single pass over the currency balances. Violations are collected
+ * into a bitmask, so a valid request is checked without allocating.
+ */
 @Component
 public class AccountRequestValidator {
 
-    public void validate(CreateAccountRequest request) {
-        checkAtLeastOneCurrencyBalance(request);
-        checkContainsPlnBalance(request);
-        checkNoNegativeBalances(request);
-        checkNoDuplicateCurrencies(request);
-    }
+    private static final int PLN = 1 << Symbol.PLN.ordinal();
+    private static final int MISSING_REQUEST = AccountViolation.FIRST_NAME_REQUIRED.bit() | AccountViolation.LAST_NAME_REQUIRED.bit()
+            | AccountViolation.CURRENCY_BALANCE_REQUIRED.bit() | AccountViolation.PLN_BALANCE_REQUIRED.bit();
 
-    private void checkAtLeastOneCurrencyBalance(CreateAccountRequest request) {
-        if (request.currencyAccounts().isEmpty()) {
-            throw new IllegalArgumentException("At least one currency balance is required.");
+    /**
+     * Validates the request and reports the first violation.
+     *
+     * @param request the request to validate
+     * @throws AccountValidationException with the message of the first violation if the request is invalid
+     */
+    public void validate(CreateAccountRequest request) {
+        int mask = check(request);
+        if (mask != 0) {
+            throw new AccountValidationException(AccountViolation.first(mask).getMessage());
         }
     }
 
-    private void checkContainsPlnBalance(CreateAccountRequest request) {
-        boolean hasPlnBalance = request.currencyAccounts().stream()
-                .anyMatch(account -> account.symbol() == Symbol.PLN);
-        if (!hasPlnBalance) {
-            throw new IllegalArgumentException("Account must include an initial balance in PLN.");
-        }
+    /**
+     * Collects every violation of the request.
+     *
+     * @param request the request to validate
+     * @return the violations, empty if the request is valid
+     */
+    public Set<AccountViolation> violations(CreateAccountRequest request) {
+        return AccountViolation.fromMask(check(request));
     }
 
-    private void checkNoNegativeBalances(CreateAccountRequest request) {
-        if (request.currencyAccounts().stream()
-                .anyMatch(account -> account.balance().compareTo(BigDecimal.ZERO) < 0)) {
-            throw new IllegalArgumentException("Balance cannot be negative.");
+    /**
+     * Collects every violation of the request as a mask of {@link AccountViolation#bit()}s. A missing request,
+     * e.g. a {@code null} element of a batch, violates every required field.
+     *
+     * @param request the request to validate, may be null
+     * @return the violation mask, 0 if the request is valid
+     */
+    public int check(CreateAccountRequest request) {
+        if (request == null) {
+            return MISSING_REQUEST;
         }
-    }
-
-    private void checkNoDuplicateCurrencies(CreateAccountRequest request) {
-        Set<Symbol> symbols = request.currencyAccounts().stream()
-                .map(CurrencyAccountDto::symbol)
-                .collect(Collectors.toSet());
-        if (symbols.size() != request.currencyAccounts().size()) {
-            throw new IllegalArgumentException("Duplicate currency entries found.");
+        int mask = 0;
+        if (request.firstName() == null || request.firstName().isBlank()) {
+            mask |= AccountViolation.FIRST_NAME_REQUIRED.bit();
+        }
+        if (request.lastName() == null || request.lastName().isBlank()) {
+            mask |= AccountViolation.LAST_NAME_REQUIRED.bit();
+        }
+        List<CurrencyAccountDto> currencyAccounts = request.currencyAccounts();
+        if (currencyAccounts == null || currencyAccounts.isEmpty()) {
+            return mask | AccountViolation.CURRENCY_BALANCE_REQUIRED.bit() | AccountViolation.PLN_BALANCE_REQUIRED.bit();
+        }
+        int symbols = 0;
+        for (int i = 0, size = currencyAccounts.size(); i < size; i++) {
+            CurrencyAccountDto currencyAccount = currencyAccounts.get(i);
+            Symbol symbol = currencyAccount == null ? null : currencyAccount.symbol();
+            BigDecimal balance = currencyAccount == null ? null : currencyAccount.balance();
+            if (symbol == null) {
+                mask |= AccountViolation.SYMBOL_REQUIRED.bit();
+            } else {
+                int bit = 1 << symbol.ordinal();
+                if ((symbols & bit) != 0) {
+                    mask |= AccountViolation.DUPLICATE_CURRENCY.bit();
+                }
+                symbols |= bit;
+            }
+            if (balance == null) {
+                mask |= AccountViolation.BALANCE_REQUIRED.bit();
+            } else if (balance.signum() <= 0) {
+                // currency account balances are @Positive, a zero balance would only fail when it is flushed
+                mask |= AccountViolation.NON_POSITIVE_BALANCE.bit();
+            }
+        }
+        if ((symbols & PLN) == 0) {
+            mask |= AccountViolation.PLN_BALANCE_REQUIRED.bit();
         }
+        return mask;
     }
 }
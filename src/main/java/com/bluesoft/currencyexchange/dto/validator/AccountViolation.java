@@ -0,0 +1,66 @@
+package com.bluesoft.currencyexchange.dto.validator;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Problems found in a {@link com.bluesoft.currencyexchange.dto.CreateAccountRequest}, declared in the order
+ * in which they are reported.
+ */
+public enum AccountViolation {
+    FIRST_NAME_REQUIRED("First name is required."),
+    LAST_NAME_REQUIRED("Last name is required."),
+    CURRENCY_BALANCE_REQUIRED("At least one currency balance is required."),
+    PLN_BALANCE_REQUIRED("Account must include an initial balance in PLN."),
+    NON_POSITIVE_BALANCE("Balance must be positive."),
+    DUPLICATE_CURRENCY("Duplicate currency entries found."),
+    SYMBOL_REQUIRED("Currency symbol is required."),
+    BALANCE_REQUIRED("Balance is required.");
+
+    private static final AccountViolation[] VALUES = values();
+
+    private final String message;
+    private final int bit;
+
+    AccountViolation(String message) {
+        this.message = message;
+        this.bit = 1 << ordinal();
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the bit of this violation in a violation mask
+     */
+    public int bit() {
+        return bit;
+    }
+
+    /**
+     * @param mask a non-empty violation mask
+     * @return the violation reported first
+     */
+    public static AccountViolation first(int mask) {
+        return VALUES[Integer.numberOfTrailingZeros(mask)];
+    }
+
+    /**
+     * @param mask a violation mask
+     * @return the violations in the mask
+     */
+    public static Set<AccountViolation> fromMask(int mask) {
+        if (mask == 0) {
+            return Collections.emptySet();
+        }
+        EnumSet<AccountViolation> violations = EnumSet.noneOf(AccountViolation.class);
+        for (AccountViolation violation : VALUES) {
+            if ((mask & violation.bit) != 0) {
+                violations.add(violation);
+            }
+        }
+        return violations;
+    }
+}
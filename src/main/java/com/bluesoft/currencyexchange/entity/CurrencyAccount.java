@@ -2,10 +2,10 @@ package com.bluesoft.currencyexchange.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -13,9 +13,8 @@ import java.util.Objects;
 
 @Entity
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_currency_account_account", columnList = "account_id, id"))
 public class CurrencyAccount {
 
     @Id
@@ -32,12 +31,64 @@ public class CurrencyAccount {
     @Positive
     private BigDecimal balance;
 
+    /**
+     * Incremented by Hibernate with every balance change, in the same update. The versions of an account's currency
+     * accounts add up to the version of the account, which is its ETag.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
+    /**
+     * The balance the ledger has accounted for, {@code null} until the row is stored.
+     */
+    @Transient
+    private BigDecimal recordedBalance;
+
+    @Builder
+    public CurrencyAccount(Long id, Symbol symbol, Account account, BigDecimal balance) {
+        this.id = id;
+        this.symbol = symbol;
+        this.account = account;
+        this.balance = balance;
+    }
+
+    @PostLoad
+    void loaded() {
+        recordedBalance = balance;
+    }
+
+    /**
+     * Returns how much the balance changed since the row was loaded or the last call, for the ledger, and marks the
+     * change as recorded. The whole balance is a change of a new row.
+     */
+    public BigDecimal takeUnrecordedChange() {
+        BigDecimal change = recordedBalance == null ? balance : balance.subtract(recordedBalance);
+        recordedBalance = balance;
+        return change;
+    }
+
     public void exchange(BigDecimal currencyAmount, BigDecimal exchangeRate, CurrencyAccount to) {
+        exchange(currencyAmount, BigDecimal.ZERO, exchangeRate, to);
+    }
+
+    /**
+     * Debits the full amount and credits what is left after the fee, converted at the given rate.
+     */
+    public void exchange(BigDecimal currencyAmount, BigDecimal fee, BigDecimal exchangeRate, CurrencyAccount to) {
         this.balance = getBalance().subtract(currencyAmount).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal exchangedCurrencyAmount = currencyAmount.divide(exchangeRate, 10, RoundingMode.HALF_UP).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal exchangedCurrencyAmount = exchangedAmount(currencyAmount.subtract(fee), exchangeRate);
         to.setBalance(to.getBalance().add(exchangedCurrencyAmount).setScale(2, RoundingMode.HALF_UP));
     }
 
+    /**
+     * Converts an amount with the same rounding that {@link #exchange} applies to the credited side.
+     */
+    public static BigDecimal exchangedAmount(BigDecimal currencyAmount, BigDecimal exchangeRate) {
+        return currencyAmount.divide(exchangeRate, 10, RoundingMode.HALF_UP).setScale(2, RoundingMode.HALF_UP);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,39 @@
+package com.bluesoft.currencyexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The sum of the archived ledger entries of a currency account. Together with the entries still in
+ * {@code ledger_entry} it adds up to the balance.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_ledger_carry_forward_account", columnList = "accountId, currencyAccountId"))
+public class LedgerCarryForward {
+
+    @Id
+    private Long currencyAccountId;
+
+    private UUID accountId;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol symbol;
+
+    private BigDecimal amount;
+
+    /**
+     * End of the last archived month.
+     */
+    private Instant carriedThrough;
+}
@@ -0,0 +1,42 @@
+package com.bluesoft.currencyexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One change of a currency account balance. The entries of a currency account add up to its balance, starting with
+ * the opening balance recorded when the account is created.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_ledger_entry_account", columnList = "accountId, currencyAccountId"))
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private UUID accountId;
+
+    private Long currencyAccountId;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol symbol;
+
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType eventType;
+
+    private Instant createdAt;
+}
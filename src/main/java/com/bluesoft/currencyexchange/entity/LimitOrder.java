@@ -0,0 +1,51 @@
+package com.bluesoft.currencyexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_limit_order_status", columnList = "status"))
+public class LimitOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private UUID accountId;
+
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol fromCurrency;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol toCurrency;
+
+    @Enumerated(EnumType.STRING)
+    private TriggerCondition triggerCondition;
+
+    @Column(precision = 19, scale = 6)
+    private BigDecimal triggerRate;
+
+    @Enumerated(EnumType.STRING)
+    private LimitOrderStatus status;
+
+    private Instant createdAt;
+
+    private Instant executedAt;
+
+    private BigDecimal executionRate;
+
+    private String failureReason;
+}
@@ -0,0 +1,5 @@
+package com.bluesoft.currencyexchange.entity;
+
+public enum LimitOrderStatus {
+    OPEN, FILLED, REJECTED, CANCELLED
+}
@@ -0,0 +1,35 @@
+package com.bluesoft.currencyexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_outbox_event_pending", columnList = "publishedAt, id"))
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private UUID accountId;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType eventType;
+
+    @Column(length = 4000)
+    private String payload;
+
+    private Instant createdAt;
+
+    private Instant publishedAt;
+}
@@ -0,0 +1,5 @@
+package com.bluesoft.currencyexchange.entity;
+
+public enum OutboxEventType {
+    ACCOUNT_CREATED, BALANCE_CHANGED
+}
@@ -0,0 +1,41 @@
+package com.bluesoft.currencyexchange.entity;
+
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "rate_snapshot", indexes = @Index(name = "idx_rate_snapshot_symbol", columnList = "symbol, id"))
+public class RateSnapshotRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol symbol;
+
+    @Column(precision = 19, scale = 6)
+    private BigDecimal mid;
+
+    private LocalDate effectiveDate;
+
+    private Instant fetchedAt;
+
+    private String fetchedBy;
+
+    public RateSnapshot toSnapshot() {
+        return new RateSnapshot(symbol, mid.stripTrailingZeros(), effectiveDate, fetchedAt);
+    }
+}
@@ -0,0 +1,53 @@
+package com.bluesoft.currencyexchange.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_recurring_exchange_due", columnList = "active, nextRunAt"))
+public class RecurringExchange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private UUID accountId;
+
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol fromCurrency;
+
+    @Enumerated(EnumType.STRING)
+    private Symbol toCurrency;
+
+    private String cron;
+
+    private boolean active;
+
+    private Instant nextRunAt;
+
+    private UUID leaseOwner;
+
+    private Instant leasedUntil;
+
+    private Instant lastRunAt;
+
+    @Enumerated(EnumType.STRING)
+    private RecurringExchangeOutcome lastOutcome;
+
+    private String lastError;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,8 @@
+package com.bluesoft.currencyexchange.entity;
+
+/**
+ * When a limit order fires relative to the NBP mid rate: at or below, or at or above its trigger rate.
+ */
+public enum TriggerCondition {
+    BELOW, ABOVE
+}
@@ -8,4 +8,9 @@ public class AccountNotFoundException extends ResponseStatusException {
     public AccountNotFoundException(String message) {
         super(NOT_FOUND, message);
     }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.exception;
+
+/**
+ * Thrown when an account creation request is invalid. This is an expected outcome of client input, so no stack
+ * trace is captured.
+ */
+public class AccountValidationException extends IllegalArgumentException {
+
+    public AccountValidationException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
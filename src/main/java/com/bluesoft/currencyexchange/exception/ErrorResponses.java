@@ -0,0 +1,73 @@
+package com.bluesoft.currencyexchange.exception;
+
+import com.bluesoft.currencyexchange.entity.ErrorMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds {@link ErrorMessage} responses as pre-serialized JSON. Responses for messages that do not depend on
+ * the request are cached, so repeated rejections are answered without serializing anything.
+ */
+@Component
+@RequiredArgsConstructor
+public class ErrorResponses {
+
+    static final int MAX_CACHED = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Map<HttpStatus, Map<String, ResponseEntity<byte[]>>> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger cached = new AtomicInteger();
+
+    /**
+     * Returns the response for a message that does not depend on the request, from the cache when possible.
+     * At most {@value #MAX_CACHED} responses are cached.
+     *
+     * @param status the response status
+     * @param message the error message
+     * @return the response with a JSON {@link ErrorMessage} body
+     */
+    public ResponseEntity<byte[]> cached(HttpStatus status, String message) {
+        Map<String, ResponseEntity<byte[]>> byMessage = cache.computeIfAbsent(status, key -> new ConcurrentHashMap<>());
+        ResponseEntity<byte[]> response = byMessage.get(message);
+        if (response != null) {
+            return response;
+        }
+        response = of(status, message);
+        if (cached.incrementAndGet() <= MAX_CACHED) {
+            ResponseEntity<byte[]> previous = byMessage.putIfAbsent(message, response);
+            if (previous != null) {
+                cached.decrementAndGet();
+                return previous;
+            }
+        } else {
+            cached.decrementAndGet();
+        }
+        return response;
+    }
+
+    /**
+     * Builds the response for a request specific message.
+     *
+     * @param status the response status
+     * @param message the error message
+     * @return the response with a JSON {@link ErrorMessage} body
+     */
+    public ResponseEntity<byte[]> of(HttpStatus status, String message) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(new ErrorMessage(status, message));
+            return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
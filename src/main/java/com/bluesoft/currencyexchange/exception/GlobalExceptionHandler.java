@@ -1,19 +1,77 @@
 package com.bluesoft.currencyexchange.exception;
 
-import com.bluesoft.currencyexchange.entity.ErrorMessage;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private final ErrorResponses errorResponses;
+
     @ExceptionHandler(AccountNotFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ErrorMessage handleAccountNotFound(AccountNotFoundException ex) {
-        return new ErrorMessage(ex.getStatusCode(), ex.getReason());
+    public ResponseEntity<byte[]> handleAccountNotFound(AccountNotFoundException ex) {
+        return errorResponses.of(HttpStatus.NOT_FOUND, ex.getReason());
+    }
+
+    @ExceptionHandler(QuoteNotFoundException.class)
+    public ResponseEntity<byte[]> handleQuoteNotFound(QuoteNotFoundException ex) {
+        return errorResponses.of(HttpStatus.NOT_FOUND, ex.getReason());
+    }
+
+    @ExceptionHandler(LimitOrderNotFoundException.class)
+    public ResponseEntity<byte[]> handleLimitOrderNotFound(LimitOrderNotFoundException ex) {
+        return errorResponses.of(HttpStatus.NOT_FOUND, ex.getReason());
+    }
+
+    @ExceptionHandler(RecurringExchangeNotFoundException.class)
+    public ResponseEntity<byte[]> handleRecurringExchangeNotFound(RecurringExchangeNotFoundException ex) {
+        return errorResponses.of(HttpStatus.NOT_FOUND, ex.getReason());
+    }
+
+    @ExceptionHandler(QuoteCapacityExceededException.class)
+    public ResponseEntity<byte[]> handleQuoteCapacityExceeded(QuoteCapacityExceededException ex) {
+        return errorResponses.cached(HttpStatus.SERVICE_UNAVAILABLE, ex.getReason());
+    }
+
+    @ExceptionHandler(HousePositionExceededException.class)
+    public ResponseEntity<byte[]> handleHousePositionExceeded(HousePositionExceededException ex) {
+        return errorResponses.cached(HttpStatus.SERVICE_UNAVAILABLE, HousePositionExceededException.MESSAGE);
+    }
+
+    @ExceptionHandler(NettingTimeoutException.class)
+    public ResponseEntity<byte[]> handleNettingTimeout(NettingTimeoutException ex) {
+        return errorResponses.cached(HttpStatus.SERVICE_UNAVAILABLE, NettingTimeoutException.MESSAGE);
+    }
+
+    @ExceptionHandler(NettingQueueFullException.class)
+    public ResponseEntity<byte[]> handleNettingQueueFull(NettingQueueFullException ex) {
+        return errorResponses.cached(HttpStatus.SERVICE_UNAVAILABLE, NettingQueueFullException.MESSAGE);
+    }
+
+    @ExceptionHandler(TransferConflictException.class)
+    public ResponseEntity<byte[]> handleTransferConflict(TransferConflictException ex) {
+        return errorResponses.cached(HttpStatus.CONFLICT, TransferConflictException.MESSAGE);
+    }
+
+    @ExceptionHandler(ProfilingRecordingException.class)
+    public ResponseEntity<byte[]> handleProfilingRecording(ProfilingRecordingException ex) {
+        return errorResponses.cached(HttpStatus.CONFLICT, ex.getReason());
+    }
+
+    @ExceptionHandler(ReconciliationRunningException.class)
+    public ResponseEntity<byte[]> handleReconciliationRunning(ReconciliationRunningException ex) {
+        return errorResponses.cached(HttpStatus.CONFLICT, ReconciliationRunningException.MESSAGE);
+    }
+
+    @ExceptionHandler(StatementRunningException.class)
+    public ResponseEntity<byte[]> handleStatementRunning(StatementRunningException ex) {
+        return errorResponses.cached(HttpStatus.CONFLICT, StatementRunningException.MESSAGE);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -22,16 +80,24 @@ public class GlobalExceptionHandler {
         return "Validation error: " + ex.getMessage();
     }
 
+    @ExceptionHandler(InsufficientFundsException.class)
+    public ResponseEntity<byte[]> handleInsufficientFunds(InsufficientFundsException ex) {
+        return errorResponses.cached(HttpStatus.BAD_REQUEST, InsufficientFundsException.MESSAGE);
+    }
+
+    @ExceptionHandler(AccountValidationException.class)
+    public ResponseEntity<byte[]> handleAccountValidation(AccountValidationException ex) {
+        return errorResponses.cached(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorMessage handleIllegalArgument(IllegalArgumentException ex) {
-        return new ErrorMessage(HttpStatus.BAD_REQUEST, ex.getMessage());
+    public ResponseEntity<byte[]> handleIllegalArgument(IllegalArgumentException ex) {
+        return errorResponses.of(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
     @ExceptionHandler(InvalidCurrencyExchangeException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorMessage handleInvalidCurrencyExchangeException(InvalidCurrencyExchangeException ex) {
-        return new ErrorMessage(HttpStatus.BAD_REQUEST, ex.getMessage());
+    public ResponseEntity<byte[]> handleInvalidCurrencyExchangeException(InvalidCurrencyExchangeException ex) {
+        return errorResponses.cached(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
 }
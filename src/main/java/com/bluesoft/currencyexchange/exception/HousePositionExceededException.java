@@ -0,0 +1,22 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Thrown when the house position cannot supply the currency a netted exchange asks for.
+ */
+public class HousePositionExceededException extends ResponseStatusException {
+
+    public static final String MESSAGE = "The house position cannot cover this exchange right now, please retry later.";
+
+    public HousePositionExceededException() {
+        super(SERVICE_UNAVAILABLE, MESSAGE);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
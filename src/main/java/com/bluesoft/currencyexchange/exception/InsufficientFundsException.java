@@ -0,0 +1,19 @@
+package com.bluesoft.currencyexchange.exception;
+
+/**
+ * Thrown when the source currency account does not hold the amount to exchange. This is an expected business
+ * outcome, so no stack trace is captured.
+ */
+public class InsufficientFundsException extends IllegalArgumentException {
+
+    public static final String MESSAGE = "Insufficient funds in the account.";
+
+    public InsufficientFundsException() {
+        super(MESSAGE);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -1,7 +1,28 @@
 package com.bluesoft.currencyexchange.exception;
 
+/**
+ * Thrown for exchange requests that can never succeed. This is an expected business outcome, so no stack trace
+ * is captured.
+ */
 public class InvalidCurrencyExchangeException extends RuntimeException {
+
+    public static final String SAME_CURRENCY_MESSAGE = "Cannot exchange the same currency. Please select different currencies.";
+    public static final String SAME_CURRENCY_ACCOUNT_MESSAGE = "Cannot transfer to the same currency account. Please select a different account or currency.";
+
     public InvalidCurrencyExchangeException(String message) {
         super(message);
     }
+
+    public static InvalidCurrencyExchangeException sameCurrency() {
+        return new InvalidCurrencyExchangeException(SAME_CURRENCY_MESSAGE);
+    }
+
+    public static InvalidCurrencyExchangeException sameCurrencyAccount() {
+        return new InvalidCurrencyExchangeException(SAME_CURRENCY_ACCOUNT_MESSAGE);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -0,0 +1,16 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+public class LimitOrderNotFoundException extends ResponseStatusException {
+    public LimitOrderNotFoundException(String message) {
+        super(NOT_FOUND, message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,22 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Thrown when a netted exchange finds the queue of exchanges waiting for a window full. Nothing was booked.
+ */
+public class NettingQueueFullException extends ResponseStatusException {
+
+    public static final String MESSAGE = "Too many exchanges are waiting to be booked, please retry later.";
+
+    public NettingQueueFullException() {
+        super(SERVICE_UNAVAILABLE, MESSAGE);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
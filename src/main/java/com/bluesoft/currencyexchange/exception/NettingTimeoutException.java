@@ -0,0 +1,23 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Thrown when a netted exchange was not confirmed within the settle timeout. The window holding it may still be
+ * booked afterwards.
+ */
+public class NettingTimeoutException extends ResponseStatusException {
+
+    public static final String MESSAGE = "The exchange was not confirmed in time, please check the balance before retrying.";
+
+    public NettingTimeoutException() {
+        super(SERVICE_UNAVAILABLE, MESSAGE);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,11 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+public class ProfilingRecordingException extends ResponseStatusException {
+    public ProfilingRecordingException(String message) {
+        super(CONFLICT, message);
+    }
+}
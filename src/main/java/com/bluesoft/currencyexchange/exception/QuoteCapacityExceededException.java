@@ -0,0 +1,16 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+public class QuoteCapacityExceededException extends ResponseStatusException {
+    public QuoteCapacityExceededException(String message) {
+        super(SERVICE_UNAVAILABLE, message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
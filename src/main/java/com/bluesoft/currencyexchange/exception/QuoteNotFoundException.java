@@ -0,0 +1,16 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+public class QuoteNotFoundException extends ResponseStatusException {
+    public QuoteNotFoundException(String message) {
+        super(NOT_FOUND, message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/**
+ * Thrown when a reconciliation is requested while another one is still running.
+ */
+public class ReconciliationRunningException extends ResponseStatusException {
+
+    public static final String MESSAGE = "A reconciliation is already running.";
+
+    public ReconciliationRunningException() {
+        super(CONFLICT, MESSAGE);
+    }
+}
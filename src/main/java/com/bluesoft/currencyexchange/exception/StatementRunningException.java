@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/**
+ * Thrown when statements are requested while a statement run is still going on.
+ */
+public class StatementRunningException extends ResponseStatusException {
+
+    public static final String MESSAGE = "Statements are already being generated.";
+
+    public StatementRunningException() {
+        super(CONFLICT, MESSAGE);
+    }
+}
@@ -0,0 +1,17 @@
+package com.bluesoft.currencyexchange.exception;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/**
+ * Thrown when a transfer kept being aborted by concurrent transfers on the same accounts and ran out of retries.
+ */
+public class TransferConflictException extends ResponseStatusException {
+
+    public static final String MESSAGE = "The transfer conflicted with concurrent changes of the accounts, please retry.";
+
+    public TransferConflictException(Throwable cause) {
+        super(CONFLICT, MESSAGE, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.bluesoft.currencyexchange.mapper;
+
+import com.bluesoft.currencyexchange.dto.LimitOrderDto;
+import com.bluesoft.currencyexchange.entity.LimitOrder;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface LimitOrderMapper {
+
+    LimitOrderDto toDto(LimitOrder limitOrder);
+}
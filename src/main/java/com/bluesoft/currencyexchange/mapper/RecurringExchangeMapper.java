@@ -0,0 +1,11 @@
+package com.bluesoft.currencyexchange.mapper;
+
+import com.bluesoft.currencyexchange.dto.RecurringExchangeDto;
+import com.bluesoft.currencyexchange.entity.RecurringExchange;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface RecurringExchangeMapper {
+
+    RecurringExchangeDto toDto(RecurringExchange recurringExchange);
+}
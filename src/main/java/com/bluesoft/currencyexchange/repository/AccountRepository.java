@@ -3,7 +3,9 @@ package com.bluesoft.currencyexchange.repository;
 import com.bluesoft.currencyexchange.entity.Account;
 import com.bluesoft.currencyexchange.entity.CurrencyAccount;
 import com.bluesoft.currencyexchange.entity.Symbol;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -13,4 +15,10 @@ import java.util.UUID;
 public interface AccountRepository extends JpaRepository<Account, UUID> {
 
     Optional<Account> findByIdAndCurrencyAccounts_Symbol(UUID id, Symbol symbol);
-}
\ No newline at end of file
+
+    /**
+     * Loads an account and locks its row until the end of the transaction, serializing balance changes per account.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Account> findWithLockById(UUID id);
+}
@@ -2,9 +2,14 @@ package com.bluesoft.currencyexchange.repository;
 
 import com.bluesoft.currencyexchange.entity.CurrencyAccount;
 import com.bluesoft.currencyexchange.entity.Symbol;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +17,19 @@ import java.util.UUID;
 public interface CurrencyAccountRepository extends JpaRepository<CurrencyAccount, Long> {
     Optional<CurrencyAccount> findBySymbolAndAccount_Id(Symbol symbol, UUID id);
 
+    /**
+     * Loads the currency accounts of the given accounts and locks their rows until the end of the transaction.
+     * PostgreSQL locks the rows in the order they are returned, so every caller acquires them in ascending id order
+     * and two transactions locking overlapping sets cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<CurrencyAccount> findWithLockByAccount_IdInOrderById(Collection<UUID> accountIds);
+
+    /**
+     * Looks up the version of an account without loading it, see {@link CurrencyAccount#getVersion()}.
+     *
+     * @return the sum of the versions of the account's currency accounts, empty if the account does not exist
+     */
+    @Query("select sum(c.version) from CurrencyAccount c where c.account.id = :accountId")
+    Optional<Long> findAccountVersion(UUID accountId);
 }
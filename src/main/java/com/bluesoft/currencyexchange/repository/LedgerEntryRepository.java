@@ -0,0 +1,9 @@
+package com.bluesoft.currencyexchange.repository;
+
+import com.bluesoft.currencyexchange.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+}
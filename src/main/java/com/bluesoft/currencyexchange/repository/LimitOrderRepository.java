@@ -0,0 +1,24 @@
+package com.bluesoft.currencyexchange.repository;
+
+import com.bluesoft.currencyexchange.entity.LimitOrder;
+import com.bluesoft.currencyexchange.entity.LimitOrderStatus;
+import com.bluesoft.currencyexchange.service.RestingOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface LimitOrderRepository extends JpaRepository<LimitOrder, Long> {
+
+    @Query("select new com.bluesoft.currencyexchange.service.RestingOrder(o.id, o.fromCurrency, o.toCurrency, o.triggerCondition, o.triggerRate) " +
+            "from LimitOrder o where o.status = :status")
+    Stream<RestingOrder> streamRestingOrders(@Param("status") LimitOrderStatus status);
+
+    @Modifying
+    @Query("update LimitOrder o set o.status = :to where o.id = :id and o.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") LimitOrderStatus from, @Param("to") LimitOrderStatus to);
+}
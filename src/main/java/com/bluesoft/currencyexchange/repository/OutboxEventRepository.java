@@ -0,0 +1,20 @@
+package com.bluesoft.currencyexchange.repository;
+
+import com.bluesoft.currencyexchange.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Locks the oldest unpublished events. A second relay blocks here until the first one commits,
+     * which keeps events of an account in id order across instances.
+     */
+    @Query(value = "SELECT * FROM outbox_event WHERE published_at IS NULL ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<OutboxEvent> lockPending(@Param("limit") int limit);
+}
@@ -0,0 +1,19 @@
+package com.bluesoft.currencyexchange.repository;
+
+import com.bluesoft.currencyexchange.entity.RateSnapshotRecord;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RateSnapshotRepository extends JpaRepository<RateSnapshotRecord, Long> {
+
+    /**
+     * Finds the latest snapshot stored after a point in time. The bound lets PostgreSQL skip the monthly partitions
+     * that end before it, so the lookup does not slow down as the history grows.
+     */
+    Optional<RateSnapshotRecord> findFirstBySymbolAndFetchedAtAfterOrderByIdDesc(Symbol symbol, Instant fetchedAfter);
+}
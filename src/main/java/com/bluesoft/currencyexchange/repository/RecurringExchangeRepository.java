@@ -0,0 +1,33 @@
+package com.bluesoft.currencyexchange.repository;
+
+import com.bluesoft.currencyexchange.entity.RecurringExchange;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecurringExchangeRepository extends JpaRepository<RecurringExchange, Long> {
+
+    /**
+     * Locks due schedules that are not leased by another instance. Rows locked by a concurrent claim are skipped,
+     * so several instances can claim batches at the same time without waiting for each other.
+     */
+    @Query(value = "SELECT * FROM recurring_exchange " +
+            "WHERE active AND next_run_at <= :now AND (leased_until IS NULL OR leased_until < :now) " +
+            "ORDER BY next_run_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<RecurringExchange> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Loads a schedule and locks its row until the end of the transaction, so {@link #lockDue} cannot hand the
+     * schedule to another instance while a run of it is being executed, even after the lease expired.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RecurringExchange> findWithLockById(Long id);
+}
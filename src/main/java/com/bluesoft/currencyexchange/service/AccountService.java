@@ -1,19 +1,27 @@
 package com.bluesoft.currencyexchange.service;
 
+import com.bluesoft.currencyexchange.dto.CreateAccountResultDto;
 import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
 import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
 import com.bluesoft.currencyexchange.dto.validator.AccountRequestValidator;
+import com.bluesoft.currencyexchange.dto.validator.AccountViolation;
 import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
 import com.bluesoft.currencyexchange.repository.AccountRepository;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
 import com.bluesoft.currencyexchange.dto.AccountDto;
 import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.Versioned;
 import com.bluesoft.currencyexchange.entity.Account;
 import com.bluesoft.currencyexchange.mapper.AccountMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -23,9 +31,13 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class AccountService {
 
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final AccountRepository accountRepository;
+    private final CurrencyAccountRepository currencyAccountRepository;
     private final AccountMapper accountMapper;
     private final AccountRequestValidator validator;
+    private final OutboxService outboxService;
 
     /**
      * Creates a new account based on the provided request.
@@ -34,17 +46,44 @@ public class AccountService {
      * @param request the request containing account details
      * @return the UUID of the created account
      */
+    @Transactional
     public UUID createAccount(CreateAccountRequest request) {
         validator.validate(request);
 
-        Account account = new Account(null, request.firstName(), request.lastName(), new ArrayList<>());
-        request.currencyAccounts().forEach(currencyAccountDto ->
-                account.getCurrencyAccounts().add(createCurrencyAccount(currencyAccountDto, account))
-        );
-        Account savedAccount = accountRepository.save(account);
+        Account savedAccount = accountRepository.save(toAccount(request));
+        outboxService.record(savedAccount, OutboxEventType.ACCOUNT_CREATED);
         return savedAccount.getId();
     }
 
+    /**
+     * Creates the valid accounts of a batch in one transaction. Invalid requests are reported with all of
+     * their violations instead of failing the batch.
+     *
+     * @param requests the account requests
+     * @return one result per request, in request order
+     * @throws IllegalArgumentException if the batch holds more than {@value #MAX_BATCH_SIZE} requests
+     */
+    @Transactional
+    public List<CreateAccountResultDto> createAccounts(List<CreateAccountRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch cannot hold more than " + MAX_BATCH_SIZE + " accounts.");
+        }
+        List<CreateAccountResultDto> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateAccountRequest request = requests.get(i);
+            int violations = validator.check(request);
+            if (violations != 0) {
+                List<String> errors = AccountViolation.fromMask(violations).stream().map(AccountViolation::getMessage).toList();
+                results.add(new CreateAccountResultDto(i, null, errors));
+                continue;
+            }
+            Account savedAccount = accountRepository.save(toAccount(request));
+            outboxService.record(savedAccount, OutboxEventType.ACCOUNT_CREATED);
+            results.add(new CreateAccountResultDto(i, savedAccount.getId(), List.of()));
+        }
+        return results;
+    }
+
     /**
      * Retrieves the details of an account based on its UUID.
      *
@@ -52,12 +91,51 @@ public class AccountService {
      * @return the account details as an AccountDto
      * @throws AccountNotFoundException if the account does not exist
      */
+    @Transactional(readOnly = true)
     public AccountDto getAccountDetails(UUID accountId) {
         Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new AccountNotFoundException(String.format("There is no account with id : '%s'.", accountId)));
+                .orElseThrow(() -> new AccountNotFoundException("There is no account with id : '" + accountId + "'."));
         return accountMapper.toDto(account);
     }
 
+    /**
+     * Retrieves the details of an account together with its version, the sum of the versions of its currency
+     * accounts, which changes with every balance change.
+     *
+     * @param accountId the UUID of the account to retrieve
+     * @return the account details and their version
+     * @throws AccountNotFoundException if the account does not exist
+     */
+    @Transactional(readOnly = true)
+    public Versioned<AccountDto> getVersionedAccountDetails(UUID accountId) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new AccountNotFoundException("There is no account with id : '" + accountId + "'."));
+        long version = 0;
+        for (CurrencyAccount currencyAccount : account.getCurrencyAccounts()) {
+            version += currencyAccount.getVersion();
+        }
+        return new Versioned<>(accountMapper.toDto(account), version);
+    }
+
+    /**
+     * Looks up the version of an account with one query, without loading or mapping it, to answer conditional
+     * requests.
+     *
+     * @param accountId the UUID of the account
+     * @return the version, as in {@link #getVersionedAccountDetails}, empty if the account does not exist
+     */
+    public Optional<Long> findAccountVersion(UUID accountId) {
+        return currencyAccountRepository.findAccountVersion(accountId);
+    }
+
+    private Account toAccount(CreateAccountRequest request) {
+        Account account = new Account(null, request.firstName(), request.lastName(), new ArrayList<>());
+        request.currencyAccounts().forEach(currencyAccountDto ->
+                account.getCurrencyAccounts().add(createCurrencyAccount(currencyAccountDto, account))
+        );
+        return account;
+    }
+
     /**
      * Creates a new CurrencyAccount entity associated with an Account.
      * The balance is rounded to two decimal places.
@@ -0,0 +1,27 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publishes relayed outbox events as in-process application events, so that components of this service
+ * can stream committed changes without polling the database. In cluster mode {@link ClusterOutboxSink}
+ * replaces it and the events are published on every instance.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "currency.cluster.enabled", havingValue = "false", matchIfMissing = true)
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        messages.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Evicts the balances cached by {@link CurrencyExchangeService#getVersionedBalance} when an account changes.
+ * <p>
+ * A change made by this instance is evicted as soon as its transaction commits. Every change is evicted again when
+ * its outbox event is relayed, which in cluster mode happens on all instances and also covers a read that
+ * cached the old balance between the commit and the first eviction.
+ */
+@Component
+public class BalanceCache {
+
+    public static final String NAME = "balances";
+
+    private final Cache cache;
+
+    public BalanceCache(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(NAME);
+    }
+
+    /**
+     * Evicts the balances of an account once the current transaction commits, or right away outside a transaction.
+     *
+     * @param accountId the changed account
+     */
+    public void evictAfterCommit(UUID accountId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(accountId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(accountId);
+            }
+        });
+    }
+
+    /**
+     * Evicts the balances of an account. The keys match the default keys of
+     * {@link CurrencyExchangeService#getVersionedBalance(UUID, Symbol)}.
+     *
+     * @param accountId the changed account
+     */
+    public void evict(UUID accountId) {
+        for (Symbol symbol : Symbol.values()) {
+            cache.evict(new SimpleKey(accountId, symbol));
+        }
+    }
+
+    /**
+     * Evicts every balance, e.g. after notifications may have been missed.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    @EventListener
+    public void onOutboxMessage(OutboxMessage message) {
+        evict(message.accountId());
+    }
+}
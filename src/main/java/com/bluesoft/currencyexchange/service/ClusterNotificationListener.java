@@ -0,0 +1,172 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ClusterProperties;
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.RateSnapshotRecord;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.RateSnapshotRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+/**
+ * Receives the notifications of the other instances on a dedicated connection outside the pool, since
+ * {@code LISTEN} is bound to the session.
+ * <p>
+ * Shared rate snapshots are installed in {@link CurrencyRateProvider} and published as {@link RateSnapshot}
+ * events when they change; balance changes are published as {@link OutboxMessage} events, which evicts the cached
+ * balances and feeds the local streams. Notifications sent while the connection is down are lost, so after every
+ * (re)connect the latest snapshot is read from the table and the balance cache is cleared.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.cluster.enabled", havingValue = "true")
+public class ClusterNotificationListener implements SmartLifecycle {
+
+    public static final String RATE_CHANNEL = "rate_snapshot";
+    public static final String BALANCE_CHANNEL = "balance_changed";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ClusterProperties properties;
+    private final RateSnapshotRepository rateSnapshotRepository;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final BalanceCache balanceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Counter rateNotifications;
+    private final Counter balanceNotifications;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public ClusterNotificationListener(DataSourceProperties dataSourceProperties,
+                                       ClusterProperties properties,
+                                       RateSnapshotRepository rateSnapshotRepository,
+                                       CurrencyRateProvider currencyRateProvider,
+                                       BalanceCache balanceCache,
+                                       ApplicationEventPublisher eventPublisher,
+                                       ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.properties = properties;
+        this.rateSnapshotRepository = rateSnapshotRepository;
+        this.currencyRateProvider = currencyRateProvider;
+        this.balanceCache = balanceCache;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.rateNotifications = Counter.builder("cluster.notifications")
+                .description("Notifications received from the cluster")
+                .tag("channel", RATE_CHANNEL).register(meterRegistry);
+        this.balanceNotifications = Counter.builder("cluster.notifications")
+                .description("Notifications received from the cluster")
+                .tag("channel", BALANCE_CHANNEL).register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread listener = new Thread(this::listen, "cluster-listener");
+        listener.setDaemon(true);
+        thread = listener;
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread listener = thread;
+        if (listener != null) {
+            listener.interrupt();
+            try {
+                listener.join(properties.listenTimeout().toMillis() * 2);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + RATE_CHANNEL);
+                    statement.execute("LISTEN " + BALANCE_CHANNEL);
+                }
+                resync();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int timeoutMillis = (int) properties.listenTimeout().toMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(timeoutMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (running) {
+                    log.warn("Cluster notification connection failed, reconnecting in {}: {}",
+                            properties.reconnectDelay(), ex.getMessage());
+                    pause();
+                }
+            }
+        }
+    }
+
+    private void resync() {
+        balanceCache.clear();
+        // older snapshots would be ignored anyway
+        rateSnapshotRepository.findFirstBySymbolAndFetchedAtAfterOrderByIdDesc(Symbol.USD, Instant.now().minus(properties.maxRateAge()))
+                .map(RateSnapshotRecord::toSnapshot)
+                .ifPresent(this::share);
+    }
+
+    private void handle(PGNotification notification) {
+        try {
+            if (RATE_CHANNEL.equals(notification.getName())) {
+                rateNotifications.increment();
+                share(objectMapper.readValue(notification.getParameter(), RateSnapshot.class));
+            } else if (BALANCE_CHANNEL.equals(notification.getName())) {
+                balanceNotifications.increment();
+                eventPublisher.publishEvent(objectMapper.readValue(notification.getParameter(), OutboxMessage.class));
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not handle notification on {}: {}", notification.getName(), ex.getMessage());
+        }
+    }
+
+    private void share(RateSnapshot snapshot) {
+        if (currencyRateProvider.share(snapshot)) {
+            eventPublisher.publishEvent(snapshot);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.reconnectDelay().toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
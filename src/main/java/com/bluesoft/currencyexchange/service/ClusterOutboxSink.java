@@ -0,0 +1,43 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Broadcasts relayed outbox events to every instance of the cluster, this one included, with {@code pg_notify}.
+ * PostgreSQL delivers the notifications when the relay transaction commits, so a batch that is rolled back is never
+ * seen; {@link ClusterNotificationListener} republishes them as application events.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "currency.cluster.enabled", havingValue = "true")
+public class ClusterOutboxSink implements OutboxSink {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        String[] payloads = new String[messages.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = toJson(messages.get(i));
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, payload) FROM unnest(?) WITH ORDINALITY AS t(payload, n) ORDER BY n",
+                rs -> null, ClusterNotificationListener.BALANCE_CHANNEL, payloads);
+    }
+
+    private String toJson(OutboxMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize outbox event " + message.id(), ex);
+        }
+    }
+}
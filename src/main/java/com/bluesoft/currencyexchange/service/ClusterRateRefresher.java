@@ -0,0 +1,123 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ClusterProperties;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.RateSnapshotRecord;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.RateSnapshotRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Refreshes the rate from NBP on behalf of the whole cluster.
+ * <p>
+ * Every instance runs the refresh, but only the one that gets the advisory lock goes on, and it skips the call
+ * when another instance stored a snapshot during the last half interval. The snapshot is stored in
+ * {@code rate_snapshot} and announced with {@code pg_notify} in the same transaction, so the other instances
+ * see the row by the time they are notified.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.cluster.enabled", havingValue = "true")
+public class ClusterRateRefresher {
+
+    /**
+     * Advisory lock key of the rate refresh, "nbp_rate" in ASCII.
+     */
+    static final long LOCK_KEY = 0x6e62705f72617465L;
+
+    private enum Outcome { FETCHED, FRESH, FOLLOWER, FAILED }
+
+    private final RateSnapshotRepository rateSnapshotRepository;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minRefreshAge;
+    private final String instanceName = ManagementFactory.getRuntimeMXBean().getName();
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    public ClusterRateRefresher(RateSnapshotRepository rateSnapshotRepository,
+                                CurrencyRateProvider currencyRateProvider,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                ClusterProperties properties,
+                                PlatformTransactionManager transactionManager,
+                                TaskScheduler taskScheduler,
+                                MeterRegistry meterRegistry) {
+        this.rateSnapshotRepository = rateSnapshotRepository;
+        this.currencyRateProvider = currencyRateProvider;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minRefreshAge = properties.rateRefreshInterval().dividedBy(2);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("cluster.rate.refresh")
+                    .description("Rate refresh attempts of this instance by outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        taskScheduler.scheduleWithFixedDelay(this::refresh, properties.rateRefreshInterval());
+    }
+
+    /**
+     * Fetches the rate from NBP and shares it with the cluster, unless another instance is doing so
+     * or has done so recently.
+     */
+    public void refresh() {
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> refreshLocked());
+        } catch (RuntimeException ex) {
+            log.warn("Could not refresh the shared rate snapshot: {}", ex.getMessage());
+            outcome = Outcome.FAILED;
+        }
+        outcomes.get(outcome).increment();
+    }
+
+    private Outcome refreshLocked() {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return Outcome.FOLLOWER;
+        }
+        Optional<RateSnapshotRecord> latest = rateSnapshotRepository.findFirstBySymbolAndFetchedAtAfterOrderByIdDesc(
+                Symbol.USD, Instant.now().minus(minRefreshAge));
+        if (latest.isPresent()) {
+            return Outcome.FRESH;
+        }
+        RateSnapshot snapshot = currencyRateProvider.getUsdSnapshot();
+        rateSnapshotRepository.save(RateSnapshotRecord.builder()
+                .symbol(snapshot.symbol())
+                .mid(snapshot.mid())
+                .effectiveDate(snapshot.effectiveDate())
+                .fetchedAt(snapshot.fetchedAt())
+                .fetchedBy(instanceName)
+                .build());
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, ClusterNotificationListener.RATE_CHANNEL, toJson(snapshot));
+        return Outcome.FETCHED;
+    }
+
+    private String toJson(RateSnapshot snapshot) {
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize rate snapshot", ex);
+        }
+    }
+}
@@ -1,30 +1,54 @@
 package com.bluesoft.currencyexchange.service;
 
+import com.bluesoft.currencyexchange.dto.BatchExchangeRequest;
+import com.bluesoft.currencyexchange.dto.ExchangeResultDto;
+import com.bluesoft.currencyexchange.dto.Versioned;
 import com.bluesoft.currencyexchange.entity.Account;
 import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
 import com.bluesoft.currencyexchange.entity.Symbol;
 import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
 import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
 import com.bluesoft.currencyexchange.repository.AccountRepository;
 import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolationException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Service for handling currency exchange operations between different currency accounts.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CurrencyExchangeService {
 
+    static final int MAX_BATCH_SIZE = 1000;
+    static final String NOT_BOOKED = "The exchange could not be booked.";
+
     private final AccountRepository accountRepository;
     private final CurrencyAccountRepository currencyAccountRepository;
     private final CurrencyRateProvider currencyRateProvider;
+    private final OutboxService outboxService;
+    private final ExchangeProfiler exchangeProfiler;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final PricingEngine pricingEngine;
 
     /**
      * Exchanges a specified amount from one currency to another within an account.
@@ -34,34 +58,158 @@ public class CurrencyExchangeService {
      * @param fromCurrency the currency to exchange from
      * @param toCurrency the currency to exchange to
      * @throws AccountNotFoundException if the account or currency accounts do not exist
-     * @throws IllegalArgumentException if there are insufficient funds in the fromCurrency account
+     * @throws InsufficientFundsException if the fromCurrency account would not keep a positive balance
      */
     @Transactional
     public void exchangeCurrency(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {
+        exchangeCurrencyAtRate(accountId, amount, fromCurrency, toCurrency, null);
+    }
+
+    /**
+     * Exchanges a specified amount at an already known USD/PLN rate, e.g. one locked by a quote.
+     * When no rate is given the current one is fetched from the rate provider.
+     *
+     * @param accountId the UUID of the account
+     * @param amount the amount to exchange
+     * @param fromCurrency the currency to exchange from
+     * @param toCurrency the currency to exchange to
+     * @param usdToPlnRate the USD/PLN mid rate to apply, or null to look it up
+     * @throws AccountNotFoundException if the account or currency accounts do not exist
+     * @throws InsufficientFundsException if the fromCurrency account would not keep a positive balance
+     */
+    @Transactional
+    public void exchangeCurrencyAtRate(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency, BigDecimal usdToPlnRate) {
+        exchange(accountId, amount, fromCurrency, toCurrency, usdToPlnRate, null, null);
+    }
+
+    /**
+     * Exchanges a specified amount at an already priced divisor and fee, e.g. those of a quote, so that neither the
+     * rate provider nor the current pricing tables are consulted.
+     *
+     * @param accountId the UUID of the account
+     * @param amount the amount to exchange
+     * @param fromCurrency the currency to exchange from
+     * @param toCurrency the currency to exchange to
+     * @param exchangeRate the divisor including the spread, see {@link PricingTable#rate}
+     * @param fee the fee in the source currency
+     * @throws AccountNotFoundException if the account or currency accounts do not exist
+     * @throws InsufficientFundsException if the fromCurrency account would not keep a positive balance
+     */
+    @Transactional
+    public void exchangeCurrencyAtPrice(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency,
+                                        BigDecimal exchangeRate, BigDecimal fee) {
+        exchange(accountId, amount, fromCurrency, toCurrency, null, exchangeRate, fee);
+    }
+
+    /**
+     * Books an exchange, pricing it at the USD/PLN rate unless a divisor and fee are given.
+     */
+    private void exchange(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency, BigDecimal usdToPlnRate,
+                          BigDecimal exchangeRate, BigDecimal fee) {
         if (fromCurrency.equals(toCurrency)) {
-            throw new InvalidCurrencyExchangeException("Cannot exchange the same currency. Please select different currencies.");
+            throw InvalidCurrencyExchangeException.sameCurrency();
         }
-        Account account = accountRepository.findById(accountId)
+        ExchangePhaseEvent phase = exchangeProfiler.begin(ExchangePhase.ACCOUNT_LOAD, accountId);
+        Account account = accountRepository.findWithLockById(accountId)
                 .orElseThrow(() -> new AccountNotFoundException("There is no account with id : '" + accountId + "'."));
+        exchangeProfiler.end(phase, ExchangePhase.ACCOUNT_LOAD);
 
-        BigDecimal rate = currencyRateProvider.getUsdToPlnRate();
-        processTransfer(accountId, amount, fromCurrency, toCurrency, rate);
+        if (exchangeRate == null) {
+            phase = exchangeProfiler.begin(ExchangePhase.RATE_FETCH, accountId);
+            BigDecimal rate = usdToPlnRate != null ? usdToPlnRate : currencyRateProvider.getUsdToPlnRate();
+            exchangeProfiler.end(phase, ExchangePhase.RATE_FETCH);
+
+            PricingTable pricing = pricingEngine.current();
+            int slot = pricing.slot(accountId, fromCurrency, toCurrency);
+            exchangeRate = pricing.rate(slot, effectiveRate(fromCurrency, rate));
+            fee = pricing.fee(slot, amount);
+        }
+
+        phase = exchangeProfiler.begin(ExchangePhase.TRANSFER, accountId);
+        processTransfer(accountId, amount, fromCurrency, toCurrency, exchangeRate, fee);
+        exchangeProfiler.end(phase, ExchangePhase.TRANSFER);
+
+        phase = exchangeProfiler.begin(ExchangePhase.COMMIT, accountId);
         accountRepository.save(account);
+        outboxService.record(account, OutboxEventType.BALANCE_CHANGED);
+        exchangeProfiler.endAfterCompletion(phase, ExchangePhase.COMMIT);
     }
 
     /**
-     * Retrieves the balance of a specific currency within an account.
+     * Performs a batch of exchanges, each in its own transaction, so that a rejected exchange does not undo the others
+     * and no transaction holds the locks of several accounts. All exchanges use the rate fetched at the start of the batch.
+     * An exchange whose transaction fails to flush or commit is reported as not booked, like a rejected one.
+     *
+     * @param requests the exchanges
+     * @return one result per exchange, in request order
+     * @throws IllegalArgumentException if the batch holds more than {@value #MAX_BATCH_SIZE} exchanges
+     */
+    public List<ExchangeResultDto> exchangeCurrencies(List<BatchExchangeRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch cannot hold more than " + MAX_BATCH_SIZE + " exchanges.");
+        }
+        List<ExchangeResultDto> results = new ArrayList<>(requests.size());
+        if (requests.isEmpty()) {
+            return results;
+        }
+        BigDecimal rate = currencyRateProvider.getUsdToPlnRate();
+        for (int i = 0; i < requests.size(); i++) {
+            BatchExchangeRequest request = requests.get(i);
+            String error = invalidBatchRequest(request);
+            if (error == null) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> exchangeCurrencyAtRate(request.accountId(),
+                            request.amount(), request.fromCurrency(), request.toCurrency(), rate));
+                } catch (ResponseStatusException ex) {
+                    error = ex.getReason();
+                } catch (IllegalArgumentException | InvalidCurrencyExchangeException ex) {
+                    error = ex.getMessage();
+                } catch (TransactionException | DataAccessException | ConstraintViolationException ex) {
+                    log.warn("Exchange {} of a batch for account {} was not booked", i, request.accountId(), ex);
+                    error = NOT_BOOKED;
+                } finally {
+                    // with open-in-view the request shares one persistence context, which would hand a later
+                    // exchange of the same account the entities loaded before its row lock
+                    entityManager.clear();
+                }
+            }
+            results.add(new ExchangeResultDto(i, error));
+        }
+        return results;
+    }
+
+    /**
+     * Checks the fields of a batch exchange that bean validation does not cover for plain lists.
+     *
+     * @param request the exchange
+     * @return why the exchange is invalid, or null if it can be attempted
+     */
+    static String invalidBatchRequest(BatchExchangeRequest request) {
+        if (request.accountId() == null || request.fromCurrency() == null || request.toCurrency() == null) {
+            return "Account and currencies are required.";
+        }
+        if (request.amount() == null || request.amount().signum() <= 0) {
+            return "Amount must be positive.";
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the balance of a specific currency within an account together with the version of its currency
+     * account, which changes with every balance change.
+     * Balances are cached until {@link BalanceCache} evicts them after a change.
      *
      * @param accountId the UUID of the account
      * @param symbol the currency symbol
-     * @return the balance of the specified currency
+     * @return the balance of the specified currency and its version
      * @throws AccountNotFoundException if the currency account does not exist
      */
+    @Cacheable(BalanceCache.NAME)
     @Transactional(readOnly = true)
-    public BigDecimal getBalance(UUID accountId, Symbol symbol) {
-        return currencyAccountRepository.findBySymbolAndAccount_Id(symbol, accountId)
-                .orElseThrow(() -> new AccountNotFoundException("There is no currency account with accountId : '" + accountId + "' and symbol : '" + symbol + "'"))
-                .getBalance();
+    public Versioned<BigDecimal> getVersionedBalance(UUID accountId, Symbol symbol) {
+        CurrencyAccount currencyAccount = currencyAccountRepository.findBySymbolAndAccount_Id(symbol, accountId)
+                .orElseThrow(() -> new AccountNotFoundException("There is no currency account with accountId : '" + accountId + "' and symbol : '" + symbol + "'"));
+        return new Versioned<>(currencyAccount.getBalance(), currencyAccount.getVersion());
     }
 
     /**
@@ -71,21 +219,53 @@ public class CurrencyExchangeService {
      * @param amount the amount to transfer
      * @param fromCurrency the currency to transfer from
      * @param toCurrency the currency to transfer to
-     * @param rate the exchange rate between the currencies
+     * @param exchangeRate the divisor including the account's spread
+     * @param fee the fee in the source currency
      * @throws AccountNotFoundException if the currency accounts do not exist
-     * @throws IllegalArgumentException if there are insufficient funds in the fromCurrency account
+     * @throws InsufficientFundsException if the fromCurrency account would not keep a positive balance
      */
-    private void processTransfer(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency, BigDecimal rate) {
-        CurrencyAccount fromAccount = currencyAccountRepository.findBySymbolAndAccount_Id(fromCurrency, accountId)
-                .orElseThrow(() -> new AccountNotFoundException(String.format("There is no currency account with accountId : '%s' and symbol : '%s'", accountId, fromCurrency)));
-        CurrencyAccount toAccount = currencyAccountRepository.findBySymbolAndAccount_Id(toCurrency, accountId)
-                .orElseThrow(() -> new AccountNotFoundException(String.format("There is no currency account with accountId : '%s' and symbol : '%s'", accountId, toCurrency)));
-
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient funds in the account.");
+    private void processTransfer(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency,
+                                 BigDecimal exchangeRate, BigDecimal fee) {
+        // transfers lock currency accounts without the account row, so the balances are read under row locks too
+        List<CurrencyAccount> currencyAccounts = currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId));
+        CurrencyAccount fromAccount = currencyAccount(currencyAccounts, accountId, fromCurrency);
+        CurrencyAccount toAccount = currencyAccount(currencyAccounts, accountId, toCurrency);
+
+        // balances must stay positive, an exchange of the whole balance would fail its constraint at commit
+        if (fromAccount.getBalance().compareTo(amount) <= 0) {
+            throw new InsufficientFundsException();
         }
 
-        rate = fromCurrency == Symbol.PLN ? rate : BigDecimal.ONE.divide(rate, 10, RoundingMode.HALF_UP);
-        fromAccount.exchange(amount, rate, toAccount);
+        fromAccount.exchange(amount, fee, exchangeRate, toAccount);
+    }
+
+    /**
+     * Picks a currency account out of the locked currency accounts.
+     *
+     * @param currencyAccounts the locked currency accounts
+     * @param accountId the UUID of the account
+     * @param symbol the currency symbol
+     * @return the currency account of the given account and currency
+     * @throws AccountNotFoundException if there is no such currency account
+     */
+    static CurrencyAccount currencyAccount(List<CurrencyAccount> currencyAccounts, UUID accountId, Symbol symbol) {
+        for (CurrencyAccount currencyAccount : currencyAccounts) {
+            if (currencyAccount.getSymbol() == symbol && currencyAccount.getAccount().getId().equals(accountId)) {
+                return currencyAccount;
+            }
+        }
+        throw new AccountNotFoundException("There is no currency account with accountId : '" + accountId + "' and symbol : '" + symbol + "'");
+    }
+
+    /**
+     * Turns the USD/PLN mid rate into the divisor applied by {@link CurrencyAccount#exchange}
+     * for the given source currency.
+     *
+     * @param fromCurrency the currency to exchange from
+     * @param usdToPlnRate the USD/PLN mid rate
+     * @return the rate to divide the source amount by
+     */
+    static BigDecimal effectiveRate(Symbol fromCurrency, BigDecimal usdToPlnRate) {
+        return fromCurrency == Symbol.PLN ? usdToPlnRate : BigDecimal.ONE.divide(usdToPlnRate, 10, RoundingMode.HALF_UP);
     }
 }
@@ -1,20 +1,57 @@
 package com.bluesoft.currencyexchange.service;
 
+import com.bluesoft.currencyexchange.config.ClusterProperties;
 import com.bluesoft.currencyexchange.dto.CurrencyRateResponse;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.Symbol;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
 
 @Service
 @RequiredArgsConstructor
 public class CurrencyRateProvider {
 
     private final NbpClient nbpClient;
+    private final ClusterProperties clusterProperties;
+    private volatile RateSnapshot sharedSnapshot;
 
+    /**
+     * Returns the USD/PLN mid rate. Uses the snapshot shared by the cluster when there is a recent one,
+     * so that only one instance calls NBP, and falls back to NBP otherwise.
+     */
     public BigDecimal getUsdToPlnRate() {
+        RateSnapshot shared = sharedSnapshot;
+        if (shared != null && shared.fetchedAt().isAfter(Instant.now().minus(clusterProperties.maxRateAge()))) {
+            return shared.mid();
+        }
         CurrencyRateResponse response = nbpClient.getUsdToPlnRate();
         return BigDecimal.valueOf(response.getRates().get(0).getMid());
     }
 
+    public RateSnapshot getUsdSnapshot() {
+        CurrencyRateResponse.Rate rate = nbpClient.getUsdToPlnRate().getRates().get(0);
+        return new RateSnapshot(Symbol.USD, BigDecimal.valueOf(rate.getMid()), LocalDate.parse(rate.getEffectiveDate()), Instant.now());
+    }
+
+    /**
+     * Installs a snapshot fetched by another instance of the cluster. Snapshots older than the current one are ignored.
+     * Only the cluster notification listener calls this, so there is a single writer.
+     *
+     * @param snapshot the shared snapshot
+     * @return whether the rate or its table date differ from the previously shared snapshot
+     */
+    public boolean share(RateSnapshot snapshot) {
+        RateSnapshot previous = sharedSnapshot;
+        if (previous != null && previous.fetchedAt().isAfter(snapshot.fetchedAt())) {
+            return false;
+        }
+        sharedSnapshot = snapshot;
+        return previous == null || previous.mid().compareTo(snapshot.mid()) != 0
+                || !previous.effectiveDate().equals(snapshot.effectiveDate());
+    }
+
 }
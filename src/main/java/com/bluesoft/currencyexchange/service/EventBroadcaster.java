@@ -0,0 +1,445 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.StreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans out rate and balance events to many stream subscribers.
+ * <p>
+ * Events are written once into a shared ring buffer. A subscriber is only a cursor into the ring plus its
+ * filter, and a small fixed set of dispatcher threads moves every cursor forward, so neither memory nor threads
+ * grow with the number of subscribers. A subscriber that falls more than a full ring behind skips to the newest
+ * event and gets a {@code dropped} notice; after {@link StreamProperties#maxDrops()} such skips it is disconnected.
+ * <p>
+ * Dispatchers hand the pending events of a subscriber to a fixed pool of writer threads, one batch per subscriber
+ * at a time, and pass over subscribers whose previous batch is still being written. A client that stops reading
+ * therefore only holds up its own stream; once a write blocks for {@link StreamProperties#writeTimeout()} the
+ * subscriber is disconnected.
+ * <p>
+ * A write to a servlet response cannot be interrupted, so a timed-out write keeps its thread until the container
+ * gives up on the connection. So that stalled clients cannot take every writer thread, the pool gets a replacement
+ * thread for each timed-out write until it returns, for up to {@link StreamProperties#maxStalledWrites()} of them.
+ */
+@Component
+public class EventBroadcaster implements SmartLifecycle {
+
+    /**
+     * Writes events to one subscriber, e.g. over an SSE connection.
+     */
+    public interface EventWriter {
+
+        void write(BroadcastEvent event) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        void close();
+    }
+
+    /**
+     * An event in the ring buffer.
+     *
+     * @param sequence position of the event in the stream
+     * @param name the SSE event name
+     * @param accountId the account the event belongs to, or null for events sent to every subscriber
+     * @param data the pre-serialized event data
+     */
+    public record BroadcastEvent(long sequence, String name, UUID accountId, String data) {
+    }
+
+    private final BroadcastEvent[] ring;
+    private final int mask;
+    private final int maxDrops;
+    private final long heartbeatNanos;
+    private final long writeTimeoutNanos;
+    private final int maxStalledWrites;
+    private final Executor writers;
+    private final Dispatcher[] dispatchers;
+    private final AtomicInteger nextDispatcher = new AtomicInteger();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicInteger stalledWrites = new AtomicInteger();
+    private final Counter dropped;
+    private final Counter timedOut;
+    private volatile long head;
+    private volatile boolean running;
+
+    @Autowired
+    public EventBroadcaster(StreamProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, writerPool(Math.max(properties.writeThreads(), 1)));
+    }
+
+    EventBroadcaster(StreamProperties properties, MeterRegistry meterRegistry, Executor writers) {
+        int size = Integer.highestOneBit(Math.max(properties.ringSize(), 2) * 2 - 1);
+        this.ring = new BroadcastEvent[size];
+        this.mask = size - 1;
+        this.maxDrops = properties.maxDrops();
+        this.heartbeatNanos = properties.heartbeat().toNanos();
+        this.writeTimeoutNanos = properties.writeTimeout().toNanos();
+        this.maxStalledWrites = Math.max(properties.maxStalledWrites(), 0);
+        this.writers = writers;
+        this.dispatchers = new Dispatcher[Math.max(properties.dispatchThreads(), 1)];
+        for (int i = 0; i < dispatchers.length; i++) {
+            dispatchers[i] = new Dispatcher(i);
+        }
+        this.dropped = Counter.builder("stream.events.dropped")
+                .description("Events skipped because a subscriber fell behind the ring buffer").register(meterRegistry);
+        this.timedOut = Counter.builder("stream.writes.timed-out")
+                .description("Subscribers disconnected because a write to them blocked too long").register(meterRegistry);
+        Gauge.builder("stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open event stream subscriptions").register(meterRegistry);
+        Gauge.builder("stream.writes.stalled", stalledWrites, AtomicInteger::get)
+                .description("Timed-out writes still blocking a writer thread that was replaced").register(meterRegistry);
+    }
+
+    /**
+     * Appends an event to the ring and wakes up the dispatchers.
+     *
+     * @param name the SSE event name
+     * @param accountId the account the event belongs to, or null for events sent to every subscriber
+     * @param data the pre-serialized event data
+     */
+    public synchronized void publish(String name, UUID accountId, String data) {
+        long sequence = head;
+        ring[(int) (sequence & mask)] = new BroadcastEvent(sequence, name, accountId, data);
+        head = sequence + 1;
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.wakeUp();
+        }
+    }
+
+    /**
+     * Registers a subscriber that receives events published from now on.
+     *
+     * @param accountId only balance events of this account are delivered, or none if null
+     * @param rates whether rate events are delivered
+     * @param writer writes the events to the client
+     * @return the subscription, which can be cancelled
+     */
+    public Subscription subscribe(UUID accountId, boolean rates, EventWriter writer) {
+        Dispatcher dispatcher = dispatchers[Math.floorMod(nextDispatcher.getAndIncrement(), dispatchers.length)];
+        Subscription subscription = new Subscription(accountId, rates, writer, dispatcher, head);
+        subscribers.incrementAndGet();
+        dispatcher.subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return the number of open subscriptions
+     */
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * Hands every pending event of a subscriber to the writer threads and reports whether it is still open.
+     * A subscriber whose previous batch is still being written is passed over, or disconnected once that write
+     * has blocked for longer than the write timeout.
+     */
+    boolean dispatch(Subscription subscription, long now) {
+        if (subscription.cancelled) {
+            return false;
+        }
+        if (subscription.writing) {
+            long startedAt = subscription.writeStartedAt;
+            if (startedAt != 0 && now - startedAt >= writeTimeoutNanos) {
+                timedOut.increment();
+                subscription.cancel();
+                replaceStalledWriter(subscription);
+                return false;
+            }
+            return true;
+        }
+        List<BroadcastEvent> batch = null;
+        long available = head;
+        if (available - subscription.cursor > ring.length) {
+            long skipped = available - subscription.cursor;
+            subscription.cursor = available;
+            dropped.increment(skipped);
+            if (++subscription.drops > maxDrops) {
+                subscription.cancel();
+                return false;
+            }
+            batch = new ArrayList<>();
+            batch.add(new BroadcastEvent(available, "dropped", null, Long.toString(skipped)));
+        }
+        for (; subscription.cursor < available; subscription.cursor++) {
+            BroadcastEvent event = ring[(int) (subscription.cursor & mask)];
+            if (event.sequence() != subscription.cursor) {
+                // overwritten while we were reading, catch up on the next pass
+                break;
+            }
+            if (subscription.accepts(event)) {
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                }
+                batch.add(event);
+            }
+        }
+        if (batch == null && now - subscription.lastWrite < heartbeatNanos) {
+            return true;
+        }
+        subscription.lastWrite = now;
+        List<BroadcastEvent> events = batch;
+        if (!subscription.beginWrite()) {
+            return false;
+        }
+        try {
+            writers.execute(() -> subscription.deliver(events));
+        } catch (RejectedExecutionException ex) {
+            subscription.endWrite();
+            subscription.cancel();
+        }
+        return !subscription.cancelled;
+    }
+
+    /**
+     * Gives the writer pool a thread in place of the one a timed-out write still blocks, unless
+     * {@code maxStalledWrites} threads are replaced already. The thread is taken away once the write returns.
+     */
+    private void replaceStalledWriter(Subscription subscription) {
+        if (!(writers instanceof ThreadPoolExecutor pool)) {
+            return;
+        }
+        int stalled;
+        do {
+            stalled = stalledWrites.get();
+            if (stalled >= maxStalledWrites) {
+                return;
+            }
+        } while (!stalledWrites.compareAndSet(stalled, stalled + 1));
+        if (subscription.stall()) {
+            resize(pool, 1);
+        } else {
+            // the write returned meanwhile
+            stalledWrites.decrementAndGet();
+        }
+    }
+
+    private void releaseStalledWriter() {
+        stalledWrites.decrementAndGet();
+        resize((ThreadPoolExecutor) writers, -1);
+    }
+
+    private static void resize(ThreadPoolExecutor pool, int delta) {
+        synchronized (pool) {
+            // the maximum may never drop below the core size
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.wakeUp();
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.subscriptions.forEach(Subscription::cancel);
+        }
+        if (writers instanceof ExecutorService service) {
+            // queued batches still run to close their cancelled writers
+            service.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * A stream subscriber: a cursor into the ring, its filter and the writer to deliver through.
+     */
+    public final class Subscription {
+
+        private final UUID accountId;
+        private final boolean rates;
+        private final EventWriter writer;
+        private final Dispatcher dispatcher;
+        private long cursor;
+        private long lastWrite;
+        private int drops;
+        private volatile boolean cancelled;
+        private volatile boolean writing;
+        private volatile long writeStartedAt;
+        private Thread writerThread;
+        private boolean stalled;
+
+        private Subscription(UUID accountId, boolean rates, EventWriter writer, Dispatcher dispatcher, long cursor) {
+            this.accountId = accountId;
+            this.rates = rates;
+            this.writer = writer;
+            this.dispatcher = dispatcher;
+            this.cursor = cursor;
+            this.lastWrite = System.nanoTime();
+        }
+
+        private boolean accepts(BroadcastEvent event) {
+            return event.accountId() == null ? rates : event.accountId().equals(accountId);
+        }
+
+        private synchronized boolean beginWrite() {
+            if (cancelled) {
+                return false;
+            }
+            writing = true;
+            writeStartedAt = 0;
+            return true;
+        }
+
+        /**
+         * Writes a batch on a writer thread, or a heartbeat if the batch is null.
+         */
+        private void deliver(List<BroadcastEvent> events) {
+            synchronized (this) {
+                // clear an interrupt meant for the previous batch this thread wrote
+                Thread.interrupted();
+                writerThread = Thread.currentThread();
+                writeStartedAt = Math.max(System.nanoTime(), 1);
+            }
+            try {
+                if (events == null) {
+                    writer.heartbeat();
+                } else {
+                    for (int i = 0; i < events.size() && !cancelled; i++) {
+                        writer.write(events.get(i));
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                cancel();
+            } finally {
+                endWrite();
+                dispatcher.wakeUp();
+            }
+        }
+
+        /**
+         * Marks the write in progress as stalled, so that its thread is replaced until it returns.
+         *
+         * @return false if no write is in progress any more
+         */
+        private synchronized boolean stall() {
+            if (writerThread == null) {
+                return false;
+            }
+            stalled = true;
+            return true;
+        }
+
+        private void endWrite() {
+            boolean close;
+            boolean wasStalled;
+            synchronized (this) {
+                writerThread = null;
+                writing = false;
+                close = cancelled;
+                wasStalled = stalled;
+                stalled = false;
+            }
+            if (wasStalled) {
+                releaseStalledWriter();
+            }
+            if (close) {
+                writer.close();
+            }
+        }
+
+        /**
+         * Disconnects the subscriber. A write in progress is interrupted, and the writer is closed once it returns,
+         * as closing it earlier would wait for the write.
+         */
+        public synchronized void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                subscribers.decrementAndGet();
+                if (!writing) {
+                    writer.close();
+                } else if (writerThread != null && writerThread != Thread.currentThread()) {
+                    writerThread.interrupt();
+                }
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor writerPool(int threads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stream-writer-");
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    private final class Dispatcher implements Runnable {
+
+        private final ConcurrentLinkedQueue<Subscription> subscriptions = new ConcurrentLinkedQueue<>();
+        private final int index;
+        private volatile Thread thread;
+
+        private Dispatcher(int index) {
+            this.index = index;
+        }
+
+        private void start() {
+            Thread worker = new Thread(this, "stream-dispatcher-" + index);
+            worker.setDaemon(true);
+            thread = worker;
+            worker.start();
+        }
+
+        private void wakeUp() {
+            Thread worker = thread;
+            if (worker != null) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Subscription> closed = new ArrayList<>();
+            while (running) {
+                long now = System.nanoTime();
+                for (Subscription subscription : subscriptions) {
+                    if (!dispatch(subscription, now)) {
+                        closed.add(subscription);
+                    }
+                }
+                if (!closed.isEmpty()) {
+                    subscriptions.removeAll(closed);
+                    closed.clear();
+                }
+                LockSupport.parkNanos(this, Math.min(heartbeatNanos, writeTimeoutNanos));
+            }
+        }
+    }
+}
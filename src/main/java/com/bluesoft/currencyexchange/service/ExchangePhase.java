@@ -0,0 +1,11 @@
+package com.bluesoft.currencyexchange.service;
+
+/**
+ * Phases of a currency exchange measured by the {@link ExchangeProfiler}.
+ */
+public enum ExchangePhase {
+    ACCOUNT_LOAD,
+    RATE_FETCH,
+    TRANSFER,
+    COMMIT
+}
@@ -0,0 +1,33 @@
+package com.bluesoft.currencyexchange.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted for every phase of a currency exchange.
+ */
+@Name("com.bluesoft.currencyexchange.ExchangePhase")
+@Label("Exchange Phase")
+@Category({"Currency Exchange"})
+@Description("A phase of a currency exchange")
+@StackTrace(false)
+public class ExchangePhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Account Id")
+    String accountId;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    transient long startNanos;
+    transient long startAllocatedBytes;
+}
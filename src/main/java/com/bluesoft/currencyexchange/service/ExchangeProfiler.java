@@ -0,0 +1,217 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ProfilingProperties;
+import com.bluesoft.currencyexchange.dto.PhaseProfileDto;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the phases of a currency exchange.
+ * <p>
+ * Every phase is emitted as an {@link ExchangePhaseEvent} for JFR recordings and counted in an always-on
+ * histogram with four buckets per power of two of nanoseconds, backed by {@link LongAdder}s so that concurrent
+ * exchanges do not contend. Allocated bytes are read from the current thread's allocation counter.
+ */
+@Component
+public class ExchangeProfiler {
+
+    private static final int BUCKETS = 248;
+
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final boolean allocationTracking;
+    private volatile Window window = new Window();
+
+    public ExchangeProfiler(ProfilingProperties properties) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.allocationTracking = properties.allocationTracking() && bean.isThreadAllocatedMemorySupported()
+                && bean.isThreadAllocatedMemoryEnabled();
+        this.threadMXBean = bean;
+    }
+
+    /**
+     * Starts measuring a phase on the current thread.
+     *
+     * @param phase the phase
+     * @param accountId the account being exchanged on
+     * @return the event to pass to {@link #end} or {@link #endAfterCompletion}
+     */
+    public ExchangePhaseEvent begin(ExchangePhase phase, UUID accountId) {
+        ExchangePhaseEvent event = new ExchangePhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase.name();
+            event.accountId = accountId.toString();
+            event.begin();
+        }
+        event.startAllocatedBytes = allocatedBytes();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    /**
+     * Finishes a phase started with {@link #begin}.
+     *
+     * @param event the event returned by {@link #begin}
+     * @param phase the phase
+     */
+    public void end(ExchangePhaseEvent event, ExchangePhase phase) {
+        long nanos = System.nanoTime() - event.startNanos;
+        long allocated = allocationTracking ? allocatedBytes() - event.startAllocatedBytes : 0;
+        window.phases[phase.ordinal()].record(nanos, allocated);
+        if (event.shouldCommit()) {
+            event.allocatedBytes = allocated;
+            event.end();
+            event.commit();
+        }
+    }
+
+    /**
+     * Finishes a phase when the current transaction has committed, so that the phase includes the flush and
+     * the commit. Without an active transaction the phase ends immediately.
+     *
+     * @param event the event returned by {@link #begin}
+     * @param phase the phase
+     */
+    public void endAfterCompletion(ExchangePhaseEvent event, ExchangePhase phase) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            end(event, phase);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    end(event, phase);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the profile of every phase since the last reset
+     */
+    public List<PhaseProfileDto> summary() {
+        Window current = window;
+        double seconds = Math.max(Duration.between(current.since, Instant.now()).toNanos() / 1e9, 1e-9);
+        List<PhaseProfileDto> result = new ArrayList<>();
+        for (ExchangePhase phase : ExchangePhase.values()) {
+            result.add(current.phases[phase.ordinal()].summary(phase, seconds));
+        }
+        return result;
+    }
+
+    /**
+     * @return when the current measurement window started
+     */
+    public Instant since() {
+        return window.since;
+    }
+
+    public boolean isAllocationTracking() {
+        return allocationTracking;
+    }
+
+    /**
+     * Starts a new measurement window.
+     */
+    public void reset() {
+        window = new Window();
+    }
+
+    private long allocatedBytes() {
+        return allocationTracking ? threadMXBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < 4) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 2)) & 3;
+        return (exponent - 1) * 4 + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = bucket / 4 + 1;
+        int sub = bucket % 4;
+        return ((5L + sub) << (exponent - 2)) - 1;
+    }
+
+    private static final class Window {
+
+        private final Instant since = Instant.now();
+        private final PhaseStats[] phases = new PhaseStats[ExchangePhase.values().length];
+
+        private Window() {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new PhaseStats();
+            }
+        }
+    }
+
+    private static final class PhaseStats {
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private PhaseStats() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos, long allocated) {
+            buckets[bucket(nanos)].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            allocatedBytes.add(allocated);
+            maxNanos.accumulate(nanos);
+        }
+
+        private PhaseProfileDto summary(ExchangePhase phase, double seconds) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            long allocated = allocatedBytes.sum();
+            long max = maxNanos.get();
+            return new PhaseProfileDto(phase, total,
+                    total == 0 ? 0 : totalNanos.sum() / 1e3 / total,
+                    percentile(counts, total, 0.5, max), percentile(counts, total, 0.9, max),
+                    percentile(counts, total, 0.99, max), percentile(counts, total, 0.999, max),
+                    max / 1e3,
+                    total == 0 ? 0 : allocated / total,
+                    allocated / seconds / (1024 * 1024));
+        }
+
+        private static double percentile(long[] counts, long total, double quantile, long max) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            int bucket = 0;
+            while (bucket < counts.length - 1 && (seen += counts[bucket]) < rank) {
+                bucket++;
+            }
+            return Math.min(upperBound(bucket), max) / 1e3;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.WarmUpProperties;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.AccountRepository;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs the exchange path once before the application takes traffic, so that the first requests do not pay for
+ * lazy initialization, class loading and interpreted code.
+ * <p>
+ * Application runners finish before the readiness state changes to {@code ACCEPTING_TRAFFIC}, so a load balancer
+ * polling {@code /actuator/health/readiness} only routes requests here once the warm-up is done. The warm-up:
+ * <ol>
+ *     <li>runs the locking and balance queries of an exchange for an account that does not exist, including the
+ *     ordered currency account lock shared by exchanges, transfers and netting, which opens pooled connections and
+ *     prepares the statements;</li>
+ *     <li>fetches the rate, which initializes the NBP client or picks up the snapshot shared by the cluster;</li>
+ *     <li>runs {@link CurrencyAccount#exchange} on in-memory accounts until the JIT has compiled it.</li>
+ * </ol>
+ * A failing rate fetch is only logged, as the exchange path retries it on every request anyway.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+public class ExchangeWarmUp implements ApplicationRunner {
+
+    private static final UUID MISSING_ACCOUNT = new UUID(0, 0);
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final BigDecimal FALLBACK_RATE = new BigDecimal("4.0000");
+
+    private final AccountRepository accountRepository;
+    private final CurrencyAccountRepository currencyAccountRepository;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final WarmUpProperties properties;
+
+    public ExchangeWarmUp(AccountRepository accountRepository,
+                          CurrencyAccountRepository currencyAccountRepository,
+                          CurrencyRateProvider currencyRateProvider,
+                          PlatformTransactionManager transactionManager,
+                          WarmUpProperties properties) {
+        this.accountRepository = accountRepository;
+        this.currencyAccountRepository = currencyAccountRepository;
+        this.currencyRateProvider = currencyRateProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        for (int i = 0; i < properties.queries(); i++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                accountRepository.findWithLockById(MISSING_ACCOUNT);
+                currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(MISSING_ACCOUNT));
+                currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, MISSING_ACCOUNT);
+            });
+        }
+        long queried = System.nanoTime();
+
+        BigDecimal rate;
+        try {
+            rate = currencyRateProvider.getUsdToPlnRate();
+        } catch (RuntimeException ex) {
+            log.warn("Could not fetch the rate during warm-up: {}", ex.getMessage());
+            rate = FALLBACK_RATE;
+        }
+        long fetched = System.nanoTime();
+
+        BigDecimal balance = exchange(rate, properties.iterations());
+        long end = System.nanoTime();
+        log.info("Warmed up the exchange path in {} ms: queries {} ms, rate {} ms, {} exchanges {} ms (balance {})",
+                (end - start) / 1_000_000, (queried - start) / 1_000_000, (fetched - queried) / 1_000_000,
+                properties.iterations(), (end - fetched) / 1_000_000, balance);
+    }
+
+    /**
+     * Exchanges back and forth between two in-memory accounts.
+     *
+     * @return the final PLN balance, returned so that the JIT cannot drop the loop
+     */
+    static BigDecimal exchange(BigDecimal rate, int iterations) {
+        CurrencyAccount pln = CurrencyAccount.builder().symbol(Symbol.PLN).balance(new BigDecimal("1000000.00")).build();
+        CurrencyAccount usd = CurrencyAccount.builder().symbol(Symbol.USD).balance(new BigDecimal("1000000.00")).build();
+        BigDecimal inverse = BigDecimal.ONE.divide(rate, 10, RoundingMode.HALF_UP);
+        for (int i = 0; i < iterations; i++) {
+            if ((i & 1) == 0) {
+                pln.exchange(AMOUNT, rate, usd);
+            } else {
+                usd.exchange(AMOUNT, inverse, pln);
+            }
+        }
+        return pln.getBalance();
+    }
+}
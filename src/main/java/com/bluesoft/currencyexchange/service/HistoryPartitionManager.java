@@ -0,0 +1,338 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.HistoryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the history tables partitioned by month.
+ * <p>
+ * On startup, a history table that Hibernate created as a plain table is converted once: the existing table becomes
+ * the partition {@code <table>_before_<yyyyMM>}, holding everything before the next month, and a partitioned table
+ * with the same columns, constraints and indexes takes its name. The primary key becomes {@code (id, <time column>)},
+ * as PostgreSQL requires the partition key in it. After that, and every night, partitions
+ * {@code <table>_p<yyyyMM>} are created {@link HistoryProperties#premadeMonths()} ahead, and partitions that ended
+ * more than {@link HistoryProperties#retentionMonths()} ago are archived:
+ * <ol>
+ *     <li>the partition is copied out with {@code COPY ... TO STDOUT} and streamed through gzip into a file in
+ *     {@link HistoryProperties#archiveDirectory()}, without locking the parent table;</li>
+ *     <li>in one transaction, the ledger entries of the partition are added to {@code ledger_carry_forward}, so
+ *     balances still reconcile, and the partition is detached and dropped.</li>
+ * </ol>
+ * Every step that changes the schema waits at most {@link HistoryProperties#lockTimeout()} for its lock, because
+ * exchanges queue up behind it, and holds an advisory lock so that only one instance of a cluster maintains the
+ * tables. A step that fails is logged and retried by the next maintenance; an archive file written before a failed
+ * detach is simply written again.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "currency.history.partitioned", havingValue = "true")
+public class HistoryPartitionManager implements ApplicationRunner {
+
+    /**
+     * Advisory lock key of history maintenance, "history!" in ASCII.
+     */
+    static final long LOCK_KEY = 0x686973746f727921L;
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String CARRY_FORWARD = """
+            INSERT INTO ledger_carry_forward (currency_account_id, account_id, symbol, amount, carried_through)
+            SELECT currency_account_id, account_id, symbol, SUM(amount), ?
+            FROM %s
+            GROUP BY currency_account_id, account_id, symbol
+            ON CONFLICT (currency_account_id) DO UPDATE
+            SET amount = ledger_carry_forward.amount + EXCLUDED.amount, carried_through = EXCLUDED.carried_through""";
+
+    /**
+     * The partitioned tables and the column they are partitioned by.
+     */
+    enum HistoryTable {
+        LEDGER_ENTRY("ledger_entry", "created_at"),
+        RATE_SNAPSHOT("rate_snapshot", "fetched_at");
+
+        final String table;
+        final String timeColumn;
+
+        HistoryTable(String table, String timeColumn) {
+            this.table = table;
+            this.timeColumn = timeColumn;
+        }
+    }
+
+    /**
+     * A partition of a history table and the month it ends with, exclusive.
+     */
+    record Partition(String name, YearMonth end) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HistoryProperties properties;
+    private final Map<HistoryTable, Counter> created;
+    private final Map<HistoryTable, Counter> archived;
+
+    public HistoryPartitionManager(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   HistoryProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.created = counters("history.partitions.created", "Monthly history partitions created", meterRegistry);
+        this.archived = counters("history.partitions.archived", "History partitions archived and dropped", meterRegistry);
+    }
+
+    private static Map<HistoryTable, Counter> counters(String name, String description, MeterRegistry meterRegistry) {
+        Map<HistoryTable, Counter> counters = new EnumMap<>(HistoryTable.class);
+        for (HistoryTable table : HistoryTable.values()) {
+            counters.put(table, Counter.builder(name).description(description).tag("table", table.table).register(meterRegistry));
+        }
+        return counters;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        maintain();
+    }
+
+    /**
+     * Creates the partitions of the coming months and archives the expired ones.
+     */
+    @Scheduled(cron = "${currency.history.maintenance-cron:0 15 0 * * *}", zone = "UTC")
+    public void maintain() {
+        maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Creates and archives partitions as of a given month.
+     *
+     * @param current the month whose partition has to exist
+     */
+    public void maintain(YearMonth current) {
+        for (HistoryTable table : HistoryTable.values()) {
+            try {
+                locked(() -> {
+                    if (!isPartitioned(table)) {
+                        convert(table, current);
+                    }
+                    createPartitions(table, current);
+                });
+                YearMonth cutoff = current.minusMonths(properties.retentionMonths());
+                for (Partition partition : partitions(table)) {
+                    if (!partition.end().isAfter(cutoff)) {
+                        archive(table, partition);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Could not maintain the partitions of {}, retrying with the next maintenance: {}", table.table,
+                        NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+            }
+        }
+    }
+
+    private boolean isPartitioned(HistoryTable table) {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))", Boolean.class, table.table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /**
+     * Turns a plain table into a partitioned one whose first partition is the old table.
+     */
+    private void convert(HistoryTable table, YearMonth current) {
+        String name = table.table;
+        jdbcTemplate.execute("LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+        Timestamp latest = jdbcTemplate.queryForObject("SELECT max(" + table.timeColumn + ") FROM " + name, Timestamp.class);
+        YearMonth end = current.plusMonths(1);
+        if (latest != null && !YearMonth.from(latest.toInstant().atZone(ZoneOffset.UTC)).isBefore(end)) {
+            end = YearMonth.from(latest.toInstant().atZone(ZoneOffset.UTC)).plusMonths(1);
+        }
+        String legacy = name + "_before_" + MONTH.format(end);
+        Long nextId = jdbcTemplate.queryForObject("SELECT COALESCE(max(id), 0) + 1 FROM " + name, Long.class);
+        List<String> primaryKeys = jdbcTemplate.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'p'", String.class, name);
+        // captured before the rename, so they recreate the indexes on the partitioned table
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList("""
+                SELECT i.relname AS name, pg_get_indexdef(i.oid) AS definition
+                FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid
+                WHERE x.indrelid = ?::regclass AND NOT x.indisprimary""", name);
+
+        jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + legacy);
+        for (String primaryKey : primaryKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + legacy + " DROP CONSTRAINT " + primaryKey);
+        }
+        for (Map<String, Object> index : indexes) {
+            jdbcTemplate.execute("DROP INDEX " + index.get("name"));
+        }
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        // part of the new primary key
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN " + table.timeColumn + " SET NOT NULL");
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + legacy + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)"
+                + " PARTITION BY RANGE (" + table.timeColumn + ")");
+        jdbcTemplate.execute("ALTER TABLE " + name + " ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (START WITH " + nextId + ")");
+        jdbcTemplate.execute("ALTER TABLE " + name + " ADD PRIMARY KEY (id, " + table.timeColumn + ")");
+        for (Map<String, Object> index : indexes) {
+            jdbcTemplate.execute((String) index.get("definition"));
+        }
+        jdbcTemplate.execute("ALTER TABLE " + name + " ATTACH PARTITION " + legacy
+                + " FOR VALUES FROM (MINVALUE) TO (" + bound(end) + ")");
+        log.info("Partitioned {} by month, the existing rows are in {}", name, legacy);
+    }
+
+    private void createPartitions(HistoryTable table, YearMonth current) {
+        YearMonth month = partitions(table).stream().map(Partition::end).max(Comparator.naturalOrder()).orElse(current);
+        for (YearMonth last = current.plusMonths(properties.premadeMonths()); !month.isAfter(last); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("CREATE TABLE " + table.table + "_p" + MONTH.format(month) + " PARTITION OF " + table.table
+                    + " FOR VALUES FROM (" + bound(month) + ") TO (" + bound(month.plusMonths(1)) + ")");
+            created.get(table).increment();
+        }
+    }
+
+    /**
+     * @return the partitions of a table, oldest first
+     */
+    List<Partition> partitions(HistoryTable table) {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?)""", String.class, table.table);
+        List<Partition> partitions = new ArrayList<>();
+        for (String name : names) {
+            YearMonth end = end(table, name);
+            if (end != null) {
+                partitions.add(new Partition(name, end));
+            }
+        }
+        partitions.sort(Comparator.comparing(Partition::end));
+        return partitions;
+    }
+
+    /**
+     * Parses the end of a partition from its name.
+     *
+     * @return the first month after the partition, or {@code null} for a partition this class did not create
+     */
+    static YearMonth end(HistoryTable table, String partition) {
+        String monthly = table.table + "_p";
+        String legacy = table.table + "_before_";
+        if (partition.startsWith(legacy) && partition.length() == legacy.length() + 6) {
+            return YearMonth.parse(partition.substring(legacy.length()), MONTH);
+        }
+        if (partition.startsWith(monthly) && partition.length() == monthly.length() + 6) {
+            return YearMonth.parse(partition.substring(monthly.length()), MONTH).plusMonths(1);
+        }
+        return null;
+    }
+
+    private void archive(HistoryTable table, Partition partition) throws IOException {
+        Path target = properties.archiveDirectory().resolve(partition.name() + ".csv.gz");
+        long rows = export(partition.name(), target);
+        Boolean dropped = transactionTemplate.execute(status -> {
+            if (!tryLock()) {
+                return false;
+            }
+            jdbcTemplate.execute("SET LOCAL lock_timeout = " + properties.lockTimeout().toMillis());
+            // another instance may have archived it since
+            if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition.name()) != Boolean.TRUE) {
+                return false;
+            }
+            if (table == HistoryTable.LEDGER_ENTRY) {
+                jdbcTemplate.update(CARRY_FORWARD.formatted(partition.name()), Timestamp.from(start(partition.end())));
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table.table + " DETACH PARTITION " + partition.name());
+            jdbcTemplate.execute("DROP TABLE " + partition.name());
+            return true;
+        });
+        if (Boolean.TRUE.equals(dropped)) {
+            archived.get(table).increment();
+            log.info("Archived {} rows of {} to {}", rows, partition.name(), target);
+        }
+    }
+
+    /**
+     * Streams a table through gzip into a file. The file is written under a temporary name and moved into place
+     * once complete, so an archive file is never partial.
+     *
+     * @return the number of rows written
+     */
+    private long export(String partition, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), partition, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> copyOut(connection.unwrap(PGConnection.class),
+                        "COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", gzip));
+                gzip.finish();
+                channel.force(true);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return rows != null ? rows : 0;
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static long copyOut(PGConnection connection, String sql, OutputStream out) throws SQLException {
+        try {
+            return connection.getCopyAPI().copyOut(sql, out);
+        } catch (IOException ex) {
+            throw new SQLException("Could not write the archive", ex);
+        }
+    }
+
+    private void locked(Runnable maintenance) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (tryLock()) {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + properties.lockTimeout().toMillis());
+                maintenance.run();
+            }
+        });
+    }
+
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+    }
+
+    private static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static String bound(YearMonth month) {
+        return "'" + start(month) + "'";
+    }
+}
@@ -0,0 +1,77 @@
+package com.bluesoft.currencyexchange.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records the opening ledger entry of currency accounts that were opened before the ledger existed, on startup.
+ * <p>
+ * Without it, such an account differs from its ledger by its opening balance in every reconciliation. Its opening
+ * entry holds the part of the balance its ledger entries do not explain and is dated with its first entry, so it does
+ * not move the opening of the account into a later statement day. New accounts record their opening entry even with
+ * a zero balance, so once every account has one, the backfill finds nothing to do. Accounts with a
+ * {@code ledger_carry_forward} sum are left alone: their entries were archived, and with them their opening.
+ * <p>
+ * The backfill runs before the history maintenance archives anything and holds an advisory lock, so that only one
+ * instance of a cluster runs it.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LedgerBackfill implements ApplicationRunner {
+
+    /**
+     * Advisory lock key of the backfill, "ledger!!" in ASCII.
+     */
+    static final long LOCK_KEY = 0x6c65646765722121L;
+
+    static final String BACKFILL = """
+            INSERT INTO ledger_entry (account_id, currency_account_id, symbol, amount, event_type, created_at)
+            SELECT ca.account_id, ca.id, ca.symbol, ca.balance - COALESCE(SUM(l.amount), 0), 'ACCOUNT_CREATED',
+                   COALESCE(MIN(l.created_at), now())
+            FROM currency_account ca
+            LEFT JOIN ledger_entry l ON l.account_id = ca.account_id AND l.currency_account_id = ca.id
+            WHERE NOT EXISTS (SELECT 1 FROM ledger_entry o
+                              WHERE o.account_id = ca.account_id AND o.currency_account_id = ca.id AND o.event_type = 'ACCOUNT_CREATED')
+              AND NOT EXISTS (SELECT 1 FROM ledger_carry_forward f WHERE f.currency_account_id = ca.id)
+            GROUP BY ca.account_id, ca.id, ca.symbol, ca.balance""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public LedgerBackfill(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfill();
+    }
+
+    /**
+     * Records an opening entry for every currency account without one.
+     *
+     * @return the number of entries recorded, 0 if another instance holds the lock
+     */
+    public int backfill() {
+        Integer recorded = transactionTemplate.execute(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                return 0;
+            }
+            return jdbcTemplate.update(BACKFILL);
+        });
+        int count = recorded != null ? recorded : 0;
+        if (count > 0) {
+            log.info("Recorded the opening ledger entry of {} currency accounts opened before the ledger", count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,130 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongConsumer;
+
+/**
+ * In-memory price index of open limit orders.
+ * <p>
+ * Every quoted currency has two skip lists ordered by trigger rate: orders firing at or below their trigger
+ * and orders firing at or above it. A new mid rate only walks the crossed end of each list, so the cost of a
+ * rate tick depends on the number of triggered orders, not on the number of resting ones.
+ */
+@Component
+public class LimitOrderBook {
+
+    private static final int RATE_SCALE = 6;
+
+    private final Map<Symbol, PairBook> books = new EnumMap<>(Symbol.class);
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public LimitOrderBook() {
+        for (Symbol symbol : Symbol.values()) {
+            if (symbol != Symbol.PLN) {
+                books.put(symbol, new PairBook());
+            }
+        }
+    }
+
+    /**
+     * Adds an open order to the index.
+     *
+     * @param order the order to index
+     */
+    public void add(RestingOrder order) {
+        Entry entry = new Entry(order.id(), scale(order.triggerRate()), order.quotedCurrency(), order.triggerCondition());
+        if (entries.putIfAbsent(order.id(), entry) == null) {
+            books.get(entry.quotedCurrency).side(entry.condition).add(entry);
+        }
+    }
+
+    /**
+     * Removes an order, e.g. after it was cancelled.
+     *
+     * @param orderId the limit order id
+     * @return true if the order was resting in the book
+     */
+    public boolean remove(long orderId) {
+        Entry entry = entries.remove(orderId);
+        return entry != null && books.get(entry.quotedCurrency).side(entry.condition).remove(entry);
+    }
+
+    /**
+     * Removes every order crossed by the new mid rate and passes its id to the consumer.
+     *
+     * @param quotedCurrency the currency whose mid rate changed
+     * @param mid the new PLN mid rate
+     * @param crossed receives the ids of the triggered orders
+     * @return the number of triggered orders
+     */
+    public int drainCrossed(Symbol quotedCurrency, BigDecimal mid, LongConsumer crossed) {
+        PairBook book = books.get(quotedCurrency);
+        if (book == null) {
+            return 0;
+        }
+        long rate = scale(mid);
+        int count = 0;
+        // BELOW orders fire while their trigger is >= mid, walk down from the highest trigger
+        for (Entry entry = book.below.pollLast(); entry != null; entry = book.below.pollLast()) {
+            if (entry.triggerRate < rate) {
+                book.below.add(entry);
+                break;
+            }
+            count += emit(entry, crossed);
+        }
+        // ABOVE orders fire while their trigger is <= mid, walk up from the lowest trigger
+        for (Entry entry = book.above.pollFirst(); entry != null; entry = book.above.pollFirst()) {
+            if (entry.triggerRate > rate) {
+                book.above.add(entry);
+                break;
+            }
+            count += emit(entry, crossed);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of resting orders
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private int emit(Entry entry, LongConsumer crossed) {
+        if (entries.remove(entry.orderId, entry)) {
+            crossed.accept(entry.orderId);
+            return 1;
+        }
+        return 0;
+    }
+
+    private static long scale(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private record Entry(long orderId, long triggerRate, Symbol quotedCurrency, TriggerCondition condition) {
+    }
+
+    private static final class PairBook {
+
+        private static final Comparator<Entry> BY_RATE = Comparator.comparingLong(Entry::triggerRate)
+                .thenComparingLong(Entry::orderId);
+
+        private final ConcurrentSkipListSet<Entry> below = new ConcurrentSkipListSet<>(BY_RATE);
+        private final ConcurrentSkipListSet<Entry> above = new ConcurrentSkipListSet<>(BY_RATE);
+
+        private ConcurrentSkipListSet<Entry> side(TriggerCondition condition) {
+            return condition == TriggerCondition.BELOW ? below : above;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.entity.LimitOrder;
+import com.bluesoft.currencyexchange.entity.LimitOrderStatus;
+import com.bluesoft.currencyexchange.repository.LimitOrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Executes triggered limit orders, each in its own transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class LimitOrderExecutor {
+
+    private final LimitOrderRepository limitOrderRepository;
+    private final CurrencyExchangeService currencyExchangeService;
+
+    /**
+     * Claims an open order and performs its exchange at the given rate.
+     * Does nothing if the order is no longer open, e.g. because it was cancelled in the meantime.
+     *
+     * @param orderId the limit order id
+     * @param usdToPlnRate the rate snapshot that triggered the order
+     */
+    @Transactional
+    public void fill(long orderId, BigDecimal usdToPlnRate) {
+        if (limitOrderRepository.updateStatus(orderId, LimitOrderStatus.OPEN, LimitOrderStatus.FILLED) == 0) {
+            return;
+        }
+        LimitOrder order = limitOrderRepository.findById(orderId).orElseThrow();
+        currencyExchangeService.exchangeCurrencyAtRate(order.getAccountId(), order.getAmount(),
+                order.getFromCurrency(), order.getToCurrency(), usdToPlnRate);
+        order.setExecutedAt(Instant.now());
+        order.setExecutionRate(usdToPlnRate);
+    }
+
+    /**
+     * Marks a triggered order as rejected after its exchange failed.
+     *
+     * @param orderId the limit order id
+     * @param reason why the exchange failed
+     */
+    @Transactional
+    public void reject(long orderId, String reason) {
+        limitOrderRepository.findById(orderId)
+                .filter(order -> order.getStatus() == LimitOrderStatus.OPEN)
+                .ifPresent(order -> {
+                    order.setStatus(LimitOrderStatus.REJECTED);
+                    order.setExecutedAt(Instant.now());
+                    order.setFailureReason(reason);
+                });
+    }
+}
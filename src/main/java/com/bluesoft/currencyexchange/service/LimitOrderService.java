@@ -0,0 +1,156 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.CreateLimitOrderRequest;
+import com.bluesoft.currencyexchange.dto.LimitOrderDto;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.LimitOrder;
+import com.bluesoft.currencyexchange.entity.LimitOrderStatus;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.LimitOrderNotFoundException;
+import com.bluesoft.currencyexchange.mapper.LimitOrderMapper;
+import com.bluesoft.currencyexchange.repository.LimitOrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Service for conditional exchanges that execute once the NBP mid rate crosses a threshold.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LimitOrderService {
+
+    private final LimitOrderRepository limitOrderRepository;
+    private final LimitOrderMapper limitOrderMapper;
+    private final LimitOrderBook limitOrderBook;
+    private final LimitOrderExecutor limitOrderExecutor;
+    private final Map<Symbol, RateSnapshot> lastSnapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a limit order and adds it to the order book. An order the last rate snapshot already crosses is
+     * executed at that rate right away, as it would otherwise wait for the next change of the rate.
+     *
+     * @param request the order to register
+     * @return the stored order, already filled or rejected if it was executed right away
+     * @throws InvalidCurrencyExchangeException if both currencies are the same
+     */
+    public LimitOrderDto placeOrder(CreateLimitOrderRequest request) {
+        if (request.fromCurrency().equals(request.toCurrency())) {
+            throw InvalidCurrencyExchangeException.sameCurrency();
+        }
+        LimitOrder order = limitOrderRepository.save(LimitOrder.builder()
+                .accountId(request.accountId())
+                .amount(request.amount())
+                .fromCurrency(request.fromCurrency())
+                .toCurrency(request.toCurrency())
+                .triggerCondition(request.triggerCondition())
+                .triggerRate(request.triggerRate())
+                .status(LimitOrderStatus.OPEN)
+                .createdAt(Instant.now())
+                .build());
+        RestingOrder resting = new RestingOrder(order.getId(), order.getFromCurrency(), order.getToCurrency(),
+                order.getTriggerCondition(), order.getTriggerRate());
+        limitOrderBook.add(resting);
+        RateSnapshot last = lastSnapshots.get(resting.quotedCurrency());
+        if (last != null && execute(last).contains(order.getId())) {
+            return getOrder(order.getId());
+        }
+        return limitOrderMapper.toDto(order);
+    }
+
+    /**
+     * Retrieves a limit order.
+     *
+     * @param orderId the limit order id
+     * @return the order
+     * @throws LimitOrderNotFoundException if the order does not exist
+     */
+    public LimitOrderDto getOrder(Long orderId) {
+        return limitOrderRepository.findById(orderId)
+                .map(limitOrderMapper::toDto)
+                .orElseThrow(() -> notFound(orderId));
+    }
+
+    /**
+     * Cancels an open limit order.
+     *
+     * @param orderId the limit order id
+     * @throws LimitOrderNotFoundException if the order does not exist
+     * @throws IllegalArgumentException if the order is no longer open
+     */
+    @Transactional
+    public void cancelOrder(Long orderId) {
+        if (limitOrderRepository.updateStatus(orderId, LimitOrderStatus.OPEN, LimitOrderStatus.CANCELLED) == 0) {
+            if (!limitOrderRepository.existsById(orderId)) {
+                throw notFound(orderId);
+            }
+            throw new IllegalArgumentException("Only open limit orders can be cancelled.");
+        }
+        limitOrderBook.remove(orderId);
+    }
+
+    /**
+     * Executes every order crossed by a new rate snapshot.
+     * Orders that cannot be executed, e.g. for lack of funds, are rejected and leave the order book.
+     *
+     * @param snapshot the new rate
+     */
+    @EventListener
+    public void onRateSnapshot(RateSnapshot snapshot) {
+        // remembered before the book is drained, so an order placed meanwhile is matched against this rate
+        lastSnapshots.put(snapshot.symbol(), snapshot);
+        execute(snapshot);
+    }
+
+    /**
+     * Takes the orders a rate snapshot crosses out of the order book and executes them.
+     *
+     * @return the ids of the executed orders, filled or rejected
+     */
+    private List<Long> execute(RateSnapshot snapshot) {
+        List<Long> crossed = new ArrayList<>();
+        limitOrderBook.drainCrossed(snapshot.symbol(), snapshot.mid(), crossed::add);
+        for (Long orderId : crossed) {
+            try {
+                limitOrderExecutor.fill(orderId, snapshot.mid());
+            } catch (ResponseStatusException ex) {
+                limitOrderExecutor.reject(orderId, ex.getReason());
+            } catch (RuntimeException ex) {
+                limitOrderExecutor.reject(orderId, ex.getMessage());
+            }
+        }
+        if (!crossed.isEmpty()) {
+            log.info("Rate {} {} triggered {} limit orders", snapshot.symbol(), snapshot.mid(), crossed.size());
+        }
+        return crossed;
+    }
+
+    /**
+     * Rebuilds the order book from the open orders stored in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadOpenOrders() {
+        try (Stream<RestingOrder> orders = limitOrderRepository.streamRestingOrders(LimitOrderStatus.OPEN)) {
+            orders.forEach(limitOrderBook::add);
+        }
+        log.info("Loaded {} open limit orders", limitOrderBook.size());
+    }
+
+    private static LimitOrderNotFoundException notFound(Long orderId) {
+        return new LimitOrderNotFoundException("There is no limit order with id : '" + orderId + "'.");
+    }
+}
@@ -0,0 +1,354 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.NettingProperties;
+import com.bluesoft.currencyexchange.dto.BatchExchangeRequest;
+import com.bluesoft.currencyexchange.dto.ExchangeResultDto;
+import com.bluesoft.currencyexchange.entity.Account;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.HousePositionExceededException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.NettingQueueFullException;
+import com.bluesoft.currencyexchange.exception.NettingTimeoutException;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects REST exchanges into short windows and books each window in one transaction against a house position.
+ * <p>
+ * Every customer leg is priced and applied with {@link CurrencyAccount#exchange}, exactly as a direct exchange would
+ * be. The house account takes the other side of all legs, but only their sum is written to it: PLN&rarr;USD and
+ * USD&rarr;PLN flows of a window cancel out, and the house rows are updated at most once per currency and window no
+ * matter how many exchanges it holds. An exchange is rejected when the running house position of its target currency would no
+ * longer stay positive.
+ * <p>
+ * A window locks the currency accounts of all its accounts and of the house account in one ordered query, in the
+ * same id order transfers and exchanges use, and closes after {@link NettingProperties#window()} or
+ * {@link NettingProperties#maxWindowSize()} exchanges. Window sizes are published as {@code netting.window.size}
+ * and the share of the PLN volume that was offset inside a window as {@code netting.net.ratio}.
+ * <p>
+ * Exchanges are answered with futures, so a request waiting for its window holds neither a request thread nor an
+ * admission slot, and a window can collect more exchanges than there are slots. Queueing never blocks: an exchange
+ * that finds {@link NettingProperties#queueCapacity()} exchanges waiting fails at once with
+ * {@link NettingQueueFullException}, and a future that is not completed within {@link NettingProperties#settleTimeout()}
+ * fails with {@link NettingTimeoutException}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.netting.enabled", havingValue = "true")
+public class NettingEngine implements SmartLifecycle {
+
+    private final CurrencyAccountRepository currencyAccountRepository;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final OutboxService outboxService;
+    private final PricingEngine pricingEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final UUID houseAccountId;
+    private final long windowNanos;
+    private final long settleTimeoutNanos;
+    private final int maxWindowSize;
+    private final BlockingQueue<PendingExchange> queue;
+    private final DistributionSummary windowSize;
+    private final DistributionSummary netRatio;
+    private final Counter houseUpdates;
+    private final Counter queueFull;
+    private volatile boolean running;
+    private Thread settler;
+
+    public NettingEngine(CurrencyAccountRepository currencyAccountRepository,
+                         CurrencyRateProvider currencyRateProvider,
+                         OutboxService outboxService,
+                         PricingEngine pricingEngine,
+                         PlatformTransactionManager transactionManager,
+                         NettingProperties properties,
+                         MeterRegistry meterRegistry) {
+        if (properties.houseAccountId() == null) {
+            throw new IllegalStateException("currency.netting.house-account-id is required when netting is enabled");
+        }
+        this.currencyAccountRepository = currencyAccountRepository;
+        this.currencyRateProvider = currencyRateProvider;
+        this.outboxService = outboxService;
+        this.pricingEngine = pricingEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.houseAccountId = properties.houseAccountId();
+        this.windowNanos = properties.window().toNanos();
+        this.settleTimeoutNanos = properties.settleTimeout().toNanos();
+        this.maxWindowSize = Math.max(properties.maxWindowSize(), 1);
+        this.queue = new LinkedBlockingQueue<>(Math.max(properties.queueCapacity(), maxWindowSize));
+        this.windowSize = DistributionSummary.builder("netting.window.size")
+                .description("Exchanges booked per netting window").register(meterRegistry);
+        this.netRatio = DistributionSummary.builder("netting.net.ratio")
+                .description("Share of the PLN volume of a window offset by opposing exchanges").register(meterRegistry);
+        this.houseUpdates = Counter.builder("netting.house.updates")
+                .description("House currency account rows written by netting windows").register(meterRegistry);
+        this.queueFull = Counter.builder("netting.queue.full")
+                .description("Exchanges turned away because the netting queue was full").register(meterRegistry);
+    }
+
+    /**
+     * Queues an exchange for the next window.
+     *
+     * @param accountId the UUID of the account
+     * @param amount the amount to exchange
+     * @param fromCurrency the currency to exchange from
+     * @param toCurrency the currency to exchange to
+     * @return completes once the window holding the exchange is booked, or fails with {@link AccountNotFoundException}
+     * if the currency accounts do not exist, {@link InsufficientFundsException} if there are insufficient funds in the
+     * fromCurrency account, {@link HousePositionExceededException} if the house position cannot supply the toCurrency
+     * amount, {@link NettingQueueFullException} if too many exchanges are waiting for a window or
+     * {@link NettingTimeoutException} if the window was not booked in time
+     */
+    public CompletableFuture<Void> exchangeCurrency(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {
+        return submit(accountId, amount, fromCurrency, toCurrency);
+    }
+
+    /**
+     * Performs a batch of exchanges through the netting windows. Unlike a direct batch, the exchanges may be booked
+     * at different rates if the batch spans several windows.
+     *
+     * @param requests the exchanges
+     * @return one result per exchange, in request order, once every exchange of the batch is booked or rejected
+     * @throws IllegalArgumentException if the batch holds more than {@value CurrencyExchangeService#MAX_BATCH_SIZE} exchanges
+     */
+    public CompletableFuture<List<ExchangeResultDto>> exchangeCurrencies(List<BatchExchangeRequest> requests) {
+        if (requests.size() > CurrencyExchangeService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch cannot hold more than " + CurrencyExchangeService.MAX_BATCH_SIZE + " exchanges.");
+        }
+        List<CompletableFuture<Void>> booked = new ArrayList<>(requests.size());
+        for (BatchExchangeRequest request : requests) {
+            String error = CurrencyExchangeService.invalidBatchRequest(request);
+            booked.add(error != null ? CompletableFuture.failedFuture(new IllegalArgumentException(error))
+                    : submit(request.accountId(), request.amount(), request.fromCurrency(), request.toCurrency()));
+        }
+        return CompletableFuture.allOf(booked.toArray(CompletableFuture[]::new)).handle((ignored, failure) -> {
+            List<ExchangeResultDto> results = new ArrayList<>(booked.size());
+            for (int i = 0; i < booked.size(); i++) {
+                results.add(new ExchangeResultDto(i, error(booked.get(i))));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * @param booked a completed exchange of a batch
+     * @return why the exchange was rejected, or null if it was booked
+     */
+    private static String error(CompletableFuture<Void> booked) {
+        try {
+            booked.join();
+            return null;
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof ResponseStatusException cause) {
+                return cause.getReason();
+            } else if (ex.getCause() instanceof IllegalArgumentException || ex.getCause() instanceof InvalidCurrencyExchangeException) {
+                return ex.getCause().getMessage();
+            } else if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Queues an exchange for the next window without blocking the calling thread.
+     *
+     * @return completes once the window holding the exchange is committed, or exceptionally if it was rejected, the
+     * queue was full ({@link NettingQueueFullException}) or it was not booked within the settle timeout
+     */
+    CompletableFuture<Void> submit(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {
+        if (fromCurrency.equals(toCurrency)) {
+            return CompletableFuture.failedFuture(InvalidCurrencyExchangeException.sameCurrency());
+        }
+        if (houseAccountId.equals(accountId)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("The house account cannot exchange through netting."));
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Netting is not running."));
+        }
+        PendingExchange exchange = new PendingExchange(accountId, amount, fromCurrency, toCurrency, new CompletableFuture<>());
+        if (!queue.offer(exchange)) {
+            queueFull.increment();
+            return CompletableFuture.failedFuture(new NettingQueueFullException());
+        }
+        if (!running && queue.remove(exchange)) {
+            // stopped while we were queueing, the settler and stop() may both be past the queue already
+            exchange.result().completeExceptionally(new IllegalStateException("Netting is not running."));
+        }
+        return exchange.result().orTimeout(settleTimeoutNanos, TimeUnit.NANOSECONDS)
+                .exceptionallyCompose(ex -> CompletableFuture.failedFuture(ex instanceof TimeoutException ? new NettingTimeoutException() : ex));
+    }
+
+    /**
+     * Books one window in a single transaction and completes its exchanges once it has committed.
+     */
+    void settle(List<PendingExchange> window) {
+        Map<PendingExchange, RuntimeException> rejected = new IdentityHashMap<>();
+        try {
+            BigDecimal usdToPlnRate = currencyRateProvider.getUsdToPlnRate();
+            WindowResult result = transactionTemplate.execute(status -> book(window, usdToPlnRate, rejected));
+            windowSize.record(window.size());
+            if (result.grossPln().signum() > 0) {
+                netRatio.record(1 - result.residualPln().abs().doubleValue() / result.grossPln().doubleValue());
+            }
+            houseUpdates.increment(result.houseUpdates());
+            log.debug("Netted {} exchanges, {} rejected, gross {} PLN, residual {} PLN",
+                    window.size(), rejected.size(), result.grossPln(), result.residualPln());
+        } catch (RuntimeException ex) {
+            log.warn("Netting window of {} exchanges failed", window.size(), ex);
+            window.forEach(exchange -> exchange.result().completeExceptionally(ex));
+            return;
+        }
+        for (PendingExchange exchange : window) {
+            RuntimeException rejection = rejected.get(exchange);
+            if (rejection != null) {
+                exchange.result().completeExceptionally(rejection);
+            } else {
+                exchange.result().complete(null);
+            }
+        }
+    }
+
+    private WindowResult book(List<PendingExchange> window, BigDecimal usdToPlnRate, Map<PendingExchange, RuntimeException> rejected) {
+        Set<UUID> accountIds = new LinkedHashSet<>();
+        accountIds.add(houseAccountId);
+        window.forEach(exchange -> accountIds.add(exchange.accountId()));
+        List<CurrencyAccount> currencyAccounts = currencyAccountRepository.findWithLockByAccount_IdInOrderById(accountIds);
+        CurrencyAccount housePln = CurrencyExchangeService.currencyAccount(currencyAccounts, houseAccountId, Symbol.PLN);
+        CurrencyAccount houseUsd = CurrencyExchangeService.currencyAccount(currencyAccounts, houseAccountId, Symbol.USD);
+
+        EnumMap<Symbol, BigDecimal> position = new EnumMap<>(Symbol.class);
+        position.put(Symbol.PLN, housePln.getBalance());
+        position.put(Symbol.USD, houseUsd.getBalance());
+        BigDecimal grossPln = BigDecimal.ZERO;
+        PricingTable pricing = pricingEngine.current();
+        Map<UUID, Account> changed = new LinkedHashMap<>();
+        for (PendingExchange exchange : window) {
+            try {
+                CurrencyAccount from = CurrencyExchangeService.currencyAccount(currencyAccounts, exchange.accountId(), exchange.fromCurrency());
+                CurrencyAccount to = CurrencyExchangeService.currencyAccount(currencyAccounts, exchange.accountId(), exchange.toCurrency());
+                // a leg must leave a positive balance, or the whole window fails its constraint at commit
+                if (from.getBalance().compareTo(exchange.amount()) <= 0) {
+                    throw new InsufficientFundsException();
+                }
+                BigDecimal fromBefore = from.getBalance();
+                BigDecimal toBefore = to.getBalance();
+                int slot = pricing.slot(exchange.accountId(), exchange.fromCurrency(), exchange.toCurrency());
+                BigDecimal rate = pricing.rate(slot, CurrencyExchangeService.effectiveRate(exchange.fromCurrency(), usdToPlnRate));
+                BigDecimal fee = pricing.fee(slot, exchange.amount());
+                BigDecimal credited = CurrencyAccount.exchangedAmount(exchange.amount().subtract(fee), rate);
+                if (position.get(exchange.toCurrency()).compareTo(credited) <= 0) {
+                    throw new HousePositionExceededException();
+                }
+                from.exchange(exchange.amount(), fee, rate, to);
+                // the house books what the customer's balances actually moved by, after their rounding
+                BigDecimal debited = fromBefore.subtract(from.getBalance());
+                credited = to.getBalance().subtract(toBefore);
+                position.merge(exchange.fromCurrency(), debited, BigDecimal::add);
+                position.merge(exchange.toCurrency(), credited.negate(), BigDecimal::add);
+                grossPln = grossPln.add(exchange.fromCurrency() == Symbol.PLN ? debited : credited);
+                changed.putIfAbsent(exchange.accountId(), from.getAccount());
+            } catch (AccountNotFoundException | InsufficientFundsException | HousePositionExceededException ex) {
+                rejected.put(exchange, ex);
+            }
+        }
+
+        BigDecimal residualPln = position.get(Symbol.PLN).subtract(housePln.getBalance());
+        int houseRowsUpdated = 0;
+        for (CurrencyAccount house : List.of(housePln, houseUsd)) {
+            BigDecimal balance = position.get(house.getSymbol());
+            if (balance.compareTo(house.getBalance()) != 0) {
+                house.setBalance(balance);
+                houseRowsUpdated++;
+            }
+        }
+        changed.values().forEach(account -> outboxService.record(account, OutboxEventType.BALANCE_CHANGED));
+        if (houseRowsUpdated > 0) {
+            outboxService.record(housePln.getAccount(), OutboxEventType.BALANCE_CHANGED);
+        }
+        return new WindowResult(grossPln, residualPln, houseRowsUpdated);
+    }
+
+    private void run() {
+        List<PendingExchange> window = new ArrayList<>(maxWindowSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingExchange first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                window.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (window.size() < maxWindowSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingExchange next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    window.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!window.isEmpty()) {
+                settle(window);
+                window.clear();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        settler = new Thread(this::run, "netting-settler");
+        settler.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        try {
+            settler.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingExchange> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(exchange -> exchange.result().completeExceptionally(new IllegalStateException("Netting is not running.")));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * An exchange waiting for its window.
+     */
+    record PendingExchange(UUID accountId, BigDecimal amount, Symbol fromCurrency, Symbol toCurrency, CompletableFuture<Void> result) {
+    }
+
+    private record WindowResult(BigDecimal grossPln, BigDecimal residualPln, int houseUpdates) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.OutboxProperties;
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.entity.OutboxEvent;
+import com.bluesoft.currencyexchange.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Streams committed outbox events to every {@link OutboxSink} in id order, which is commit order per account.
+ * <p>
+ * Each batch is locked, delivered and marked as published in one transaction. A failing sink rolls the batch
+ * back and it is delivered again on the next run, so delivery is at least once.
+ */
+@Component
+@ConditionalOnProperty(name = "currency.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxSink> sinks;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter published;
+    private final DistributionSummary batchSize;
+    private final Timer lag;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       List<OutboxSink> sinks,
+                       OutboxProperties properties,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sinks = sinks;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.published = Counter.builder("outbox.relay.published")
+                .description("Outbox events delivered to the sinks").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Number of outbox events delivered per batch").register(meterRegistry);
+        this.lag = Timer.builder("outbox.relay.lag")
+                .description("Delay between committing a change and delivering its outbox event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${currency.outbox.relay.interval:PT0.5S}")
+    public void relay() {
+        int delivered;
+        do {
+            delivered = transactionTemplate.execute(status -> relayBatch());
+        } while (delivered == properties.batchSize());
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.lockPending(properties.batchSize());
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<OutboxMessage> messages = events.stream()
+                .map(event -> new OutboxMessage(event.getId(), event.getAccountId(), event.getEventType(),
+                        event.getPayload(), event.getCreatedAt()))
+                .toList();
+        sinks.forEach(sink -> sink.publish(messages));
+
+        Instant now = Instant.now();
+        for (OutboxEvent event : events) {
+            event.setPublishedAt(now);
+            lag.record(Duration.between(event.getCreatedAt(), now));
+        }
+        published.increment(events.size());
+        batchSize.record(events.size());
+        return events.size();
+    }
+}
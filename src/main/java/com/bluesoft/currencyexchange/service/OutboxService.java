@@ -0,0 +1,79 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.BalanceChangeEvent;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.entity.Account;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.LedgerEntry;
+import com.bluesoft.currencyexchange.entity.OutboxEvent;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.repository.LedgerEntryRepository;
+import com.bluesoft.currencyexchange.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes balance changes to the outbox table and the ledger as part of the transaction that performs them.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final ObjectMapper objectMapper;
+    private final BalanceCache balanceCache;
+
+    /**
+     * Records the current balances of an account, adds a ledger entry for every balance that changed since it was
+     * loaded or last recorded, and evicts its cached balances once the transaction commits. Must be called inside
+     * the transaction that changed them. An opening balance gets its entry even when it is zero, so every currency
+     * account has one, see {@link LedgerBackfill}.
+     *
+     * @param account the account whose balances changed
+     * @param type the kind of change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Account account, OutboxEventType type) {
+        Instant now = Instant.now();
+        List<CurrencyAccountDto> balances = account.getCurrencyAccounts().stream()
+                .map(currencyAccount -> new CurrencyAccountDto(currencyAccount.getSymbol(), currencyAccount.getBalance()))
+                .toList();
+        outboxEventRepository.save(OutboxEvent.builder()
+                .accountId(account.getId())
+                .eventType(type)
+                .payload(toJson(new BalanceChangeEvent(account.getId(), type, balances, now)))
+                .createdAt(now)
+                .build());
+        for (CurrencyAccount currencyAccount : account.getCurrencyAccounts()) {
+            BigDecimal change = currencyAccount.takeUnrecordedChange();
+            if (change.signum() != 0 || type == OutboxEventType.ACCOUNT_CREATED) {
+                ledgerEntryRepository.save(LedgerEntry.builder()
+                        .accountId(account.getId())
+                        .currencyAccountId(currencyAccount.getId())
+                        .symbol(currencyAccount.getSymbol())
+                        .amount(change)
+                        .eventType(type)
+                        .createdAt(now)
+                        .build());
+            }
+        }
+        balanceCache.evictAfterCommit(account.getId());
+    }
+
+    private String toJson(BalanceChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize outbox event for account " + event.accountId(), ex);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Destination of the outbox relay. Implementations receive events in id order and may be called again
+ * with the same events if a previous delivery failed, so they must tolerate duplicates.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers a batch of committed changes. Throwing leaves the whole batch pending.
+     *
+     * @param messages the events, ordered by id
+     */
+    void publish(List<OutboxMessage> messages);
+}
@@ -0,0 +1,274 @@
+package com.bluesoft.currencyexchange.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs a job over the account id space split into ranges of equal width, and is what the reconciliation and the
+ * statement jobs share.
+ * <p>
+ * A run starts a fixed number of workers; worker {@code w} takes the partitions {@code w, w + workers, ...} one after
+ * another and leaves out those its {@link RunCheckpoint} lists as completed. The job supplies the checkpoint and the
+ * work of a partition, which writes the partition's output and records it in the checkpoint. Stopping a run lets the
+ * running partitions finish and starts no new ones; the checkpoint is removed only when all partitions are done, so
+ * a stopped, failed or crashed run is resumed by the next one.
+ */
+@Slf4j
+final class PartitionedRun {
+
+    enum State { IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED }
+
+    /**
+     * One run of a job.
+     */
+    interface Job {
+
+        /**
+         * @return what the run does, for its log lines
+         */
+        String description();
+
+        /**
+         * Opens the checkpoint of the run, resuming the previous run if it did not complete.
+         *
+         * @param startedAt when the run started
+         */
+        RunCheckpoint open(Instant startedAt) throws IOException;
+
+        /**
+         * Prepares a worker, called on its thread before its first partition.
+         *
+         * @return the work of a partition
+         */
+        Worker worker(int worker, RunCheckpoint checkpoint) throws IOException;
+    }
+
+    /**
+     * The work of the partitions of one worker.
+     */
+    @FunctionalInterface
+    interface Worker {
+
+        /**
+         * Does the work of a partition and records it in the checkpoint.
+         *
+         * @return what was counted, in the order of the count names of the run
+         */
+        long[] run(int partition) throws IOException;
+    }
+
+    private final String name;
+    private final int partitions;
+    private final int workers;
+    private final String[] countNames;
+    private final int progressStep;
+
+    private final AtomicInteger completedPartitions = new AtomicInteger();
+    private final AtomicLongArray totals;
+    private final AtomicLong countedThisRun = new AtomicLong();
+    private volatile State state = State.IDLE;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    /**
+     * @param name the name of the thread a started run goes on
+     * @param countNames what the work of a partition counts; the first one is the one throughput is measured in
+     */
+    PartitionedRun(String name, int partitions, int workers, String... countNames) {
+        this.name = name;
+        this.partitions = partitions;
+        this.workers = workers;
+        this.countNames = countNames;
+        this.progressStep = Math.max(1, partitions / 20);
+        this.totals = new AtomicLongArray(countNames.length);
+    }
+
+    /**
+     * Starts a run in the background.
+     *
+     * @return false if a run is still going on
+     */
+    synchronized boolean start(Job job) {
+        if (!begin()) {
+            return false;
+        }
+        Thread coordinator = new Thread(() -> run(job), name);
+        coordinator.start();
+        return true;
+    }
+
+    private synchronized boolean begin() {
+        if (state == State.RUNNING || state == State.STOPPING) {
+            return false;
+        }
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        finishedAt = null;
+        return true;
+    }
+
+    /**
+     * Lets the running partitions finish and starts no new ones.
+     */
+    synchronized void stop() {
+        if (state == State.RUNNING) {
+            state = State.STOPPING;
+        }
+    }
+
+    /**
+     * Runs a job on the calling thread, as part of the run started last if it is still going on.
+     */
+    void run(Job job) {
+        begin();
+        completedPartitions.set(0);
+        for (int count = 0; count < countNames.length; count++) {
+            totals.set(count, 0);
+        }
+        countedThisRun.set(0);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            try (RunCheckpoint checkpoint = job.open(startedAt)) {
+                completedPartitions.set(checkpoint.completed().size());
+                for (int count = 0; count < countNames.length; count++) {
+                    totals.set(count, checkpoint.total(count));
+                }
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (int worker = 0; worker < workers; worker++) {
+                    int index = worker;
+                    tasks.add(() -> {
+                        work(job, index, checkpoint);
+                        return null;
+                    });
+                }
+                for (Future<Void> task : pool.invokeAll(tasks)) {
+                    task.get();
+                }
+                if (state == State.STOPPING) {
+                    finish(job, State.STOPPED);
+                    return;
+                }
+                checkpoint.delete();
+            }
+            finish(job, State.COMPLETED);
+        } catch (IOException | ExecutionException | RuntimeException ex) {
+            log.error("{} failed, the next run resumes from the checkpoint", job.description(),
+                    ex instanceof ExecutionException ? ex.getCause() : ex);
+            finish(job, State.FAILED);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            finish(job, State.STOPPED);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void work(Job job, int index, RunCheckpoint checkpoint) throws IOException {
+        Worker worker = job.worker(index, checkpoint);
+        for (int partition = index; partition < partitions; partition += workers) {
+            if (state != State.RUNNING) {
+                return;
+            }
+            if (!checkpoint.completed().contains(partition)) {
+                long[] counts = worker.run(partition);
+                for (int count = 0; count < countNames.length; count++) {
+                    totals.addAndGet(count, counts[count]);
+                }
+                countedThisRun.addAndGet(counts[0]);
+                int completed = completedPartitions.incrementAndGet();
+                if (completed % progressStep == 0) {
+                    log.info("{}: {}/{} partitions, {}", job.description(), completed, partitions, summary());
+                }
+            }
+        }
+    }
+
+    private void finish(Job job, State finalState) {
+        finishedAt = Instant.now();
+        state = finalState;
+        log.info("{} {}: {}/{} partitions, {}", job.description(), finalState.name().toLowerCase(),
+                completedPartitions.get(), partitions, summary());
+    }
+
+    private String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (int count = 0; count < countNames.length; count++) {
+            summary.append(totals.get(count)).append(' ').append(countNames[count]).append(", ");
+        }
+        return summary.append(Math.round(perSecond())).append(' ').append(countNames[0]).append("/s").toString();
+    }
+
+    State state() {
+        return state;
+    }
+
+    /**
+     * @return when the running or last run started, null if there was none
+     */
+    Instant startedAt() {
+        return startedAt;
+    }
+
+    Instant finishedAt() {
+        return finishedAt;
+    }
+
+    int partitions() {
+        return partitions;
+    }
+
+    int completedPartitions() {
+        return completedPartitions.get();
+    }
+
+    /**
+     * @return the sum of a count, including the partitions completed before a resume
+     */
+    long total(int count) {
+        return totals.get(count);
+    }
+
+    /**
+     * @return the first count of this run per second, not counting the partitions completed before a resume
+     */
+    double perSecond() {
+        Instant started = startedAt;
+        if (started == null) {
+            return 0;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return countedThisRun.get() / (Math.max(Duration.between(started, end).toNanos(), 1) / 1e9);
+    }
+
+    /**
+     * Splits the UUID space into ranges of equal width. PostgreSQL orders UUIDs by their unsigned bytes, so the
+     * boundaries are spread over the unsigned most significant half.
+     *
+     * @return the inclusive lower and upper bound of a partition
+     */
+    static UUID[] bounds(int partition, int partitions) {
+        long lower = boundary(partition, partitions);
+        if (partition == partitions - 1) {
+            return new UUID[]{new UUID(lower, 0), new UUID(-1L, -1L)};
+        }
+        return new UUID[]{new UUID(lower, 0), new UUID(boundary(partition + 1, partitions) - 1, -1L)};
+    }
+
+    private static long boundary(int partition, int partitions) {
+        return BigInteger.valueOf(partition).shiftLeft(64).divide(BigInteger.valueOf(partitions)).longValue();
+    }
+}
@@ -0,0 +1,95 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.PricingProperties;
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link PricingTable} and reloads it when the pricing file changes.
+ * <p>
+ * A reload reads and compiles the new tables off the exchange path and then swaps the reference, so an exchange is
+ * always priced by one complete table, either the old or the new one. Tables that fail validation are not installed.
+ */
+@Slf4j
+@Service
+public class PricingEngine {
+
+    private final AtomicReference<PricingTable> table = new AtomicReference<>(PricingTable.EMPTY);
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private FileTime lastModified;
+
+    public PricingEngine(PricingProperties properties, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.file = properties.file();
+        if (file != null) {
+            reload();
+        }
+    }
+
+    /**
+     * @return the table to price the next exchange with
+     */
+    public PricingTable current() {
+        return table.get();
+    }
+
+    /**
+     * Compiles and installs pricing tables.
+     *
+     * @param config the new tables
+     * @throws IllegalArgumentException if the tables are inconsistent
+     */
+    public void install(PricingConfig config) {
+        table.set(PricingTable.compile(config));
+    }
+
+    /**
+     * Reads the pricing file and installs its tables.
+     *
+     * @return the installed tables
+     * @throws IllegalArgumentException if no pricing file is configured, it cannot be read or holds inconsistent tables
+     */
+    public synchronized PricingConfig reload() {
+        if (file == null) {
+            throw new IllegalArgumentException("No pricing file is configured.");
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            PricingConfig config = objectMapper.readValue(file.toFile(), PricingConfig.class);
+            install(config);
+            lastModified = modified;
+            log.info("Installed pricing from {}: {} pairs, {} accounts with overrides", file,
+                    config.pairs() != null ? config.pairs().size() : 0, config.clients() != null ? config.clients().size() : 0);
+            return config;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not read pricing file " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${currency.pricing.reload-interval:PT10S}")
+    public synchronized void reloadIfChanged() {
+        if (file == null) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (!modified.equals(lastModified)) {
+                // an invalid file is reported once, not on every check
+                lastModified = modified;
+                reload();
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            log.warn("Keeping the current pricing: {}", ex.getMessage());
+        }
+    }
+}
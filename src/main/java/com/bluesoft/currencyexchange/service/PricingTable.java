@@ -0,0 +1,209 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Pricing tables compiled for the exchange path. Immutable, so a table can be swapped as a whole while exchanges
+ * are priced with the previous one.
+ * <p>
+ * Every account, currency pair and amount maps to a price through flat arrays. Accounts with overrides are kept as a
+ * sorted array of UUID halves, each of them owning one schedule of {@code symbols * symbols} slots; schedule 0 holds
+ * the default pricing and is used for every other account. Overridden accounts get copies of the default slots for
+ * the pairs they do not override, so a lookup never falls back. The fee bands of a slot are a range of the band
+ * arrays, sorted by their minimum amount. Lookups are binary searches on primitives and {@link BigDecimal#compareTo}:
+ * they allocate nothing and grow only logarithmically with the number of accounts with overrides.
+ */
+public final class PricingTable {
+
+    private static final int SYMBOLS = Symbol.values().length;
+    private static final int PAIRS = SYMBOLS * SYMBOLS;
+    private static final int MAX_BPS = 10_000;
+
+    public static final PricingTable EMPTY = compile(PricingConfig.EMPTY);
+
+    private final PricingConfig config;
+    private final long[] clientMostSigBits;
+    private final long[] clientLeastSigBits;
+    private final BigDecimal[] spreadFactors;
+    private final int[] tierStarts;
+    private final BigDecimal[] tierFloors;
+    private final BigDecimal[] tierFeeRates;
+
+    private PricingTable(PricingConfig config, long[] clientMostSigBits, long[] clientLeastSigBits,
+                         BigDecimal[] spreadFactors, int[] tierStarts, BigDecimal[] tierFloors, BigDecimal[] tierFeeRates) {
+        this.config = config;
+        this.clientMostSigBits = clientMostSigBits;
+        this.clientLeastSigBits = clientLeastSigBits;
+        this.spreadFactors = spreadFactors;
+        this.tierStarts = tierStarts;
+        this.tierFloors = tierFloors;
+        this.tierFeeRates = tierFeeRates;
+    }
+
+    /**
+     * Validates and compiles pricing tables.
+     *
+     * @param config the configured tables
+     * @return the compiled table
+     * @throws IllegalArgumentException if the tables are inconsistent, e.g. list a pair twice or fee bands out of order
+     */
+    public static PricingTable compile(PricingConfig config) {
+        List<PricingConfig.PairPricing> defaults = config.pairs() != null ? config.pairs() : List.of();
+        List<PricingConfig.ClientPricing> clients = new ArrayList<>(config.clients() != null ? config.clients() : List.of());
+        for (PricingConfig.ClientPricing client : clients) {
+            if (client.accountId() == null) {
+                throw new IllegalArgumentException("Client pricing requires an account id.");
+            }
+        }
+        clients.sort(Comparator.comparing(PricingConfig.ClientPricing::accountId));
+
+        int schedules = clients.size() + 1;
+        long[] mostSigBits = new long[clients.size()];
+        long[] leastSigBits = new long[clients.size()];
+        PricingConfig.PairPricing[] slots = new PricingConfig.PairPricing[schedules * PAIRS];
+        fill(slots, 0, defaults, "default pricing");
+        for (int i = 0; i < clients.size(); i++) {
+            UUID accountId = clients.get(i).accountId();
+            if (i > 0 && accountId.equals(clients.get(i - 1).accountId())) {
+                throw new IllegalArgumentException("Account " + accountId + " is priced twice.");
+            }
+            mostSigBits[i] = accountId.getMostSignificantBits();
+            leastSigBits[i] = accountId.getLeastSignificantBits();
+            System.arraycopy(slots, 0, slots, (i + 1) * PAIRS, PAIRS);
+            fill(slots, (i + 1) * PAIRS, clients.get(i).pairs() != null ? clients.get(i).pairs() : List.of(), "account " + accountId);
+        }
+
+        BigDecimal[] spreadFactors = new BigDecimal[slots.length];
+        int[] tierStarts = new int[slots.length + 1];
+        List<BigDecimal> floors = new ArrayList<>();
+        List<BigDecimal> feeRates = new ArrayList<>();
+        for (int slot = 0; slot < slots.length; slot++) {
+            tierStarts[slot] = floors.size();
+            PricingConfig.PairPricing pricing = slots[slot];
+            if (pricing == null) {
+                continue;
+            }
+            if (pricing.spreadBps() > 0) {
+                spreadFactors[slot] = BigDecimal.ONE.add(BigDecimal.valueOf(pricing.spreadBps(), 4));
+            }
+            for (PricingConfig.FeeTier tier : pricing.feeTiers() != null ? pricing.feeTiers() : List.<PricingConfig.FeeTier>of()) {
+                floors.add(tier.minAmount());
+                feeRates.add(tier.feeBps() > 0 ? BigDecimal.valueOf(tier.feeBps(), 4) : null);
+            }
+        }
+        tierStarts[slots.length] = floors.size();
+        return new PricingTable(config, mostSigBits, leastSigBits, spreadFactors, tierStarts,
+                floors.toArray(BigDecimal[]::new), feeRates.toArray(BigDecimal[]::new));
+    }
+
+    private static void fill(PricingConfig.PairPricing[] slots, int offset, List<PricingConfig.PairPricing> pairs, String owner) {
+        Set<Integer> seen = new HashSet<>();
+        for (PricingConfig.PairPricing pricing : pairs) {
+            if (pricing.fromCurrency() == null || pricing.toCurrency() == null || pricing.fromCurrency() == pricing.toCurrency()) {
+                throw new IllegalArgumentException("Pricing of " + owner + " requires two different currencies.");
+            }
+            int pair = pair(pricing.fromCurrency(), pricing.toCurrency());
+            if (!seen.add(pair)) {
+                throw new IllegalArgumentException("Pricing of " + owner + " lists " + pricing.fromCurrency() + "/" + pricing.toCurrency() + " twice.");
+            }
+            if (pricing.spreadBps() < 0 || pricing.spreadBps() >= MAX_BPS) {
+                throw new IllegalArgumentException("Spread of " + owner + " must be between 0 and " + MAX_BPS + " bps.");
+            }
+            BigDecimal previous = null;
+            for (PricingConfig.FeeTier tier : pricing.feeTiers() != null ? pricing.feeTiers() : List.<PricingConfig.FeeTier>of()) {
+                if (tier.minAmount() == null || tier.minAmount().signum() < 0 || (previous != null && tier.minAmount().compareTo(previous) <= 0)) {
+                    throw new IllegalArgumentException("Fee bands of " + owner + " must have ascending, non-negative minimum amounts.");
+                }
+                if (tier.feeBps() < 0 || tier.feeBps() >= MAX_BPS) {
+                    throw new IllegalArgumentException("Fees of " + owner + " must be between 0 and " + MAX_BPS + " bps.");
+                }
+                previous = tier.minAmount();
+            }
+            slots[offset + pair] = pricing;
+        }
+    }
+
+    /**
+     * Finds the slot holding the pricing of an account and currency pair.
+     *
+     * @param accountId the account
+     * @param fromCurrency the currency the account sells
+     * @param toCurrency the currency the account buys
+     * @return the slot to pass to {@link #rate} and {@link #fee}
+     */
+    public int slot(UUID accountId, Symbol fromCurrency, Symbol toCurrency) {
+        return schedule(accountId.getMostSignificantBits(), accountId.getLeastSignificantBits()) * PAIRS + pair(fromCurrency, toCurrency);
+    }
+
+    /**
+     * Applies the spread of a slot to the rate an exchange divides the source amount by.
+     *
+     * @param slot the slot
+     * @param effectiveRate the divisor at the mid rate, see {@link CurrencyExchangeService#effectiveRate}
+     * @return the divisor including the spread
+     */
+    public BigDecimal rate(int slot, BigDecimal effectiveRate) {
+        BigDecimal spreadFactor = spreadFactors[slot];
+        return spreadFactor == null ? effectiveRate : effectiveRate.multiply(spreadFactor);
+    }
+
+    /**
+     * Computes the fee of the band an amount falls into.
+     *
+     * @param slot the slot
+     * @param amount the amount in the source currency
+     * @return the fee in the source currency, rounded to cents
+     */
+    public BigDecimal fee(int slot, BigDecimal amount) {
+        int low = tierStarts[slot];
+        int high = tierStarts[slot + 1] - 1;
+        int band = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (tierFloors[middle].compareTo(amount) <= 0) {
+                band = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        BigDecimal feeRate = band < 0 ? null : tierFeeRates[band];
+        return feeRate == null ? BigDecimal.ZERO : amount.multiply(feeRate).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * @return the tables this one was compiled from
+     */
+    public PricingConfig config() {
+        return config;
+    }
+
+    private int schedule(long mostSigBits, long leastSigBits) {
+        int low = 0;
+        int high = clientMostSigBits.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Long.compare(clientMostSigBits[middle], mostSigBits);
+            if (comparison == 0) {
+                comparison = Long.compare(clientLeastSigBits[middle], leastSigBits);
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int pair(Symbol fromCurrency, Symbol toCurrency) {
+        return fromCurrency.ordinal() * SYMBOLS + toCurrency.ordinal();
+    }
+}
@@ -0,0 +1,102 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ProfilingProperties;
+import com.bluesoft.currencyexchange.dto.ProfilingSummaryDto;
+import com.bluesoft.currencyexchange.exception.ProfilingRecordingException;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Controls JFR recordings of the exchange path and exposes the always-on phase profile.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProfilingService {
+
+    private final ExchangeProfiler exchangeProfiler;
+    private final ProfilingProperties profilingProperties;
+    private Recording recording;
+
+    /**
+     * Starts a JFR recording with the exchange phase events and low-overhead samples of CPU, allocation, GC,
+     * lock and socket activity.
+     *
+     * @param maxDuration the duration after which the recording stops by itself, capped by the configured maximum
+     * @throws ProfilingRecordingException if a recording is already running
+     */
+    public synchronized void startRecording(Duration maxDuration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new ProfilingRecordingException("A recording is already running.");
+        }
+        closeRecording();
+        Duration limit = profilingProperties.maxRecording();
+        Recording newRecording = new Recording();
+        newRecording.setName("exchange-path");
+        newRecording.setDuration(maxDuration == null || maxDuration.compareTo(limit) > 0 ? limit : maxDuration);
+        newRecording.setToDisk(true);
+        newRecording.enable(ExchangePhaseEvent.class);
+        newRecording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
+        newRecording.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+        newRecording.enable("jdk.GarbageCollection");
+        newRecording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(10));
+        newRecording.enable("jdk.ThreadPark").withThreshold(Duration.ofMillis(10));
+        newRecording.enable("jdk.SocketRead").withThreshold(Duration.ofMillis(10));
+        newRecording.start();
+        recording = newRecording;
+    }
+
+    /**
+     * Stops the recording and dumps it to a temporary file. The caller is responsible for deleting the file.
+     *
+     * @return the recording file
+     * @throws ProfilingRecordingException if no recording was started
+     */
+    public synchronized Path stopRecording() {
+        if (recording == null) {
+            throw new ProfilingRecordingException("No recording has been started.");
+        }
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            Path file = Files.createTempFile("exchange-path-", ".jfr");
+            recording.dump(file);
+            return file;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            closeRecording();
+        }
+    }
+
+    /**
+     * @return the per-phase latency and allocation profile
+     */
+    public synchronized ProfilingSummaryDto getSummary() {
+        boolean running = recording != null && recording.getState() == RecordingState.RUNNING;
+        return new ProfilingSummaryDto(exchangeProfiler.since(), exchangeProfiler.isAllocationTracking(), running,
+                exchangeProfiler.summary());
+    }
+
+    /**
+     * Starts a new measurement window of the phase profile.
+     */
+    public void resetSummary() {
+        exchangeProfiler.reset();
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A priced exchange held by {@link QuoteStore} until it is executed or expires.
+ *
+ * @param id the quote id handed out to the client
+ * @param accountId the account the quote was issued for
+ * @param amount the amount to exchange
+ * @param fromCurrency the currency to exchange from
+ * @param toCurrency the currency to exchange to
+ * @param usdToPlnRate the USD/PLN mid rate the quote was priced at
+ * @param exchangeRate the divisor including the spread, applied on execution
+ * @param fee the fee in fromCurrency, applied on execution
+ * @param convertedAmount the amount that will be credited in toCurrency
+ * @param expiresAt wall-clock expiry reported to the client
+ * @param deadlineNanos monotonic expiry used by the store
+ */
+public record Quote(UUID id,
+                    UUID accountId,
+                    BigDecimal amount,
+                    Symbol fromCurrency,
+                    Symbol toCurrency,
+                    BigDecimal usdToPlnRate,
+                    BigDecimal exchangeRate,
+                    BigDecimal fee,
+                    BigDecimal convertedAmount,
+                    Instant expiresAt,
+                    long deadlineNanos
+) {
+
+    boolean isExpired(long nowNanos) {
+        return nowNanos - deadlineNanos >= 0;
+    }
+}
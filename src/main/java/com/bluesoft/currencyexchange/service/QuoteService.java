@@ -0,0 +1,103 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.QuoteProperties;
+import com.bluesoft.currencyexchange.dto.CreateQuoteRequest;
+import com.bluesoft.currencyexchange.dto.QuoteDto;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.QuoteCapacityExceededException;
+import com.bluesoft.currencyexchange.exception.QuoteNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Service for issuing pre-trade quotes and executing them at the locked rate.
+ */
+@Service
+@RequiredArgsConstructor
+public class QuoteService {
+
+    private static final int RATE_SCALE = 4;
+
+    private final QuoteStore quoteStore;
+    private final QuoteProperties quoteProperties;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final CurrencyExchangeService currencyExchangeService;
+    private final PricingEngine pricingEngine;
+
+    /**
+     * Prices an exchange at the current rate and holds the result for the configured TTL.
+     *
+     * @param request the exchange to price
+     * @return the quote including its id and expiry
+     * @throws InvalidCurrencyExchangeException if both currencies are the same
+     * @throws QuoteCapacityExceededException if the quote store is full
+     */
+    public QuoteDto createQuote(CreateQuoteRequest request) {
+        if (request.fromCurrency().equals(request.toCurrency())) {
+            throw InvalidCurrencyExchangeException.sameCurrency();
+        }
+        BigDecimal usdToPlnRate = currencyRateProvider.getUsdToPlnRate();
+        PricingTable pricing = pricingEngine.current();
+        int slot = pricing.slot(request.accountId(), request.fromCurrency(), request.toCurrency());
+        BigDecimal rate = pricing.rate(slot, CurrencyExchangeService.effectiveRate(request.fromCurrency(), usdToPlnRate));
+        BigDecimal fee = pricing.fee(slot, request.amount());
+        Quote quote = new Quote(
+                UUID.randomUUID(),
+                request.accountId(),
+                request.amount(),
+                request.fromCurrency(),
+                request.toCurrency(),
+                usdToPlnRate,
+                rate,
+                fee,
+                CurrencyAccount.exchangedAmount(request.amount().subtract(fee), rate),
+                Instant.now().plus(quoteProperties.ttl()),
+                quoteStore.now() + quoteProperties.ttl().toNanos()
+        );
+        if (!quoteStore.put(quote)) {
+            throw new QuoteCapacityExceededException("Too many open quotes. Retry later.");
+        }
+        return new QuoteDto(quote.id(), quote.accountId(), quote.amount(), quote.fromCurrency(), quote.toCurrency(),
+                plnPerUsd(request.fromCurrency(), rate), quote.convertedAmount(), quote.expiresAt());
+    }
+
+    /**
+     * Turns the divisor an exchange applies back into the PLN per USD rate that clients are quoted.
+     *
+     * @param fromCurrency the currency the exchange is from
+     * @param rate the divisor including the spread, see {@link PricingTable#rate}
+     * @return the USD/PLN rate of the exchange
+     */
+    static BigDecimal plnPerUsd(Symbol fromCurrency, BigDecimal rate) {
+        return fromCurrency == Symbol.PLN ? rate.setScale(RATE_SCALE, RoundingMode.HALF_UP)
+                : BigDecimal.ONE.divide(rate, RATE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Executes a previously issued quote at the divisor and fee it was priced with, so neither a new rate nor pricing
+     * tables installed since the quote was issued change the credited amount.
+     * A quote can be executed only once. It is held aside while its exchange runs and put back if the exchange
+     * fails or does not commit, so it is used up only by an exchange that was booked.
+     *
+     * @param quoteId the id of the quote
+     * @throws QuoteNotFoundException if the quote is unknown, already used, being executed or expired
+     */
+    public void executeQuote(UUID quoteId) {
+        Quote quote = quoteStore.take(quoteId)
+                .orElseThrow(() -> new QuoteNotFoundException("There is no valid quote with id : '" + quoteId + "'."));
+        try {
+            currencyExchangeService.exchangeCurrencyAtPrice(quote.accountId(), quote.amount(), quote.fromCurrency(),
+                    quote.toCurrency(), quote.exchangeRate(), quote.fee());
+        } catch (RuntimeException ex) {
+            quoteStore.restore(quote);
+            throw ex;
+        }
+    }
+}
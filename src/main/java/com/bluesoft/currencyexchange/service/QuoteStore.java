@@ -0,0 +1,147 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.QuoteProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-memory store of live quotes.
+ * <p>
+ * Expiry is driven by a hashed timer wheel: every quote id is appended to the slot of the tick in which
+ * it expires and a single periodic task sweeps the slots the clock has passed. Lookups also check the
+ * deadline, so a quote is never served late even if the sweep lags behind.
+ */
+@Component
+public class QuoteStore {
+
+    private final ConcurrentHashMap<UUID, Quote> quotes = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentLinkedQueue<UUID>[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final int maxSize;
+    private final LongSupplier nanoClock;
+    private long lastSweptTick;
+
+    @Autowired
+    public QuoteStore(QuoteProperties properties, TaskScheduler taskScheduler) {
+        this(properties, System::nanoTime);
+        taskScheduler.scheduleWithFixedDelay(this::expire, properties.tick());
+    }
+
+    @SuppressWarnings("unchecked")
+    QuoteStore(QuoteProperties properties, LongSupplier nanoClock) {
+        this.tickNanos = properties.tick().toNanos();
+        this.maxSize = properties.maxSize();
+        this.nanoClock = nanoClock;
+        // the wheel has to span the whole TTL so that a slot never mixes quotes from different rounds
+        long ticksPerTtl = properties.ttl().toNanos() / tickNanos + 2;
+        int slots = Integer.highestOneBit((int) Math.min(ticksPerTtl, 1 << 20) * 2 - 1);
+        this.wheel = new ConcurrentLinkedQueue[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = slots - 1;
+        this.lastSweptTick = Math.floorDiv(nanoClock.getAsLong(), tickNanos) - 1;
+    }
+
+    /**
+     * Current monotonic time as seen by the store, used to compute quote deadlines.
+     */
+    public long now() {
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * Adds a quote unless the store is full.
+     *
+     * @param quote the quote to hold
+     * @return false if the store is at capacity and the quote was not stored
+     */
+    public boolean put(Quote quote) {
+        if (size.incrementAndGet() > maxSize) {
+            size.decrementAndGet();
+            return false;
+        }
+        quotes.put(quote.id(), quote);
+        wheel[(int) Math.floorDiv(quote.deadlineNanos(), tickNanos) & mask].add(quote.id());
+        return true;
+    }
+
+    /**
+     * Removes and returns a quote if it is still valid. A quote can be taken only once.
+     *
+     * @param quoteId the quote id
+     * @return the quote, or empty if it is unknown, already taken or expired
+     */
+    public Optional<Quote> take(UUID quoteId) {
+        Quote quote = quotes.remove(quoteId);
+        if (quote == null) {
+            return Optional.empty();
+        }
+        size.decrementAndGet();
+        return quote.isExpired(nanoClock.getAsLong()) ? Optional.empty() : Optional.of(quote);
+    }
+
+    /**
+     * Puts back a quote that was taken but could not be executed, so it can be executed again until it expires. The
+     * capacity is not checked, the quote held its place until it was taken. Its id is still on the wheel, which skips
+     * ids that are not held, so the sweep drops it on time.
+     *
+     * @param quote a quote returned by {@link #take}
+     * @return false if the quote has expired meanwhile and was not put back
+     */
+    public boolean restore(Quote quote) {
+        if (quote.isExpired(nanoClock.getAsLong()) || quotes.putIfAbsent(quote.id(), quote) != null) {
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the number of quotes currently held
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Advances the wheel over every fully elapsed tick and drops the quotes whose deadline has passed.
+     */
+    public synchronized void expire() {
+        long now = nanoClock.getAsLong();
+        long lastElapsedTick = Math.floorDiv(now, tickNanos) - 1;
+        long from = Math.max(lastSweptTick + 1, lastElapsedTick - mask);
+        for (long tick = from; tick <= lastElapsedTick; tick++) {
+            ConcurrentLinkedQueue<UUID> slot = wheel[(int) tick & mask];
+            int pending = slot.size();
+            for (int i = 0; i < pending; i++) {
+                UUID id = slot.poll();
+                if (id == null) {
+                    break;
+                }
+                Quote quote = quotes.get(id);
+                if (quote == null) {
+                    continue;
+                }
+                if (quote.isExpired(now)) {
+                    if (quotes.remove(id, quote)) {
+                        size.decrementAndGet();
+                    }
+                } else {
+                    slot.add(id);
+                }
+            }
+        }
+        lastSweptTick = Math.max(lastSweptTick, lastElapsedTick);
+    }
+}
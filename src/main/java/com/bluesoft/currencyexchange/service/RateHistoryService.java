@@ -0,0 +1,189 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.RateHistoryProperties;
+import com.bluesoft.currencyexchange.dto.RateAggregateDto;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link RateSeries} file per currency and answers window aggregates of its daily mid rates from it, without
+ * calling NBP or scanning {@code rate_snapshot}.
+ * <p>
+ * Every {@link RateSnapshot} this instance sees, polled by itself or shared by the cluster, is appended as the rate
+ * of its NBP table date. {@link #rebuild()} rewrites the files from {@code rate_snapshot}, for a new instance or after
+ * the scale or block size changed.
+ */
+@Slf4j
+@Service
+public class RateHistoryService {
+
+    static final String HISTORY_SQL = """
+            SELECT DISTINCT ON (symbol, effective_date) symbol, effective_date, mid
+            FROM rate_snapshot
+            WHERE effective_date IS NOT NULL
+            ORDER BY symbol, effective_date, id DESC""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RateHistoryProperties properties;
+    private final Map<Symbol, RateSeries> series = new ConcurrentHashMap<>();
+
+    public RateHistoryService(JdbcTemplate jdbcTemplate, RateHistoryProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Appends the rate of a snapshot to the series of its currency. A later rate of the same table date replaces the
+     * stored one, rates of earlier table dates are ignored.
+     */
+    @EventListener
+    public synchronized void onRateSnapshot(RateSnapshot snapshot) {
+        try {
+            RateSeries rates = series(snapshot.symbol(), true);
+            if (rates.append((int) snapshot.effectiveDate().toEpochDay(), rates.toScaled(snapshot.mid()))) {
+                rates.force();
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not add the {} rate of {} to the rate history: {}", snapshot.symbol(), snapshot.effectiveDate(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Aggregates the rates of a currency over a window of table dates.
+     *
+     * @param symbol the currency
+     * @param from the first date of the window
+     * @param to the last date of the window
+     * @return the aggregate, with null rates if there is no rate in the window
+     * @throws IllegalArgumentException if the window ends before it starts
+     */
+    public RateAggregateDto aggregate(Symbol symbol, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The window must not end before it starts.");
+        }
+        RateSeries rates = series(symbol, false);
+        if (rates == null) {
+            return toDto(symbol, from, to, null, RateSeries.Aggregate.EMPTY);
+        }
+        return toDto(symbol, from, to, rates, rates.aggregate(epochDay(from), epochDay(to)));
+    }
+
+    /**
+     * Rewrites the series of every currency from the last rate stored in {@code rate_snapshot} for each table date.
+     * Series of currencies without stored rates are emptied.
+     *
+     * @return the aggregate of every rebuilt series over all of its dates
+     */
+    public synchronized List<RateAggregateDto> rebuild() {
+        Map<Symbol, Points> points = new EnumMap<>(Symbol.class);
+        jdbcTemplate.query(HISTORY_SQL, row -> {
+            Points symbolPoints = points.computeIfAbsent(Symbol.valueOf(row.getString(1)), symbol -> new Points());
+            symbolPoints.add((int) row.getDate(2).toLocalDate().toEpochDay(), row.getBigDecimal(3));
+        });
+        for (Symbol symbol : series.keySet()) {
+            points.putIfAbsent(symbol, new Points());
+        }
+        List<RateAggregateDto> rebuilt = new ArrayList<>();
+        try {
+            Files.createDirectories(properties.directory());
+            for (Map.Entry<Symbol, Points> entry : points.entrySet()) {
+                Symbol symbol = entry.getKey();
+                Points symbolPoints = entry.getValue();
+                long[] scaled = new long[symbolPoints.count];
+                for (int i = 0; i < symbolPoints.count; i++) {
+                    scaled[i] = RateSeries.toScaled(symbolPoints.rates[i], properties.scale());
+                }
+                RateSeries rates = RateSeries.create(file(symbol), properties.scale(), properties.blockSize(),
+                        properties.initialCapacity(), symbolPoints.days, scaled, symbolPoints.count);
+                series.put(symbol, rates);
+                RateSeries.Aggregate all = rates.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE);
+                rebuilt.add(all.points() == 0 ? toDto(symbol, null, null, rates, all)
+                        : toDto(symbol, LocalDate.ofEpochDay(all.firstDay()), LocalDate.ofEpochDay(all.lastDay()), rates, all));
+                log.info("Rebuilt the {} rate history from the database: {} table dates", symbol, symbolPoints.count);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not rebuild the rate history in " + properties.directory(), ex);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * @param create whether a missing series file is created
+     * @return the series of a currency, null if it has no file and {@code create} is false
+     */
+    private RateSeries series(Symbol symbol, boolean create) {
+        return series.computeIfAbsent(symbol, key -> {
+            Path file = file(key);
+            if (!create && !Files.exists(file)) {
+                return null;
+            }
+            try {
+                Files.createDirectories(properties.directory());
+                try {
+                    return RateSeries.open(file, properties.scale(), properties.blockSize(), properties.initialCapacity());
+                } catch (IllegalStateException ex) {
+                    log.warn("Starting a new {} rate history, rebuild it to restore the history from the database: {}", key, ex.getMessage());
+                    return RateSeries.create(file, properties.scale(), properties.blockSize(), properties.initialCapacity(), new int[0], new long[0], 0);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not open " + file, ex);
+            }
+        });
+    }
+
+    private Path file(Symbol symbol) {
+        return properties.directory().resolve(symbol.name() + ".rates");
+    }
+
+    private static int epochDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, date.toEpochDay()));
+    }
+
+    private static RateAggregateDto toDto(Symbol symbol, LocalDate from, LocalDate to, RateSeries rates, RateSeries.Aggregate aggregate) {
+        if (aggregate.points() == 0) {
+            return new RateAggregateDto(symbol, from, to, 0, null, null, null, null, null);
+        }
+        BigDecimal average = rates.toRate(aggregate.sum())
+                .divide(BigDecimal.valueOf(aggregate.points()), rates.scale(), RoundingMode.HALF_UP);
+        return new RateAggregateDto(symbol, from, to, aggregate.points(), rates.toRate(aggregate.min()), rates.toRate(aggregate.max()),
+                average, rates.toRate(aggregate.last()), LocalDate.ofEpochDay(aggregate.lastDay()));
+    }
+
+    /**
+     * Rates of one currency read from the database, in table date order.
+     */
+    private static final class Points {
+
+        private int[] days = new int[256];
+        private BigDecimal[] rates = new BigDecimal[256];
+        private int count;
+
+        private void add(int day, BigDecimal rate) {
+            if (count == days.length) {
+                days = Arrays.copyOf(days, count * 2);
+                rates = Arrays.copyOf(rates, count * 2);
+            }
+            days[count] = day;
+            rates[count] = rate;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.RateLimitProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the database: token buckets per client and per account, and a limit on
+ * concurrently processed requests sized to the connection pool, so that excess load is rejected before it
+ * waits for a connection.
+ */
+@Component
+public class RateLimiter {
+
+    private final TokenBuckets<String> clientBuckets;
+    private final TokenBuckets<UUID> accountBuckets;
+    private final Semaphore slots;
+    private final int maxConcurrentRequests;
+    private final long admissionTimeoutNanos;
+    private final Counter clientRejections;
+    private final Counter accountRejections;
+    private final Counter capacityRejections;
+    private final Counter concurrencyRejections;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry,
+                       ObjectProvider<DataSource> dataSource, TaskScheduler taskScheduler) {
+        long idleNanos = properties.idleExpiry().toNanos();
+        this.clientBuckets = new TokenBuckets<>(properties.clientRate(), properties.clientBurst(),
+                properties.maxBuckets(), idleNanos, System::nanoTime);
+        this.accountBuckets = new TokenBuckets<>(properties.accountRate(), properties.accountBurst(),
+                properties.maxBuckets(), idleNanos, System::nanoTime);
+        this.maxConcurrentRequests = properties.maxConcurrentRequests() > 0
+                ? properties.maxConcurrentRequests() : poolSize(dataSource.getIfAvailable());
+        this.slots = new Semaphore(maxConcurrentRequests);
+        this.admissionTimeoutNanos = properties.admissionTimeout().toNanos();
+
+        this.clientRejections = rejections(meterRegistry, "client");
+        this.accountRejections = rejections(meterRegistry, "account");
+        this.capacityRejections = rejections(meterRegistry, "capacity");
+        this.concurrencyRejections = rejections(meterRegistry, "concurrency");
+        Gauge.builder("rate.limit.buckets", clientBuckets, TokenBuckets::size).tag("scope", "client")
+                .description("Tracked rate limit buckets").register(meterRegistry);
+        Gauge.builder("rate.limit.buckets", accountBuckets, TokenBuckets::size).tag("scope", "account")
+                .description("Tracked rate limit buckets").register(meterRegistry);
+        Gauge.builder("rate.limit.rate", properties, RateLimitProperties::clientRate).tag("scope", "client")
+                .description("Sustained requests per second allowed").register(meterRegistry);
+        Gauge.builder("rate.limit.rate", properties, RateLimitProperties::accountRate).tag("scope", "account")
+                .description("Sustained requests per second allowed").register(meterRegistry);
+        Gauge.builder("admission.limit", this, limiter -> limiter.maxConcurrentRequests)
+                .description("Requests processed at once").register(meterRegistry);
+        Gauge.builder("admission.in.flight", slots, semaphore -> maxConcurrentRequests - semaphore.availablePermits())
+                .description("Requests being processed").register(meterRegistry);
+
+        taskScheduler.scheduleWithFixedDelay(this::evictIdle, properties.idleExpiry());
+    }
+
+    /**
+     * Takes a token for a client.
+     *
+     * @param client the API key, or the remote address of clients without one
+     * @return 0 if admitted, otherwise the nanoseconds until the client may retry
+     */
+    public long admitClient(String client) {
+        return rejected(clientBuckets.tryAcquire(client), clientRejections);
+    }
+
+    /**
+     * Takes a token for an account.
+     *
+     * @param accountId the account the request operates on
+     * @return 0 if admitted, otherwise the nanoseconds until requests for the account may be retried
+     */
+    public long admitAccount(UUID accountId) {
+        return rejected(accountBuckets.tryAcquire(accountId), accountRejections);
+    }
+
+    /**
+     * Waits up to the admission timeout for a processing slot. Every successful call has to be followed by
+     * {@link #release()}.
+     *
+     * @return whether a slot was acquired
+     */
+    public boolean acquire() {
+        try {
+            if (slots.tryAcquire() || slots.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        concurrencyRejections.increment();
+        return false;
+    }
+
+    /**
+     * Waits for a processing slot for as long as it takes. Meant for work that its caller already queues and
+     * flow controls, such as streamed commands. Every call has to be followed by {@link #release()}.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitSlot() throws InterruptedException {
+        slots.acquire();
+    }
+
+    /**
+     * Returns how many requests may be processed at once.
+     */
+    public int maxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Frees a slot taken with {@link #acquire()} or {@link #awaitSlot()}.
+     */
+    public void release() {
+        slots.release();
+    }
+
+    private long rejected(long waitNanos, Counter counter) {
+        if (waitNanos == TokenBuckets.NO_CAPACITY) {
+            capacityRejections.increment();
+            return TimeUnit.SECONDS.toNanos(1);
+        }
+        if (waitNanos > 0) {
+            counter.increment();
+        }
+        return waitNanos;
+    }
+
+    private void evictIdle() {
+        clientBuckets.evictIdle();
+        accountBuckets.evictIdle();
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        return dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("rate.limit.rejected").tag("reason", reason)
+                .description("Requests rejected with 429 before reaching the database").register(meterRegistry);
+    }
+}
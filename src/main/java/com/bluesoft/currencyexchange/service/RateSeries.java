@@ -0,0 +1,351 @@
+package com.bluesoft.currencyexchange.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An append-only series of daily rates of one currency in a memory-mapped file, which answers window aggregates
+ * without touching the heap or the database.
+ * <p>
+ * The file is columnar. After a header come the days (epoch days) and the mid rates (scaled to longs) of up to
+ * {@code capacity} points, followed by the min, max and sum of every block of {@code blockSize} points. Points are
+ * kept in day order, so a window is found with two binary searches on the day column, and its aggregate reads the
+ * summaries of the blocks it covers completely and the points of at most two partial blocks.
+ * <p>
+ * The point count in the header is written last, and the summary of the last block is recomputed on open, so a crash
+ * during an append leaves the previous points intact. A full file is copied into one of twice the capacity, which
+ * replaces it atomically.
+ */
+public final class RateSeries {
+
+    /**
+     * Aggregate of the points of a window, in scaled rates. {@code sum / points} is the average.
+     */
+    public record Aggregate(int points, int firstDay, int lastDay, long min, long max, long sum, long last) {
+
+        public static final Aggregate EMPTY = new Aggregate(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * "RTS1" in ASCII.
+     */
+    private static final int MAGIC = 0x52545331;
+    private static final int SCALE_OFFSET = 4;
+    private static final int BLOCK_SIZE_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int HEADER_BYTES = 32;
+    private static final int POINT_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int BLOCK_BYTES = 3 * Long.BYTES;
+    static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_BYTES) / (POINT_BYTES + BLOCK_BYTES);
+
+    private final Path file;
+    private final int scale;
+    private final int blockSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    private RateSeries(Path file, int scale, int blockSize, MappedByteBuffer buffer) {
+        this.file = file;
+        this.scale = scale;
+        this.blockSize = blockSize;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.count = buffer.getInt(COUNT_OFFSET);
+        if (count > 0) {
+            summarize(buffer, capacity, blockSize, (count - 1) / blockSize, count);
+        }
+    }
+
+    /**
+     * Maps an existing series file, or creates an empty one.
+     *
+     * @param file the series file
+     * @param scale decimal places of the stored rates
+     * @param blockSize points per block summary
+     * @param initialCapacity points a new file has room for before it grows
+     * @return the series
+     * @throws IllegalStateException if the file is not a series file or was written with another scale or block size
+     */
+    public static RateSeries open(Path file, int scale, int blockSize, int initialCapacity) throws IOException {
+        if (!Files.exists(file)) {
+            return create(file, scale, blockSize, initialCapacity, new int[0], new long[0], 0);
+        }
+        long size = Files.size(file);
+        if (size < HEADER_BYTES) {
+            throw new IllegalStateException(file + " is not a rate series.");
+        }
+        MappedByteBuffer buffer = map(file, size);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException(file + " is not a rate series.");
+        }
+        if (buffer.getInt(SCALE_OFFSET) != scale || buffer.getInt(BLOCK_SIZE_OFFSET) != blockSize) {
+            throw new IllegalStateException(file + " was written with scale " + buffer.getInt(SCALE_OFFSET)
+                    + " and block size " + buffer.getInt(BLOCK_SIZE_OFFSET) + ".");
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        int count = buffer.getInt(COUNT_OFFSET);
+        if (capacity <= 0 || capacity > MAX_CAPACITY || capacity % blockSize != 0 || count < 0 || count > capacity
+                || size < size(capacity, blockSize)) {
+            throw new IllegalStateException(file + " is truncated or corrupt.");
+        }
+        return new RateSeries(file, scale, blockSize, buffer);
+    }
+
+    /**
+     * Writes a series file with the given points, replacing the file atomically if it exists.
+     *
+     * @param file the series file
+     * @param scale decimal places of the stored rates
+     * @param blockSize points per block summary
+     * @param capacity points the file has room for before it grows, at least {@code count}
+     * @param days the epoch days of the points, strictly increasing
+     * @param rates the scaled rates of the points
+     * @param count the number of points
+     * @return the series
+     * @throws IllegalArgumentException if the days are not strictly increasing
+     */
+    public static RateSeries create(Path file, int scale, int blockSize, int capacity, int[] days, long[] rates, int count) throws IOException {
+        for (int i = 1; i < count; i++) {
+            if (days[i] <= days[i - 1]) {
+                throw new IllegalArgumentException("Rate series days must be strictly increasing.");
+            }
+        }
+        return new RateSeries(file, scale, blockSize, write(file, scale, blockSize, Math.max(capacity, count), days, rates, count));
+    }
+
+    /**
+     * Appends the rate of a day. A later day is added as a new point, the rate of the last day replaces the stored
+     * one and earlier days are ignored.
+     *
+     * @param day the epoch day
+     * @param rate the scaled rate
+     * @return whether the series changed
+     * @throws IllegalStateException if the series is at its maximum capacity
+     */
+    public boolean append(int day, long rate) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (count > 0) {
+                int last = count - 1;
+                int lastDay = buffer.getInt(dayOffset(last));
+                if (day < lastDay || day == lastDay && buffer.getLong(rateOffset(capacity, last)) == rate) {
+                    return false;
+                }
+                if (day == lastDay) {
+                    buffer.putLong(rateOffset(capacity, last), rate);
+                    summarize(buffer, capacity, blockSize, last / blockSize, count);
+                    return true;
+                }
+            }
+            if (count == capacity) {
+                grow();
+            }
+            buffer.putInt(dayOffset(count), day);
+            buffer.putLong(rateOffset(capacity, count), rate);
+            summarize(buffer, capacity, blockSize, count / blockSize, count + 1);
+            count++;
+            buffer.putInt(COUNT_OFFSET, count);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates the points of the days {@code fromDay} to {@code toDay}, both inclusive.
+     *
+     * @return the aggregate, {@link Aggregate#EMPTY} if there are no points in the window
+     */
+    public Aggregate aggregate(int fromDay, int toDay) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(fromDay);
+            int to = toDay == Integer.MAX_VALUE ? count : lowerBound(toDay + 1);
+            if (from >= to) {
+                return Aggregate.EMPTY;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long sum = 0;
+            int i = from;
+            while (i < to) {
+                if (i % blockSize == 0 && i + blockSize <= to) {
+                    int offset = blockOffset(capacity, i / blockSize);
+                    min = Math.min(min, buffer.getLong(offset));
+                    max = Math.max(max, buffer.getLong(offset + Long.BYTES));
+                    sum += buffer.getLong(offset + 2 * Long.BYTES);
+                    i += blockSize;
+                } else {
+                    long rate = buffer.getLong(rateOffset(capacity, i));
+                    min = Math.min(min, rate);
+                    max = Math.max(max, rate);
+                    sum += rate;
+                    i++;
+                }
+            }
+            return new Aggregate(to - from, buffer.getInt(dayOffset(from)), buffer.getInt(dayOffset(to - 1)),
+                    min, max, sum, buffer.getLong(rateOffset(capacity, to - 1)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of points
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the mapped pages to the file.
+     */
+    public void force() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the rate as stored, rounded half up to the scale of the series
+     * @throws ArithmeticException if the scaled rate does not fit into a long
+     */
+    public long toScaled(BigDecimal rate) {
+        return toScaled(rate, scale);
+    }
+
+    /**
+     * @return the rate as stored with the given scale, rounded half up
+     * @throws ArithmeticException if the scaled rate does not fit into a long
+     */
+    public static long toScaled(BigDecimal rate, int scale) {
+        return rate.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @return the rate of a stored value
+     */
+    public BigDecimal toRate(long scaled) {
+        return BigDecimal.valueOf(scaled, scale);
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException(file + " holds the maximum of " + MAX_CAPACITY + " points.");
+        }
+        int[] days = new int[count];
+        long[] rates = new long[count];
+        for (int i = 0; i < count; i++) {
+            days[i] = buffer.getInt(dayOffset(i));
+            rates[i] = buffer.getLong(rateOffset(capacity, i));
+        }
+        buffer = write(file, scale, blockSize, (int) Math.min(2L * capacity, MAX_CAPACITY), days, rates, count);
+        capacity = buffer.getInt(CAPACITY_OFFSET);
+    }
+
+    /**
+     * @return the index of the first point on or after the day, {@code count} if there is none
+     */
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getInt(dayOffset(middle)) < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static MappedByteBuffer write(Path file, int scale, int blockSize, int capacity, int[] days, long[] rates, int count) throws IOException {
+        int blocks = Math.max(1, (capacity + blockSize - 1) / blockSize);
+        int rounded = blocks * blockSize;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        MappedByteBuffer buffer = map(temp, size(rounded, blockSize));
+        buffer.putInt(0, MAGIC)
+                .putInt(SCALE_OFFSET, scale)
+                .putInt(BLOCK_SIZE_OFFSET, blockSize)
+                .putInt(CAPACITY_OFFSET, rounded);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(dayOffset(i), days[i]);
+            buffer.putLong(rateOffset(rounded, i), rates[i]);
+        }
+        for (int block = 0; block * blockSize < count; block++) {
+            summarize(buffer, rounded, blockSize, block, count);
+        }
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.force();
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return buffer;
+    }
+
+    private static void summarize(ByteBuffer buffer, int capacity, int blockSize, int block, int count) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long sum = 0;
+        for (int i = block * blockSize; i < Math.min((block + 1) * blockSize, count); i++) {
+            long rate = buffer.getLong(rateOffset(capacity, i));
+            min = Math.min(min, rate);
+            max = Math.max(max, rate);
+            sum += rate;
+        }
+        int offset = blockOffset(capacity, block);
+        buffer.putLong(offset, min)
+                .putLong(offset + Long.BYTES, max)
+                .putLong(offset + 2 * Long.BYTES, sum);
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static long size(int capacity, int blockSize) {
+        return HEADER_BYTES + (long) capacity * POINT_BYTES + (long) (capacity / blockSize) * BLOCK_BYTES;
+    }
+
+    private static int dayOffset(int index) {
+        return HEADER_BYTES + index * Integer.BYTES;
+    }
+
+    private static int rateOffset(int capacity, int index) {
+        return HEADER_BYTES + capacity * Integer.BYTES + index * Long.BYTES;
+    }
+
+    private static int blockOffset(int capacity, int block) {
+        return HEADER_BYTES + capacity * POINT_BYTES + block * BLOCK_BYTES;
+    }
+}
@@ -0,0 +1,61 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.RateSnapshotRecord;
+import com.bluesoft.currencyexchange.repository.RateSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Polls NBP for the current rate and, whenever it changes, stores it in {@code rate_snapshot} and publishes a
+ * {@link RateSnapshot} application event. In cluster mode {@link ClusterRateRefresher} takes over, so that the
+ * instances do not poll NBP each.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("${currency.rates.polling.enabled:true} and !${currency.cluster.enabled:false}")
+public class RateSnapshotPoller {
+
+    private final CurrencyRateProvider currencyRateProvider;
+    private final RateSnapshotRepository rateSnapshotRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String instanceName = ManagementFactory.getRuntimeMXBean().getName();
+    private volatile RateSnapshot lastSnapshot;
+
+    @Scheduled(fixedDelayString = "${currency.rates.polling.interval:PT1M}")
+    public void poll() {
+        RateSnapshot snapshot;
+        try {
+            snapshot = currencyRateProvider.getUsdSnapshot();
+        } catch (RuntimeException ex) {
+            log.warn("Could not fetch rate snapshot: {}", ex.getMessage());
+            return;
+        }
+        RateSnapshot previous = lastSnapshot;
+        if (previous != null && previous.mid().compareTo(snapshot.mid()) == 0
+                && previous.effectiveDate().equals(snapshot.effectiveDate())) {
+            return;
+        }
+        lastSnapshot = snapshot;
+        try {
+            // the history that RateHistoryService rebuilds its files from
+            rateSnapshotRepository.save(RateSnapshotRecord.builder()
+                    .symbol(snapshot.symbol())
+                    .mid(snapshot.mid())
+                    .effectiveDate(snapshot.effectiveDate())
+                    .fetchedAt(snapshot.fetchedAt())
+                    .fetchedBy(instanceName)
+                    .build());
+        } catch (RuntimeException ex) {
+            log.warn("Could not store rate snapshot: {}", ex.getMessage());
+        }
+        eventPublisher.publishEvent(snapshot);
+    }
+}
@@ -0,0 +1,285 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ReconciliationProperties;
+import com.bluesoft.currencyexchange.dto.ReconciliationStatusDto;
+import com.bluesoft.currencyexchange.dto.ReconciliationStatusDto.State;
+import com.bluesoft.currencyexchange.exception.ReconciliationRunningException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that every currency account balance equals the sum of its ledger entries, i.e. its opening balance plus
+ * every change recorded since. Archived entries count through their {@code ledger_carry_forward} sum.
+ * <p>
+ * The account id space is split into {@link ReconciliationProperties#partitions()} ranges and reconciled as a
+ * {@link PartitionedRun}. Each partition is one query that joins the currency accounts of the range with the ledger
+ * totals of the same range, so both sides come from one snapshot even while exchanges go on, and is streamed through
+ * a cursor of {@link ReconciliationProperties#fetchSize()} rows. The number of workers is capped so that no more than
+ * {@link ReconciliationProperties#maxInFlightRows()} fetched rows are held at a time.
+ * <p>
+ * Discrepancies are appended to a CSV report when their partition completes, and the report size at that point is
+ * recorded in the checkpoint. Until then a partition holds at most its share of
+ * {@link ReconciliationProperties#maxInFlightRows()} discrepancies in memory and spills further chunks to a file of
+ * its own. A run that was stopped or crashed resumes with the partitions the checkpoint does not list, after cutting
+ * the report back to the last recorded size, so every discrepancy is reported once.
+ */
+@Slf4j
+@Service
+public class ReconciliationService {
+
+    static final String CHECKPOINT = "reconciliation.checkpoint";
+    static final String SPILL_GLOB = "discrepancies-*.part";
+    static final String REPORT_HEADER = "account_id,currency_account_id,symbol,balance,ledger_total,difference\n";
+    private static final DateTimeFormatter REPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    private static final String PARTITION_QUERY = """
+            SELECT ca.account_id, ca.id, ca.symbol, ca.balance, l.total
+            FROM currency_account ca
+            LEFT JOIN (SELECT currency_account_id, SUM(amount) AS total
+                       FROM (SELECT currency_account_id, amount FROM ledger_entry WHERE account_id BETWEEN ? AND ?
+                             UNION ALL
+                             SELECT currency_account_id, amount FROM ledger_carry_forward WHERE account_id BETWEEN ? AND ?) e
+                       GROUP BY currency_account_id) l ON l.currency_account_id = ca.id
+            WHERE ca.account_id BETWEEN ? AND ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReconciliationProperties properties;
+    private final int parallelism;
+    private final int chunkRows;
+    private final PartitionedRun run;
+    private final Counter rowCounter;
+    private final Counter discrepancyCounter;
+    private final Counter partitionCounter;
+    private final Timer partitionTimer;
+
+    private volatile Path report;
+
+    public ReconciliationService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ReconciliationProperties properties,
+                                 MeterRegistry meterRegistry) {
+        if (properties.partitions() < 1 || properties.fetchSize() < 1) {
+            throw new IllegalStateException("currency.reconciliation.partitions and fetch-size must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = properties;
+        this.parallelism = Math.max(1, Math.min(properties.parallelism(), properties.maxInFlightRows() / properties.fetchSize()));
+        this.chunkRows = Math.max(1, properties.maxInFlightRows() / parallelism);
+        this.run = new PartitionedRun("reconciliation", properties.partitions(), parallelism, "rows", "discrepancies");
+        this.rowCounter = Counter.builder("reconciliation.rows")
+                .description("Currency accounts compared with their ledger").register(meterRegistry);
+        this.discrepancyCounter = Counter.builder("reconciliation.discrepancies")
+                .description("Currency accounts whose balance differs from their ledger").register(meterRegistry);
+        this.partitionCounter = Counter.builder("reconciliation.partitions")
+                .description("Account id ranges reconciled").register(meterRegistry);
+        this.partitionTimer = Timer.builder("reconciliation.partition.duration")
+                .description("Time to reconcile one account id range").register(meterRegistry);
+    }
+
+    /**
+     * Starts a reconciliation in the background, resuming the previous one if it did not complete.
+     *
+     * @return the status of the started run
+     * @throws ReconciliationRunningException if a reconciliation is already running
+     */
+    public ReconciliationStatusDto start() {
+        if (!run.start(new Reconciliation())) {
+            throw new ReconciliationRunningException();
+        }
+        return status();
+    }
+
+    /**
+     * Starts the nightly reconciliation, scheduled with {@code currency.reconciliation.cron}.
+     */
+    @Scheduled(cron = "${currency.reconciliation.cron:-}", zone = "UTC")
+    public void startScheduled() {
+        try {
+            start();
+        } catch (ReconciliationRunningException ex) {
+            log.warn("Skipped the scheduled reconciliation: the previous one is still running");
+        }
+    }
+
+    /**
+     * Lets the running partitions finish and starts no new ones. The next run resumes from the checkpoint.
+     */
+    @PreDestroy
+    public void stop() {
+        run.stop();
+    }
+
+    /**
+     * @return the progress of the running or last reconciliation
+     */
+    public ReconciliationStatusDto status() {
+        Instant started = run.startedAt();
+        if (started == null) {
+            return ReconciliationStatusDto.IDLE;
+        }
+        Path file = report;
+        return new ReconciliationStatusDto(State.valueOf(run.state().name()), started, run.finishedAt(), run.partitions(),
+                run.completedPartitions(), run.total(0), run.total(1), run.perSecond(), file != null ? file.toString() : null);
+    }
+
+    /**
+     * Runs the reconciliation on the calling thread.
+     */
+    void run() {
+        run.run(new Reconciliation());
+    }
+
+    private long[] reconcile(int partition, RunCheckpoint checkpoint) throws IOException {
+        long start = System.nanoTime();
+        UUID[] bounds = PartitionedRun.bounds(partition, properties.partitions());
+        long[] counts = new long[2];
+        try (Discrepancies found = new Discrepancies(properties.directory().resolve("discrepancies-" + partition + ".part"), chunkRows)) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(PARTITION_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(properties.fetchSize());
+                for (int parameter = 1; parameter <= 6; parameter += 2) {
+                    statement.setObject(parameter, bounds[0]);
+                    statement.setObject(parameter + 1, bounds[1]);
+                }
+                return statement;
+            }, resultSet -> {
+                counts[0]++;
+                BigDecimal balance = Objects.requireNonNullElse(resultSet.getBigDecimal(4), BigDecimal.ZERO);
+                BigDecimal total = Objects.requireNonNullElse(resultSet.getBigDecimal(5), BigDecimal.ZERO);
+                if (balance.compareTo(total) != 0) {
+                    counts[1]++;
+                    found.add(resultSet.getString(1), resultSet.getLong(2), resultSet.getString(3), balance, total);
+                }
+            }));
+            checkpoint.complete(partition, 0, found::transferTo, counts);
+        }
+        rowCounter.increment(counts[0]);
+        discrepancyCounter.increment(counts[1]);
+        partitionCounter.increment();
+        partitionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return counts;
+    }
+
+    /**
+     * One reconciliation, writing its discrepancies to a single report shared by all workers.
+     */
+    private final class Reconciliation implements PartitionedRun.Job {
+
+        @Override
+        public String description() {
+            return "Reconciliation";
+        }
+
+        @Override
+        public RunCheckpoint open(Instant startedAt) throws IOException {
+            Path directory = properties.directory();
+            Files.createDirectories(directory);
+            // spilled by partitions that did not complete, they are reconciled again
+            try (DirectoryStream<Path> spilled = Files.newDirectoryStream(directory, SPILL_GLOB)) {
+                for (Path spill : spilled) {
+                    Files.delete(spill);
+                }
+            }
+            RunCheckpoint checkpoint = RunCheckpoint.open(directory, CHECKPOINT, String.valueOf(properties.partitions()),
+                    List.of("discrepancies-" + REPORT_TIMESTAMP.format(startedAt) + ".csv"), 2, REPORT_HEADER);
+            report = checkpoint.outputFile(0);
+            log.info("Reconciling {} partitions with parallelism {}, {} already done, report {}",
+                    properties.partitions(), parallelism, checkpoint.completed().size(), report);
+            return checkpoint;
+        }
+
+        @Override
+        public PartitionedRun.Worker worker(int worker, RunCheckpoint checkpoint) {
+            return partition -> reconcile(partition, checkpoint);
+        }
+    }
+
+    /**
+     * The discrepancies found in one partition. Up to {@code chunkRows} of them are held in memory, every further
+     * chunk is appended to a spill file of the partition. They only reach the report when the partition completes,
+     * because a resumed run can cut the report back to the end of a completed partition only.
+     */
+    static final class Discrepancies implements AutoCloseable {
+
+        private final Path spillFile;
+        private final int chunkRows;
+        private final StringBuilder chunk = new StringBuilder();
+        private int rowsInChunk;
+        private FileChannel spill;
+
+        Discrepancies(Path spillFile, int chunkRows) {
+            this.spillFile = spillFile;
+            this.chunkRows = chunkRows;
+        }
+
+        void add(String accountId, long currencyAccountId, String symbol, BigDecimal balance, BigDecimal total) {
+            chunk.append(accountId).append(',').append(currencyAccountId).append(',').append(symbol).append(',')
+                    .append(balance.toPlainString()).append(',').append(total.toPlainString()).append(',')
+                    .append(balance.subtract(total).toPlainString()).append('\n');
+            if (++rowsInChunk == chunkRows) {
+                try {
+                    if (spill == null) {
+                        spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    }
+                    RunCheckpoint.write(spill, chunk, false);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Could not spill discrepancies to " + spillFile, ex);
+                }
+                chunk.setLength(0);
+                rowsInChunk = 0;
+            }
+        }
+
+        /**
+         * Appends the spilled and the held discrepancies to the report.
+         */
+        void transferTo(FileChannel report) throws IOException {
+            if (spill != null) {
+                long size = spill.position();
+                for (long position = 0; position < size; ) {
+                    position += spill.transferTo(position, size - position, report);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                RunCheckpoint.write(report, chunk, false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spill != null) {
+                spill.close();
+                Files.delete(spillFile);
+            }
+        }
+    }
+}
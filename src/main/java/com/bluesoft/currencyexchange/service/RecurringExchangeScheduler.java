@@ -0,0 +1,79 @@
+package com.bluesoft.currencyexchange.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Periodically claims due recurring exchanges in batches and executes them.
+ * <p>
+ * Claims use {@code FOR UPDATE SKIP LOCKED} and a lease, so any number of instances can run the scheduler
+ * against the same database. All runs executed in one pass share a single rate snapshot.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "currency.recurring.enabled", havingValue = "true", matchIfMissing = true)
+public class RecurringExchangeScheduler {
+
+    private final RecurringExchangeService recurringExchangeService;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Timer lag;
+
+    public RecurringExchangeScheduler(RecurringExchangeService recurringExchangeService,
+                                      CurrencyRateProvider currencyRateProvider,
+                                      MeterRegistry meterRegistry) {
+        this.recurringExchangeService = recurringExchangeService;
+        this.currencyRateProvider = currencyRateProvider;
+        this.succeeded = Counter.builder("recurring.exchange.runs").tag("outcome", "succeeded")
+                .description("Executed recurring exchange runs").register(meterRegistry);
+        this.failed = Counter.builder("recurring.exchange.runs").tag("outcome", "failed")
+                .description("Executed recurring exchange runs").register(meterRegistry);
+        this.lag = Timer.builder("recurring.exchange.lag")
+                .description("Delay between the scheduled and the actual execution of a recurring exchange")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${currency.recurring.poll-interval:PT10S}")
+    public void runDueExchanges() {
+        UUID runId = UUID.randomUUID();
+        BigDecimal usdToPlnRate = null;
+        List<Long> claimed = recurringExchangeService.claimDue(Instant.now(), runId);
+        while (!claimed.isEmpty()) {
+            if (usdToPlnRate == null) {
+                usdToPlnRate = currencyRateProvider.getUsdToPlnRate();
+            }
+            for (Long scheduleId : claimed) {
+                runOne(scheduleId, runId, usdToPlnRate);
+            }
+            claimed = recurringExchangeService.claimDue(Instant.now(), runId);
+        }
+    }
+
+    private void runOne(Long scheduleId, UUID runId, BigDecimal usdToPlnRate) {
+        try {
+            Optional<Instant> scheduledAt = recurringExchangeService.execute(scheduleId, runId, usdToPlnRate);
+            scheduledAt.ifPresent(at -> {
+                succeeded.increment();
+                lag.record(Duration.between(at, Instant.now()));
+            });
+        } catch (RuntimeException ex) {
+            log.info("Recurring exchange {} failed: {}", scheduleId, ex.getMessage());
+            recurringExchangeService.recordFailure(scheduleId, runId, ex.getMessage());
+            failed.increment();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.RecurringExchangeProperties;
+import com.bluesoft.currencyexchange.dto.CreateRecurringExchangeRequest;
+import com.bluesoft.currencyexchange.dto.RecurringExchangeDto;
+import com.bluesoft.currencyexchange.entity.RecurringExchange;
+import com.bluesoft.currencyexchange.entity.RecurringExchangeOutcome;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.RecurringExchangeNotFoundException;
+import com.bluesoft.currencyexchange.mapper.RecurringExchangeMapper;
+import com.bluesoft.currencyexchange.repository.RecurringExchangeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service for recurring exchange schedules and for claiming and executing their due runs.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecurringExchangeService {
+
+    private final RecurringExchangeRepository recurringExchangeRepository;
+    private final RecurringExchangeMapper recurringExchangeMapper;
+    private final RecurringExchangeProperties properties;
+    private final CurrencyExchangeService currencyExchangeService;
+
+    /**
+     * Creates a schedule that exchanges the given amount at every occurrence of a cron expression.
+     *
+     * @param request the schedule to create
+     * @return the stored schedule
+     * @throws InvalidCurrencyExchangeException if both currencies are the same
+     * @throws IllegalArgumentException if the cron expression is invalid
+     */
+    public RecurringExchangeDto createSchedule(CreateRecurringExchangeRequest request) {
+        if (request.fromCurrency().equals(request.toCurrency())) {
+            throw InvalidCurrencyExchangeException.sameCurrency();
+        }
+        CronExpression cron = CronExpression.parse(request.cron());
+        RecurringExchange schedule = recurringExchangeRepository.save(RecurringExchange.builder()
+                .accountId(request.accountId())
+                .amount(request.amount())
+                .fromCurrency(request.fromCurrency())
+                .toCurrency(request.toCurrency())
+                .cron(request.cron())
+                .active(true)
+                .nextRunAt(nextRun(cron, Instant.now()))
+                .createdAt(Instant.now())
+                .build());
+        return recurringExchangeMapper.toDto(schedule);
+    }
+
+    /**
+     * Retrieves a schedule.
+     *
+     * @param scheduleId the schedule id
+     * @return the schedule
+     * @throws RecurringExchangeNotFoundException if the schedule does not exist
+     */
+    public RecurringExchangeDto getSchedule(Long scheduleId) {
+        return recurringExchangeMapper.toDto(findSchedule(scheduleId));
+    }
+
+    /**
+     * Stops a schedule. Runs already claimed by the scheduler are still executed.
+     *
+     * @param scheduleId the schedule id
+     * @throws RecurringExchangeNotFoundException if the schedule does not exist
+     */
+    @Transactional
+    public void deactivateSchedule(Long scheduleId) {
+        findSchedule(scheduleId).setActive(false);
+    }
+
+    /**
+     * Leases a batch of due schedules to the caller.
+     *
+     * @param now the reference time for due runs
+     * @param leaseOwner identifies the claiming run
+     * @return the ids of the claimed schedules
+     */
+    @Transactional
+    public List<Long> claimDue(Instant now, UUID leaseOwner) {
+        List<RecurringExchange> due = recurringExchangeRepository.lockDue(now, properties.batchSize());
+        Instant leasedUntil = now.plus(properties.lease());
+        due.forEach(schedule -> {
+            schedule.setLeaseOwner(leaseOwner);
+            schedule.setLeasedUntil(leasedUntil);
+        });
+        return due.stream().map(RecurringExchange::getId).toList();
+    }
+
+    /**
+     * Executes one claimed run and moves the schedule to its next occurrence in the same transaction,
+     * so a run is never executed twice. The schedule row stays locked until then, so a run that outlives its lease
+     * is not claimed again by another instance.
+     *
+     * @param scheduleId the schedule id
+     * @param leaseOwner the run that claimed the schedule
+     * @param usdToPlnRate the rate snapshot shared by the whole run
+     * @return the scheduled time of the executed run, or empty if the lease was lost
+     */
+    @Transactional
+    public Optional<Instant> execute(Long scheduleId, UUID leaseOwner, BigDecimal usdToPlnRate) {
+        RecurringExchange schedule = lockSchedule(scheduleId);
+        if (!leaseOwner.equals(schedule.getLeaseOwner())) {
+            return Optional.empty();
+        }
+        Instant scheduledAt = schedule.getNextRunAt();
+        currencyExchangeService.exchangeCurrencyAtRate(schedule.getAccountId(), schedule.getAmount(),
+                schedule.getFromCurrency(), schedule.getToCurrency(), usdToPlnRate);
+        complete(schedule, RecurringExchangeOutcome.SUCCEEDED, null);
+        return Optional.of(scheduledAt);
+    }
+
+    /**
+     * Records a failed run and moves the schedule to its next occurrence.
+     *
+     * @param scheduleId the schedule id
+     * @param leaseOwner the run that claimed the schedule
+     * @param reason why the exchange failed
+     */
+    @Transactional
+    public void recordFailure(Long scheduleId, UUID leaseOwner, String reason) {
+        RecurringExchange schedule = lockSchedule(scheduleId);
+        if (leaseOwner.equals(schedule.getLeaseOwner())) {
+            complete(schedule, RecurringExchangeOutcome.FAILED, reason);
+        }
+    }
+
+    private void complete(RecurringExchange schedule, RecurringExchangeOutcome outcome, String error) {
+        Instant now = Instant.now();
+        schedule.setLastRunAt(now);
+        schedule.setLastOutcome(outcome);
+        schedule.setLastError(error);
+        schedule.setNextRunAt(nextRun(CronExpression.parse(schedule.getCron()), now));
+        schedule.setLeaseOwner(null);
+        schedule.setLeasedUntil(null);
+    }
+
+    private Instant nextRun(CronExpression cron, Instant after) {
+        return cron.next(after.atZone(properties.zone())).toInstant();
+    }
+
+    private RecurringExchange findSchedule(Long scheduleId) {
+        return recurringExchangeRepository.findById(scheduleId)
+                .orElseThrow(() -> new RecurringExchangeNotFoundException("There is no recurring exchange with id : '" + scheduleId + "'."));
+    }
+
+    private RecurringExchange lockSchedule(Long scheduleId) {
+        return recurringExchangeRepository.findWithLockById(scheduleId)
+                .orElseThrow(() -> new RecurringExchangeNotFoundException("There is no recurring exchange with id : '" + scheduleId + "'."));
+    }
+}
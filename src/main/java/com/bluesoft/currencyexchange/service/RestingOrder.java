@@ -0,0 +1,30 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+
+import java.math.BigDecimal;
+
+/**
+ * The part of an open limit order the {@link LimitOrderBook} needs for matching.
+ *
+ * @param id the limit order id
+ * @param fromCurrency the currency to exchange from
+ * @param toCurrency the currency to exchange to
+ * @param triggerCondition whether the order fires at or below, or at or above the trigger rate
+ * @param triggerRate the PLN mid rate of the non-PLN currency that fires the order
+ */
+public record RestingOrder(Long id,
+                           Symbol fromCurrency,
+                           Symbol toCurrency,
+                           TriggerCondition triggerCondition,
+                           BigDecimal triggerRate
+) {
+
+    /**
+     * @return the non-PLN side of the pair, whose mid rate is watched
+     */
+    public Symbol quotedCurrency() {
+        return fromCurrency == Symbol.PLN ? toCurrency : fromCurrency;
+    }
+}
@@ -0,0 +1,210 @@
+package com.bluesoft.currencyexchange.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The output files and the checkpoint of a {@link PartitionedRun}. The first checkpoint line holds the settings of the
+ * run followed by the names of its output files; every further line records a completed partition as
+ * {@code partition output counts... outputSize}, where the counts are whatever the job counts per partition. Lines
+ * with partition -1 record the size of each output file before the first partition.
+ */
+@Slf4j
+final class RunCheckpoint implements AutoCloseable {
+
+    /**
+     * Writes the output of a partition, see {@link #complete(int, int, Output, long...)}.
+     */
+    @FunctionalInterface
+    interface Output {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    private final Path file;
+    private final FileChannel checkpointChannel;
+    private final Path[] outputFiles;
+    private final FileChannel[] outputs;
+    private final Set<Integer> completed;
+    private final long[] totals;
+
+    private RunCheckpoint(Path file, FileChannel checkpointChannel, Path[] outputFiles, FileChannel[] outputs,
+                          Set<Integer> completed, long[] totals) {
+        this.file = file;
+        this.checkpointChannel = checkpointChannel;
+        this.outputFiles = outputFiles;
+        this.outputs = outputs;
+        this.completed = completed;
+        this.totals = totals;
+    }
+
+    /**
+     * Resumes the run recorded in a checkpoint, cutting every output file back to its last recorded size, or starts
+     * a new one when there is none, it was written with other settings or an output file is gone.
+     *
+     * @param directory where the checkpoint and the output files are
+     * @param name the file name of the checkpoint
+     * @param settings what a checkpoint must have been written with to be resumed
+     * @param outputNames the output file names of a new run; a resumed run keeps the names in its checkpoint
+     * @param counts how many counts are recorded per partition
+     * @param prologue written to every output file of a new run, if not null
+     */
+    static RunCheckpoint open(Path directory, String name, String settings, List<String> outputNames, int counts,
+                              String prologue) throws IOException {
+        Path file = directory.resolve(name);
+        if (Files.exists(file)) {
+            // a line cut short by a crash has no line break yet and is ignored, its partition runs again
+            String content = Files.readString(file, StandardCharsets.US_ASCII);
+            int length = content.lastIndexOf('\n') + 1;
+            String[] lines = content.substring(0, length).split("\n");
+            String[] names = lines[0].startsWith(settings + " ") ? lines[0].substring(settings.length() + 1).split(" ") : new String[0];
+            if (names.length == outputNames.size() && exist(directory, names)) {
+                Set<Integer> completed = new HashSet<>();
+                long[] totals = new long[counts];
+                long[] sizes = new long[names.length];
+                for (int i = 1; i < lines.length; i++) {
+                    String[] fields = lines[i].split(" ");
+                    int partition = Integer.parseInt(fields[0]);
+                    int output = Integer.parseInt(fields[1]);
+                    if (partition >= 0) {
+                        completed.add(partition);
+                        for (int count = 0; count < counts; count++) {
+                            totals[count] += Long.parseLong(fields[2 + count]);
+                        }
+                    }
+                    sizes[output] = Math.max(sizes[output], Long.parseLong(fields[2 + counts]));
+                }
+                Path[] outputFiles = new Path[names.length];
+                FileChannel[] outputs = new FileChannel[names.length];
+                for (int output = 0; output < names.length; output++) {
+                    outputFiles[output] = directory.resolve(names[output]);
+                    outputs[output] = FileChannel.open(outputFiles[output], StandardOpenOption.WRITE);
+                    outputs[output].truncate(sizes[output]);
+                    outputs[output].position(sizes[output]);
+                }
+                FileChannel checkpointChannel = FileChannel.open(file, StandardOpenOption.WRITE);
+                checkpointChannel.truncate(length);
+                checkpointChannel.position(length);
+                return new RunCheckpoint(file, checkpointChannel, outputFiles, outputs, completed, totals);
+            }
+            log.warn("Starting anew, the checkpoint {} does not match this run", file);
+        }
+        Path[] outputFiles = new Path[outputNames.size()];
+        FileChannel[] outputs = new FileChannel[outputNames.size()];
+        for (int output = 0; output < outputs.length; output++) {
+            outputFiles[output] = directory.resolve(outputNames.get(output));
+            outputs[output] = FileChannel.open(outputFiles[output], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            if (prologue != null) {
+                write(outputs[output], prologue, false);
+            }
+        }
+        FileChannel checkpointChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        StringBuilder header = new StringBuilder(settings);
+        for (String outputName : outputNames) {
+            header.append(' ').append(outputName);
+        }
+        write(checkpointChannel, header.append('\n'), true);
+        // a resumed run cuts an output file back to the largest recorded size, which is at least its prologue
+        for (int output = 0; output < outputs.length; output++) {
+            outputs[output].force(false);
+            write(checkpointChannel, line(-1, output, new long[counts], outputs[output].position()), true);
+        }
+        return new RunCheckpoint(file, checkpointChannel, outputFiles, outputs, new HashSet<>(), new long[counts]);
+    }
+
+    private static boolean exist(Path directory, String[] names) {
+        for (String name : names) {
+            if (!Files.exists(directory.resolve(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the channel of an output file, positioned at its end; written by one worker at a time
+     */
+    FileChannel output(int output) {
+        return outputs[output];
+    }
+
+    Path outputFile(int output) {
+        return outputFiles[output];
+    }
+
+    /**
+     * Records a partition whose output is already written, after forcing its output file to disk.
+     */
+    void complete(int partition, int output, long... counts) throws IOException {
+        complete(partition, output, channel -> {}, counts);
+    }
+
+    /**
+     * Writes the output of a partition and records the partition once it is on disk. Partitions sharing an output
+     * file write it here, one at a time, so the recorded size never includes part of a partition.
+     */
+    synchronized void complete(int partition, int output, Output writer, long... counts) throws IOException {
+        FileChannel channel = outputs[output];
+        writer.writeTo(channel);
+        channel.force(false);
+        write(checkpointChannel, line(partition, output, counts, channel.position()), true);
+    }
+
+    Set<Integer> completed() {
+        return completed;
+    }
+
+    /**
+     * @return the sum of a count over the partitions completed before the run resumed
+     */
+    long total(int count) {
+        return totals[count];
+    }
+
+    void delete() throws IOException {
+        checkpointChannel.close();
+        Files.delete(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (checkpointChannel) {
+            for (FileChannel output : outputs) {
+                output.close();
+            }
+        }
+    }
+
+    private static CharSequence line(int partition, int output, long[] counts, long size) {
+        StringBuilder line = new StringBuilder().append(partition).append(' ').append(output);
+        for (long count : counts) {
+            line.append(' ').append(count);
+        }
+        return line.append(' ').append(size).append('\n');
+    }
+
+    /**
+     * Writes text encoded as UTF-8 at the position of a channel.
+     */
+    static void write(FileChannel channel, CharSequence text, boolean force) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.StatementProperties;
+import com.bluesoft.currencyexchange.dto.StatementRunDto;
+import com.bluesoft.currencyexchange.dto.StatementRunDto.State;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.StatementRunningException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the end-of-day statement of every account: the opening and closing balance of each currency account and
+ * every ledger entry of the day, with the two legs of an exchange combined into one line with its rate.
+ * <p>
+ * Like {@link ReconciliationService}, the account id space is split into {@link StatementProperties#partitions()}
+ * ranges, each read with one query streamed through a cursor of {@link StatementProperties#fetchSize()} rows. Only
+ * the ledger entries since the start of the day are read: the balances of the day are derived from the current
+ * balance by taking back the later entries, so a run does not get slower as the ledger grows and reads only the
+ * latest partitions of a partitioned ledger.
+ * <p>
+ * The partitions are spread over {@link StatementProperties#shards()} worker threads, each of them appending to its own
+ * file {@code <directory>/<day>/statements-<shard>.txt}, optionally gzip compressed. A worker renders statements into
+ * a reusable buffer of {@link StatementProperties#bufferSize()} characters and encodes it into a reusable byte buffer
+ * whenever it fills up, so the heap used by a run does not depend on the number of accounts. With gzip, every
+ * partition is a gzip member of its own; a file of concatenated members reads as one stream with {@code gunzip} or
+ * {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * The run is a {@link PartitionedRun} whose workers are the shards. Once a partition is written and forced to disk,
+ * the size of its file is recorded in the checkpoint of the day. A run that was stopped or crashed resumes with the
+ * partitions the checkpoint does not list, after cutting each file back to its last recorded size, so every statement
+ * is written once.
+ */
+@Slf4j
+@Service
+public class StatementService {
+
+    static final String CHECKPOINT = "statements.checkpoint";
+    private static final String PARTITION_QUERY = """
+            SELECT a.id, a.first_name, a.last_name, ca.symbol, ca.balance, l.symbol, l.amount, l.event_type, l.created_at
+            FROM account a
+            JOIN currency_account ca ON ca.account_id = a.id
+            LEFT JOIN ledger_entry l ON l.account_id = ca.account_id AND l.currency_account_id = ca.id AND l.created_at >= ?
+            WHERE a.id BETWEEN ? AND ?
+            ORDER BY a.id, l.id NULLS FIRST""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StatementProperties properties;
+    private final PartitionedRun run;
+    private final Counter statementCounter;
+    private final Timer partitionTimer;
+
+    private volatile LocalDate day;
+
+    public StatementService(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            StatementProperties properties,
+                            MeterRegistry meterRegistry) {
+        if (properties.shards() < 1 || properties.partitions() < 1 || properties.fetchSize() < 1 || properties.bufferSize() < 1024) {
+            throw new IllegalStateException("currency.statements.shards, partitions and fetch-size must be positive and buffer-size at least 1024");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = properties;
+        this.run = new PartitionedRun("statements", properties.partitions(), properties.shards(), "statements");
+        this.statementCounter = Counter.builder("statements.generated")
+                .description("Account statements written").register(meterRegistry);
+        this.partitionTimer = Timer.builder("statements.partition.duration")
+                .description("Time to write the statements of one account id range").register(meterRegistry);
+    }
+
+    /**
+     * Starts writing the statements of a day in the background, resuming the previous run of that day if it did not
+     * complete.
+     *
+     * @param day the day, in UTC
+     * @return the status of the started run
+     * @throws StatementRunningException if statements are already being written
+     */
+    public synchronized StatementRunDto start(LocalDate day) {
+        if (!run.start(new Statements(day))) {
+            throw new StatementRunningException();
+        }
+        this.day = day;
+        return status();
+    }
+
+    /**
+     * Starts writing the statements of the previous day, scheduled with {@code currency.statements.cron}.
+     */
+    @Scheduled(cron = "${currency.statements.cron:-}", zone = "UTC")
+    public void startScheduled() {
+        try {
+            start(LocalDate.now(ZoneOffset.UTC).minusDays(1));
+        } catch (StatementRunningException ex) {
+            log.warn("Skipped the scheduled statements: the previous run is still going on");
+        }
+    }
+
+    /**
+     * Lets the running partitions finish and starts no new ones. The next run of the same day resumes from the
+     * checkpoint.
+     */
+    @PreDestroy
+    public void stop() {
+        run.stop();
+    }
+
+    /**
+     * @return the progress of the running or last statement run
+     */
+    public StatementRunDto status() {
+        Instant started = run.startedAt();
+        if (started == null) {
+            return StatementRunDto.IDLE;
+        }
+        LocalDate runDay = day;
+        return new StatementRunDto(State.valueOf(run.state().name()), runDay, started, run.finishedAt(), run.partitions(),
+                run.completedPartitions(), run.total(0), run.perSecond(), directory(runDay).toString());
+    }
+
+    /**
+     * Writes the statements of a day on the calling thread.
+     */
+    void run(LocalDate day) {
+        this.day = day;
+        run.run(new Statements(day));
+    }
+
+    private Path directory(LocalDate day) {
+        return properties.directory().resolve(day.toString());
+    }
+
+    private long[] writePartition(int partition, int shard, ShardWriter writer, StatementRenderer renderer,
+                                  RunCheckpoint checkpoint, Instant from) throws IOException {
+        long start = System.nanoTime();
+        UUID[] bounds = PartitionedRun.bounds(partition, properties.partitions());
+        writer.beginPartition();
+        long[] written = new long[1];
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(PARTITION_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(properties.fetchSize());
+            statement.setTimestamp(1, Timestamp.from(from));
+            statement.setObject(2, bounds[0]);
+            statement.setObject(3, bounds[1]);
+            return statement;
+        }, resultSet -> {
+            UUID accountId = resultSet.getObject(1, UUID.class);
+            if (!accountId.equals(renderer.accountId())) {
+                written[0] += renderer.render();
+                try {
+                    writer.flushIfFull();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                renderer.begin(accountId, resultSet.getString(2), resultSet.getString(3));
+            }
+            renderer.add(resultSet);
+        }));
+        written[0] += renderer.render();
+        writer.endPartition();
+        checkpoint.complete(partition, shard, written);
+        statementCounter.increment(written[0]);
+        partitionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return written;
+    }
+
+    /**
+     * The statements of one day, one file per shard.
+     */
+    private final class Statements implements PartitionedRun.Job {
+
+        private final LocalDate day;
+        private final Instant from;
+        private final Instant to;
+
+        Statements(LocalDate day) {
+            this.day = day;
+            this.from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+            this.to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+
+        @Override
+        public String description() {
+            return "Statements of " + day;
+        }
+
+        @Override
+        public RunCheckpoint open(Instant startedAt) throws IOException {
+            Path directory = Files.createDirectories(directory(day));
+            List<String> files = new ArrayList<>();
+            for (int shard = 0; shard < properties.shards(); shard++) {
+                files.add(shardFile(shard, properties.gzip()));
+            }
+            RunCheckpoint checkpoint = RunCheckpoint.open(directory, CHECKPOINT,
+                    properties.partitions() + " " + properties.shards() + " " + properties.gzip(), files, 1, null);
+            log.info("Writing the statements of {} in {} partitions to {} files, {} partitions already done",
+                    day, properties.partitions(), properties.shards(), checkpoint.completed().size());
+            return checkpoint;
+        }
+
+        @Override
+        public PartitionedRun.Worker worker(int shard, RunCheckpoint checkpoint) {
+            ShardWriter writer = new ShardWriter(checkpoint.output(shard), properties.gzip(), properties.bufferSize());
+            StatementRenderer renderer = new StatementRenderer(writer.text(), from, to);
+            return partition -> writePartition(partition, shard, writer, renderer, checkpoint, from);
+        }
+    }
+
+    static String shardFile(int shard, boolean gzip) {
+        return "statements-" + shard + (gzip ? ".txt.gz" : ".txt");
+    }
+
+    /**
+     * Collects the rows of one account and renders its statement. Statements are tab separated lines:
+     * <pre>
+     * STATEMENT  day  account id  first name  last name
+     * BALANCE    symbol  opening balance  closing balance
+     * OPENED     time  amount  symbol
+     * EXCHANGE   time  amount sold  symbol  amount bought  symbol  rate
+     * CHANGE     time  amount  symbol
+     * END
+     * </pre>
+     * with one {@code BALANCE} line per currency account and the entries of the day in the order they were booked. The
+     * rate of an exchange is in PLN per unit of the other currency, like the NBP rate, and includes spread and fees.
+     */
+    static final class StatementRenderer {
+
+        private final StringBuilder text;
+        private final Instant from;
+        private final Instant to;
+        private final String day;
+        private final EnumMap<Symbol, BigDecimal> balances = new EnumMap<>(Symbol.class);
+        private final List<Entry> entries = new ArrayList<>();
+        private UUID accountId;
+        private String firstName;
+        private String lastName;
+
+        StatementRenderer(StringBuilder text, Instant from, Instant to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.day = LocalDate.ofInstant(from, ZoneOffset.UTC).toString();
+        }
+
+        UUID accountId() {
+            return accountId;
+        }
+
+        void begin(UUID accountId, String firstName, String lastName) {
+            this.accountId = accountId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            balances.clear();
+            entries.clear();
+        }
+
+        /**
+         * Adds a row of the partition query: a currency account, joined with one of its ledger entries since the
+         * start of the day, if there are any.
+         */
+        void add(ResultSet resultSet) throws SQLException {
+            balances.putIfAbsent(Symbol.valueOf(resultSet.getString(4)), resultSet.getBigDecimal(5));
+            String symbol = resultSet.getString(6);
+            if (symbol != null) {
+                entries.add(new Entry(Symbol.valueOf(symbol), resultSet.getBigDecimal(7),
+                        OutboxEventType.valueOf(resultSet.getString(8)), resultSet.getTimestamp(9).toInstant()));
+            }
+        }
+
+        /**
+         * Renders the statement of the collected account, unless the account was opened after the day.
+         *
+         * @return the number of statements rendered, 0 or 1
+         */
+        int render() {
+            if (accountId == null) {
+                return 0;
+            }
+            UUID account = accountId;
+            accountId = null;
+            EnumMap<Symbol, BigDecimal> closing = new EnumMap<>(balances);
+            EnumMap<Symbol, BigDecimal> opening = new EnumMap<>(Symbol.class);
+            for (Entry entry : entries) {
+                if (!entry.createdAt().isBefore(to)) {
+                    if (entry.type() == OutboxEventType.ACCOUNT_CREATED) {
+                        return 0;
+                    }
+                    closing.merge(entry.symbol(), entry.amount(), BigDecimal::subtract);
+                }
+            }
+            opening.putAll(closing);
+            for (Entry entry : entries) {
+                if (entry.createdAt().isBefore(to)) {
+                    opening.merge(entry.symbol(), entry.amount(), BigDecimal::subtract);
+                }
+            }
+            text.append("STATEMENT\t").append(day).append('\t').append(account).append('\t')
+                    .append(firstName).append('\t').append(lastName).append('\n');
+            closing.forEach((symbol, balance) -> text.append("BALANCE\t").append(symbol).append('\t')
+                    .append(opening.get(symbol).toPlainString()).append('\t').append(balance.toPlainString()).append('\n'));
+            for (int i = 0; i < entries.size() && entries.get(i).createdAt().isBefore(to); i++) {
+                Entry entry = entries.get(i);
+                Entry next = i + 1 < entries.size() ? entries.get(i + 1) : null;
+                if (entry.type() == OutboxEventType.ACCOUNT_CREATED) {
+                    line("OPENED", entry);
+                } else if (next != null && isExchange(entry, next)) {
+                    Entry sold = entry.amount().signum() < 0 ? entry : next;
+                    Entry bought = sold == entry ? next : entry;
+                    text.append("EXCHANGE\t").append(entry.createdAt()).append('\t')
+                            .append(sold.amount().negate().toPlainString()).append('\t').append(sold.symbol()).append('\t')
+                            .append(bought.amount().toPlainString()).append('\t').append(bought.symbol()).append('\t')
+                            .append(rate(sold, bought).toPlainString()).append('\n');
+                    i++;
+                } else {
+                    line("CHANGE", entry);
+                }
+            }
+            text.append("END\n");
+            return 1;
+        }
+
+        private void line(String kind, Entry entry) {
+            text.append(kind).append('\t').append(entry.createdAt()).append('\t')
+                    .append(entry.amount().toPlainString()).append('\t').append(entry.symbol()).append('\n');
+        }
+
+        /**
+         * The two legs of an exchange are booked by one {@link OutboxService#record} call: same time, different
+         * currencies, opposite signs. The entries of one account are never interleaved with another change, as the
+         * account's rows stay locked until the change commits.
+         */
+        private static boolean isExchange(Entry entry, Entry next) {
+            return next.type() == OutboxEventType.BALANCE_CHANGED && entry.createdAt().equals(next.createdAt())
+                    && entry.symbol() != next.symbol() && entry.amount().signum() != next.amount().signum();
+        }
+
+        private static BigDecimal rate(Entry sold, Entry bought) {
+            return bought.symbol() == Symbol.PLN
+                    ? bought.amount().divide(sold.amount().negate(), 4, RoundingMode.HALF_UP)
+                    : sold.amount().negate().divide(bought.amount(), 4, RoundingMode.HALF_UP);
+        }
+
+        private record Entry(Symbol symbol, BigDecimal amount, OutboxEventType type, Instant createdAt) {}
+    }
+
+    /**
+     * Appends the statements of one shard to its file. Text is rendered into {@link #text()} and, once it exceeds the
+     * buffer size, encoded into a byte buffer and written through the channel or, with gzip, the gzip member of the
+     * current partition.
+     */
+    static final class ShardWriter {
+
+        private final boolean gzip;
+        private final int bufferSize;
+        private final StringBuilder text;
+        private final ByteBuffer bytes;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final OutputStream channelOutput;
+        private OutputStream output;
+
+        ShardWriter(FileChannel channel, boolean gzip, int bufferSize) {
+            this.gzip = gzip;
+            this.bufferSize = bufferSize;
+            this.text = new StringBuilder(bufferSize + bufferSize / 4);
+            this.bytes = ByteBuffer.allocate(bufferSize);
+            // closing a gzip member must not close the file
+            this.channelOutput = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            };
+        }
+
+        StringBuilder text() {
+            return text;
+        }
+
+        void beginPartition() throws IOException {
+            output = gzip ? new GZIPOutputStream(channelOutput, bufferSize) : channelOutput;
+        }
+
+        void flushIfFull() throws IOException {
+            if (text.length() >= bufferSize) {
+                drain();
+            }
+        }
+
+        /**
+         * Writes what is left of the partition and ends its gzip member.
+         */
+        void endPartition() throws IOException {
+            drain();
+            output.close();
+        }
+
+        private void drain() throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, bytes, true);
+                writeBytes();
+            } while (result.isOverflow());
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+            text.setLength(0);
+        }
+
+        private void writeBytes() throws IOException {
+            output.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.StreamProperties;
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class StreamService {
+
+    private final EventBroadcaster eventBroadcaster;
+    private final StreamProperties streamProperties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Opens a server-sent events stream.
+     *
+     * @param accountId the account whose balance changes are streamed, or null for none
+     * @param rates whether rate changes are streamed
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(UUID accountId, boolean rates) {
+        SseEmitter emitter = new SseEmitter(streamProperties.timeout().toMillis());
+        EventBroadcaster.Subscription subscription = eventBroadcaster.subscribe(accountId, rates, new SseEventWriter(emitter));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(ex -> subscription.cancel());
+        return emitter;
+    }
+
+    /**
+     * Streams every new rate snapshot to subscribers that asked for rates.
+     *
+     * @param snapshot the new snapshot
+     */
+    @EventListener
+    public void onRateSnapshot(RateSnapshot snapshot) {
+        try {
+            eventBroadcaster.publish("rate", null, objectMapper.writeValueAsString(snapshot));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Streams committed balance changes to the subscribers of the account. The outbox payload is already JSON,
+     * so it is forwarded as is.
+     *
+     * @param message the relayed outbox message
+     */
+    @EventListener
+    public void onOutboxMessage(OutboxMessage message) {
+        eventBroadcaster.publish("balance", message.accountId(), message.payload());
+    }
+
+    private record SseEventWriter(SseEmitter emitter) implements EventBroadcaster.EventWriter {
+
+        @Override
+        public void write(EventBroadcaster.BroadcastEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.sequence()))
+                    .name(event.name())
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("keep-alive"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.bluesoft.currencyexchange.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets keyed by client or account, bounded in number.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time, the generic cell rate
+ * algorithm form of a token bucket: a request is admitted when the arrival time is no more than the burst
+ * ahead of now, and pushes it one emission interval further, with a compare-and-set. A bucket whose arrival
+ * time is in the past is full, so idle buckets can be dropped without changing any limit.
+ *
+ * @param <K> the bucket key
+ */
+public class TokenBuckets<K> {
+
+    /**
+     * Returned by {@link #tryAcquire} when a new key cannot get a bucket because all buckets are in use.
+     */
+    public static final long NO_CAPACITY = Long.MAX_VALUE;
+
+    private final Map<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxBuckets;
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+
+    /**
+     * @param ratePerSecond sustained admissions per second and key
+     * @param burst admissions an idle key gets at once
+     * @param maxBuckets the most keys tracked at the same time
+     * @param idleNanos how long a full bucket is kept after its last use
+     * @param nanoClock monotonic clock
+     */
+    public TokenBuckets(double ratePerSecond, int burst, int maxBuckets, long idleNanos, LongSupplier nanoClock) {
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(burst, 1) - 1);
+        this.maxBuckets = maxBuckets;
+        this.idleNanos = idleNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the bucket of the key.
+     *
+     * @param key the client or account
+     * @return 0 if admitted, otherwise the nanoseconds until a token is available, or {@link #NO_CAPACITY}
+     */
+    public long tryAcquire(K key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = createBucket(key, now);
+            if (bucket == null) {
+                return NO_CAPACITY;
+            }
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long earliest = Math.max(arrival, now);
+            long ahead = earliest - now;
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (bucket.compareAndSet(arrival, earliest + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have not been used for the idle expiry and are full again.
+     */
+    public void evictIdle() {
+        evict(nanoClock.getAsLong() - idleNanos);
+    }
+
+    /**
+     * @return the number of tracked keys
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private AtomicLong createBucket(K key, long now) {
+        if (size.get() >= maxBuckets) {
+            // under pressure any full bucket can go, dropping it loses no state
+            evict(now);
+            if (size.get() >= maxBuckets) {
+                return null;
+            }
+        }
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong existing = buckets.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        size.incrementAndGet();
+        return created;
+    }
+
+    private void evict(long fullBefore) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (Map.Entry<K, AtomicLong> entry : buckets.entrySet()) {
+                if (entry.getValue().get() <= fullBefore && buckets.remove(entry.getKey(), entry.getValue())) {
+                    size.decrementAndGet();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.TransferProperties;
+import com.bluesoft.currencyexchange.dto.TransferDto;
+import com.bluesoft.currencyexchange.dto.TransferRequest;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.TransferConflictException;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves money between currency accounts of different accounts, converting it when the currencies differ.
+ * <p>
+ * A transfer locks every currency account of both accounts in ascending id order, the order in which exchanges lock
+ * theirs as well. Transfers on overlapping accounts therefore queue up instead of deadlocking, and balance change
+ * events of an account never interleave. If PostgreSQL still aborts the transaction with a lock or serialization
+ * failure, the transfer is retried as a whole in a new transaction.
+ */
+@Slf4j
+@Service
+public class TransferService {
+
+    private final CurrencyAccountRepository currencyAccountRepository;
+    private final CurrencyRateProvider currencyRateProvider;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final TransferProperties properties;
+    private final PricingEngine pricingEngine;
+    private final Counter retries;
+
+    public TransferService(CurrencyAccountRepository currencyAccountRepository,
+                           CurrencyRateProvider currencyRateProvider,
+                           OutboxService outboxService,
+                           PlatformTransactionManager transactionManager,
+                           EntityManager entityManager,
+                           TransferProperties properties,
+                           PricingEngine pricingEngine,
+                           MeterRegistry meterRegistry) {
+        this.currencyAccountRepository = currencyAccountRepository;
+        this.currencyRateProvider = currencyRateProvider;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.properties = properties;
+        this.pricingEngine = pricingEngine;
+        this.retries = Counter.builder("transfer.retries")
+                .description("Transfers retried after a lock or serialization failure").register(meterRegistry);
+    }
+
+    /**
+     * Transfers an amount from one currency account to another. Cross-currency transfers use the current
+     * USD/PLN mid rate, which is fetched before any row is locked, and the pricing of the source account.
+     *
+     * @param request the source, the target and the amount in the source currency
+     * @return the debited and credited amounts
+     * @throws AccountNotFoundException if a currency account does not exist
+     * @throws InsufficientFundsException if the source would not keep a positive balance
+     * @throws InvalidCurrencyExchangeException if source and target are the same currency account
+     * @throws TransferConflictException if the transfer was aborted by concurrent changes on every attempt
+     */
+    public TransferDto transfer(TransferRequest request) {
+        if (request.fromAccountId().equals(request.toAccountId()) && request.fromCurrency() == request.toCurrency()) {
+            throw InvalidCurrencyExchangeException.sameCurrencyAccount();
+        }
+        BigDecimal usdToPlnRate = request.fromCurrency() == request.toCurrency() ? null : currencyRateProvider.getUsdToPlnRate();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> transferLocked(request, usdToPlnRate));
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= properties.maxAttempts()) {
+                    throw new TransferConflictException(ex);
+                }
+                retries.increment();
+                log.debug("Transfer attempt {} aborted: {}", attempt, ex.getMessage());
+                backOff(attempt);
+            } finally {
+                // with open-in-view the request shares one persistence context, which would hand a retry the
+                // entities loaded by the aborted attempt
+                entityManager.clear();
+            }
+        }
+    }
+
+    private TransferDto transferLocked(TransferRequest request, BigDecimal usdToPlnRate) {
+        List<CurrencyAccount> currencyAccounts = currencyAccountRepository.findWithLockByAccount_IdInOrderById(
+                List.of(request.fromAccountId(), request.toAccountId()));
+        CurrencyAccount source = CurrencyExchangeService.currencyAccount(currencyAccounts, request.fromAccountId(), request.fromCurrency());
+        CurrencyAccount target = CurrencyExchangeService.currencyAccount(currencyAccounts, request.toAccountId(), request.toCurrency());
+
+        // the entity requires a positive balance, so the source cannot be emptied completely
+        if (source.getBalance().compareTo(request.amount()) <= 0) {
+            throw new InsufficientFundsException();
+        }
+        BigDecimal rate = BigDecimal.ONE;
+        BigDecimal fee = BigDecimal.ZERO;
+        if (usdToPlnRate != null) {
+            // converting transfers are priced like exchanges of the sending account
+            PricingTable pricing = pricingEngine.current();
+            int slot = pricing.slot(request.fromAccountId(), request.fromCurrency(), request.toCurrency());
+            rate = pricing.rate(slot, CurrencyExchangeService.effectiveRate(request.fromCurrency(), usdToPlnRate));
+            fee = pricing.fee(slot, request.amount());
+        }
+        BigDecimal credited = CurrencyAccount.exchangedAmount(request.amount().subtract(fee), rate);
+        source.exchange(request.amount(), fee, rate, target);
+
+        outboxService.record(source.getAccount(), OutboxEventType.BALANCE_CHANGED);
+        if (!request.fromAccountId().equals(request.toAccountId())) {
+            outboxService.record(target.getAccount(), OutboxEventType.BALANCE_CHANGED);
+        }
+        return new TransferDto(request.fromAccountId(), request.fromCurrency(), request.toAccountId(), request.toCurrency(),
+                request.amount().setScale(2, RoundingMode.HALF_UP), credited, fee, usdToPlnRate);
+    }
+
+    private void backOff(int attempt) {
+        long base = properties.backoff().toNanos() << (attempt - 1);
+        try {
+            TimeUnit.NANOSECONDS.sleep(base + ThreadLocalRandom.current().nextLong(base + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransferConflictException(ex);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.dto.validator.AccountRequestValidator;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Single-pass bitmask validation of account requests against the previous four-pass validator, which signalled
+ * violations with exceptions. Run with {@code -prof gc} to compare allocation per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountRequestValidatorBenchmark {
+
+    private final AccountRequestValidator validator = new AccountRequestValidator();
+    private final LegacyValidator legacyValidator = new LegacyValidator();
+    private CreateAccountRequest valid;
+    private CreateAccountRequest invalid;
+
+    @Setup
+    public void setUp() {
+        valid = new CreateAccountRequest("John", "Doe", List.of(
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("1000.00")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("250.00"))));
+        invalid = new CreateAccountRequest("John", "Doe", List.of(
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("1000.00")),
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("250.00"))));
+    }
+
+    @Benchmark
+    public int singlePassValid() {
+        return validator.check(valid);
+    }
+
+    @Benchmark
+    public int singlePassInvalid() {
+        return validator.check(invalid);
+    }
+
+    @Benchmark
+    public boolean legacyValid() {
+        return legacyValidator.isValid(valid);
+    }
+
+    @Benchmark
+    public boolean legacyInvalid() {
+        return legacyValidator.isValid(invalid);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AccountRequestValidatorBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * The validator as it was before the single-pass rewrite.
+     */
+    static class LegacyValidator {
+
+        boolean isValid(CreateAccountRequest request) {
+            try {
+                validate(request);
+                return true;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        }
+
+        void validate(CreateAccountRequest request) {
+            if (request.currencyAccounts().isEmpty()) {
+                throw new IllegalArgumentException("At least one currency balance is required.");
+            }
+            if (request.currencyAccounts().stream().noneMatch(account -> account.symbol() == Symbol.PLN)) {
+                throw new IllegalArgumentException("Account must include an initial balance in PLN.");
+            }
+            if (request.currencyAccounts().stream().anyMatch(account -> account.balance().compareTo(BigDecimal.ZERO) < 0)) {
+                throw new IllegalArgumentException("Balance cannot be negative.");
+            }
+            Set<Symbol> symbols = request.currencyAccounts().stream()
+                    .map(CurrencyAccountDto::symbol)
+                    .collect(Collectors.toSet());
+            if (symbols.size() != request.currencyAccounts().size()) {
+                throw new IllegalArgumentException("Duplicate currency entries found.");
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of appending to and looking up recent rows of a history table laid out like {@code rate_snapshot}, with
+ * {@code months} months of history behind it, monthly partitioned as {@code HistoryPartitionManager} keeps it or as
+ * one table. Needs a PostgreSQL database; point it at one with {@code -Dbenchmark.jdbc.url}, {@code .user} and
+ * {@code .password}. The table {@code history_benchmark} is created and dropped for every trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryPartitionBenchmark {
+
+    private static final int ROWS_PER_MONTH = 50_000;
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Param({"1", "12", "36"})
+    private int months;
+
+    @Param({"true", "false"})
+    private boolean partitioned;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private PreparedStatement recent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/accountsdb"),
+                System.getProperty("benchmark.jdbc.user", "user"), System.getProperty("benchmark.jdbc.password", "password"));
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth first = current.minusMonths(months - 1);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS history_benchmark");
+            statement.execute("""
+                    CREATE TABLE history_benchmark (id bigint GENERATED BY DEFAULT AS IDENTITY, symbol varchar(3) NOT NULL,
+                    mid numeric(19, 4) NOT NULL, fetched_at timestamptz NOT NULL, PRIMARY KEY (id, fetched_at))"""
+                    + (partitioned ? " PARTITION BY RANGE (fetched_at)" : ""));
+            statement.execute("CREATE INDEX ON history_benchmark (symbol, id)");
+            if (partitioned) {
+                for (YearMonth month = first; !month.isAfter(current.plusMonths(1)); month = month.plusMonths(1)) {
+                    statement.execute("CREATE TABLE history_benchmark_p" + MONTH.format(month) + " PARTITION OF history_benchmark FOR VALUES FROM ('"
+                            + start(month) + "') TO ('" + start(month.plusMonths(1)) + "')");
+                }
+            }
+            // rows spread evenly over the months, the latest a day old
+            Instant from = start(first);
+            long step = Math.max(1, ChronoUnit.MILLIS.between(from, Instant.now().minus(1, ChronoUnit.DAYS)) / ((long) months * ROWS_PER_MONTH));
+            statement.execute("INSERT INTO history_benchmark (symbol, mid, fetched_at) SELECT CASE WHEN i % 2 = 0 THEN 'USD' ELSE 'EUR' END, 4, '"
+                    + from + "'::timestamptz + i * interval '" + step + " milliseconds' FROM generate_series(0, " + ((long) months * ROWS_PER_MONTH - 1) + ") i");
+            statement.execute("VACUUM ANALYZE history_benchmark");
+        }
+        insert = connection.prepareStatement("INSERT INTO history_benchmark (symbol, mid, fetched_at) VALUES ('USD', 4, ?)");
+        recent = connection.prepareStatement("SELECT id FROM history_benchmark WHERE symbol = 'USD' AND fetched_at > ? ORDER BY id DESC LIMIT 1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE history_benchmark");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        insert.setTimestamp(1, Timestamp.from(Instant.now()));
+        return insert.executeUpdate();
+    }
+
+    @Benchmark
+    public long recent() throws SQLException {
+        recent.setTimestamp(1, Timestamp.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+        try (ResultSet resultSet = recent.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    private static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HistoryPartitionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+import com.bluesoft.currencyexchange.service.LimitOrderBook;
+import com.bluesoft.currencyexchange.service.RestingOrder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trigger latency of a single rate tick against a book holding millions of resting orders.
+ * Every tick moves the mid rate by a few pips and re-inserts the triggered orders, so the book size stays constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LimitOrderBookBenchmark {
+
+    @Param({"100000", "1000000", "3000000"})
+    private int restingOrders;
+
+    private LimitOrderBook book;
+    private SplittableRandom random;
+    private List<Long> triggered;
+    private long nextId;
+    private BigDecimal mid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = new LimitOrderBook();
+        random = new SplittableRandom(42);
+        triggered = new ArrayList<>();
+        mid = new BigDecimal("4.0000");
+        for (int i = 0; i < restingOrders; i++) {
+            book.add(randomOrder());
+        }
+    }
+
+    @Benchmark
+    public int rateTick(Blackhole blackhole) {
+        mid = mid.add(BigDecimal.valueOf(random.nextInt(-5, 6), 4));
+        triggered.clear();
+        int count = book.drainCrossed(Symbol.USD, mid, triggered::add);
+        blackhole.consume(triggered);
+        for (int i = 0; i < count; i++) {
+            book.add(randomOrder());
+        }
+        return count;
+    }
+
+    private RestingOrder randomOrder() {
+        boolean below = random.nextBoolean();
+        // BELOW orders rest under the current mid and ABOVE orders over it, within 20% of the rate
+        int offset = random.nextInt(1, 8000);
+        BigDecimal trigger = mid.add(BigDecimal.valueOf(below ? -offset : offset, 4));
+        return new RestingOrder(nextId++, Symbol.PLN, Symbol.USD,
+                below ? TriggerCondition.BELOW : TriggerCondition.ABOVE, trigger);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LimitOrderBookBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.service.PricingTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of pricing one exchange: finding the slot of the account and pair, applying the spread and computing the fee
+ * of the amount's band. Half of the priced accounts have overrides. Run with {@code -prof gc} to see that the lookup
+ * itself allocates nothing; what {@link #price} allocates are the priced rate and the fee.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    private static final int REQUESTS = 4096;
+    private static final BigDecimal MID = new BigDecimal("3.9871");
+
+    @Param({"0", "10000", "1000000"})
+    private int clients;
+
+    private PricingTable table;
+    private UUID[] accountIds;
+    private BigDecimal[] amounts;
+    private Symbol[] fromCurrencies;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<PricingConfig.ClientPricing> overrides = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            overrides.add(new PricingConfig.ClientPricing(new UUID(random.nextLong(), random.nextLong()),
+                    List.of(pair(Symbol.PLN, Symbol.USD, random.nextInt(5, 50)))));
+        }
+        table = PricingTable.compile(new PricingConfig(List.of(pair(Symbol.PLN, Symbol.USD, 80), pair(Symbol.USD, Symbol.PLN, 80)), overrides));
+
+        accountIds = new UUID[REQUESTS];
+        amounts = new BigDecimal[REQUESTS];
+        fromCurrencies = new Symbol[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            accountIds[i] = clients > 0 && random.nextBoolean()
+                    ? overrides.get(random.nextInt(clients)).accountId()
+                    : new UUID(random.nextLong(), random.nextLong());
+            amounts[i] = BigDecimal.valueOf(random.nextLong(100, 100_000_000), 2);
+            fromCurrencies[i] = random.nextBoolean() ? Symbol.PLN : Symbol.USD;
+        }
+    }
+
+    @Benchmark
+    public int slot() {
+        int i = next++ & (REQUESTS - 1);
+        Symbol from = fromCurrencies[i];
+        return table.slot(accountIds[i], from, from == Symbol.PLN ? Symbol.USD : Symbol.PLN);
+    }
+
+    @Benchmark
+    public BigDecimal price() {
+        int i = next++ & (REQUESTS - 1);
+        Symbol from = fromCurrencies[i];
+        int slot = table.slot(accountIds[i], from, from == Symbol.PLN ? Symbol.USD : Symbol.PLN);
+        BigDecimal fee = table.fee(slot, amounts[i]);
+        return fee.signum() == 0 ? table.rate(slot, MID) : table.rate(slot, MID).add(fee);
+    }
+
+    private static PricingConfig.PairPricing pair(Symbol fromCurrency, Symbol toCurrency, int spreadBps) {
+        return new PricingConfig.PairPricing(fromCurrency, toCurrency, spreadBps, List.of(
+                new PricingConfig.FeeTier(BigDecimal.ZERO, 50),
+                new PricingConfig.FeeTier(new BigDecimal("1000"), 35),
+                new PricingConfig.FeeTier(new BigDecimal("10000"), 25),
+                new PricingConfig.FeeTier(new BigDecimal("100000"), 15),
+                new PricingConfig.FeeTier(new BigDecimal("500000"), 5)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PricingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
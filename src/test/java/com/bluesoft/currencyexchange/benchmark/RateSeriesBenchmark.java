@@ -0,0 +1,90 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import com.bluesoft.currencyexchange.service.RateSeries;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a window aggregate of a memory-mapped rate series: a month of table dates and windows of any length up to
+ * the whole series. 2,500 points are ten years of NBP tables; a million points show that the block summaries keep
+ * long windows cheap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateSeriesBenchmark {
+
+    private static final int WINDOWS = 4096;
+
+    @Param({"2500", "1000000"})
+    private int points;
+
+    @Param({"64"})
+    private int blockSize;
+
+    private Path directory;
+    private RateSeries series;
+    private int[] monthStarts;
+    private int[] windowStarts;
+    private int[] windowEnds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] days = new int[points];
+        long[] rates = new long[points];
+        long rate = 4_000_000;
+        for (int i = 0; i < points; i++) {
+            days[i] = i;
+            rate = Math.max(1, rate + random.nextInt(-20_000, 20_001));
+            rates[i] = rate;
+        }
+        directory = Files.createTempDirectory("rate-series");
+        series = RateSeries.create(directory.resolve("USD.rates"), 6, blockSize, points, days, rates, points);
+
+        monthStarts = new int[WINDOWS];
+        windowStarts = new int[WINDOWS];
+        windowEnds = new int[WINDOWS];
+        for (int i = 0; i < WINDOWS; i++) {
+            monthStarts[i] = random.nextInt(Math.max(1, points - 22));
+            int a = random.nextInt(points);
+            int b = random.nextInt(points);
+            windowStarts[i] = Math.min(a, b);
+            windowEnds[i] = Math.max(a, b);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("USD.rates"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public RateSeries.Aggregate month() {
+        int start = monthStarts[next++ & (WINDOWS - 1)];
+        return series.aggregate(start, start + 21);
+    }
+
+    @Benchmark
+    public RateSeries.Aggregate anyWindow() {
+        int i = next++ & (WINDOWS - 1);
+        return series.aggregate(windowStarts[i], windowEnds[i]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RateSeriesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
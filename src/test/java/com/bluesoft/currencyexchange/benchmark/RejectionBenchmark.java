@@ -0,0 +1,112 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import com.bluesoft.currencyexchange.entity.ErrorMessage;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.ErrorResponses;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of rejected exchanges from the throw site to the serialized error body, for the stackless domain
+ * exceptions with cached bodies against exceptions with stack traces, {@code String.format} messages and
+ * per-response serialization. The throw happens {@code stackDepth} frames deep, as it does below the servlet,
+ * Spring MVC and transaction proxy frames of a real request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RejectionBenchmark {
+
+    private static final String INSUFFICIENT_FUNDS = "Insufficient funds in the account.";
+
+    @Param({"20", "150"})
+    private int stackDepth;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ErrorResponses errorResponses = new ErrorResponses(objectMapper);
+    private final UUID accountId = UUID.randomUUID();
+
+    @Benchmark
+    public byte[] insufficientFunds() {
+        try {
+            throwAt(stackDepth, () -> {
+                throw new InsufficientFundsException();
+            });
+            return null;
+        } catch (InsufficientFundsException ex) {
+            return errorResponses.cached(HttpStatus.BAD_REQUEST, InsufficientFundsException.MESSAGE).getBody();
+        }
+    }
+
+    @Benchmark
+    public byte[] legacyInsufficientFunds() throws JsonProcessingException {
+        try {
+            throwAt(stackDepth, () -> {
+                throw new IllegalArgumentException(INSUFFICIENT_FUNDS);
+            });
+            return null;
+        } catch (IllegalArgumentException ex) {
+            return objectMapper.writeValueAsBytes(new ErrorMessage(HttpStatus.BAD_REQUEST, ex.getMessage()));
+        }
+    }
+
+    @Benchmark
+    public byte[] notFound() {
+        try {
+            throwAt(stackDepth, () -> {
+                throw new AccountNotFoundException("There is no currency account with accountId : '" + accountId + "' and symbol : '" + Symbol.USD + "'");
+            });
+            return null;
+        } catch (AccountNotFoundException ex) {
+            return errorResponses.of(HttpStatus.NOT_FOUND, ex.getReason()).getBody();
+        }
+    }
+
+    @Benchmark
+    public byte[] legacyNotFound() throws JsonProcessingException {
+        try {
+            throwAt(stackDepth, () -> {
+                throw new LegacyNotFoundException(String.format("There is no currency account with accountId : '%s' and symbol : '%s'", accountId, Symbol.USD));
+            });
+            return null;
+        } catch (LegacyNotFoundException ex) {
+            return objectMapper.writeValueAsBytes(new ErrorMessage(ex.getStatusCode(), ex.getReason()));
+        }
+    }
+
+    private static void throwAt(int depth, Runnable thrower) {
+        if (depth == 0) {
+            thrower.run();
+        } else {
+            throwAt(depth - 1, thrower);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RejectionBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * A not-found exception as it was before, capturing its stack trace.
+     */
+    static class LegacyNotFoundException extends ResponseStatusException {
+
+        LegacyNotFoundException(String message) {
+            super(HttpStatus.NOT_FOUND, message);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.bluesoft.currencyexchange.benchmark;
+
+import com.bluesoft.currencyexchange.dto.AccountDto;
+import com.bluesoft.currencyexchange.dto.BatchExchangeRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encoding and decoding of exchange batches and account details as JSON and as CBOR, with the mappers configured
+ * like the application's message converters. The encoded sizes are printed during setup; divide the time per
+ * operation by {@code batchSize} for the cost per exchange.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+    private ObjectReader jsonBatchReader;
+    private ObjectReader cborBatchReader;
+    private List<BatchExchangeRequest> batch;
+    private AccountDto account;
+    private byte[] jsonBatch;
+    private byte[] cborBatch;
+    private byte[] jsonAccount;
+    private byte[] cborAccount;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        batch = IntStream.range(0, batchSize)
+                .mapToObj(i -> new BatchExchangeRequest(new UUID(random.nextLong(), random.nextLong()),
+                        BigDecimal.valueOf(random.nextInt(10_000_000), 2), Symbol.PLN, Symbol.USD))
+                .toList();
+        account = new AccountDto("John", "Doe", List.of(
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("12345.67")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("250.00"))));
+        TypeReference<List<BatchExchangeRequest>> batchType = new TypeReference<>() {};
+        jsonBatchReader = json.readerFor(batchType);
+        cborBatchReader = cbor.readerFor(batchType);
+        jsonBatch = json.writeValueAsBytes(batch);
+        cborBatch = cbor.writeValueAsBytes(batch);
+        jsonAccount = json.writeValueAsBytes(account);
+        cborAccount = cbor.writeValueAsBytes(account);
+        System.out.printf("%nbatch of %d: JSON %d bytes, CBOR %d bytes; account: JSON %d bytes, CBOR %d bytes%n",
+                batchSize, jsonBatch.length, cborBatch.length, jsonAccount.length, cborAccount.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBatchJson() throws IOException {
+        return json.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public byte[] encodeBatchCbor() throws IOException {
+        return cbor.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public List<BatchExchangeRequest> decodeBatchJson() throws IOException {
+        return jsonBatchReader.readValue(jsonBatch);
+    }
+
+    @Benchmark
+    public List<BatchExchangeRequest> decodeBatchCbor() throws IOException {
+        return cborBatchReader.readValue(cborBatch);
+    }
+
+    @Benchmark
+    public byte[] encodeAccountJson() throws IOException {
+        return json.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] encodeAccountCbor() throws IOException {
+        return cbor.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public AccountDto decodeAccountJson() throws IOException {
+        return json.readValue(jsonAccount, AccountDto.class);
+    }
+
+    @Benchmark
+    public AccountDto decodeAccountCbor() throws IOException {
+        return cbor.readValue(cborAccount, AccountDto.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WireFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
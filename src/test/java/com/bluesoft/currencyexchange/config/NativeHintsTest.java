@@ -0,0 +1,51 @@
+package com.bluesoft.currencyexchange.config;
+
+import com.bluesoft.currencyexchange.dto.CurrencyRateResponse;
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.grpc.Currency;
+import com.bluesoft.currencyexchange.grpc.ExchangeCommand;
+import com.bluesoft.currencyexchange.mapper.AccountMapperImpl;
+import com.bluesoft.currencyexchange.service.NbpClient;
+import com.google.protobuf.Descriptors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @BeforeEach
+    void setUp() {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void shouldRegisterFeignClientProxyAndResponse() throws NoSuchMethodException {
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(NbpClient.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(NbpClient.class.getMethod("getUsdToPlnRate")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(CurrencyRateResponse.Rate.class.getMethod("setMid", Double.class)).test(hints));
+    }
+
+    @Test
+    void shouldRegisterTypesSerializedOutsideControllers() throws NoSuchMethodException {
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(OutboxMessage.class.getMethod("payload")).test(hints));
+    }
+
+    @Test
+    void shouldRegisterMapperImplementation() {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(AccountMapperImpl.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints));
+    }
+
+    @Test
+    void shouldRegisterProtobufAccessors() throws NoSuchMethodException {
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(ExchangeCommand.class.getMethod("getCorrelationId")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(ExchangeCommand.Builder.class.getMethod("setCorrelationId", long.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Currency.class.getMethod("valueOf", Descriptors.EnumValueDescriptor.class)).test(hints));
+    }
+}
@@ -0,0 +1,208 @@
+package com.bluesoft.currencyexchange.controller;
+
+import com.bluesoft.currencyexchange.dto.Versioned;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.grpc.*;
+import com.bluesoft.currencyexchange.service.AccountService;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.RateLimiter;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CurrencyExchangeGrpcServiceTest {
+
+    private static final int WORKERS = 2;
+    private static final int WINDOW = 8;
+
+    private final CurrencyExchangeService currencyExchangeService = mock(CurrencyExchangeService.class);
+    private final AccountService accountService = mock(AccountService.class);
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private final UUID accountId = UUID.randomUUID();
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(new CurrencyExchangeGrpcService(currencyExchangeService, accountService, rateLimiter, workers, WINDOW))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        when(rateLimiter.acquire()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @Test
+    void shouldExchangeInUnaryCall() {
+        ExchangeResult result = CurrencyExchangeGrpc.newBlockingStub(channel).exchange(command(7));
+
+        assertEquals(ResultCode.OK, result.getCode());
+        assertEquals(7, result.getCorrelationId());
+        verify(currencyExchangeService).exchangeCurrency(accountId, new BigDecimal("100.00"), Symbol.PLN, Symbol.USD);
+        verify(rateLimiter).release();
+    }
+
+    @Test
+    void shouldMapRejectedUnaryExchangeToStatus() {
+        doThrow(new InsufficientFundsException()).when(currencyExchangeService)
+                .exchangeCurrency(any(), any(), any(), any());
+
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                () -> CurrencyExchangeGrpc.newBlockingStub(channel).exchange(command(1)));
+
+        assertEquals(Status.Code.FAILED_PRECONDITION, exception.getStatus().getCode());
+        assertEquals(InsufficientFundsException.MESSAGE, exception.getStatus().getDescription());
+    }
+
+    @Test
+    void shouldRejectUnaryCallWithoutProcessingSlot() {
+        when(rateLimiter.acquire()).thenReturn(false);
+
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                () -> CurrencyExchangeGrpc.newBlockingStub(channel).getBalance(BalanceRequest.newBuilder()
+                        .setAccountId(accountId.toString()).setCurrency(Currency.PLN).build()));
+
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, exception.getStatus().getCode());
+        verifyNoInteractions(currencyExchangeService);
+        verify(rateLimiter, never()).release();
+    }
+
+    @Test
+    void shouldReturnBalanceAsScaledLong() {
+        when(currencyExchangeService.getVersionedBalance(accountId, Symbol.USD)).thenReturn(new Versioned<>(new BigDecimal("250.75"), 3));
+
+        BalanceReply reply = CurrencyExchangeGrpc.newBlockingStub(channel).getBalance(BalanceRequest.newBuilder()
+                .setAccountId(accountId.toString()).setCurrency(Currency.USD).build());
+
+        assertEquals(25075, reply.getBalance().getUnscaled());
+        assertEquals(2, reply.getBalance().getScale());
+    }
+
+    @Test
+    void shouldReadOnlyWindowOfCommandsAheadOfResults() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executing = new AtomicInteger();
+        AtomicInteger maxExecuting = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxExecuting.accumulateAndGet(executing.incrementAndGet(), Math::max);
+            release.await();
+            executing.decrementAndGet();
+            return null;
+        }).when(currencyExchangeService).exchangeCurrency(any(), any(), any(), any());
+        int commands = 100;
+        ResultCollector results = new ResultCollector();
+
+        StreamObserver<ExchangeCommand> requests = CurrencyExchangeGrpc.newStub(channel).exchangeStream(results);
+        for (int i = 0; i < commands; i++) {
+            requests.onNext(command(i));
+        }
+        requests.onCompleted();
+
+        awaitQueued(WINDOW);
+        Thread.sleep(100);
+        assertEquals(WINDOW, workers.getActiveCount() + workers.getQueue().size());
+        assertEquals(0, results.results.size());
+
+        release.countDown();
+        assertTrue(results.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(commands, results.results.size());
+        Set<Long> correlationIds = new HashSet<>();
+        results.results.forEach(result -> {
+            assertEquals(ResultCode.OK, result.getCode());
+            correlationIds.add(result.getCorrelationId());
+        });
+        assertEquals(commands, correlationIds.size());
+        assertTrue(maxExecuting.get() <= WORKERS);
+        verify(rateLimiter, times(commands)).awaitSlot();
+        verify(rateLimiter, times(commands)).release();
+    }
+
+    @Test
+    void shouldReportFailedCommandsWithoutEndingStream() throws Exception {
+        doThrow(new InsufficientFundsException()).when(currencyExchangeService)
+                .exchangeCurrency(any(), eq(new BigDecimal("100.01")), any(), any());
+        ResultCollector results = new ResultCollector();
+
+        StreamObserver<ExchangeCommand> requests = CurrencyExchangeGrpc.newStub(channel).exchangeStream(results);
+        requests.onNext(command(1));
+        requests.onNext(command(2).toBuilder().setAmount(Decimal.newBuilder().setUnscaled(10001).setScale(2)).build());
+        requests.onNext(command(3).toBuilder().setFromCurrency(Currency.CURRENCY_UNSPECIFIED).build());
+        requests.onNext(command(4).toBuilder().setAccountId("not-a-uuid").build());
+        requests.onCompleted();
+
+        assertTrue(results.completed.await(10, TimeUnit.SECONDS));
+        List<ResultCode> codes = results.results.stream()
+                .sorted((a, b) -> Long.compare(a.getCorrelationId(), b.getCorrelationId()))
+                .map(ExchangeResult::getCode)
+                .toList();
+        assertEquals(List.of(ResultCode.OK, ResultCode.INSUFFICIENT_FUNDS, ResultCode.INVALID_ARGUMENT, ResultCode.INVALID_ARGUMENT), codes);
+    }
+
+    private ExchangeCommand command(long correlationId) {
+        return ExchangeCommand.newBuilder()
+                .setCorrelationId(correlationId)
+                .setAccountId(accountId.toString())
+                .setAmount(Decimal.newBuilder().setUnscaled(10000).setScale(2))
+                .setFromCurrency(Currency.PLN)
+                .setToCurrency(Currency.USD)
+                .build();
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (workers.getActiveCount() + workers.getQueue().size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class ResultCollector implements StreamObserver<ExchangeResult> {
+
+        private final List<ExchangeResult> results = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onNext(ExchangeResult result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            completed.countDown();
+        }
+    }
+}
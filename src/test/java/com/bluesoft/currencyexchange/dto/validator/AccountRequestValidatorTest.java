@@ -0,0 +1,90 @@
+package com.bluesoft.currencyexchange.dto.validator;
+
+import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountRequestValidatorTest {
+
+    private final AccountRequestValidator validator = new AccountRequestValidator();
+
+    @Test
+    void shouldAcceptValidRequest() {
+        CreateAccountRequest request = request("John", "Doe",
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("100.00")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("0.01")));
+
+        assertEquals(0, validator.check(request));
+        assertTrue(validator.violations(request).isEmpty());
+        assertDoesNotThrow(() -> validator.validate(request));
+    }
+
+    @Test
+    void shouldCollectEveryViolation() {
+        CreateAccountRequest request = request(" ", null,
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("-1.00")),
+                new CurrencyAccountDto(Symbol.USD, null),
+                new CurrencyAccountDto(null, BigDecimal.ONE));
+
+        assertEquals(EnumSet.of(AccountViolation.FIRST_NAME_REQUIRED, AccountViolation.LAST_NAME_REQUIRED,
+                AccountViolation.PLN_BALANCE_REQUIRED, AccountViolation.NON_POSITIVE_BALANCE,
+                AccountViolation.DUPLICATE_CURRENCY, AccountViolation.SYMBOL_REQUIRED,
+                AccountViolation.BALANCE_REQUIRED), validator.violations(request));
+    }
+
+    @Test
+    void shouldRejectZeroBalanceLikeNegativeOne() {
+        CreateAccountRequest request = request("John", "Doe",
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("100.00")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("0.00")));
+
+        assertEquals(EnumSet.of(AccountViolation.NON_POSITIVE_BALANCE), validator.violations(request));
+        assertMessage("Balance must be positive.", request);
+    }
+
+    @Test
+    void shouldReportMissingBalancesForEmptyOrAbsentList() {
+        EnumSet<AccountViolation> expected = EnumSet.of(AccountViolation.CURRENCY_BALANCE_REQUIRED, AccountViolation.PLN_BALANCE_REQUIRED);
+
+        assertEquals(expected, validator.violations(request("John", "Doe")));
+        assertEquals(expected, validator.violations(new CreateAccountRequest("John", "Doe", null)));
+    }
+
+    @Test
+    void shouldReportEveryRequiredFieldForMissingRequest() {
+        assertEquals(EnumSet.of(AccountViolation.FIRST_NAME_REQUIRED, AccountViolation.LAST_NAME_REQUIRED,
+                        AccountViolation.CURRENCY_BALANCE_REQUIRED, AccountViolation.PLN_BALANCE_REQUIRED),
+                validator.violations(null));
+    }
+
+    @Test
+    void shouldThrowFirstViolationInLegacyOrder() {
+        assertMessage("At least one currency balance is required.", request("John", "Doe"));
+        assertMessage("Account must include an initial balance in PLN.", request("John", "Doe",
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("-1.00"))));
+        assertMessage("Balance must be positive.", request("John", "Doe",
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("-1.00")),
+                new CurrencyAccountDto(Symbol.PLN, BigDecimal.ONE)));
+        assertMessage("Duplicate currency entries found.", request("John", "Doe",
+                new CurrencyAccountDto(Symbol.PLN, BigDecimal.ONE),
+                new CurrencyAccountDto(Symbol.PLN, BigDecimal.ONE)));
+    }
+
+    private void assertMessage(String expected, CreateAccountRequest request) {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> validator.validate(request));
+        assertEquals(expected, exception.getMessage());
+    }
+
+    private static CreateAccountRequest request(String firstName, String lastName, CurrencyAccountDto... currencyAccounts) {
+        List<CurrencyAccountDto> list = Arrays.asList(currencyAccounts);
+        return new CreateAccountRequest(firstName, lastName, list);
+    }
+}
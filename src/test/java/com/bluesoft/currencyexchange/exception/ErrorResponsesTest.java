@@ -0,0 +1,54 @@
+package com.bluesoft.currencyexchange.exception;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorResponsesTest {
+
+    private final ErrorResponses errorResponses = new ErrorResponses(new ObjectMapper());
+
+    @Test
+    void shouldSerializeErrorMessage() {
+        ResponseEntity<byte[]> response = errorResponses.of(HttpStatus.NOT_FOUND, "There is no account with id : '42'.");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals("{\"status\":\"NOT_FOUND\",\"message\":\"There is no account with id : '42'.\"}",
+                new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldReuseCachedResponse() {
+        ResponseEntity<byte[]> first = errorResponses.cached(HttpStatus.BAD_REQUEST, InsufficientFundsException.MESSAGE);
+        ResponseEntity<byte[]> second = errorResponses.cached(HttpStatus.BAD_REQUEST, InsufficientFundsException.MESSAGE);
+
+        assertSame(first, second);
+        assertNotSame(first, errorResponses.cached(HttpStatus.CONFLICT, InsufficientFundsException.MESSAGE));
+    }
+
+    @Test
+    void shouldStopCachingWhenFull() {
+        for (int i = 0; i < ErrorResponses.MAX_CACHED; i++) {
+            errorResponses.cached(HttpStatus.BAD_REQUEST, "message " + i);
+        }
+
+        ResponseEntity<byte[]> response = errorResponses.cached(HttpStatus.BAD_REQUEST, "one more");
+
+        assertNotSame(response, errorResponses.cached(HttpStatus.BAD_REQUEST, "one more"));
+        assertSame(errorResponses.cached(HttpStatus.BAD_REQUEST, "message 0"), errorResponses.cached(HttpStatus.BAD_REQUEST, "message 0"));
+    }
+
+    @Test
+    void shouldNotCaptureStackTraceForExpectedFailures() {
+        assertEquals(0, new InsufficientFundsException().getStackTrace().length);
+        assertEquals(0, InvalidCurrencyExchangeException.sameCurrency().getStackTrace().length);
+        assertEquals(0, new AccountNotFoundException("missing").getStackTrace().length);
+    }
+}
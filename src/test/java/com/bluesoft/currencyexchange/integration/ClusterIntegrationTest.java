@@ -0,0 +1,145 @@
+package com.bluesoft.currencyexchange.integration;
+
+import com.bluesoft.currencyexchange.CurrencyAppApplication;
+import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.RateSnapshotRepository;
+import com.bluesoft.currencyexchange.service.AccountService;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.CurrencyRateProvider;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two instances of the application against one database, as replicas behind a load balancer would.
+ */
+@Testcontainers
+class ClusterIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.2")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final AtomicInteger nbpCalls = new AtomicInteger();
+    private static HttpServer nbp;
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startNbp() throws IOException {
+        nbp = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        nbp.createContext("/api/exchangerates/rates/A/USD", exchange -> {
+            nbpCalls.incrementAndGet();
+            byte[] body = ("{\"table\":\"A\",\"currency\":\"dolar amerykański\",\"code\":\"USD\","
+                    + "\"rates\":[{\"no\":\"001/A/NBP/2026\",\"effectiveDate\":\"2026-01-02\",\"mid\":4.0123}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        nbp.start();
+    }
+
+    @AfterAll
+    static void stopNbp() {
+        nbp.stop(0);
+    }
+
+    @BeforeEach
+    void startInstances() {
+        nbpCalls.set(0);
+        first = startInstance();
+        second = startInstance();
+    }
+
+    @AfterEach
+    void stopInstances() {
+        first.getBean(RateSnapshotRepository.class).deleteAll();
+        second.close();
+        first.close();
+    }
+
+    @Test
+    void shouldFetchRateOnceAndShareItWithEveryInstance() {
+        await(() -> second.getBean(RateSnapshotRepository.class).count() > 0);
+        CurrencyRateProvider firstProvider = first.getBean(CurrencyRateProvider.class);
+        CurrencyRateProvider secondProvider = second.getBean(CurrencyRateProvider.class);
+        await(() -> nbpCalls.get() == 1 && secondProvider.getUsdToPlnRate().compareTo(new BigDecimal("4.0123")) == 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(firstProvider.getUsdToPlnRate()).isEqualByComparingTo("4.0123");
+            assertThat(secondProvider.getUsdToPlnRate()).isEqualByComparingTo("4.0123");
+        }
+        assertThat(nbpCalls.get()).isEqualTo(1);
+        assertThat(second.getBean(RateSnapshotRepository.class).count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictCachedBalanceOnOtherInstanceAfterExchange() {
+        UUID accountId = first.getBean(AccountService.class).createAccount(new CreateAccountRequest("John", "Doe", List.of(
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("1000.00")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("50.00")))));
+        CurrencyExchangeService secondService = second.getBean(CurrencyExchangeService.class);
+        assertThat(secondService.getVersionedBalance(accountId, Symbol.PLN).value()).isEqualByComparingTo("1000.00");
+
+        first.getBean(CurrencyExchangeService.class).exchangeCurrency(accountId, new BigDecimal("100.00"), Symbol.PLN, Symbol.USD);
+
+        await(() -> secondService.getVersionedBalance(accountId, Symbol.PLN).value().compareTo(new BigDecimal("900.00")) == 0);
+        assertThat(secondService.getVersionedBalance(accountId, Symbol.USD).value()).isGreaterThan(new BigDecimal("50.00"));
+    }
+
+    private static ConfigurableApplicationContext startInstance() {
+        return new SpringApplicationBuilder(CurrencyAppApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                        "--spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--nbp.api.url=http://localhost:" + nbp.getAddress().getPort() + "/api/exchangerates",
+                        "--currency.cluster.enabled=true",
+                        "--currency.cluster.rate-refresh-interval=1h",
+                        "--currency.outbox.relay.enabled=true",
+                        "--currency.outbox.relay.interval=PT0.1S");
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10 seconds").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.bluesoft.currencyexchange.integration;
+
+import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.dto.ReconciliationStatusDto;
+import com.bluesoft.currencyexchange.entity.RateSnapshotRecord;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.RateSnapshotRepository;
+import com.bluesoft.currencyexchange.service.AccountService;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.CurrencyRateProvider;
+import com.bluesoft.currencyexchange.service.HistoryPartitionManager;
+import com.bluesoft.currencyexchange.service.ReconciliationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Converts the history tables of a fresh schema to monthly partitions and archives them by running the maintenance
+ * as if months had passed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+class HistoryPartitioningIntegrationTest {
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Container
+    static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.2")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @TempDir
+    static Path directory;
+
+    @MockBean
+    private CurrencyRateProvider currencyRateProvider;
+
+    @Autowired
+    private HistoryPartitionManager historyPartitionManager;
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private CurrencyExchangeService currencyExchangeService;
+
+    @Autowired
+    private RateSnapshotRepository rateSnapshotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("currency.history.partitioned", () -> true);
+        registry.add("currency.history.premade-months", () -> 2);
+        registry.add("currency.history.retention-months", () -> 1);
+        registry.add("currency.history.archive-directory", () -> directory.resolve("archive").toString());
+        registry.add("currency.reconciliation.directory", () -> directory.resolve("reconciliation").toString());
+        registry.add("currency.reconciliation.partitions", () -> 4);
+    }
+
+    @Test
+    void shouldPartitionPruneAndArchiveHistoryWithoutBreakingReconciliation() throws Exception {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        String next = MONTH.format(current.plusMonths(1));
+        assertThat(partitions("ledger_entry")).containsExactly("ledger_entry_before_" + next,
+                "ledger_entry_p" + next, "ledger_entry_p" + MONTH.format(current.plusMonths(2)));
+
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.0000"));
+        UUID accountId = accountService.createAccount(new CreateAccountRequest("History", "Test", List.of(
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("1000.00")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("10.00")))));
+        currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("100.00"), Symbol.PLN, Symbol.USD);
+        rateSnapshotRepository.save(RateSnapshotRecord.builder().symbol(Symbol.USD).mid(new BigDecimal("4.0000"))
+                .effectiveDate(LocalDate.now()).fetchedAt(Instant.now()).fetchedBy("test").build());
+
+        // three months later the partitions up to the end of the next month are past the one month retention
+        historyPartitionManager.maintain(current.plusMonths(3));
+
+        assertThat(partitions("ledger_entry")).containsExactly("ledger_entry_p" + MONTH.format(current.plusMonths(2)),
+                "ledger_entry_p" + MONTH.format(current.plusMonths(3)), "ledger_entry_p" + MONTH.format(current.plusMonths(4)),
+                "ledger_entry_p" + MONTH.format(current.plusMonths(5)));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM ledger_entry", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM rate_snapshot", Long.class)).isZero();
+        // header, two opening balances and the two legs of the exchange
+        assertThat(archived("ledger_entry_before_" + next)).hasSize(5);
+        assertThat(archived("rate_snapshot_before_" + next)).hasSize(2);
+        assertThat(archived("ledger_entry_p" + next)).hasSize(1);
+
+        // lookups of recent rates skip the partitions of earlier months
+        Instant monthStart = current.plusMonths(3).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        rateSnapshotRepository.save(RateSnapshotRecord.builder().symbol(Symbol.USD).mid(new BigDecimal("4.1000"))
+                .effectiveDate(LocalDate.now()).fetchedAt(monthStart.plusSeconds(60)).fetchedBy("test").build());
+        assertThat(rateSnapshotRepository.findFirstBySymbolAndFetchedAtAfterOrderByIdDesc(Symbol.USD, monthStart))
+                .hasValueSatisfying(snapshot -> assertThat(snapshot.getMid()).isEqualByComparingTo("4.1"));
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT * FROM rate_snapshot WHERE symbol = 'USD' AND fetched_at > '" + monthStart + "' ORDER BY id DESC LIMIT 1",
+                String.class));
+        assertThat(plan).contains("rate_snapshot_p" + MONTH.format(current.plusMonths(3)))
+                .doesNotContain("rate_snapshot_p" + MONTH.format(current.plusMonths(2)));
+
+        reconciliationService.start();
+        ReconciliationStatusDto status = reconciliationService.status();
+        for (int i = 0; i < 100 && status.state() == ReconciliationStatusDto.State.RUNNING; i++) {
+            Thread.sleep(100);
+            status = reconciliationService.status();
+        }
+        assertThat(status.state()).isEqualTo(ReconciliationStatusDto.State.COMPLETED);
+        assertThat(status.rows()).isEqualTo(2);
+        assertThat(status.discrepancies()).isZero();
+    }
+
+    private List<String> partitions(String table) {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = ?::regclass ORDER BY c.relname""", String.class, table);
+    }
+
+    private List<String> archived(String partition) throws IOException {
+        Path file = directory.resolve("archive").resolve(partition + ".csv.gz");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.bluesoft.currencyexchange.integration;
+
+import com.bluesoft.currencyexchange.config.RecurringExchangeProperties;
+import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CreateRecurringExchangeRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.entity.RecurringExchange;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import com.bluesoft.currencyexchange.repository.RecurringExchangeRepository;
+import com.bluesoft.currencyexchange.service.AccountService;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.CurrencyRateProvider;
+import com.bluesoft.currencyexchange.service.RecurringExchangeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Lets a recurring exchange run outlive its lease and checks that another instance cannot claim and book it again.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+class RecurringExchangeLeaseIntegrationTest {
+
+    private static final BigDecimal RATE = new BigDecimal("4.0000");
+
+    @Container
+    static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.2")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @MockBean
+    private CurrencyRateProvider currencyRateProvider;
+
+    @SpyBean
+    private CurrencyExchangeService currencyExchangeService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private RecurringExchangeService recurringExchangeService;
+
+    @Autowired
+    private RecurringExchangeRepository recurringExchangeRepository;
+
+    @Autowired
+    private CurrencyAccountRepository currencyAccountRepository;
+
+    @Autowired
+    private RecurringExchangeProperties properties;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("currency.recurring.enabled", () -> false);
+    }
+
+    @Test
+    void shouldBookRunOnceWhenLeaseExpiresMidRun() throws Exception {
+        UUID accountId = accountService.createAccount(new CreateAccountRequest("Lease", "Test", List.of(
+                new CurrencyAccountDto(Symbol.PLN, new BigDecimal("1000.00")),
+                new CurrencyAccountDto(Symbol.USD, new BigDecimal("1.00")))));
+        // yearly, so the run moves the next occurrence far past any claim below
+        Long scheduleId = recurringExchangeService.createSchedule(
+                new CreateRecurringExchangeRequest(accountId, new BigDecimal("100.00"), Symbol.PLN, Symbol.USD, "0 0 0 1 1 *")).id();
+        RecurringExchange schedule = recurringExchangeRepository.findById(scheduleId).orElseThrow();
+        Instant now = Instant.now();
+        schedule.setNextRunAt(now.minusSeconds(1));
+        recurringExchangeRepository.save(schedule);
+
+        CountDownLatch booking = new CountDownLatch(1);
+        CountDownLatch leaseExpired = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            booking.countDown();
+            assertThat(leaseExpired.await(30, TimeUnit.SECONDS)).isTrue();
+            return invocation.callRealMethod();
+        }).when(currencyExchangeService).exchangeCurrencyAtRate(any(), any(), any(), any(), any());
+
+        UUID firstRun = UUID.randomUUID();
+        assertThat(recurringExchangeService.claimDue(now, firstRun)).containsExactly(scheduleId);
+        CompletableFuture<Optional<Instant>> first = CompletableFuture.supplyAsync(
+                () -> recurringExchangeService.execute(scheduleId, firstRun, RATE));
+        assertThat(booking.await(30, TimeUnit.SECONDS)).isTrue();
+
+        // another instance polls after the lease of the first run ran out
+        Instant afterLease = now.plus(properties.lease()).plusSeconds(1);
+        UUID secondRun = UUID.randomUUID();
+        List<Long> reclaimed = recurringExchangeService.claimDue(afterLease, secondRun);
+        leaseExpired.countDown();
+
+        assertThat(reclaimed).isEmpty();
+        assertThat(first.get(30, TimeUnit.SECONDS)).isPresent();
+        assertThat(recurringExchangeService.execute(scheduleId, secondRun, RATE)).isEmpty();
+        assertThat(recurringExchangeService.claimDue(afterLease, secondRun)).isEmpty();
+        verify(currencyExchangeService, times(1)).exchangeCurrencyAtRate(any(), any(), any(), any(), any());
+        assertThat(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId).orElseThrow().getBalance())
+                .isEqualByComparingTo("900.00");
+        assertThat(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.USD, accountId).orElseThrow().getBalance())
+                .isEqualByComparingTo("26.00");
+    }
+}
@@ -0,0 +1,181 @@
+package com.bluesoft.currencyexchange.integration;
+
+import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.dto.TransferRequest;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import com.bluesoft.currencyexchange.service.AccountService;
+import com.bluesoft.currencyexchange.service.CurrencyExchangeService;
+import com.bluesoft.currencyexchange.service.CurrencyRateProvider;
+import com.bluesoft.currencyexchange.service.TransferService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs random transfers and exchanges concurrently on a handful of accounts, so that most of them contend for the
+ * same rows, and checks that every cent is accounted for afterwards.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+class TransferStressTest {
+
+    private static final BigDecimal RATE = new BigDecimal("4.0123");
+    private static final int ACCOUNTS = 6;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 250;
+
+    @Container
+    static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.2")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @MockBean
+    private CurrencyRateProvider currencyRateProvider;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private CurrencyExchangeService currencyExchangeService;
+
+    @Autowired
+    private CurrencyAccountRepository currencyAccountRepository;
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS + 2);
+    }
+
+    @Test
+    void shouldConserveMoneyUnderConcurrentTransfersAndExchanges() throws Exception {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(RATE);
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(accountService.createAccount(new CreateAccountRequest("Stress", "Test" + i, List.of(
+                    new CurrencyAccountDto(Symbol.PLN, new BigDecimal("10000.00")),
+                    new CurrencyAccountDto(Symbol.USD, new BigDecimal("2500.00"))))));
+        }
+        Map<Symbol, BigDecimal> initial = totals(accountIds);
+        // net change of every currency, in cents, from the operations that succeeded
+        Map<Symbol, LongAdder> expectedChange = Map.of(Symbol.PLN, new LongAdder(), Symbol.USD, new LongAdder());
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    UUID from = accountIds.get(random.nextInt(ACCOUNTS));
+                    Symbol fromCurrency = random.nextBoolean() ? Symbol.PLN : Symbol.USD;
+                    BigDecimal amount = BigDecimal.valueOf(random.nextLong(1, 10_001), 2);
+                    boolean exchange = random.nextInt(4) == 0;
+                    UUID to = exchange ? from : accountIds.get(random.nextInt(ACCOUNTS));
+                    Symbol toCurrency = exchange ? other(fromCurrency) : random.nextBoolean() ? Symbol.PLN : Symbol.USD;
+                    if (from.equals(to) && fromCurrency == toCurrency) {
+                        toCurrency = other(fromCurrency);
+                    }
+                    try {
+                        if (exchange) {
+                            currencyExchangeService.exchangeCurrencyAtRate(from, amount, fromCurrency, toCurrency, RATE);
+                        } else {
+                            transferService.transfer(new TransferRequest(from, fromCurrency, to, toCurrency, amount));
+                        }
+                        expectedChange.get(fromCurrency).add(-cents(amount));
+                        expectedChange.get(toCurrency).add(cents(credited(amount, fromCurrency, toCurrency)));
+                        completed.incrementAndGet();
+                    } catch (InsufficientFundsException ex) {
+                        rejected.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        failures.add(ex);
+                    }
+                }
+                return null;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        executor.shutdown();
+
+        System.out.printf("%d operations (%d rejected) on %d accounts with %d threads in %.2f s: %.0f ops/s%n",
+                completed.get() + rejected.get(), rejected.get(), ACCOUNTS, THREADS, seconds, (completed.get() + rejected.get()) / seconds);
+
+        assertThat(failures).isEmpty();
+        assertThat(completed.get()).isPositive();
+        Map<Symbol, BigDecimal> current = totals(accountIds);
+        for (Symbol symbol : Symbol.values()) {
+            assertThat(current.get(symbol))
+                    .isEqualByComparingTo(initial.get(symbol).add(BigDecimal.valueOf(expectedChange.get(symbol).sum(), 2)));
+        }
+        assertThat(currencyAccountRepository.findAll())
+                .allSatisfy(currencyAccount -> assertThat(currencyAccount.getBalance()).isPositive());
+    }
+
+    private Map<Symbol, BigDecimal> totals(List<UUID> accountIds) {
+        return currencyAccountRepository.findAll().stream()
+                .filter(currencyAccount -> accountIds.contains(currencyAccount.getAccount().getId()))
+                .collect(Collectors.groupingBy(CurrencyAccount::getSymbol,
+                        Collectors.reducing(BigDecimal.ZERO, CurrencyAccount::getBalance, BigDecimal::add)));
+    }
+
+    private static BigDecimal credited(BigDecimal amount, Symbol fromCurrency, Symbol toCurrency) {
+        if (fromCurrency == toCurrency) {
+            return amount;
+        }
+        BigDecimal rate = fromCurrency == Symbol.PLN ? RATE : BigDecimal.ONE.divide(RATE, 10, RoundingMode.HALF_UP);
+        return CurrencyAccount.exchangedAmount(amount, rate);
+    }
+
+    private static Symbol other(Symbol symbol) {
+        return symbol == Symbol.PLN ? Symbol.USD : Symbol.PLN;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
@@ -1,12 +1,18 @@
 package com.bluesoft.currencyexchange.service;
 
 import com.bluesoft.currencyexchange.dto.CreateAccountRequest;
+import com.bluesoft.currencyexchange.dto.CreateAccountResultDto;
 import com.bluesoft.currencyexchange.dto.CurrencyAccountDto;
+import com.bluesoft.currencyexchange.dto.Versioned;
 import com.bluesoft.currencyexchange.entity.Account;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
 import com.bluesoft.currencyexchange.entity.Symbol;
 import com.bluesoft.currencyexchange.dto.validator.AccountRequestValidator;
+import com.bluesoft.currencyexchange.dto.validator.AccountViolation;
 import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
 import com.bluesoft.currencyexchange.repository.AccountRepository;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
 import com.bluesoft.currencyexchange.dto.AccountDto;
 import com.bluesoft.currencyexchange.mapper.AccountMapper;
 import org.junit.jupiter.api.Test;
@@ -16,6 +22,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,12 +37,18 @@ class AccountServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private CurrencyAccountRepository currencyAccountRepository;
+
     @Mock
     private AccountMapper accountMapper;
 
     @Mock
     private AccountRequestValidator validator;
 
+    @Mock
+    private OutboxService outboxService;
+
     @InjectMocks
     private AccountService accountService;
 
@@ -61,6 +76,7 @@ class AccountServiceTest {
         assertEquals(generatedId, accountId);
         verify(accountRepository, times(1)).save(any());
         verify(validator, times(1)).validate(request);
+        verify(outboxService, times(1)).record(any(), eq(OutboxEventType.ACCOUNT_CREATED));
     }
 
     @Test
@@ -92,14 +108,14 @@ class AccountServiceTest {
                 )
         );
 
-        doThrow(new IllegalArgumentException("Balance cannot be negative."))
+        doThrow(new IllegalArgumentException("Balance must be positive."))
                 .when(validator).validate(request);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             accountService.createAccount(request);
         });
 
-        assertEquals("Balance cannot be negative.", exception.getMessage());
+        assertEquals("Balance must be positive.", exception.getMessage());
     }
 
     @Test
@@ -141,6 +157,57 @@ class AccountServiceTest {
         assertEquals("At least one currency balance is required.", exception.getMessage());
     }
 
+    @Test
+    void shouldCreateValidAccountsOfBatchAndReportInvalidOnes() {
+        CreateAccountRequest valid = new CreateAccountRequest("John", "Doe",
+                List.of(new CurrencyAccountDto(Symbol.PLN, new BigDecimal("100.00"))));
+        CreateAccountRequest invalid = new CreateAccountRequest("", "Doe",
+                List.of(new CurrencyAccountDto(Symbol.USD, new BigDecimal("100.00"))));
+        UUID generatedId = UUID.randomUUID();
+        when(validator.check(valid)).thenReturn(0);
+        when(validator.check(invalid)).thenReturn(AccountViolation.FIRST_NAME_REQUIRED.bit() | AccountViolation.PLN_BALANCE_REQUIRED.bit());
+        when(accountRepository.save(any())).thenAnswer(invocation -> {
+            Account account = invocation.getArgument(0);
+            account.setId(generatedId);
+            return account;
+        });
+
+        List<CreateAccountResultDto> results = accountService.createAccounts(List.of(invalid, valid));
+
+        assertEquals(List.of(
+                new CreateAccountResultDto(0, null, List.of("First name is required.", "Account must include an initial balance in PLN.")),
+                new CreateAccountResultDto(1, generatedId, List.of())
+        ), results);
+        verify(accountRepository, times(1)).save(any());
+        verify(outboxService, times(1)).record(any(), eq(OutboxEventType.ACCOUNT_CREATED));
+    }
+
+    @Test
+    void shouldReportNullElementOfBatchAsInvalid() {
+        CreateAccountRequest valid = new CreateAccountRequest("John", "Doe",
+                List.of(new CurrencyAccountDto(Symbol.PLN, new BigDecimal("100.00"))));
+        AccountRequestValidator realValidator = new AccountRequestValidator();
+        when(validator.check(any())).thenAnswer(invocation -> realValidator.check(invocation.getArgument(0)));
+        when(accountRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<CreateAccountResultDto> results = accountService.createAccounts(Arrays.asList(null, valid));
+
+        assertEquals(List.of("First name is required.", "Last name is required.",
+                "At least one currency balance is required.", "Account must include an initial balance in PLN."), results.get(0).errors());
+        assertNull(results.get(0).accountId());
+        assertEquals(List.of(), results.get(1).errors());
+        verify(accountRepository, times(1)).save(any());
+    }
+
+    @Test
+    void shouldRejectTooLargeBatch() {
+        List<CreateAccountRequest> requests = Collections.nCopies(AccountService.MAX_BATCH_SIZE + 1,
+                new CreateAccountRequest("John", "Doe", List.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> accountService.createAccounts(requests));
+        verifyNoInteractions(accountRepository);
+    }
+
     @Test
     void shouldGetAccountDetailsSuccessfully() {
         UUID accountId = UUID.randomUUID();
@@ -157,6 +224,37 @@ class AccountServiceTest {
         verify(accountMapper, times(1)).toDto(account);
     }
 
+    @Test
+    void shouldVersionAccountDetailsWithTheSumOfCurrencyAccountVersions() {
+        UUID accountId = UUID.randomUUID();
+        Account account = new Account(accountId, "John", "Doe", new ArrayList<>());
+        CurrencyAccount pln = new CurrencyAccount(1L, Symbol.PLN, account, new BigDecimal("1000.00"));
+        CurrencyAccount usd = new CurrencyAccount(2L, Symbol.USD, account, new BigDecimal("250.00"));
+        pln.setVersion(3);
+        usd.setVersion(4);
+        account.addCurrencyAccount(pln);
+        account.addCurrencyAccount(usd);
+        AccountDto expectedDto = new AccountDto("John", "Doe", List.of());
+
+        when(accountRepository.findById(accountId)).thenReturn(java.util.Optional.of(account));
+        when(accountMapper.toDto(account)).thenReturn(expectedDto);
+
+        Versioned<AccountDto> versioned = accountService.getVersionedAccountDetails(accountId);
+
+        assertEquals(expectedDto, versioned.value());
+        assertEquals(7, versioned.version());
+        assertEquals("7", versioned.etag());
+    }
+
+    @Test
+    void shouldLookUpAccountVersionWithoutLoadingTheAccount() {
+        UUID accountId = UUID.randomUUID();
+        when(currencyAccountRepository.findAccountVersion(accountId)).thenReturn(java.util.Optional.of(7L));
+
+        assertEquals(java.util.Optional.of(7L), accountService.findAccountVersion(accountId));
+        verifyNoInteractions(accountRepository, accountMapper);
+    }
+
     @Test
     void shouldThrowExceptionWhenAccountNotFound() {
         UUID accountId = UUID.randomUUID();
@@ -1,23 +1,44 @@
 package com.bluesoft.currencyexchange.service;
 
+import com.bluesoft.currencyexchange.config.PricingProperties;
+import com.bluesoft.currencyexchange.config.ProfilingProperties;
+import com.bluesoft.currencyexchange.dto.BatchExchangeRequest;
+import com.bluesoft.currencyexchange.dto.ExchangeResultDto;
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.dto.Versioned;
 import com.bluesoft.currencyexchange.entity.Account;
 import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
 import com.bluesoft.currencyexchange.entity.Symbol;
 import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
 import com.bluesoft.currencyexchange.repository.AccountRepository;
 import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +53,21 @@ class CurrencyExchangeServiceTest {
     @Mock
     private CurrencyRateProvider currencyRateProvider;
 
+    @Mock
+    private OutboxService outboxService;
+
+    @Spy
+    private ExchangeProfiler exchangeProfiler = new ExchangeProfiler(new ProfilingProperties(true, Duration.ofMinutes(5)));
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private PricingEngine pricingEngine = new PricingEngine(new PricingProperties(null), new ObjectMapper());
+
     @InjectMocks
     private CurrencyExchangeService currencyExchangeService;
 
@@ -57,9 +93,8 @@ class CurrencyExchangeServiceTest {
 
     @Test
     void shouldExchangePlnToUsdSuccessfully() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId)).thenReturn(Optional.of(plnAccount));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.USD, accountId)).thenReturn(Optional.of(usdAccount));
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
         when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
 
         currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD);
@@ -67,13 +102,30 @@ class CurrencyExchangeServiceTest {
         assertEquals(new BigDecimal("800.00").setScale(2), plnAccount.getBalance());
         assertEquals(new BigDecimal("300.00").setScale(2), usdAccount.getBalance());
         verify(accountRepository, times(1)).save(account);
+        verify(outboxService, times(1)).record(account, OutboxEventType.BALANCE_CHANGED);
+        assertTrue(exchangeProfiler.summary().stream().allMatch(phase -> phase.count() == 1));
+    }
+
+    @Test
+    void shouldExchangeAtGivenPriceWithoutRateOrPricingLookup() {
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
+        pricingEngine.install(new PricingConfig(List.of(new PricingConfig.PairPricing(Symbol.PLN, Symbol.USD, 500, List.of())), List.of()));
+
+        currencyExchangeService.exchangeCurrencyAtPrice(accountId, new BigDecimal("900.00"), Symbol.PLN, Symbol.USD,
+                new BigDecimal("4.04"), new BigDecimal("5.00"));
+
+        assertEquals(new BigDecimal("100.00"), plnAccount.getBalance());
+        assertEquals(new BigDecimal("471.53"), usdAccount.getBalance());
+        verifyNoInteractions(currencyRateProvider);
+        verify(pricingEngine, never()).current();
+        verify(outboxService).record(account, OutboxEventType.BALANCE_CHANGED);
     }
 
     @Test
     void shouldExchangeUsdToPlnSuccessfully() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.USD, accountId)).thenReturn(Optional.of(usdAccount));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId)).thenReturn(Optional.of(plnAccount));
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
         when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
 
         currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("50.00"), Symbol.USD, Symbol.PLN);
@@ -83,9 +135,24 @@ class CurrencyExchangeServiceTest {
         verify(accountRepository, times(1)).save(account);
     }
 
+    @Test
+    void shouldApplySpreadAndFeeBandOfPair() {
+        pricingEngine.install(new PricingConfig(List.of(new PricingConfig.PairPricing(Symbol.PLN, Symbol.USD, 100, List.of(
+                new PricingConfig.FeeTier(BigDecimal.ZERO, 0), new PricingConfig.FeeTier(new BigDecimal("100"), 25)))), List.of()));
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+
+        currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD);
+
+        // 0.50 PLN fee, the remaining 199.50 PLN at 4.04
+        assertEquals(new BigDecimal("800.00"), plnAccount.getBalance());
+        assertEquals(new BigDecimal("299.38"), usdAccount.getBalance());
+    }
+
     @Test
     void shouldThrowExceptionWhenAccountNotFound() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.empty());
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.empty());
 
         AccountNotFoundException exception = assertThrows(AccountNotFoundException.class, () -> {
             currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("100.00"), Symbol.PLN, Symbol.USD);
@@ -96,8 +163,8 @@ class CurrencyExchangeServiceTest {
 
     @Test
     void shouldThrowExceptionWhenCurrencyAccountNotFound() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId)).thenReturn(Optional.empty());
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(usdAccount));
 
         AccountNotFoundException exception = assertThrows(AccountNotFoundException.class, () -> {
             currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("100.00"), Symbol.PLN, Symbol.USD);
@@ -106,11 +173,74 @@ class CurrencyExchangeServiceTest {
         assertTrue(exception.getMessage().contains("There is no currency account with accountId : '" + accountId + "' and symbol : 'PLN'"));
     }
 
+    @Test
+    void shouldPerformValidExchangesOfBatchAndReportTheOthers() {
+        UUID unknownAccountId = UUID.randomUUID();
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(accountRepository.findWithLockById(unknownAccountId)).thenReturn(Optional.empty());
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        List<ExchangeResultDto> results = currencyExchangeService.exchangeCurrencies(List.of(
+                new BatchExchangeRequest(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD),
+                new BatchExchangeRequest(accountId, new BigDecimal("5000.00"), Symbol.PLN, Symbol.USD),
+                new BatchExchangeRequest(accountId, new BigDecimal("10.00"), Symbol.PLN, Symbol.PLN),
+                new BatchExchangeRequest(accountId, BigDecimal.ZERO, Symbol.PLN, Symbol.USD),
+                new BatchExchangeRequest(unknownAccountId, new BigDecimal("10.00"), Symbol.PLN, Symbol.USD)));
+
+        assertEquals(List.of(
+                new ExchangeResultDto(0, null),
+                new ExchangeResultDto(1, "Insufficient funds in the account."),
+                new ExchangeResultDto(2, "Cannot exchange the same currency. Please select different currencies."),
+                new ExchangeResultDto(3, "Amount must be positive."),
+                new ExchangeResultDto(4, "There is no account with id : '" + unknownAccountId + "'.")), results);
+        assertEquals(new BigDecimal("800.00").setScale(2), plnAccount.getBalance());
+        assertEquals(new BigDecimal("300.00").setScale(2), usdAccount.getBalance());
+        verify(currencyRateProvider, times(1)).getUsdToPlnRate();
+        verify(outboxService, times(1)).record(account, OutboxEventType.BALANCE_CHANGED);
+    }
+
+    @Test
+    void shouldReportExchangesOfBatchThatFailAtCommit() {
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).doThrow(new TransactionSystemException("Could not commit JPA transaction"))
+                .doThrow(new ConstraintViolationException("balance must be greater than 0", Set.of()))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        List<ExchangeResultDto> results = currencyExchangeService.exchangeCurrencies(List.of(
+                new BatchExchangeRequest(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD),
+                new BatchExchangeRequest(accountId, new BigDecimal("10.00"), Symbol.PLN, Symbol.USD),
+                new BatchExchangeRequest(accountId, new BigDecimal("10.00"), Symbol.USD, Symbol.PLN)));
+
+        assertEquals(List.of(
+                new ExchangeResultDto(0, null),
+                new ExchangeResultDto(1, CurrencyExchangeService.NOT_BOOKED),
+                new ExchangeResultDto(2, CurrencyExchangeService.NOT_BOOKED)), results);
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void shouldRejectTooLargeExchangeBatch() {
+        List<BatchExchangeRequest> requests = Collections.nCopies(CurrencyExchangeService.MAX_BATCH_SIZE + 1,
+                new BatchExchangeRequest(accountId, BigDecimal.ONE, Symbol.PLN, Symbol.USD));
+
+        assertThrows(IllegalArgumentException.class, () -> currencyExchangeService.exchangeCurrencies(requests));
+        verifyNoInteractions(transactionTemplate);
+    }
+
     @Test
     void shouldThrowExceptionWhenInsufficientBalance() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId)).thenReturn(Optional.of(plnAccount));
-        when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.USD, accountId)).thenReturn(Optional.of(usdAccount));
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
         when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -120,13 +250,30 @@ class CurrencyExchangeServiceTest {
         assertEquals("Insufficient funds in the account.", exception.getMessage());
     }
 
+    @Test
+    void shouldRejectExchangeOfWholeBalance() {
+        when(accountRepository.findWithLockById(accountId)).thenReturn(Optional.of(account));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(accountId))).thenReturn(List.of(plnAccount, usdAccount));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+
+        assertThrows(InsufficientFundsException.class,
+                () -> currencyExchangeService.exchangeCurrency(accountId, new BigDecimal("1000.00"), Symbol.PLN, Symbol.USD));
+
+        assertEquals(new BigDecimal("1000.00"), plnAccount.getBalance());
+        assertEquals(new BigDecimal("250.00"), usdAccount.getBalance());
+        verify(accountRepository, never()).save(any());
+    }
+
     @Test
     void shouldRetrieveCorrectBalance() {
         when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId)).thenReturn(Optional.of(plnAccount));
 
-        BigDecimal balance = currencyExchangeService.getBalance(accountId, Symbol.PLN);
+        plnAccount.setVersion(5);
+
+        Versioned<BigDecimal> balance = currencyExchangeService.getVersionedBalance(accountId, Symbol.PLN);
 
-        assertEquals(new BigDecimal("1000.00").setScale(2), balance);
+        assertEquals(new BigDecimal("1000.00").setScale(2), balance.value());
+        assertEquals(5, balance.version());
         verify(currencyAccountRepository, times(1)).findBySymbolAndAccount_Id(Symbol.PLN, accountId);
     }
 
@@ -135,7 +282,7 @@ class CurrencyExchangeServiceTest {
         when(currencyAccountRepository.findBySymbolAndAccount_Id(Symbol.PLN, accountId)).thenReturn(Optional.empty());
 
         AccountNotFoundException exception = assertThrows(AccountNotFoundException.class, () -> {
-            currencyExchangeService.getBalance(accountId, Symbol.PLN);
+            currencyExchangeService.getVersionedBalance(accountId, Symbol.PLN);
         });
 
         assertTrue(exception.getMessage().contains("There is no currency account with accountId : '" + accountId + "' and symbol : 'PLN'"));
@@ -0,0 +1,268 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.StreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBroadcasterTest {
+
+    private final EventBroadcaster broadcaster = new EventBroadcaster(
+            properties(Duration.ofHours(1)), new SimpleMeterRegistry(), Runnable::run);
+
+    @Test
+    void shouldDeliverEventsMatchingTheSubscription() {
+        UUID accountId = UUID.randomUUID();
+        RecordingWriter writer = new RecordingWriter();
+        EventBroadcaster.Subscription subscription = broadcaster.subscribe(accountId, false, writer);
+
+        broadcaster.publish("rate", null, "{}");
+        broadcaster.publish("balance", UUID.randomUUID(), "other");
+        broadcaster.publish("balance", accountId, "mine");
+
+        assertTrue(broadcaster.dispatch(subscription, System.nanoTime()));
+        assertEquals(List.of("balance:mine"), writer.events);
+    }
+
+    @Test
+    void shouldOnlyDeliverEventsPublishedAfterSubscribing() {
+        broadcaster.publish("rate", null, "old");
+        RecordingWriter writer = new RecordingWriter();
+        EventBroadcaster.Subscription subscription = broadcaster.subscribe(null, true, writer);
+        broadcaster.publish("rate", null, "new");
+
+        broadcaster.dispatch(subscription, System.nanoTime());
+
+        assertEquals(List.of("rate:new"), writer.events);
+    }
+
+    @Test
+    void shouldSkipAheadWhenSubscriberFallsBehindTheRing() {
+        RecordingWriter writer = new RecordingWriter();
+        EventBroadcaster.Subscription subscription = broadcaster.subscribe(null, true, writer);
+        for (int i = 0; i < 6; i++) {
+            broadcaster.publish("rate", null, Integer.toString(i));
+        }
+        broadcaster.publish("rate", null, "6");
+
+        broadcaster.dispatch(subscription, System.nanoTime());
+        assertEquals(List.of("dropped:7"), writer.events);
+
+        broadcaster.publish("rate", null, "7");
+        assertTrue(broadcaster.dispatch(subscription, System.nanoTime()));
+        assertEquals(List.of("dropped:7", "rate:7"), writer.events);
+    }
+
+    @Test
+    void shouldDisconnectSubscriberThatKeepsFallingBehind() {
+        RecordingWriter writer = new RecordingWriter();
+        EventBroadcaster.Subscription subscription = broadcaster.subscribe(null, true, writer);
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 5; i++) {
+                broadcaster.publish("rate", null, "x");
+            }
+            broadcaster.dispatch(subscription, System.nanoTime());
+        }
+
+        assertTrue(writer.closed);
+        assertFalse(broadcaster.dispatch(subscription, System.nanoTime()));
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void shouldCancelSubscriptionWhenWriteFails() {
+        RecordingWriter writer = new RecordingWriter();
+        writer.failing = true;
+        EventBroadcaster.Subscription subscription = broadcaster.subscribe(null, true, writer);
+        broadcaster.publish("rate", null, "{}");
+
+        assertFalse(broadcaster.dispatch(subscription, System.nanoTime()));
+        assertTrue(writer.closed);
+    }
+
+    @Test
+    void shouldSendHeartbeatOnIdleStream() {
+        RecordingWriter writer = new RecordingWriter();
+        EventBroadcaster.Subscription subscription = broadcaster.subscribe(null, true, writer);
+
+        broadcaster.dispatch(subscription, System.nanoTime() + Duration.ofHours(2).toNanos());
+
+        assertEquals(List.of("heartbeat"), writer.events);
+    }
+
+    @Test
+    void shouldKeepDeliveringToOtherSubscribersWhileOneWriteBlocks() throws Exception {
+        EventBroadcaster threaded = new EventBroadcaster(properties(Duration.ofMillis(300)), new SimpleMeterRegistry());
+        threaded.start();
+        try {
+            BlockingWriter stuck = new BlockingWriter();
+            RecordingWriter first = new RecordingWriter();
+            RecordingWriter second = new RecordingWriter();
+            threaded.subscribe(null, true, stuck);
+            threaded.subscribe(null, true, first);
+            threaded.subscribe(null, true, second);
+
+            threaded.publish("rate", null, "0");
+            assertTrue(stuck.blocked.await(5, TimeUnit.SECONDS));
+            threaded.publish("rate", null, "1");
+            threaded.publish("rate", null, "2");
+
+            await(() -> first.events.size() == 3 && second.events.size() == 3);
+            assertEquals(List.of("rate:0", "rate:1", "rate:2"), first.events);
+            assertEquals(List.of("rate:0", "rate:1", "rate:2"), second.events);
+            // only the stuck subscriber is disconnected once its write times out
+            await(() -> stuck.closed && threaded.subscriberCount() == 2);
+            assertEquals(1, stuck.writes.get());
+            assertFalse(first.closed);
+            assertFalse(second.closed);
+        } finally {
+            threaded.stop();
+        }
+    }
+
+    @Test
+    void shouldReplaceWriterThreadHeldByStalledWrite() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EventBroadcaster threaded = new EventBroadcaster(properties(1, Duration.ofMillis(300)), meterRegistry);
+        threaded.start();
+        StalledWriter stalled = new StalledWriter();
+        try {
+            RecordingWriter healthy = new RecordingWriter();
+            threaded.subscribe(null, true, stalled);
+            threaded.publish("rate", null, "0");
+            assertTrue(stalled.blocked.await(5, TimeUnit.SECONDS));
+            threaded.subscribe(null, true, healthy);
+
+            // the only writer thread is stuck until the stalled write times out and gets replaced
+            threaded.publish("rate", null, "1");
+            await(() -> healthy.events.equals(List.of("rate:1")));
+            assertEquals(1, meterRegistry.get("stream.writes.stalled").gauge().value());
+            assertFalse(stalled.closed);
+
+            stalled.release.countDown();
+            await(() -> stalled.closed && meterRegistry.get("stream.writes.stalled").gauge().value() == 0);
+            threaded.publish("rate", null, "2");
+            await(() -> healthy.events.equals(List.of("rate:1", "rate:2")));
+        } finally {
+            stalled.release.countDown();
+            threaded.stop();
+        }
+    }
+
+    private static StreamProperties properties(Duration writeTimeout) {
+        return properties(2, writeTimeout);
+    }
+
+    private static StreamProperties properties(int writeThreads, Duration writeTimeout) {
+        return new StreamProperties(4, 1, writeThreads, 1, Duration.ofHours(1), writeTimeout, 64, Duration.ofMinutes(30));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class BlockingWriter implements EventBroadcaster.EventWriter {
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch never = new CountDownLatch(1);
+        private final AtomicInteger writes = new AtomicInteger();
+        private volatile boolean closed;
+
+        @Override
+        public void write(EventBroadcaster.BroadcastEvent event) throws IOException {
+            writes.incrementAndGet();
+            blocked.countDown();
+            try {
+                never.await();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException("Write interrupted");
+            }
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Blocks like a write to a client that stopped reading, which an interrupt does not end.
+     */
+    private static class StalledWriter implements EventBroadcaster.EventWriter {
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean closed;
+
+        @Override
+        public void write(EventBroadcaster.BroadcastEvent event) {
+            blocked.countDown();
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class RecordingWriter implements EventBroadcaster.EventWriter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private boolean failing;
+        private volatile boolean closed;
+
+        @Override
+        public void write(EventBroadcaster.BroadcastEvent event) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(event.name() + ":" + event.data());
+        }
+
+        @Override
+        public void heartbeat() {
+            events.add("heartbeat");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
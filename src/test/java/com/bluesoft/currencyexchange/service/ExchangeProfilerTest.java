@@ -0,0 +1,50 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ProfilingProperties;
+import com.bluesoft.currencyexchange.dto.PhaseProfileDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeProfilerTest {
+
+    private final ExchangeProfiler profiler = new ExchangeProfiler(new ProfilingProperties(true, Duration.ofMinutes(5)));
+
+    @Test
+    void shouldPlaceEveryValueInABucketThatContainsIt() {
+        for (long nanos : new long[]{0, 1, 3, 4, 7, 8, 9, 15, 16, 1_000, 123_456, 1_000_000_000L, Long.MAX_VALUE}) {
+            int bucket = ExchangeProfiler.bucket(nanos);
+            assertTrue(nanos <= ExchangeProfiler.upperBound(bucket), "upper bound of " + nanos);
+            assertTrue(bucket == 0 || nanos > ExchangeProfiler.upperBound(bucket - 1), "lower bound of " + nanos);
+        }
+    }
+
+    @Test
+    void shouldSummarizeRecordedPhases() {
+        UUID accountId = UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            ExchangePhaseEvent event = profiler.begin(ExchangePhase.TRANSFER, accountId);
+            profiler.end(event, ExchangePhase.TRANSFER);
+        }
+
+        PhaseProfileDto transfer = profiler.summary().get(ExchangePhase.TRANSFER.ordinal());
+        assertEquals(ExchangePhase.TRANSFER, transfer.phase());
+        assertEquals(10, transfer.count());
+        assertTrue(transfer.p50Micros() <= transfer.p99Micros());
+        assertTrue(transfer.p999Micros() <= transfer.maxMicros());
+        assertEquals(0, profiler.summary().get(ExchangePhase.COMMIT.ordinal()).count());
+    }
+
+    @Test
+    void shouldStartNewWindowOnReset() {
+        ExchangePhaseEvent event = profiler.begin(ExchangePhase.RATE_FETCH, UUID.randomUUID());
+        profiler.end(event, ExchangePhase.RATE_FETCH);
+
+        profiler.reset();
+
+        assertTrue(profiler.summary().stream().allMatch(phase -> phase.count() == 0));
+    }
+}
@@ -0,0 +1,74 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.WarmUpProperties;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.repository.AccountRepository;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeWarmUpTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private CurrencyAccountRepository currencyAccountRepository;
+
+    @Mock
+    private CurrencyRateProvider currencyRateProvider;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExchangeWarmUp warmUp;
+
+    @BeforeEach
+    void setUp() {
+        warmUp = new ExchangeWarmUp(accountRepository, currencyAccountRepository, currencyRateProvider,
+                transactionManager, new WarmUpProperties(100, 3));
+    }
+
+    @Test
+    void shouldRunExchangeQueriesInTransactionsAndFetchRate() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.0000"));
+
+        warmUp.run(new DefaultApplicationArguments());
+
+        verify(accountRepository, times(3)).findWithLockById(any(UUID.class));
+        verify(currencyAccountRepository, times(3)).findWithLockByAccount_IdInOrderById(List.of(new UUID(0, 0)));
+        verify(currencyAccountRepository, times(3)).findBySymbolAndAccount_Id(eq(Symbol.PLN), any(UUID.class));
+        verify(transactionManager, times(3)).commit(any());
+        verify(currencyRateProvider).getUsdToPlnRate();
+    }
+
+    @Test
+    void shouldFinishWhenRateCannotBeFetched() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenThrow(new IllegalStateException("NBP unavailable"));
+
+        assertDoesNotThrow(() -> warmUp.run(new DefaultApplicationArguments()));
+    }
+
+    @Test
+    void shouldExchangeBackAndForthWithoutDrainingAccounts() {
+        BigDecimal balance = ExchangeWarmUp.exchange(new BigDecimal("4.0000"), 2);
+
+        // 1.00 PLN out, then 1.00 USD back at 4 PLN
+        assertEquals(new BigDecimal("1000003.00"), balance);
+    }
+}
@@ -0,0 +1,39 @@
+package com.bluesoft.currencyexchange.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerBackfillTest {
+
+    private static final String LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldRecordOpeningEntriesUnderTheLock() {
+        when(jdbcTemplate.queryForObject(LOCK, Boolean.class, LedgerBackfill.LOCK_KEY)).thenReturn(true);
+        when(jdbcTemplate.update(LedgerBackfill.BACKFILL)).thenReturn(3);
+
+        assertEquals(3, new LedgerBackfill(jdbcTemplate, transactionManager).backfill());
+    }
+
+    @Test
+    void shouldLeaveBackfillToInstanceHoldingTheLock() {
+        when(jdbcTemplate.queryForObject(LOCK, Boolean.class, LedgerBackfill.LOCK_KEY)).thenReturn(false);
+
+        assertEquals(0, new LedgerBackfill(jdbcTemplate, transactionManager).backfill());
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+}
@@ -0,0 +1,76 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitOrderBookTest {
+
+    private final LimitOrderBook book = new LimitOrderBook();
+
+    @Test
+    void shouldTriggerBelowOrdersAtOrUnderTheirRate() {
+        book.add(order(1L, TriggerCondition.BELOW, "3.80"));
+        book.add(order(2L, TriggerCondition.BELOW, "3.70"));
+        book.add(order(3L, TriggerCondition.BELOW, "3.85"));
+
+        List<Long> crossed = drain("3.80");
+
+        assertEquals(List.of(3L, 1L), crossed);
+        assertEquals(1, book.size());
+    }
+
+    @Test
+    void shouldTriggerAboveOrdersAtOrOverTheirRate() {
+        book.add(order(1L, TriggerCondition.ABOVE, "4.20"));
+        book.add(order(2L, TriggerCondition.ABOVE, "4.10"));
+        book.add(order(3L, TriggerCondition.ABOVE, "4.30"));
+
+        List<Long> crossed = drain("4.20");
+
+        assertEquals(List.of(2L, 1L), crossed);
+        assertEquals(1, book.size());
+    }
+
+    @Test
+    void shouldNotTriggerOrdersThatWereNotCrossed() {
+        book.add(order(1L, TriggerCondition.BELOW, "3.80"));
+        book.add(order(2L, TriggerCondition.ABOVE, "4.20"));
+
+        assertTrue(drain("4.00").isEmpty());
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    void shouldNotTriggerRemovedOrders() {
+        book.add(order(1L, TriggerCondition.BELOW, "3.80"));
+
+        assertTrue(book.remove(1L));
+        assertTrue(drain("3.50").isEmpty());
+        assertFalse(book.remove(1L));
+    }
+
+    @Test
+    void shouldTriggerOrderOnlyOnce() {
+        book.add(order(1L, TriggerCondition.BELOW, "3.80"));
+
+        assertEquals(List.of(1L), drain("3.75"));
+        assertTrue(drain("3.70").isEmpty());
+    }
+
+    private List<Long> drain(String mid) {
+        List<Long> crossed = new ArrayList<>();
+        book.drainCrossed(Symbol.USD, new BigDecimal(mid), crossed::add);
+        return crossed;
+    }
+
+    private static RestingOrder order(Long id, TriggerCondition condition, String triggerRate) {
+        return new RestingOrder(id, Symbol.PLN, Symbol.USD, condition, new BigDecimal(triggerRate));
+    }
+}
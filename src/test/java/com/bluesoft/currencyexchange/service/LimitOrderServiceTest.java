@@ -0,0 +1,156 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.CreateLimitOrderRequest;
+import com.bluesoft.currencyexchange.dto.LimitOrderDto;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.LimitOrder;
+import com.bluesoft.currencyexchange.entity.LimitOrderStatus;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.entity.TriggerCondition;
+import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.mapper.LimitOrderMapperImpl;
+import com.bluesoft.currencyexchange.repository.LimitOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LimitOrderServiceTest {
+
+    @Mock
+    private LimitOrderRepository limitOrderRepository;
+
+    @Mock
+    private CurrencyExchangeService currencyExchangeService;
+
+    private final Map<Long, LimitOrder> orders = new HashMap<>();
+    private final LimitOrderBook limitOrderBook = new LimitOrderBook();
+    private final UUID accountId = UUID.randomUUID();
+    private LimitOrderService limitOrderService;
+
+    @BeforeEach
+    void setUp() {
+        // the repository keeps the orders in a map, so statuses change as they would in the database
+        lenient().when(limitOrderRepository.save(any())).thenAnswer(invocation -> {
+            LimitOrder order = invocation.getArgument(0);
+            order.setId(orders.size() + 1L);
+            orders.put(order.getId(), order);
+            return order;
+        });
+        lenient().when(limitOrderRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(orders.get(invocation.<Long>getArgument(0))));
+        lenient().when(limitOrderRepository.updateStatus(anyLong(), any(), any())).thenAnswer(invocation -> {
+            LimitOrder order = orders.get(invocation.<Long>getArgument(0));
+            if (order == null || order.getStatus() != invocation.getArgument(1)) {
+                return 0;
+            }
+            order.setStatus(invocation.getArgument(2));
+            return 1;
+        });
+        limitOrderService = new LimitOrderService(limitOrderRepository, new LimitOrderMapperImpl(), limitOrderBook,
+                new LimitOrderExecutor(limitOrderRepository, currencyExchangeService));
+    }
+
+    @Test
+    void shouldFillCrossedOrdersThroughExchangeServiceAndKeepTheOthers() {
+        LimitOrderDto buy = limitOrderService.placeOrder(request("1000.00", Symbol.PLN, Symbol.USD, TriggerCondition.BELOW, "3.80"));
+        LimitOrderDto sell = limitOrderService.placeOrder(request("100.00", Symbol.USD, Symbol.PLN, TriggerCondition.ABOVE, "4.20"));
+
+        limitOrderService.onRateSnapshot(snapshot("3.75"));
+
+        verify(currencyExchangeService).exchangeCurrencyAtRate(accountId, new BigDecimal("1000.00"), Symbol.PLN, Symbol.USD, new BigDecimal("3.75"));
+        verifyNoMoreInteractions(currencyExchangeService);
+        LimitOrderDto filled = limitOrderService.getOrder(buy.id());
+        assertEquals(LimitOrderStatus.FILLED, filled.status());
+        assertEquals(new BigDecimal("3.75"), filled.executionRate());
+        assertNotNull(filled.executedAt());
+        assertEquals(LimitOrderStatus.OPEN, limitOrderService.getOrder(sell.id()).status());
+        assertEquals(1, limitOrderBook.size());
+    }
+
+    @Test
+    void shouldRejectFiredOrdersWhoseExchangeFailsAndDropThemFromBook() {
+        LimitOrderDto poor = limitOrderService.placeOrder(request("5000.00", Symbol.PLN, Symbol.USD, TriggerCondition.BELOW, "3.80"));
+        LimitOrderDto missing = limitOrderService.placeOrder(request("10.00", Symbol.PLN, Symbol.USD, TriggerCondition.BELOW, "3.90"));
+        doAnswer(rollingBack(poor.id(), new InsufficientFundsException())).when(currencyExchangeService)
+                .exchangeCurrencyAtRate(any(), eq(new BigDecimal("5000.00")), any(), any(), any());
+        doAnswer(rollingBack(missing.id(), new AccountNotFoundException("There is no account with id : '" + accountId + "'.")))
+                .when(currencyExchangeService).exchangeCurrencyAtRate(any(), eq(new BigDecimal("10.00")), any(), any(), any());
+
+        limitOrderService.onRateSnapshot(snapshot("3.75"));
+        limitOrderService.onRateSnapshot(snapshot("3.70"));
+
+        LimitOrderDto rejectedPoor = limitOrderService.getOrder(poor.id());
+        assertEquals(LimitOrderStatus.REJECTED, rejectedPoor.status());
+        assertEquals(InsufficientFundsException.MESSAGE, rejectedPoor.failureReason());
+        LimitOrderDto rejectedMissing = limitOrderService.getOrder(missing.id());
+        assertEquals(LimitOrderStatus.REJECTED, rejectedMissing.status());
+        assertEquals("There is no account with id : '" + accountId + "'.", rejectedMissing.failureReason());
+        // a rejected order is not retried by later rates
+        assertEquals(0, limitOrderBook.size());
+        verify(currencyExchangeService, times(2)).exchangeCurrencyAtRate(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldFillOrderCrossedByLastRateWhenPlaced() {
+        limitOrderService.onRateSnapshot(snapshot("3.75"));
+
+        LimitOrderDto crossed = limitOrderService.placeOrder(request("1000.00", Symbol.PLN, Symbol.USD, TriggerCondition.BELOW, "3.80"));
+        LimitOrderDto resting = limitOrderService.placeOrder(request("1000.00", Symbol.PLN, Symbol.USD, TriggerCondition.BELOW, "3.70"));
+
+        assertEquals(LimitOrderStatus.FILLED, crossed.status());
+        assertEquals(new BigDecimal("3.75"), crossed.executionRate());
+        assertEquals(LimitOrderStatus.OPEN, resting.status());
+        verify(currencyExchangeService).exchangeCurrencyAtRate(accountId, new BigDecimal("1000.00"), Symbol.PLN, Symbol.USD, new BigDecimal("3.75"));
+        verifyNoMoreInteractions(currencyExchangeService);
+        assertEquals(1, limitOrderBook.size());
+    }
+
+    @Test
+    void shouldKeepOrderOpenWhenPlacedBeforeAnyRate() {
+        LimitOrderDto order = limitOrderService.placeOrder(request("1000.00", Symbol.PLN, Symbol.USD, TriggerCondition.BELOW, "3.80"));
+
+        assertEquals(LimitOrderStatus.OPEN, order.status());
+        verifyNoInteractions(currencyExchangeService);
+        assertEquals(1, limitOrderBook.size());
+    }
+
+    /**
+     * Fails an exchange the way the transaction of {@link LimitOrderExecutor#fill} does, which rolls its claim of the
+     * order back.
+     */
+    private Answer<Void> rollingBack(Long orderId, RuntimeException failure) {
+        return invocation -> {
+            orders.get(orderId).setStatus(LimitOrderStatus.OPEN);
+            throw failure;
+        };
+    }
+
+    private CreateLimitOrderRequest request(String amount, Symbol fromCurrency, Symbol toCurrency,
+                                            TriggerCondition triggerCondition, String triggerRate) {
+        return new CreateLimitOrderRequest(accountId, new BigDecimal(amount), fromCurrency, toCurrency, triggerCondition,
+                new BigDecimal(triggerRate));
+    }
+
+    private static RateSnapshot snapshot(String mid) {
+        return new RateSnapshot(Symbol.USD, new BigDecimal(mid), LocalDate.now(), Instant.now());
+    }
+}
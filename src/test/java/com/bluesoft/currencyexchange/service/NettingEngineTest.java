@@ -0,0 +1,327 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.NettingProperties;
+import com.bluesoft.currencyexchange.config.PricingProperties;
+import com.bluesoft.currencyexchange.dto.BatchExchangeRequest;
+import com.bluesoft.currencyexchange.dto.ExchangeResultDto;
+import com.bluesoft.currencyexchange.entity.Account;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.HousePositionExceededException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.NettingQueueFullException;
+import com.bluesoft.currencyexchange.exception.NettingTimeoutException;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NettingEngineTest {
+
+    private static final BigDecimal RATE = new BigDecimal("4.0000");
+
+    @Mock
+    private CurrencyAccountRepository currencyAccountRepository;
+
+    @Mock
+    private CurrencyRateProvider currencyRateProvider;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NettingEngine engine;
+
+    private Account house;
+    private Account buyer;
+    private Account seller;
+    private CurrencyAccount housePln;
+    private CurrencyAccount houseUsd;
+    private CurrencyAccount buyerPln;
+    private CurrencyAccount buyerUsd;
+    private CurrencyAccount sellerPln;
+    private CurrencyAccount sellerUsd;
+
+    @BeforeEach
+    void setUp() {
+        house = account();
+        buyer = account();
+        seller = account();
+        housePln = currencyAccount(1L, Symbol.PLN, house, "10000.00");
+        houseUsd = currencyAccount(2L, Symbol.USD, house, "1000.00");
+        buyerPln = currencyAccount(3L, Symbol.PLN, buyer, "1000.00");
+        buyerUsd = currencyAccount(4L, Symbol.USD, buyer, "10.00");
+        sellerPln = currencyAccount(5L, Symbol.PLN, seller, "10.00");
+        sellerUsd = currencyAccount(6L, Symbol.USD, seller, "500.00");
+        engine = engine(Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void shouldBookOnlyResidualOfOpposingFlowsAgainstHouse() {
+        lockedAccounts();
+        NettingEngine.PendingExchange buy = pending(buyer, "400.00", Symbol.PLN, Symbol.USD);
+        NettingEngine.PendingExchange sell = pending(seller, "50.00", Symbol.USD, Symbol.PLN);
+
+        engine.settle(List.of(buy, sell));
+
+        // each customer leg is rounded like a direct exchange
+        assertEquals(new BigDecimal("600.00"), buyerPln.getBalance());
+        assertEquals(new BigDecimal("110.00"), buyerUsd.getBalance());
+        assertEquals(new BigDecimal("450.00"), sellerUsd.getBalance());
+        assertEquals(new BigDecimal("210.00"), sellerPln.getBalance());
+        // 400 PLN in and 200 PLN out, 100 USD out and 50 USD in
+        assertEquals(new BigDecimal("10200.00"), housePln.getBalance());
+        assertEquals(new BigDecimal("950.00"), houseUsd.getBalance());
+        assertTrue(buy.result().isDone() && !buy.result().isCompletedExceptionally());
+        assertTrue(sell.result().isDone() && !sell.result().isCompletedExceptionally());
+
+        verify(currencyRateProvider).getUsdToPlnRate();
+        verify(transactionManager).commit(any());
+        verify(outboxService).record(buyer, OutboxEventType.BALANCE_CHANGED);
+        verify(outboxService).record(seller, OutboxEventType.BALANCE_CHANGED);
+        verify(outboxService).record(house, OutboxEventType.BALANCE_CHANGED);
+        assertEquals(2, meterRegistry.summary("netting.window.size").totalAmount());
+        // 600 PLN gross, 200 PLN residual
+        assertEquals(2.0 / 3, meterRegistry.summary("netting.net.ratio").totalAmount(), 1e-9);
+        assertEquals(2, meterRegistry.counter("netting.house.updates").count());
+    }
+
+    @Test
+    void shouldKeepHouseUpdatesFlatAsWindowGrows() {
+        lockedAccounts();
+        NettingEngine.PendingExchange[] window = new NettingEngine.PendingExchange[20];
+        for (int i = 0; i < window.length; i++) {
+            window[i] = i % 2 == 0 ? pending(buyer, "40.00", Symbol.PLN, Symbol.USD) : pending(seller, "10.00", Symbol.USD, Symbol.PLN);
+        }
+
+        engine.settle(List.of(window));
+
+        assertEquals(new BigDecimal("10000.00"), housePln.getBalance());
+        assertEquals(new BigDecimal("1000.00"), houseUsd.getBalance());
+        assertEquals(0, meterRegistry.counter("netting.house.updates").count());
+        assertEquals(1.0, meterRegistry.summary("netting.net.ratio").totalAmount(), 1e-9);
+        verify(outboxService, never()).record(house, OutboxEventType.BALANCE_CHANGED);
+    }
+
+    @Test
+    void shouldRejectSingleExchangeWithoutFailingWindow() {
+        lockedAccounts();
+        NettingEngine.PendingExchange tooLarge = pending(seller, "20.00", Symbol.PLN, Symbol.USD);
+        NettingEngine.PendingExchange buy = pending(buyer, "40.00", Symbol.PLN, Symbol.USD);
+
+        engine.settle(List.of(tooLarge, buy));
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> tooLarge.result().join());
+        assertInstanceOf(InsufficientFundsException.class, exception.getCause());
+        assertEquals(new BigDecimal("10.00"), sellerPln.getBalance());
+        assertFalse(buy.result().isCompletedExceptionally());
+        assertEquals(new BigDecimal("10040.00"), housePln.getBalance());
+        verify(outboxService, never()).record(seller, OutboxEventType.BALANCE_CHANGED);
+    }
+
+    @Test
+    void shouldRejectLegThatWouldEmptyItsBalanceWithoutFailingWindow() {
+        lockedAccounts();
+        NettingEngine.PendingExchange wholeBalance = pending(seller, "10.00", Symbol.PLN, Symbol.USD);
+        NettingEngine.PendingExchange buy = pending(buyer, "40.00", Symbol.PLN, Symbol.USD);
+
+        engine.settle(List.of(wholeBalance, buy));
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> wholeBalance.result().join());
+        assertInstanceOf(InsufficientFundsException.class, exception.getCause());
+        assertEquals(new BigDecimal("10.00"), sellerPln.getBalance());
+        assertFalse(buy.result().isCompletedExceptionally());
+        assertEquals(new BigDecimal("960.00"), buyerPln.getBalance());
+        assertEquals(new BigDecimal("20.00"), buyerUsd.getBalance());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldLetOpposingFlowFundHousePosition() {
+        houseUsd.setBalance(new BigDecimal("60.00"));
+        lockedAccounts();
+        NettingEngine.PendingExchange firstBuy = pending(buyer, "400.00", Symbol.PLN, Symbol.USD);
+        NettingEngine.PendingExchange sell = pending(seller, "50.00", Symbol.USD, Symbol.PLN);
+        NettingEngine.PendingExchange secondBuy = pending(buyer, "400.00", Symbol.PLN, Symbol.USD);
+
+        engine.settle(List.of(firstBuy, sell, secondBuy));
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> firstBuy.result().join());
+        assertInstanceOf(HousePositionExceededException.class, exception.getCause());
+        assertFalse(secondBuy.result().isCompletedExceptionally());
+        assertEquals(new BigDecimal("10.00"), houseUsd.getBalance());
+    }
+
+    @Test
+    void shouldFailWholeWindowWhenRateIsUnavailable() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenThrow(new IllegalStateException("NBP unavailable"));
+        NettingEngine.PendingExchange buy = pending(buyer, "40.00", Symbol.PLN, Symbol.USD);
+        NettingEngine.PendingExchange sell = pending(seller, "10.00", Symbol.USD, Symbol.PLN);
+
+        engine.settle(List.of(buy, sell));
+
+        assertTrue(buy.result().isCompletedExceptionally());
+        assertTrue(sell.result().isCompletedExceptionally());
+        verifyNoInteractions(currencyAccountRepository);
+    }
+
+    @Test
+    void shouldRejectInvalidExchangesBeforeQueueing() {
+        engine.start();
+
+        CompletionException sameCurrency = assertThrows(CompletionException.class,
+                () -> engine.exchangeCurrency(buyer.getId(), BigDecimal.TEN, Symbol.PLN, Symbol.PLN).join());
+        assertInstanceOf(InvalidCurrencyExchangeException.class, sameCurrency.getCause());
+        CompletionException houseExchange = assertThrows(CompletionException.class,
+                () -> engine.exchangeCurrency(house.getId(), BigDecimal.TEN, Symbol.PLN, Symbol.USD).join());
+        assertInstanceOf(IllegalArgumentException.class, houseExchange.getCause());
+        verifyNoInteractions(currencyAccountRepository);
+    }
+
+    @Test
+    void shouldFailExchangesThatAreNotBookedInTime() throws Exception {
+        engine = engine(Duration.ofMillis(100));
+        CountDownLatch rateRequested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyRateProvider.getUsdToPlnRate()).thenAnswer(invocation -> {
+            rateRequested.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("NBP unavailable");
+        });
+        engine.start();
+
+        CompletableFuture<Void> single = engine.exchangeCurrency(buyer.getId(), new BigDecimal("40.00"), Symbol.PLN, Symbol.USD);
+        CompletableFuture<List<ExchangeResultDto>> batch = engine.exchangeCurrencies(List.of(
+                new BatchExchangeRequest(seller.getId(), new BigDecimal("10.00"), Symbol.USD, Symbol.PLN),
+                new BatchExchangeRequest(seller.getId(), null, Symbol.USD, Symbol.PLN)));
+
+        try {
+            assertTrue(rateRequested.await(5, TimeUnit.SECONDS));
+            ExecutionException timedOut = assertThrows(ExecutionException.class, () -> single.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NettingTimeoutException.class, timedOut.getCause());
+            assertEquals(List.of(new ExchangeResultDto(0, NettingTimeoutException.MESSAGE), new ExchangeResultDto(1, "Amount must be positive.")),
+                    batch.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldTurnExchangesAwayWithoutBlockingWhenQueueIsFull() throws Exception {
+        engine = engine(Duration.ofSeconds(10), 1, 1);
+        CountDownLatch rateRequested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyRateProvider.getUsdToPlnRate()).thenAnswer(invocation -> {
+            rateRequested.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("NBP unavailable");
+        });
+        engine.start();
+
+        try {
+            CompletableFuture<Void> settling = engine.submit(buyer.getId(), new BigDecimal("40.00"), Symbol.PLN, Symbol.USD);
+            assertTrue(rateRequested.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Void> queued = engine.submit(buyer.getId(), new BigDecimal("40.00"), Symbol.PLN, Symbol.USD);
+            CompletableFuture<Void> turnedAway = engine.submit(seller.getId(), new BigDecimal("10.00"), Symbol.USD, Symbol.PLN);
+
+            CompletionException exception = assertThrows(CompletionException.class, turnedAway::join);
+            assertInstanceOf(NettingQueueFullException.class, exception.getCause());
+            assertFalse(settling.isDone());
+            assertFalse(queued.isDone());
+            assertEquals(1, meterRegistry.counter("netting.queue.full").count());
+            assertEquals(List.of(new ExchangeResultDto(0, NettingQueueFullException.MESSAGE)),
+                    engine.exchangeCurrencies(List.of(new BatchExchangeRequest(seller.getId(), new BigDecimal("10.00"), Symbol.USD, Symbol.PLN)))
+                            .get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldFailExchangeSubmittedAfterStop() {
+        engine.start();
+        engine.stop();
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> engine.exchangeCurrency(buyer.getId(), BigDecimal.TEN, Symbol.PLN, Symbol.USD).join());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void shouldCollectConcurrentExchangesIntoOneWindow() throws Exception {
+        lockedAccounts();
+        engine.start();
+
+        CompletableFuture<Void> buy = engine.submit(buyer.getId(), new BigDecimal("40.00"), Symbol.PLN, Symbol.USD);
+        CompletableFuture<Void> sell = engine.submit(seller.getId(), new BigDecimal("10.00"), Symbol.USD, Symbol.PLN);
+        CompletableFuture.allOf(buy, sell).get(5, TimeUnit.SECONDS);
+
+        verify(currencyAccountRepository, times(1)).findWithLockByAccount_IdInOrderById(any());
+        assertEquals(new BigDecimal("10000.00"), housePln.getBalance());
+    }
+
+    private NettingEngine engine(Duration settleTimeout) {
+        return engine(settleTimeout, 10, 100);
+    }
+
+    private NettingEngine engine(Duration settleTimeout, int maxWindowSize, int queueCapacity) {
+        return new NettingEngine(currencyAccountRepository, currencyRateProvider, outboxService,
+                new PricingEngine(new PricingProperties(null), new ObjectMapper()), transactionManager,
+                new NettingProperties(true, house.getId(), Duration.ofMillis(200), maxWindowSize, queueCapacity, settleTimeout), meterRegistry);
+    }
+
+    private void lockedAccounts() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(RATE);
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(any()))
+                .thenReturn(List.of(housePln, houseUsd, buyerPln, buyerUsd, sellerPln, sellerUsd));
+    }
+
+    private NettingEngine.PendingExchange pending(Account account, String amount, Symbol fromCurrency, Symbol toCurrency) {
+        return new NettingEngine.PendingExchange(account.getId(), new BigDecimal(amount), fromCurrency, toCurrency, new CompletableFuture<>());
+    }
+
+    private static Account account() {
+        Account account = new Account();
+        account.setId(UUID.randomUUID());
+        return account;
+    }
+
+    private static CurrencyAccount currencyAccount(Long id, Symbol symbol, Account account, String balance) {
+        CurrencyAccount currencyAccount = new CurrencyAccount(id, symbol, account, new BigDecimal(balance));
+        account.addCurrencyAccount(currencyAccount);
+        return currencyAccount;
+    }
+}
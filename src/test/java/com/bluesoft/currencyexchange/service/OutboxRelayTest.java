@@ -0,0 +1,96 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.OutboxProperties;
+import com.bluesoft.currencyexchange.dto.OutboxMessage;
+import com.bluesoft.currencyexchange.entity.OutboxEvent;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final RecordingSink sink = new RecordingSink();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxEventRepository, List.of(sink), new OutboxProperties(2), transactionManager, meterRegistry);
+    }
+
+    @Test
+    void shouldDeliverPendingEventsInIdOrderAndMarkThemPublished() {
+        List<OutboxEvent> first = events(1, 2);
+        List<OutboxEvent> second = events(3, 3);
+        when(outboxEventRepository.lockPending(2)).thenReturn(first).thenReturn(second);
+
+        relay.relay();
+
+        assertEquals(List.of(1L, 2L, 3L), sink.delivered.stream().map(OutboxMessage::id).toList());
+        assertTrue(first.stream().allMatch(event -> event.getPublishedAt() != null));
+        assertNotNull(second.get(0).getPublishedAt());
+        assertEquals(3.0, meterRegistry.get("outbox.relay.published").counter().count());
+        assertEquals(2, meterRegistry.get("outbox.relay.batch.size").summary().count());
+    }
+
+    @Test
+    void shouldLeaveBatchPendingWhenSinkFails() {
+        List<OutboxEvent> batch = events(1, 1);
+        when(outboxEventRepository.lockPending(2)).thenReturn(batch);
+        sink.failing = true;
+
+        assertThrows(IllegalStateException.class, () -> relay.relay());
+
+        assertNull(batch.get(0).getPublishedAt());
+        verify(transactionManager).rollback(any());
+    }
+
+    private static List<OutboxEvent> events(long fromId, long toId) {
+        UUID accountId = UUID.randomUUID();
+        return LongStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> OutboxEvent.builder()
+                        .id(id)
+                        .accountId(accountId)
+                        .eventType(OutboxEventType.BALANCE_CHANGED)
+                        .payload("{}")
+                        .createdAt(Instant.now())
+                        .build())
+                .toList();
+    }
+
+    private static class RecordingSink implements OutboxSink {
+
+        private final List<OutboxMessage> delivered = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void publish(List<OutboxMessage> messages) {
+            if (failing) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            delivered.addAll(messages);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.bluesoft.currencyexchange.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedRunTest {
+
+    private static final String CHECKPOINT = "test.checkpoint";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldSplitUuidSpaceIntoContiguousRanges() {
+        int partitions = 7;
+        assertEquals(new UUID(0, 0), PartitionedRun.bounds(0, partitions)[0]);
+        for (int partition = 0; partition < partitions - 1; partition++) {
+            UUID upper = PartitionedRun.bounds(partition, partitions)[1];
+            UUID nextLower = PartitionedRun.bounds(partition + 1, partitions)[0];
+            assertEquals(-1L, upper.getLeastSignificantBits());
+            assertEquals(upper.getMostSignificantBits() + 1, nextLower.getMostSignificantBits());
+            // PostgreSQL compares UUIDs as unsigned bytes
+            assertTrue(Long.compareUnsigned(nextLower.getMostSignificantBits(), upper.getMostSignificantBits()) > 0);
+        }
+        assertEquals(new UUID(-1L, -1L), PartitionedRun.bounds(partitions - 1, partitions)[1]);
+    }
+
+    @Test
+    void shouldStripePartitionsOverWorkersAndRemoveCheckpoint() {
+        PartitionedRun run = new PartitionedRun("test", 5, 2, "rows", "errors");
+        Map<Integer, List<Integer>> done = new ConcurrentHashMap<>();
+
+        run.run(new TestJob((worker, partition) -> done.computeIfAbsent(worker, key -> new CopyOnWriteArrayList<>()).add(partition)));
+
+        assertEquals(PartitionedRun.State.COMPLETED, run.state());
+        assertEquals(Map.of(0, List.of(0, 2, 4), 1, List.of(1, 3)), done);
+        assertEquals(5, run.completedPartitions());
+        assertEquals(50, run.total(0));
+        assertEquals(5, run.total(1));
+        assertFalse(Files.exists(directory.resolve(CHECKPOINT)));
+    }
+
+    @Test
+    void shouldResumeStoppedRunWithRemainingPartitions() {
+        PartitionedRun run = new PartitionedRun("test", 4, 1, "rows", "errors");
+        run.run(new TestJob((worker, partition) -> run.stop()));
+
+        assertEquals(PartitionedRun.State.STOPPED, run.state());
+        assertEquals(1, run.completedPartitions());
+        assertTrue(Files.exists(directory.resolve(CHECKPOINT)));
+
+        List<Integer> resumed = new CopyOnWriteArrayList<>();
+        run.run(new TestJob((worker, partition) -> resumed.add(partition)));
+
+        assertEquals(PartitionedRun.State.COMPLETED, run.state());
+        assertEquals(List.of(1, 2, 3), resumed);
+        assertEquals(4, run.completedPartitions());
+        assertEquals(40, run.total(0));
+    }
+
+    @Test
+    void shouldFailAndKeepCheckpointWhenPartitionFails() {
+        PartitionedRun run = new PartitionedRun("test", 2, 1, "rows", "errors");
+
+        run.run(new TestJob((worker, partition) -> {
+            throw new IllegalStateException("connection lost");
+        }));
+
+        assertEquals(PartitionedRun.State.FAILED, run.state());
+        assertTrue(Files.exists(directory.resolve(CHECKPOINT)));
+    }
+
+    @Test
+    void shouldRefuseToStartWhileRunning() throws Exception {
+        PartitionedRun run = new PartitionedRun("test", 1, 1, "rows", "errors");
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(run.start(new TestJob((worker, partition) -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        })));
+        assertFalse(run.start(new TestJob((worker, partition) -> {})));
+        release.countDown();
+
+        for (int wait = 0; wait < 300 && run.state() == PartitionedRun.State.RUNNING; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(PartitionedRun.State.COMPLETED, run.state());
+        assertNotNull(run.finishedAt());
+    }
+
+    /**
+     * Counts 10 rows and 1 error per partition and hands the worker and partition to an action before recording it.
+     */
+    private class TestJob implements PartitionedRun.Job {
+
+        private final BiConsumer<Integer, Integer> action;
+
+        TestJob(BiConsumer<Integer, Integer> action) {
+            this.action = action;
+        }
+
+        @Override
+        public String description() {
+            return "Test run";
+        }
+
+        @Override
+        public RunCheckpoint open(Instant startedAt) throws IOException {
+            return RunCheckpoint.open(directory, CHECKPOINT, "test", List.of("out.txt"), 2, null);
+        }
+
+        @Override
+        public PartitionedRun.Worker worker(int worker, RunCheckpoint checkpoint) {
+            return partition -> {
+                action.accept(worker, partition);
+                checkpoint.complete(partition, 0, 10, 1);
+                return new long[]{10, 1};
+            };
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.PricingProperties;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingEngineTest {
+
+    private static final BigDecimal DIVISOR = new BigDecimal("4.0000");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldLoadPricingFileOnStartup() throws Exception {
+        Path file = write(50, Instant.now());
+
+        PricingEngine engine = new PricingEngine(new PricingProperties(file), new ObjectMapper());
+
+        assertEquals(0, new BigDecimal("4.02").compareTo(rate(engine)));
+    }
+
+    @Test
+    void shouldSwapTablesWhenFileChanges() throws Exception {
+        Instant modified = Instant.now().minusSeconds(60);
+        Path file = write(50, modified);
+        PricingEngine engine = new PricingEngine(new PricingProperties(file), new ObjectMapper());
+        PricingTable before = engine.current();
+
+        engine.reloadIfChanged();
+        assertSame(before, engine.current());
+
+        write(100, modified.plusSeconds(1));
+        engine.reloadIfChanged();
+
+        assertNotSame(before, engine.current());
+        assertEquals(0, new BigDecimal("4.04").compareTo(rate(engine)));
+    }
+
+    @Test
+    void shouldKeepCurrentTablesWhenFileIsInvalid() throws Exception {
+        Instant modified = Instant.now().minusSeconds(60);
+        Path file = write(50, modified);
+        PricingEngine engine = new PricingEngine(new PricingProperties(file), new ObjectMapper());
+
+        write(-5, modified.plusSeconds(1));
+        engine.reloadIfChanged();
+        assertEquals(0, new BigDecimal("4.02").compareTo(rate(engine)));
+
+        Files.writeString(file, "{not json");
+        assertThrows(IllegalArgumentException.class, engine::reload);
+        assertEquals(0, new BigDecimal("4.02").compareTo(rate(engine)));
+    }
+
+    @Test
+    void shouldPriceAtMidWithoutPricingFile() {
+        PricingEngine engine = new PricingEngine(new PricingProperties(null), new ObjectMapper());
+
+        engine.reloadIfChanged();
+
+        assertSame(PricingTable.EMPTY, engine.current());
+        assertThrows(IllegalArgumentException.class, engine::reload);
+    }
+
+    private Path write(int spreadBps, Instant modified) throws Exception {
+        Path file = directory.resolve("pricing.json");
+        Files.writeString(file, """
+                {"pairs": [{"fromCurrency": "PLN", "toCurrency": "USD", "spreadBps": %d,
+                            "feeTiers": [{"minAmount": 0, "feeBps": 10}]}],
+                 "clients": []}
+                """.formatted(spreadBps));
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+
+    private static BigDecimal rate(PricingEngine engine) {
+        PricingTable table = engine.current();
+        return table.rate(table.slot(UUID.randomUUID(), Symbol.PLN, Symbol.USD), DIVISOR);
+    }
+}
@@ -0,0 +1,98 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingTableTest {
+
+    private static final BigDecimal MID_DIVISOR = new BigDecimal("4.0000");
+
+    private final UUID vip = UUID.fromString("80000000-0000-0000-0000-000000000001");
+    private final UUID other = UUID.randomUUID();
+
+    private final PricingTable table = PricingTable.compile(new PricingConfig(
+            List.of(pair(Symbol.PLN, Symbol.USD, 50, tier("0", 40), tier("1000", 20), tier("100000", 0)),
+                    pair(Symbol.USD, Symbol.PLN, 30)),
+            List.of(new PricingConfig.ClientPricing(vip, List.of(pair(Symbol.PLN, Symbol.USD, 10, tier("0", 5)))))));
+
+    @Test
+    void shouldPriceAtMidWithoutTables() {
+        int slot = PricingTable.EMPTY.slot(other, Symbol.PLN, Symbol.USD);
+
+        assertSame(MID_DIVISOR, PricingTable.EMPTY.rate(slot, MID_DIVISOR));
+        assertEquals(0, PricingTable.EMPTY.fee(slot, new BigDecimal("500.00")).signum());
+    }
+
+    @Test
+    void shouldApplySpreadInClientsDisfavour() {
+        assertEquals(0, new BigDecimal("4.02").compareTo(table.rate(table.slot(other, Symbol.PLN, Symbol.USD), MID_DIVISOR)));
+        assertEquals(0, new BigDecimal("4.012").compareTo(table.rate(table.slot(other, Symbol.USD, Symbol.PLN), MID_DIVISOR)));
+    }
+
+    @Test
+    void shouldPickFeeBandByAmount() {
+        int slot = table.slot(other, Symbol.PLN, Symbol.USD);
+
+        assertEquals(new BigDecimal("0.40"), table.fee(slot, new BigDecimal("100.00")));
+        assertEquals(new BigDecimal("4.00"), table.fee(slot, new BigDecimal("999.99")));
+        assertEquals(new BigDecimal("2.00"), table.fee(slot, new BigDecimal("1000")));
+        assertEquals(0, table.fee(slot, new BigDecimal("250000.00")).signum());
+        assertEquals(0, table.fee(table.slot(other, Symbol.USD, Symbol.PLN), new BigDecimal("100.00")).signum());
+    }
+
+    @Test
+    void shouldOverridePairsOfClientAndKeepDefaultsForTheOthers() {
+        int overridden = table.slot(vip, Symbol.PLN, Symbol.USD);
+        int inherited = table.slot(vip, Symbol.USD, Symbol.PLN);
+
+        assertEquals(0, new BigDecimal("4.004").compareTo(table.rate(overridden, MID_DIVISOR)));
+        assertEquals(new BigDecimal("1.00"), table.fee(overridden, new BigDecimal("2000.00")));
+        assertEquals(0, new BigDecimal("4.012").compareTo(table.rate(inherited, MID_DIVISOR)));
+    }
+
+    @Test
+    void shouldFindEveryClientAmongMany() {
+        List<PricingConfig.ClientPricing> clients = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            clients.add(new PricingConfig.ClientPricing(UUID.randomUUID(), List.of(pair(Symbol.USD, Symbol.PLN, i + 1))));
+        }
+        PricingTable large = PricingTable.compile(new PricingConfig(List.of(), clients));
+
+        for (PricingConfig.ClientPricing client : clients) {
+            int spreadBps = client.pairs().get(0).spreadBps();
+            BigDecimal expected = BigDecimal.ONE.add(BigDecimal.valueOf(spreadBps, 4));
+            assertEquals(0, expected.compareTo(large.rate(large.slot(client.accountId(), Symbol.USD, Symbol.PLN), BigDecimal.ONE)));
+        }
+        assertEquals(BigDecimal.ONE, large.rate(large.slot(other, Symbol.USD, Symbol.PLN), BigDecimal.ONE));
+    }
+
+    @Test
+    void shouldRejectInconsistentTables() {
+        assertThrows(IllegalArgumentException.class, () -> PricingTable.compile(new PricingConfig(
+                List.of(pair(Symbol.PLN, Symbol.USD, 10), pair(Symbol.PLN, Symbol.USD, 20)), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> PricingTable.compile(new PricingConfig(
+                List.of(pair(Symbol.PLN, Symbol.PLN, 10)), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> PricingTable.compile(new PricingConfig(
+                List.of(pair(Symbol.PLN, Symbol.USD, 10, tier("1000", 10), tier("100", 20))), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> PricingTable.compile(new PricingConfig(
+                List.of(pair(Symbol.PLN, Symbol.USD, -1)), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> PricingTable.compile(new PricingConfig(List.of(),
+                List.of(new PricingConfig.ClientPricing(vip, List.of()), new PricingConfig.ClientPricing(vip, List.of())))));
+    }
+
+    private static PricingConfig.PairPricing pair(Symbol fromCurrency, Symbol toCurrency, int spreadBps, PricingConfig.FeeTier... tiers) {
+        return new PricingConfig.PairPricing(fromCurrency, toCurrency, spreadBps, List.of(tiers));
+    }
+
+    private static PricingConfig.FeeTier tier(String minAmount, int feeBps) {
+        return new PricingConfig.FeeTier(new BigDecimal(minAmount), feeBps);
+    }
+}
@@ -0,0 +1,153 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.PricingProperties;
+import com.bluesoft.currencyexchange.config.QuoteProperties;
+import com.bluesoft.currencyexchange.dto.CreateQuoteRequest;
+import com.bluesoft.currencyexchange.dto.PricingConfig;
+import com.bluesoft.currencyexchange.dto.QuoteDto;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.QuoteNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuoteServiceTest {
+
+    @Mock
+    private CurrencyRateProvider currencyRateProvider;
+
+    @Mock
+    private CurrencyExchangeService currencyExchangeService;
+
+    private final PricingEngine pricingEngine = new PricingEngine(new PricingProperties(null), new ObjectMapper());
+    private QuoteService quoteService;
+
+    @BeforeEach
+    void setUp() {
+        QuoteProperties properties = new QuoteProperties(Duration.ofSeconds(30), 100, Duration.ofMillis(100));
+        quoteService = new QuoteService(new QuoteStore(properties, System::nanoTime), properties, currencyRateProvider, currencyExchangeService, pricingEngine);
+    }
+
+    @Test
+    void shouldQuotePlnToUsdWithExchangeRounding() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("3.9871"));
+
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(UUID.randomUUID(), new BigDecimal("100.00"), Symbol.PLN, Symbol.USD));
+
+        assertEquals(new BigDecimal("25.08"), quote.convertedAmount());
+        assertNotNull(quote.quoteId());
+    }
+
+    @Test
+    void shouldQuoteUsdToPlnWithExchangeRounding() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(UUID.randomUUID(), new BigDecimal("50.00"), Symbol.USD, Symbol.PLN));
+
+        assertEquals(new BigDecimal("200.00"), quote.convertedAmount());
+    }
+
+    @Test
+    void shouldQuoteWithSpreadAndFeeOfAccount() {
+        UUID accountId = UUID.randomUUID();
+        pricingEngine.install(new PricingConfig(List.of(), List.of(new PricingConfig.ClientPricing(accountId, List.of(
+                new PricingConfig.PairPricing(Symbol.PLN, Symbol.USD, 100, List.of(new PricingConfig.FeeTier(BigDecimal.ZERO, 50))))))));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(accountId, new BigDecimal("1000.00"), Symbol.PLN, Symbol.USD));
+
+        // 5.00 PLN fee, the remaining 995.00 PLN at 4.04
+        assertEquals(0, new BigDecimal("4.04").compareTo(quote.rate()));
+        assertEquals(new BigDecimal("246.29"), quote.convertedAmount());
+    }
+
+    @Test
+    void shouldQuoteUsdToPlnRateInPlnPerUsd() {
+        UUID accountId = UUID.randomUUID();
+        pricingEngine.install(new PricingConfig(List.of(), List.of(new PricingConfig.ClientPricing(accountId, List.of(
+                new PricingConfig.PairPricing(Symbol.USD, Symbol.PLN, 100, List.of()))))));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(accountId, new BigDecimal("100.00"), Symbol.USD, Symbol.PLN));
+
+        // the spread widens the divisor 0.25 to 0.2525, quoted as 3.9604 PLN per USD
+        assertEquals(new BigDecimal("3.9604"), quote.rate());
+        assertEquals(new BigDecimal("396.04"), quote.convertedAmount());
+    }
+
+    @Test
+    void shouldExecuteQuoteAtLockedRateWithoutRateLookup() {
+        UUID accountId = UUID.randomUUID();
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD));
+
+        quoteService.executeQuote(quote.quoteId());
+
+        verify(currencyRateProvider, times(1)).getUsdToPlnRate();
+        verify(currencyExchangeService).exchangeCurrencyAtPrice(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD,
+                new BigDecimal("4.00"), BigDecimal.ZERO);
+    }
+
+    @Test
+    void shouldExecuteQuoteAtItsPriceAfterPricingChanged() {
+        UUID accountId = UUID.randomUUID();
+        pricingEngine.install(new PricingConfig(List.of(), List.of(new PricingConfig.ClientPricing(accountId, List.of(
+                new PricingConfig.PairPricing(Symbol.PLN, Symbol.USD, 100, List.of(new PricingConfig.FeeTier(BigDecimal.ZERO, 50))))))));
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(accountId, new BigDecimal("1000.00"), Symbol.PLN, Symbol.USD));
+
+        pricingEngine.install(new PricingConfig(List.of(), List.of(new PricingConfig.ClientPricing(accountId, List.of(
+                new PricingConfig.PairPricing(Symbol.PLN, Symbol.USD, 500, List.of(new PricingConfig.FeeTier(BigDecimal.ZERO, 200))))))));
+        quoteService.executeQuote(quote.quoteId());
+
+        verify(currencyExchangeService).exchangeCurrencyAtPrice(eq(accountId), eq(new BigDecimal("1000.00")), eq(Symbol.PLN),
+                eq(Symbol.USD), argThat(rate -> rate.compareTo(new BigDecimal("4.04")) == 0), eq(new BigDecimal("5.00")));
+    }
+
+    @Test
+    void shouldRejectSecondExecutionOfSameQuote() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(UUID.randomUUID(), new BigDecimal("200.00"), Symbol.PLN, Symbol.USD));
+        quoteService.executeQuote(quote.quoteId());
+
+        assertThrows(QuoteNotFoundException.class, () -> quoteService.executeQuote(quote.quoteId()));
+    }
+
+    @Test
+    void shouldKeepQuoteExecutableWhenExchangeFails() {
+        UUID accountId = UUID.randomUUID();
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.00"));
+        QuoteDto quote = quoteService.createQuote(new CreateQuoteRequest(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD));
+        doThrow(new InsufficientFundsException()).doNothing().when(currencyExchangeService)
+                .exchangeCurrencyAtPrice(accountId, new BigDecimal("200.00"), Symbol.PLN, Symbol.USD, new BigDecimal("4.00"), BigDecimal.ZERO);
+
+        assertThrows(InsufficientFundsException.class, () -> quoteService.executeQuote(quote.quoteId()));
+        quoteService.executeQuote(quote.quoteId());
+
+        verify(currencyExchangeService, times(2)).exchangeCurrencyAtPrice(accountId, new BigDecimal("200.00"), Symbol.PLN,
+                Symbol.USD, new BigDecimal("4.00"), BigDecimal.ZERO);
+        assertThrows(QuoteNotFoundException.class, () -> quoteService.executeQuote(quote.quoteId()));
+    }
+
+    @Test
+    void shouldRejectQuoteForSameCurrency() {
+        assertThrows(InvalidCurrencyExchangeException.class, () ->
+                quoteService.createQuote(new CreateQuoteRequest(UUID.randomUUID(), BigDecimal.TEN, Symbol.PLN, Symbol.PLN)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.QuoteProperties;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuoteStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final QuoteStore quoteStore = new QuoteStore(
+            new QuoteProperties(Duration.ofSeconds(30), 2, Duration.ofMillis(100)), clock::get);
+
+    @Test
+    void shouldReturnQuoteOnlyOnce() {
+        Quote quote = quote(Duration.ofSeconds(30));
+        assertTrue(quoteStore.put(quote));
+
+        assertEquals(quote, quoteStore.take(quote.id()).orElseThrow());
+        assertTrue(quoteStore.take(quote.id()).isEmpty());
+        assertEquals(0, quoteStore.size());
+    }
+
+    @Test
+    void shouldPutBackTakenQuoteUntilItExpires() {
+        Quote quote = quote(Duration.ofSeconds(1));
+        quoteStore.put(quote);
+        Quote taken = quoteStore.take(quote.id()).orElseThrow();
+
+        assertTrue(quoteStore.restore(taken));
+        assertFalse(quoteStore.restore(taken));
+        assertEquals(1, quoteStore.size());
+        assertEquals(quote, quoteStore.take(quote.id()).orElseThrow());
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertFalse(quoteStore.restore(taken));
+        assertEquals(0, quoteStore.size());
+    }
+
+    @Test
+    void shouldRejectQuotesAboveCapacity() {
+        assertTrue(quoteStore.put(quote(Duration.ofSeconds(30))));
+        assertTrue(quoteStore.put(quote(Duration.ofSeconds(30))));
+
+        assertFalse(quoteStore.put(quote(Duration.ofSeconds(30))));
+        assertEquals(2, quoteStore.size());
+    }
+
+    @Test
+    void shouldNotReturnExpiredQuoteBeforeSweep() {
+        Quote quote = quote(Duration.ofSeconds(1));
+        quoteStore.put(quote);
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertTrue(quoteStore.take(quote.id()).isEmpty());
+    }
+
+    @Test
+    void shouldEvictExpiredQuotesOnSweep() {
+        Quote shortLived = quote(Duration.ofSeconds(1));
+        Quote longLived = quote(Duration.ofSeconds(20));
+        quoteStore.put(shortLived);
+        quoteStore.put(longLived);
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        quoteStore.expire();
+
+        assertEquals(1, quoteStore.size());
+        assertTrue(quoteStore.take(longLived.id()).isPresent());
+    }
+
+    private Quote quote(Duration ttl) {
+        return new Quote(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("100.00"), Symbol.PLN, Symbol.USD,
+                new BigDecimal("4.00"), new BigDecimal("4.00"), BigDecimal.ZERO, new BigDecimal("25.00"), Instant.now().plus(ttl), clock.get() + ttl.toNanos());
+    }
+}
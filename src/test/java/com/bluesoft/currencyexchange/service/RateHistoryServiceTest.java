@@ -0,0 +1,106 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.RateHistoryProperties;
+import com.bluesoft.currencyexchange.dto.RateAggregateDto;
+import com.bluesoft.currencyexchange.dto.RateSnapshot;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateHistoryServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 10, 12);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldAggregateIngestedSnapshotsByTableDate() {
+        RateHistoryService service = service();
+
+        service.onRateSnapshot(snapshot(MONDAY, "4.0100"));
+        service.onRateSnapshot(snapshot(MONDAY.plusDays(1), "3.9900"));
+        // a later rate of the same table date replaces the earlier one
+        service.onRateSnapshot(snapshot(MONDAY.plusDays(1), "4.0300"));
+        service.onRateSnapshot(snapshot(MONDAY.plusDays(2), "4.0500"));
+
+        assertEquals(new RateAggregateDto(Symbol.USD, MONDAY, MONDAY.plusDays(1), 2, new BigDecimal("4.010000"),
+                        new BigDecimal("4.030000"), new BigDecimal("4.020000"), new BigDecimal("4.030000"), MONDAY.plusDays(1)),
+                service.aggregate(Symbol.USD, MONDAY, MONDAY.plusDays(1)));
+        assertEquals(3, service.aggregate(Symbol.USD, MONDAY.minusYears(1), MONDAY.plusYears(1)).points());
+    }
+
+    @Test
+    void shouldAnswerEmptyWindowsAndCurrenciesWithoutHistory() {
+        RateHistoryService service = service();
+        service.onRateSnapshot(snapshot(MONDAY, "4.0100"));
+
+        assertEquals(new RateAggregateDto(Symbol.USD, MONDAY.plusDays(1), MONDAY.plusDays(5), 0, null, null, null, null, null),
+                service.aggregate(Symbol.USD, MONDAY.plusDays(1), MONDAY.plusDays(5)));
+        assertEquals(0, service.aggregate(Symbol.PLN, MONDAY, MONDAY).points());
+        assertThrows(IllegalArgumentException.class, () -> service.aggregate(Symbol.USD, MONDAY, MONDAY.minusDays(1)));
+    }
+
+    @Test
+    void shouldRebuildFromTheLastStoredRateOfEachTableDate() throws Exception {
+        RateHistoryService service = service();
+        service.onRateSnapshot(snapshot(MONDAY.plusDays(30), "9.9999"));
+        Object[][] rows = {
+                {"USD", MONDAY, "4.0100"},
+                {"USD", MONDAY.plusDays(1), "4.0300"},
+        };
+        int[] row = new int[1];
+        when(resultSet.getString(1)).thenAnswer(invocation -> rows[row[0]][0]);
+        when(resultSet.getDate(2)).thenAnswer(invocation -> Date.valueOf((LocalDate) rows[row[0]][1]));
+        when(resultSet.getBigDecimal(3)).thenAnswer(invocation -> new BigDecimal((String) rows[row[0]][2]));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (row[0] = 0; row[0] < rows.length; row[0]++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(eq(RateHistoryService.HISTORY_SQL), any(RowCallbackHandler.class));
+
+        List<RateAggregateDto> rebuilt = service.rebuild();
+
+        RateAggregateDto expected = new RateAggregateDto(Symbol.USD, MONDAY, MONDAY.plusDays(1), 2, new BigDecimal("4.010000"),
+                new BigDecimal("4.030000"), new BigDecimal("4.020000"), new BigDecimal("4.030000"), MONDAY.plusDays(1));
+        assertEquals(List.of(expected), rebuilt);
+        // the files outlive the service
+        assertEquals(expected, service().aggregate(Symbol.USD, MONDAY, MONDAY.plusDays(1)));
+        assertEquals(0, service().aggregate(Symbol.USD, MONDAY.plusDays(30), MONDAY.plusDays(30)).points());
+    }
+
+    private RateHistoryService service() {
+        return new RateHistoryService(jdbcTemplate, new RateHistoryProperties(directory, 6, 4, 8));
+    }
+
+    private static RateSnapshot snapshot(LocalDate effectiveDate, String mid) {
+        return new RateSnapshot(Symbol.USD, new BigDecimal(mid), effectiveDate, Instant.now());
+    }
+}
@@ -0,0 +1,125 @@
+package com.bluesoft.currencyexchange.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateSeriesTest {
+
+    private static final int BLOCK_SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldAggregateWindowsLikeAScanOverAllPoints() throws Exception {
+        SplittableRandom random = new SplittableRandom(7);
+        int points = 500;
+        int[] days = new int[points];
+        long[] rates = new long[points];
+        RateSeries series = RateSeries.open(directory.resolve("USD.rates"), 4, BLOCK_SIZE, 16);
+        int day = 19_000;
+        for (int i = 0; i < points; i++) {
+            day += 1 + random.nextInt(3);
+            days[i] = day;
+            rates[i] = 35_000 + random.nextInt(10_000);
+            assertTrue(series.append(days[i], rates[i]));
+        }
+
+        for (int window = 0; window < 2_000; window++) {
+            int from = days[0] - 5 + random.nextInt(day - days[0] + 10);
+            int to = from + random.nextInt(400);
+            assertEquals(scan(days, rates, from, to), series.aggregate(from, to), "window " + from + ".." + to);
+        }
+        assertEquals(scan(days, rates, Integer.MIN_VALUE, Integer.MAX_VALUE), series.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void shouldReplaceRateOfLastDayAndIgnoreEarlierDays() throws Exception {
+        RateSeries series = RateSeries.open(directory.resolve("USD.rates"), 4, BLOCK_SIZE, 16);
+        series.append(100, 40_000);
+        series.append(101, 41_000);
+
+        assertFalse(series.append(101, 41_000));
+        assertTrue(series.append(101, 39_000));
+        assertFalse(series.append(100, 50_000));
+
+        assertEquals(new RateSeries.Aggregate(2, 100, 101, 39_000, 40_000, 79_000, 39_000), series.aggregate(0, 200));
+        assertEquals(2, series.size());
+    }
+
+    @Test
+    void shouldGrowAndKeepPointsAcrossReopen() throws Exception {
+        Path file = directory.resolve("USD.rates");
+        RateSeries series = RateSeries.open(file, 4, BLOCK_SIZE, 16);
+        for (int day = 0; day < 100; day++) {
+            series.append(day, 40_000 + day);
+        }
+        series.force();
+
+        RateSeries reopened = RateSeries.open(file, 4, BLOCK_SIZE, 16);
+
+        assertEquals(100, reopened.size());
+        assertEquals(new RateSeries.Aggregate(10, 90, 99, 40_090, 40_099, 400_945, 40_099), reopened.aggregate(90, 120));
+        assertFalse(Files.exists(directory.resolve("USD.rates.tmp")));
+    }
+
+    @Test
+    void shouldRefuseFileWrittenWithAnotherScale() throws Exception {
+        Path file = directory.resolve("USD.rates");
+        RateSeries.open(file, 4, BLOCK_SIZE, 16).append(1, 40_000);
+
+        assertThrows(IllegalStateException.class, () -> RateSeries.open(file, 6, BLOCK_SIZE, 16));
+        Files.writeString(directory.resolve("PLN.rates"), "not a series, but long enough for a header");
+        assertThrows(IllegalStateException.class, () -> RateSeries.open(directory.resolve("PLN.rates"), 4, BLOCK_SIZE, 16));
+    }
+
+    @Test
+    void shouldCreateSeriesFromOrderedPointsOnly() throws Exception {
+        Path file = directory.resolve("USD.rates");
+
+        RateSeries series = RateSeries.create(file, 4, BLOCK_SIZE, 0, new int[]{1, 2, 5}, new long[]{10, 30, 20}, 3);
+
+        assertEquals(new RateSeries.Aggregate(3, 1, 5, 10, 30, 60, 20), series.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(RateSeries.Aggregate.EMPTY, series.aggregate(3, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> RateSeries.create(file, 4, BLOCK_SIZE, 0, new int[]{1, 1}, new long[]{10, 30}, 2));
+    }
+
+    @Test
+    void shouldConvertRatesWithTheScaleOfTheSeries() throws Exception {
+        RateSeries series = RateSeries.open(directory.resolve("USD.rates"), 4, BLOCK_SIZE, 16);
+
+        assertEquals(40_124, series.toScaled(new BigDecimal("4.01235")));
+        assertEquals(new BigDecimal("4.0124"), series.toRate(40_124));
+    }
+
+    private static RateSeries.Aggregate scan(int[] days, long[] rates, int from, int to) {
+        int points = 0;
+        int firstDay = 0;
+        int lastDay = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long sum = 0;
+        long last = 0;
+        for (int i = 0; i < days.length; i++) {
+            if (days[i] >= from && days[i] <= to) {
+                if (points++ == 0) {
+                    firstDay = days[i];
+                }
+                lastDay = days[i];
+                min = Math.min(min, rates[i]);
+                max = Math.max(max, rates[i]);
+                sum += rates[i];
+                last = rates[i];
+            }
+        }
+        return points == 0 ? RateSeries.Aggregate.EMPTY : new RateSeries.Aggregate(points, firstDay, lastDay, min, max, sum, last);
+    }
+}
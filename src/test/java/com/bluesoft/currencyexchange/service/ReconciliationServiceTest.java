@@ -0,0 +1,174 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.ReconciliationProperties;
+import com.bluesoft.currencyexchange.dto.ReconciliationStatusDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReconciliationServiceTest {
+
+    private static final UUID ACCOUNT_ID = UUID.fromString("8f0e2c57-1a3b-4c5d-9e6f-7a8b9c0d1e2f");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldReportBalancesThatDifferFromLedger() throws Exception {
+        rows(2, new String[]{"1000.00", "1000.00"}, new String[]{"10.00", "12.50"});
+        ReconciliationService service = service(1);
+
+        service.run();
+
+        ReconciliationStatusDto status = service.status();
+        assertEquals(ReconciliationStatusDto.State.COMPLETED, status.state());
+        assertEquals(2, status.rows());
+        assertEquals(1, status.discrepancies());
+        assertEquals(ReconciliationService.REPORT_HEADER + ACCOUNT_ID + ",2,USD,10.00,12.50,-2.50\n",
+                Files.readString(Path.of(status.report())));
+        assertFalse(Files.exists(directory.resolve(ReconciliationService.CHECKPOINT)));
+        assertEquals(2, meterRegistry.counter("reconciliation.rows").count());
+        assertEquals(1, meterRegistry.counter("reconciliation.discrepancies").count());
+    }
+
+    @Test
+    void shouldTreatMissingLedgerAsZero() throws Exception {
+        rows(1, new String[]{"5.00", null});
+        ReconciliationService service = service(1);
+
+        service.run();
+
+        assertEquals(1, service.status().discrepancies());
+        assertTrue(Files.readString(Path.of(service.status().report())).endsWith(",5.00,0,5.00\n"));
+    }
+
+    @Test
+    void shouldSpillDiscrepanciesBeyondChunkAndReportThemInOrder() throws Exception {
+        Files.writeString(directory.resolve("discrepancies-7.part"), "left by a partition that did not complete");
+        rows(5, new String[]{"1.00", "2.00"}, new String[]{"3.00", "3.00"}, new String[]{"4.00", "5.00"},
+                new String[]{"6.00", "7.00"}, new String[]{"8.00", "9.00"});
+        // one partition at a time, holding at most two discrepancies
+        ReconciliationService service = new ReconciliationService(jdbcTemplate, transactionManager,
+                new ReconciliationProperties(directory, 1, 2, 1, 2), meterRegistry);
+
+        service.run();
+
+        assertEquals(4, service.status().discrepancies());
+        assertEquals(ReconciliationService.REPORT_HEADER
+                        + ACCOUNT_ID + ",1,PLN,1.00,2.00,-1.00\n"
+                        + ACCOUNT_ID + ",3,USD,4.00,5.00,-1.00\n"
+                        + ACCOUNT_ID + ",4,USD,6.00,7.00,-1.00\n"
+                        + ACCOUNT_ID + ",5,USD,8.00,9.00,-1.00\n",
+                Files.readString(Path.of(service.status().report())));
+        try (var spilled = Files.newDirectoryStream(directory, ReconciliationService.SPILL_GLOB)) {
+            assertFalse(spilled.iterator().hasNext());
+        }
+    }
+
+    @Test
+    void shouldResumeWithUnfinishedPartitionsAndCutReportBack() throws Exception {
+        String reported = ACCOUNT_ID + ",1,PLN,1.00,2.00,-1.00\n";
+        Files.writeString(directory.resolve("discrepancies-previous.csv"),
+                ReconciliationService.REPORT_HEADER + reported + "written before the crash");
+        int headerSize = ReconciliationService.REPORT_HEADER.length();
+        Files.writeString(directory.resolve(ReconciliationService.CHECKPOINT), "3 discrepancies-previous.csv\n"
+                + "-1 0 0 0 " + headerSize + "\n"
+                + "0 0 10 1 " + (headerSize + reported.length()) + "\n"
+                + "2 0 4 0 " + (headerSize + reported.length()) + "\n"
+                + "1 0 7 1 99");
+        rows(1, new String[]{"3.00", "3.00"});
+        ReconciliationService service = service(3);
+
+        service.run();
+
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        ReconciliationStatusDto status = service.status();
+        assertEquals(ReconciliationStatusDto.State.COMPLETED, status.state());
+        assertEquals(3, status.completedPartitions());
+        assertEquals(15, status.rows());
+        assertEquals(1, status.discrepancies());
+        assertEquals(ReconciliationService.REPORT_HEADER + reported, Files.readString(directory.resolve("discrepancies-previous.csv")));
+    }
+
+    @Test
+    void shouldStartOverWhenCheckpointHasOtherPartitioning() throws Exception {
+        Files.writeString(directory.resolve(ReconciliationService.CHECKPOINT), "8 discrepancies-previous.csv\n-1 0 0 0 10\n");
+        rows(1, new String[]{"3.00", "3.00"});
+        ReconciliationService service = service(1);
+
+        service.run();
+
+        assertNotEquals(directory.resolve("discrepancies-previous.csv").toString(), service.status().report());
+        assertEquals(1, service.status().rows());
+    }
+
+    @Test
+    void shouldKeepCheckpointWhenPartitionFails() throws Exception {
+        doThrow(new IllegalStateException("connection lost"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        ReconciliationService service = service(2);
+
+        service.run();
+
+        assertEquals(ReconciliationStatusDto.State.FAILED, service.status().state());
+        assertTrue(Files.exists(directory.resolve(ReconciliationService.CHECKPOINT)));
+    }
+
+    private ReconciliationService service(int partitions) {
+        return new ReconciliationService(jdbcTemplate, transactionManager,
+                new ReconciliationProperties(directory, partitions, 2, 100, 1000), meterRegistry);
+    }
+
+    /**
+     * Streams the given balance and ledger total pairs for every partition, numbering the currency accounts from 1.
+     */
+    private void rows(int count, String[]... balances) throws Exception {
+        int[] row = new int[1];
+        lenient().when(resultSet.getString(1)).thenReturn(ACCOUNT_ID.toString());
+        lenient().when(resultSet.getLong(2)).thenAnswer(invocation -> row[0] + 1L);
+        lenient().when(resultSet.getString(3)).thenAnswer(invocation -> row[0] == 0 ? "PLN" : "USD");
+        lenient().when(resultSet.getBigDecimal(4)).thenAnswer(invocation -> decimal(balances[row[0]][0]));
+        lenient().when(resultSet.getBigDecimal(5)).thenAnswer(invocation -> decimal(balances[row[0]][1]));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (row[0] = 0; row[0] < count; row[0]++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+}
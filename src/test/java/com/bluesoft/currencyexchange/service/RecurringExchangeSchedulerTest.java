@@ -0,0 +1,83 @@
+package com.bluesoft.currencyexchange.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecurringExchangeSchedulerTest {
+
+    @Mock
+    private RecurringExchangeService recurringExchangeService;
+
+    @Mock
+    private CurrencyRateProvider currencyRateProvider;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecurringExchangeScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new RecurringExchangeScheduler(recurringExchangeService, currencyRateProvider, meterRegistry);
+    }
+
+    @Test
+    void shouldNotFetchRateWhenNothingIsDue() {
+        when(recurringExchangeService.claimDue(any(), any())).thenReturn(List.of());
+
+        scheduler.runDueExchanges();
+
+        verifyNoInteractions(currencyRateProvider);
+    }
+
+    @Test
+    void shouldExecuteAllClaimedBatchesWithOneRateSnapshot() {
+        BigDecimal rate = new BigDecimal("4.00");
+        when(recurringExchangeService.claimDue(any(), any()))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L))
+                .thenReturn(List.of());
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(rate);
+        when(recurringExchangeService.execute(any(), any(), eq(rate))).thenReturn(Optional.of(Instant.now()));
+
+        scheduler.runDueExchanges();
+
+        verify(currencyRateProvider, times(1)).getUsdToPlnRate();
+        verify(recurringExchangeService, times(3)).execute(any(), any(), eq(rate));
+        assertEquals(3.0, meterRegistry.get("recurring.exchange.runs").tag("outcome", "succeeded").counter().count());
+        assertEquals(3, meterRegistry.get("recurring.exchange.lag").timer().count());
+    }
+
+    @Test
+    void shouldRecordFailureAndContinueWithRemainingRuns() {
+        BigDecimal rate = new BigDecimal("4.00");
+        when(recurringExchangeService.claimDue(any(), any()))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of());
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(rate);
+        when(recurringExchangeService.execute(eq(1L), any(), eq(rate)))
+                .thenThrow(new IllegalArgumentException("Insufficient funds in the account."));
+        when(recurringExchangeService.execute(eq(2L), any(), eq(rate))).thenReturn(Optional.of(Instant.now()));
+
+        scheduler.runDueExchanges();
+
+        verify(recurringExchangeService).recordFailure(eq(1L), any(UUID.class), eq("Insufficient funds in the account."));
+        assertEquals(1.0, meterRegistry.get("recurring.exchange.runs").tag("outcome", "failed").counter().count());
+        assertEquals(1.0, meterRegistry.get("recurring.exchange.runs").tag("outcome", "succeeded").counter().count());
+    }
+}
@@ -0,0 +1,82 @@
+package com.bluesoft.currencyexchange.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunCheckpointTest {
+
+    private static final String CHECKPOINT = "run.checkpoint";
+    private static final List<String> OUTPUTS = List.of("out-0.txt", "out-1.txt");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldStartNewRunWithPrologueInEveryOutput() throws Exception {
+        Files.writeString(directory.resolve("out-0.txt"), "left from another run");
+
+        try (RunCheckpoint checkpoint = open("4", OUTPUTS)) {
+            assertTrue(checkpoint.completed().isEmpty());
+            assertEquals(0, checkpoint.total(0));
+        }
+
+        assertEquals("head\n", Files.readString(directory.resolve("out-0.txt")));
+        assertEquals("head\n", Files.readString(directory.resolve("out-1.txt")));
+        assertEquals("4 out-0.txt out-1.txt\n-1 0 0 0 5\n-1 1 0 0 5\n", Files.readString(directory.resolve(CHECKPOINT)));
+    }
+
+    @Test
+    void shouldResumeWithCompletedPartitionsAndCutOutputsBack() throws Exception {
+        try (RunCheckpoint checkpoint = open("4", OUTPUTS)) {
+            checkpoint.complete(0, 0, channel -> RunCheckpoint.write(channel, "zero\n", false), 3, 1);
+            RunCheckpoint.write(checkpoint.output(1), "one\n", false);
+            checkpoint.complete(1, 1, 2, 0);
+            // written by partition 2, which did not complete
+            RunCheckpoint.write(checkpoint.output(0), "two, cut short", false);
+        }
+        Files.writeString(directory.resolve(CHECKPOINT), "2 0 5 5 99", StandardOpenOption.APPEND);
+
+        try (RunCheckpoint checkpoint = open("4", List.of("other-0.txt", "other-1.txt"))) {
+            assertEquals(Set.of(0, 1), checkpoint.completed());
+            assertEquals(5, checkpoint.total(0));
+            assertEquals(1, checkpoint.total(1));
+            assertEquals(directory.resolve("out-0.txt"), checkpoint.outputFile(0));
+            checkpoint.complete(2, 0, channel -> RunCheckpoint.write(channel, "two\n", false), 1, 0);
+        }
+
+        assertEquals("head\nzero\ntwo\n", Files.readString(directory.resolve("out-0.txt")));
+        assertEquals("head\none\n", Files.readString(directory.resolve("out-1.txt")));
+        assertTrue(Files.readString(directory.resolve(CHECKPOINT)).endsWith("\n1 1 2 0 9\n2 0 1 0 14\n"));
+    }
+
+    @Test
+    void shouldStartAnewWhenSettingsDifferOrAnOutputIsGone() throws Exception {
+        try (RunCheckpoint checkpoint = open("4", OUTPUTS)) {
+            checkpoint.complete(0, 0, 1, 0);
+        }
+        try (RunCheckpoint checkpoint = open("8", OUTPUTS)) {
+            assertTrue(checkpoint.completed().isEmpty());
+            checkpoint.complete(0, 0, 1, 0);
+        }
+        Files.delete(directory.resolve("out-1.txt"));
+
+        try (RunCheckpoint checkpoint = open("8", OUTPUTS)) {
+            assertTrue(checkpoint.completed().isEmpty());
+            checkpoint.delete();
+        }
+
+        assertFalse(Files.exists(directory.resolve(CHECKPOINT)));
+    }
+
+    private RunCheckpoint open(String settings, List<String> outputs) throws Exception {
+        return RunCheckpoint.open(directory, CHECKPOINT, settings, outputs, 2, "head\n");
+    }
+}
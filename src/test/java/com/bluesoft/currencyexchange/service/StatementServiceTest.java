@@ -0,0 +1,171 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.StatementProperties;
+import com.bluesoft.currencyexchange.dto.StatementRunDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 18);
+    private static final UUID ACCOUNT_ID = UUID.fromString("8f0e2c57-1a3b-4c5d-9e6f-7a8b9c0d1e2f");
+    private static final UUID NEW_ACCOUNT_ID = UUID.fromString("9a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d");
+    private static final String STATEMENT = """
+            STATEMENT\t2026-10-18\t8f0e2c57-1a3b-4c5d-9e6f-7a8b9c0d1e2f\tJan\tKowalski
+            BALANCE\tUSD\t5.00\t30.00
+            BALANCE\tPLN\t1005.00\t900.00
+            EXCHANGE\t2026-10-18T10:15:00Z\t100.00\tPLN\t25.00\tUSD\t4.0000
+            CHANGE\t2026-10-18T11:00:00Z\t-5.00\tPLN
+            END
+            """;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRenderBalancesOfTheDayAndCombineExchangeLegs() throws Exception {
+        rows();
+        StatementService service = service(1, 1, false);
+
+        service.run(DAY);
+
+        StatementRunDto status = service.status();
+        assertEquals(StatementRunDto.State.COMPLETED, status.state());
+        // the account opened the next day gets no statement
+        assertEquals(1, status.statements());
+        assertEquals(expected(1), Files.readString(directory.resolve("2026-10-18/statements-0.txt")));
+        assertFalse(Files.exists(directory.resolve("2026-10-18").resolve(StatementService.CHECKPOINT)));
+        assertEquals(1, meterRegistry.counter("statements.generated").count());
+    }
+
+    @Test
+    void shouldWriteOneGzipMemberPerPartitionToEachShard() throws Exception {
+        rows();
+        StatementService service = service(4, 2, true);
+
+        service.run(DAY);
+
+        assertEquals(4, service.status().statements());
+        assertEquals(expected(2), gunzip(directory.resolve("2026-10-18/statements-0.txt.gz")));
+        assertEquals(expected(2), gunzip(directory.resolve("2026-10-18/statements-1.txt.gz")));
+    }
+
+    @Test
+    void shouldResumeWithUnfinishedPartitionsAndCutFilesBack() throws Exception {
+        Path day = Files.createDirectories(directory.resolve("2026-10-18"));
+        int size = STATEMENT.length();
+        Files.writeString(day.resolve("statements-0.txt"), STATEMENT + "STATEMENT\twritten before the crash");
+        Files.writeString(day.resolve("statements-1.txt"), STATEMENT);
+        Files.writeString(day.resolve(StatementService.CHECKPOINT), "3 2 false statements-0.txt statements-1.txt\n0 0 1 " + size + "\n1 1 1 " + size + "\n2 0 1 99");
+        rows();
+        StatementService service = service(3, 2, false);
+
+        service.run(DAY);
+
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        StatementRunDto status = service.status();
+        assertEquals(StatementRunDto.State.COMPLETED, status.state());
+        assertEquals(3, status.completedPartitions());
+        assertEquals(3, status.statements());
+        assertEquals(expected(2), Files.readString(day.resolve("statements-0.txt")));
+        assertEquals(expected(1), Files.readString(day.resolve("statements-1.txt")));
+    }
+
+    @Test
+    void shouldKeepCheckpointWhenPartitionFails() throws Exception {
+        doThrow(new IllegalStateException("connection lost"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        StatementService service = service(2, 1, true);
+
+        service.run(DAY);
+
+        assertEquals(StatementRunDto.State.FAILED, service.status().state());
+        assertTrue(Files.exists(directory.resolve("2026-10-18").resolve(StatementService.CHECKPOINT)));
+    }
+
+    private StatementService service(int partitions, int shards, boolean gzip) {
+        return new StatementService(jdbcTemplate, transactionManager,
+                new StatementProperties(directory, shards, partitions, 100, 1024, gzip), meterRegistry);
+    }
+
+    private static String expected(int statements) {
+        return STATEMENT.repeat(statements);
+    }
+
+    /**
+     * Streams the same rows for every partition: an account with an exchange and a change during the day and a
+     * deposit the day after, followed by an account opened the day after.
+     */
+    private void rows() throws Exception {
+        Object[][] rows = {
+                {ACCOUNT_ID, "PLN", "900.00", "PLN", "-100.00", "BALANCE_CHANGED", "2026-10-18T10:15:00Z"},
+                {ACCOUNT_ID, "USD", "35.00", "USD", "25.00", "BALANCE_CHANGED", "2026-10-18T10:15:00Z"},
+                {ACCOUNT_ID, "PLN", "900.00", "PLN", "-5.00", "BALANCE_CHANGED", "2026-10-18T11:00:00Z"},
+                {ACCOUNT_ID, "USD", "35.00", "USD", "5.00", "BALANCE_CHANGED", "2026-10-19T08:00:00Z"},
+                {NEW_ACCOUNT_ID, "PLN", "50.00", "PLN", "50.00", "ACCOUNT_CREATED", "2026-10-19T09:00:00Z"},
+        };
+        int[] row = new int[1];
+        lenient().when(resultSet.getObject(eq(1), eq(UUID.class))).thenAnswer(invocation -> rows[row[0]][0]);
+        lenient().when(resultSet.getString(2)).thenReturn("Jan");
+        lenient().when(resultSet.getString(3)).thenReturn("Kowalski");
+        lenient().when(resultSet.getString(4)).thenAnswer(invocation -> rows[row[0]][1]);
+        lenient().when(resultSet.getBigDecimal(5)).thenAnswer(invocation -> new BigDecimal((String) rows[row[0]][2]));
+        lenient().when(resultSet.getString(6)).thenAnswer(invocation -> rows[row[0]][3]);
+        lenient().when(resultSet.getBigDecimal(7)).thenAnswer(invocation -> new BigDecimal((String) rows[row[0]][4]));
+        lenient().when(resultSet.getString(8)).thenAnswer(invocation -> rows[row[0]][5]);
+        lenient().when(resultSet.getTimestamp(9)).thenAnswer(invocation -> Timestamp.from(Instant.parse((String) rows[row[0]][6])));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            // the shards share the mocked result set
+            synchronized (row) {
+                for (row[0] = 0; row[0] < rows.length; row[0]++) {
+                    handler.processRow(resultSet);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static String gunzip(Path file) throws Exception {
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.bluesoft.currencyexchange.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final TokenBuckets<String> buckets = new TokenBuckets<>(10, 5, 3, 60 * SECOND, clock::get);
+
+    @Test
+    void shouldAdmitBurstAndThenRejectWithRetryTime() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, buckets.tryAcquire("client"));
+        }
+
+        long wait = buckets.tryAcquire("client");
+
+        assertEquals(SECOND / 10, wait);
+    }
+
+    @Test
+    void shouldRefillAtConfiguredRate() {
+        for (int i = 0; i < 5; i++) {
+            buckets.tryAcquire("client");
+        }
+
+        clock.addAndGet(SECOND / 10);
+
+        assertEquals(0, buckets.tryAcquire("client"));
+        assertTrue(buckets.tryAcquire("client") > 0);
+    }
+
+    @Test
+    void shouldKeepKeysIndependent() {
+        for (int i = 0; i < 5; i++) {
+            buckets.tryAcquire("a");
+        }
+
+        assertTrue(buckets.tryAcquire("a") > 0);
+        assertEquals(0, buckets.tryAcquire("b"));
+    }
+
+    @Test
+    void shouldRejectNewKeysWhenAllBucketsAreBusy() {
+        buckets.tryAcquire("a");
+        buckets.tryAcquire("b");
+        buckets.tryAcquire("c");
+
+        assertEquals(TokenBuckets.NO_CAPACITY, buckets.tryAcquire("d"));
+        assertEquals(3, buckets.size());
+    }
+
+    @Test
+    void shouldReuseFullBucketsWhenAtCapacity() {
+        buckets.tryAcquire("a");
+        buckets.tryAcquire("b");
+        buckets.tryAcquire("c");
+
+        clock.addAndGet(SECOND);
+
+        assertEquals(0, buckets.tryAcquire("d"));
+        assertEquals(1, buckets.size());
+    }
+
+    @Test
+    void shouldEvictOnlyIdleBuckets() {
+        buckets.tryAcquire("old");
+        clock.addAndGet(61 * SECOND);
+        buckets.tryAcquire("recent");
+
+        buckets.evictIdle();
+
+        assertEquals(1, buckets.size());
+    }
+
+    @Test
+    void shouldNeverAdmitMoreThanBurstUnderContention() throws InterruptedException {
+        TokenBuckets<String> frozen = new TokenBuckets<>(1, 100, 10, SECOND, () -> 0L);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (frozen.tryAcquire("hot") == 0) {
+                    admitted.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, admitted.get());
+    }
+}
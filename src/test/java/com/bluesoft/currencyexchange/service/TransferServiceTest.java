@@ -0,0 +1,168 @@
+package com.bluesoft.currencyexchange.service;
+
+import com.bluesoft.currencyexchange.config.PricingProperties;
+import com.bluesoft.currencyexchange.config.TransferProperties;
+import com.bluesoft.currencyexchange.dto.TransferDto;
+import com.bluesoft.currencyexchange.dto.TransferRequest;
+import com.bluesoft.currencyexchange.entity.Account;
+import com.bluesoft.currencyexchange.entity.CurrencyAccount;
+import com.bluesoft.currencyexchange.entity.OutboxEventType;
+import com.bluesoft.currencyexchange.entity.Symbol;
+import com.bluesoft.currencyexchange.exception.AccountNotFoundException;
+import com.bluesoft.currencyexchange.exception.InsufficientFundsException;
+import com.bluesoft.currencyexchange.exception.InvalidCurrencyExchangeException;
+import com.bluesoft.currencyexchange.exception.TransferConflictException;
+import com.bluesoft.currencyexchange.repository.CurrencyAccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceTest {
+
+    @Mock
+    private CurrencyAccountRepository currencyAccountRepository;
+
+    @Mock
+    private CurrencyRateProvider currencyRateProvider;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransferService transferService;
+
+    private UUID fromAccountId;
+    private UUID toAccountId;
+    private Account fromAccount;
+    private Account toAccount;
+    private CurrencyAccount fromPln;
+    private CurrencyAccount toPln;
+    private CurrencyAccount toUsd;
+
+    @BeforeEach
+    void setUp() {
+        transferService = new TransferService(currencyAccountRepository, currencyRateProvider, outboxService,
+                transactionManager, entityManager, new TransferProperties(3, Duration.ofMillis(1)),
+                new PricingEngine(new PricingProperties(null), new ObjectMapper()), meterRegistry);
+
+        fromAccountId = UUID.randomUUID();
+        toAccountId = UUID.randomUUID();
+        fromAccount = new Account();
+        fromAccount.setId(fromAccountId);
+        toAccount = new Account();
+        toAccount.setId(toAccountId);
+        fromPln = new CurrencyAccount(1L, Symbol.PLN, fromAccount, new BigDecimal("1000.00"));
+        toPln = new CurrencyAccount(3L, Symbol.PLN, toAccount, new BigDecimal("10.00"));
+        toUsd = new CurrencyAccount(4L, Symbol.USD, toAccount, new BigDecimal("5.00"));
+    }
+
+    @Test
+    void shouldTransferSameCurrencyWithoutFetchingRate() {
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(fromAccountId, toAccountId)))
+                .thenReturn(List.of(fromPln, toPln, toUsd));
+
+        TransferDto transfer = transferService.transfer(request(Symbol.PLN, Symbol.PLN, "100"));
+
+        assertEquals(new BigDecimal("900.00"), fromPln.getBalance());
+        assertEquals(new BigDecimal("110.00"), toPln.getBalance());
+        assertEquals(new BigDecimal("100.00"), transfer.debitedAmount());
+        assertEquals(new BigDecimal("100.00"), transfer.creditedAmount());
+        assertNull(transfer.rate());
+        verifyNoInteractions(currencyRateProvider);
+        verify(outboxService).record(fromAccount, OutboxEventType.BALANCE_CHANGED);
+        verify(outboxService).record(toAccount, OutboxEventType.BALANCE_CHANGED);
+    }
+
+    @Test
+    void shouldConvertCrossCurrencyTransfer() {
+        when(currencyRateProvider.getUsdToPlnRate()).thenReturn(new BigDecimal("4.0000"));
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(fromAccountId, toAccountId)))
+                .thenReturn(List.of(fromPln, toPln, toUsd));
+
+        TransferDto transfer = transferService.transfer(request(Symbol.PLN, Symbol.USD, "100"));
+
+        assertEquals(new BigDecimal("900.00"), fromPln.getBalance());
+        assertEquals(new BigDecimal("30.00"), toUsd.getBalance());
+        assertEquals(new BigDecimal("25.00"), transfer.creditedAmount());
+        assertEquals(new BigDecimal("4.0000"), transfer.rate());
+    }
+
+    @Test
+    void shouldRejectTransferToSameCurrencyAccount() {
+        TransferRequest request = new TransferRequest(fromAccountId, Symbol.PLN, fromAccountId, Symbol.PLN, BigDecimal.TEN);
+
+        assertThrows(InvalidCurrencyExchangeException.class, () -> transferService.transfer(request));
+        verifyNoInteractions(currencyAccountRepository);
+    }
+
+    @Test
+    void shouldRejectTransferThatWouldEmptySourceAccount() {
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(fromAccountId, toAccountId)))
+                .thenReturn(List.of(fromPln, toPln, toUsd));
+
+        assertThrows(InsufficientFundsException.class, () -> transferService.transfer(request(Symbol.PLN, Symbol.PLN, "1000")));
+        assertEquals(new BigDecimal("1000.00"), fromPln.getBalance());
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void shouldThrowWhenTargetCurrencyAccountIsMissing() {
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(fromAccountId, toAccountId)))
+                .thenReturn(List.of(fromPln, toUsd));
+
+        assertThrows(AccountNotFoundException.class, () -> transferService.transfer(request(Symbol.PLN, Symbol.PLN, "100")));
+    }
+
+    @Test
+    void shouldRetryAfterLockFailureInFreshPersistenceContext() {
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(fromAccountId, toAccountId)))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                .thenReturn(List.of(fromPln, toPln, toUsd));
+
+        transferService.transfer(request(Symbol.PLN, Symbol.PLN, "100"));
+
+        assertEquals(new BigDecimal("110.00"), toPln.getBalance());
+        assertEquals(1, meterRegistry.counter("transfer.retries").count());
+        verify(entityManager, times(2)).clear();
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        when(currencyAccountRepository.findWithLockByAccount_IdInOrderById(List.of(fromAccountId, toAccountId)))
+                .thenThrow(new CannotAcquireLockException("could not serialize access"));
+
+        assertThrows(TransferConflictException.class, () -> transferService.transfer(request(Symbol.PLN, Symbol.PLN, "100")));
+        verify(currencyAccountRepository, times(3)).findWithLockByAccount_IdInOrderById(any());
+        assertEquals(2, meterRegistry.counter("transfer.retries").count());
+    }
+
+    private TransferRequest request(Symbol fromCurrency, Symbol toCurrency, String amount) {
+        return new TransferRequest(fromAccountId, fromCurrency, toAccountId, toCurrency, new BigDecimal(amount));
+    }
+}